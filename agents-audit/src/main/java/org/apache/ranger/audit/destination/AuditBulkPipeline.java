@@ -0,0 +1,398 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.destination;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.model.AuthzAuditEventField;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends audit events to a bulk-indexing destination, like Solr or Elasticsearch, with up to pipeline.max.inflight bulk
+ * requests in flight. Used by the destination's log() when pipeline.enabled=true.
+ *
+ * submit() splits the events into batches of at most pipeline.batch.max.docs events and pipeline.batch.max.bytes
+ * (estimated) bytes, and hands each batch to a sender thread. When all sender threads are busy, submit() waits for one
+ * to be free - which holds back the queue feeding the destination - and returns false if none is free within
+ * pipeline.submit.timeout.ms, so that the queue spools the events.
+ *
+ * Items the sender reports as failed with a transient error, or all items of a request that failed as a whole, are
+ * retried with exponential backoff up to pipeline.max.retries times (-1: until the pipeline is stopped); items it
+ * reports as rejected are not retried. Events re-sent after a partial failure overwrite the document of the same id.
+ *
+ * Once submit() returns true, the queue feeding the destination takes the events as written. Hence events still being
+ * retried when the pipeline is stopped, or after the retries are exhausted, are stashed in the file spool of that queue
+ * (see AuditDestination.setFileSpool()); they are logged as failed only when the queue has no file spool.
+ */
+public class AuditBulkPipeline {
+	private static final Logger LOG = LoggerFactory.getLogger(AuditBulkPipeline.class);
+
+	public static final String PROP_PIPELINE_ENABLED           = "pipeline.enabled";
+	public static final String PROP_PIPELINE_MAX_INFLIGHT      = "pipeline.max.inflight";
+	public static final String PROP_PIPELINE_BATCH_MAX_DOCS    = "pipeline.batch.max.docs";
+	public static final String PROP_PIPELINE_BATCH_MAX_BYTES   = "pipeline.batch.max.bytes";
+	public static final String PROP_PIPELINE_SUBMIT_TIMEOUT_MS = "pipeline.submit.timeout.ms";
+	public static final String PROP_PIPELINE_MAX_RETRIES       = "pipeline.max.retries";
+	public static final String PROP_PIPELINE_RETRY_BACKOFF_MS  = "pipeline.retry.backoff.ms";
+	public static final String PROP_PIPELINE_STOP_TIMEOUT_MS   = "pipeline.stop.timeout.ms";
+
+	private static final long MAX_RETRY_BACKOFF_MS = 60 * 1000;
+
+	/**
+	 * Writes a batch of events in one bulk request.
+	 */
+	public interface BulkSender {
+		/**
+		 * Items not marked in the result as failed are taken as written.
+		 *
+		 * @throws Exception if the request failed as a whole; all items of the batch are then retried
+		 */
+		void send(List<AuditEventBase> batch, BulkResult result) throws Exception;
+	}
+
+	/**
+	 * Outcome of a bulk request for the items that were not written; items are identified by their index in the batch.
+	 */
+	public static class BulkResult {
+		private final List<Integer> retryItems  = new ArrayList<>();
+		private final List<Integer> failedItems = new ArrayList<>();
+		private final List<String>  failReasons = new ArrayList<>();
+		private String              retryReason = null;
+
+		/**
+		 * Marks the item as failed with a transient error, like an overloaded or unavailable shard.
+		 */
+		public void retry(int index, String reason) {
+			retryItems.add(index);
+
+			if (retryReason == null) {
+				retryReason = reason;
+			}
+		}
+
+		/**
+		 * Marks the item as rejected by the destination, like a document that doesn't match the schema.
+		 */
+		public void fail(int index, String reason) {
+			failedItems.add(index);
+			failReasons.add(reason);
+		}
+	}
+
+	private final AuditDestination destination;
+	private final BulkSender       sender;
+	private final AtomicInteger    threadCount = new AtomicInteger();
+
+	private int             maxInFlight     = 4;
+	private int             maxBatchDocs    = 1000;
+	private long            maxBatchBytes   = 5 * 1024 * 1024;
+	private long            submitTimeoutMs = 30 * 1000;
+	private int             maxRetries      = -1;
+	private long            retryBackoffMs  = 1000;
+	private long            stopTimeoutMs   = 30 * 1000;
+	private Semaphore       inFlight        = null;
+	private ExecutorService executor        = null;
+
+	private volatile boolean isStopped = false;
+
+	public AuditBulkPipeline(AuditDestination destination, BulkSender sender) {
+		this.destination = destination;
+		this.sender      = sender;
+	}
+
+	/**
+	 * @return true if the destination configured with the given property prefix should use the pipeline
+	 */
+	public static boolean isEnabled(Properties props, String propPrefix) {
+		return MiscUtil.getBooleanProperty(props, propPrefix + "." + PROP_PIPELINE_ENABLED, false);
+	}
+
+	public void init(Properties props, String propPrefix) {
+		maxInFlight     = Math.max(1, MiscUtil.getIntProperty(props, propPrefix + "." + PROP_PIPELINE_MAX_INFLIGHT, maxInFlight));
+		maxBatchDocs    = Math.max(1, MiscUtil.getIntProperty(props, propPrefix + "." + PROP_PIPELINE_BATCH_MAX_DOCS, maxBatchDocs));
+		maxBatchBytes   = MiscUtil.getLongProperty(props, propPrefix + "." + PROP_PIPELINE_BATCH_MAX_BYTES, maxBatchBytes);
+		submitTimeoutMs = MiscUtil.getLongProperty(props, propPrefix + "." + PROP_PIPELINE_SUBMIT_TIMEOUT_MS, submitTimeoutMs);
+		maxRetries      = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_PIPELINE_MAX_RETRIES, maxRetries);
+		retryBackoffMs  = MiscUtil.getLongProperty(props, propPrefix + "." + PROP_PIPELINE_RETRY_BACKOFF_MS, retryBackoffMs);
+		stopTimeoutMs   = MiscUtil.getLongProperty(props, propPrefix + "." + PROP_PIPELINE_STOP_TIMEOUT_MS, stopTimeoutMs);
+		inFlight        = new Semaphore(maxInFlight);
+
+		// a permit is taken before a batch is handed over, hence batches never wait in the executor's queue
+		executor = new ThreadPoolExecutor(maxInFlight, maxInFlight, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+			Thread thread = new Thread(r, destination.getName() + "_bulkSender" + threadCount.incrementAndGet());
+
+			thread.setDaemon(true);
+
+			return thread;
+		});
+
+		LOG.info("Bulk pipeline initialized. destination={}, maxInFlight={}, maxBatchDocs={}, maxBatchBytes={}, submitTimeoutMs={}, maxRetries={}, retryBackoffMs={}",
+		         destination.getName(), maxInFlight, maxBatchDocs, maxBatchBytes, submitTimeoutMs, maxRetries, retryBackoffMs);
+	}
+
+	/**
+	 * Hands the events to sender threads in batches, waiting for a free sender if all are busy.
+	 *
+	 * @return false if the pipeline is stopped, or no sender became free within the submit timeout. Batches handed over
+	 *         before that are still sent.
+	 */
+	public boolean submit(Collection<AuditEventBase> events) throws InterruptedException {
+		List<AuditEventBase> batch      = new ArrayList<>(Math.min(events.size(), maxBatchDocs));
+		long                 batchBytes = 0;
+
+		for (AuditEventBase event : events) {
+			int eventBytes = estimateDocSize(event);
+
+			if (!batch.isEmpty() && (batch.size() >= maxBatchDocs || batchBytes + eventBytes > maxBatchBytes)) {
+				if (!submitBatch(batch)) {
+					return false;
+				}
+
+				batch      = new ArrayList<>(Math.min(events.size(), maxBatchDocs));
+				batchBytes = 0;
+			}
+
+			batch.add(event);
+
+			batchBytes += eventBytes;
+		}
+
+		return batch.isEmpty() || submitBatch(batch);
+	}
+
+	/**
+	 * Waits for the batches in flight to complete, up to the given time; a timeout <= 0 waits up to pipeline.stop.timeout.ms.
+	 *
+	 * @return true if no batch is in flight
+	 */
+	public boolean waitToComplete(long timeoutMs) {
+		long deadline = System.currentTimeMillis() + (timeoutMs > 0 ? timeoutMs : stopTimeoutMs);
+
+		try {
+			while (getInFlightCount() > 0) {
+				if (System.currentTimeMillis() >= deadline) {
+					return false;
+				}
+
+				Thread.sleep(10);
+			}
+		} catch (InterruptedException excp) {
+			Thread.currentThread().interrupt();
+
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Stops accepting events and waits up to pipeline.stop.timeout.ms for the batches in flight. Events of batches being
+	 * retried are stashed in the file spool, once their current request completes or, after the timeout, is interrupted.
+	 */
+	public void stop() {
+		isStopped = true;
+
+		ExecutorService executor = this.executor;
+
+		if (executor != null) {
+			executor.shutdown();
+
+			try {
+				if (!executor.awaitTermination(stopTimeoutMs, TimeUnit.MILLISECONDS)) {
+					LOG.warn("Bulk requests didn't complete in {} ms; interrupting. destination={}, inFlight={}", stopTimeoutMs, destination.getName(), getInFlightCount());
+
+					executor.shutdownNow();
+					executor.awaitTermination(stopTimeoutMs, TimeUnit.MILLISECONDS);
+				}
+			} catch (InterruptedException excp) {
+				executor.shutdownNow();
+
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	public int getInFlightCount() {
+		return inFlight == null ? 0 : maxInFlight - inFlight.availablePermits();
+	}
+
+	/**
+	 * Rough size of the document for the event, used to limit the size of bulk requests.
+	 */
+	static int estimateDocSize(AuditEventBase event) {
+		if (!(event instanceof AuthzAuditEvent)) {
+			return 1024;
+		}
+
+		AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
+		int             ret        = 2;
+
+		for (AuthzAuditEventField field : AuthzAuditEventField.getDocFields()) {
+			ret += field.getDocName().length() + 4;
+
+			if (field.isPrimitive()) {
+				ret += 8;
+			} else {
+				Object value = field.getValue(authzEvent);
+
+				if (value instanceof String) {
+					ret += ((String) value).length() + 2;
+				} else if (value instanceof Set) {
+					for (Object item : (Set<?>) value) {
+						ret += String.valueOf(item).length() + 3;
+					}
+				} else {
+					ret += 24;
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	private boolean submitBatch(List<AuditEventBase> batch) throws InterruptedException {
+		if (isStopped || !inFlight.tryAcquire(submitTimeoutMs, TimeUnit.MILLISECONDS)) {
+			return false;
+		}
+
+		try {
+			executor.execute(() -> sendBatch(batch));
+		} catch (RejectedExecutionException excp) { // stopped concurrently
+			inFlight.release();
+
+			return false;
+		}
+
+		return true;
+	}
+
+	private void sendBatch(List<AuditEventBase> batch) {
+		try {
+			List<AuditEventBase> pending = batch;
+
+			for (int attempt = 0; ; attempt++) {
+				BulkResult result      = new BulkResult();
+				String     retryReason = null;
+
+				try {
+					sender.send(pending, result);
+				} catch (Throwable t) {
+					retryReason = t.toString();
+				}
+
+				final List<AuditEventBase> retryItems;
+
+				if (retryReason != null) {
+					retryItems = pending;
+				} else {
+					retryItems  = new ArrayList<>(result.retryItems.size());
+					retryReason = result.retryReason;
+
+					for (Integer index : result.retryItems) {
+						retryItems.add(pending.get(index));
+					}
+
+					onSent(pending, result);
+				}
+
+				if (retryItems.isEmpty()) {
+					break;
+				}
+
+				if (isStopped || (maxRetries >= 0 && attempt >= maxRetries)) {
+					onFailed(retryItems, retryReason);
+					break;
+				}
+
+				LOG.debug("Retrying {} of {} events. destination={}, attempt={}, reason={}", retryItems.size(), batch.size(), destination.getName(), attempt + 1, retryReason);
+
+				try {
+					Thread.sleep(Math.min(retryBackoffMs << Math.min(attempt, 16), MAX_RETRY_BACKOFF_MS));
+				} catch (InterruptedException excp) {
+					onFailed(retryItems, retryReason);
+					break;
+				}
+
+				pending = retryItems;
+			}
+		} finally {
+			inFlight.release();
+		}
+	}
+
+	private void onSent(List<AuditEventBase> batch, BulkResult result) {
+		int successCount = batch.size() - result.retryItems.size() - result.failedItems.size();
+
+		synchronized (destination) { // counters in BaseAuditHandler are not thread-safe
+			destination.addSuccessCount(successCount);
+
+			if (!result.failedItems.isEmpty()) {
+				destination.addFailedCount(result.failedItems.size());
+			}
+		}
+
+		for (int i = 0; i < result.failedItems.size(); i++) {
+			destination.logFailedEvent(Collections.singletonList(batch.get(result.failedItems.get(i))), result.failReasons.get(i));
+		}
+	}
+
+	private void onFailed(List<AuditEventBase> events, String reason) {
+		Consumer<Collection<AuditEventBase>> fileSpool = destination.getFileSpool();
+
+		if (fileSpool != null) {
+			try {
+				fileSpool.accept(events);
+
+				synchronized (destination) {
+					destination.addStashedCount(events.size());
+				}
+
+				LOG.info("Stashed {} events in the file spool. destination={}, reason={}", events.size(), destination.getName(), reason);
+
+				return;
+			} catch (Throwable t) {
+				LOG.error("Failed to stash {} events in the file spool. destination={}", events.size(), destination.getName(), t);
+			}
+		}
+
+		synchronized (destination) {
+			destination.addFailedCount(events.size());
+		}
+
+		destination.logFailedEvent(events, reason);
+	}
+}
@@ -19,8 +19,11 @@
 
 package org.apache.ranger.audit.destination;
 
+import java.util.Collection;
 import java.util.Properties;
+import java.util.function.Consumer;
 
+import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.provider.BaseAuditHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,10 +35,24 @@
 public abstract class AuditDestination extends BaseAuditHandler {
 	private static final Logger logger = LoggerFactory.getLogger(AuditDestination.class);
 
+	private volatile Consumer<Collection<AuditEventBase>> fileSpool = null;
+
 	public AuditDestination() {
 		logger.info("AuditDestination() enter");
 	}
 
+	/**
+	 * Set by the queue in front of this destination, when the queue has a file spool. Destinations that write events
+	 * after log() returned, like those with a bulk pipeline, stash the events they fail to write in it.
+	 */
+	public void setFileSpool(Consumer<Collection<AuditEventBase>> fileSpool) {
+		this.fileSpool = fileSpool;
+	}
+
+	public Consumer<Collection<AuditEventBase>> getFileSpool() {
+		return fileSpool;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 *
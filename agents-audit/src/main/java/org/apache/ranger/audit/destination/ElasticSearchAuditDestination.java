@@ -20,12 +20,14 @@
 package org.apache.ranger.audit.destination;
 
 import java.io.File;
+import java.io.IOException;
 import java.security.PrivilegedActionException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
@@ -45,9 +47,11 @@
 import org.apache.http.impl.auth.SPNegoSchemeFactory;
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.model.AuthzAuditEventField;
 import org.apache.ranger.audit.provider.MiscUtil;
 import org.apache.ranger.authorization.credutils.CredentialsProviderUtil;
 import org.apache.ranger.authorization.credutils.kerberos.KerberosCredentialsProvider;
+import org.elasticsearch.ElasticsearchStatusException;
 import org.elasticsearch.action.admin.indices.open.OpenIndexRequest;
 import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequest;
@@ -83,6 +87,7 @@ public class ElasticSearchAuditDestination extends AuditDestination {
     private String password;
     private String hosts;
     private Subject subject;
+    private AuditBulkPipeline pipeline;
 
     public ElasticSearchAuditDestination() {
         propPrefix = CONFIG_PREFIX;
@@ -99,6 +104,10 @@ public void init(Properties props, String propPrefix) {
         this.index = getStringProperty(props, propPrefix + "." + CONFIG_INDEX, DEFAULT_INDEX);
         this.hosts = getHosts();
         LOG.info("Connecting to ElasticSearch: " + connectionString());
+        if (AuditBulkPipeline.isEnabled(props, propPrefix)) {
+            pipeline = new AuditBulkPipeline(this, this::sendBulk);
+            pipeline.init(props, propPrefix);
+        }
         getClient(); // Initialize client
     }
 
@@ -109,9 +118,19 @@ private String connectionString() {
     @Override
     public void stop() {
         super.stop();
+        if (pipeline != null) {
+            pipeline.stop();
+        }
         logStatus();
     }
 
+    @Override
+    public void waitToComplete(long timeout) {
+        if (pipeline != null) {
+            pipeline.waitToComplete(timeout);
+        }
+    }
+
     @Override
     public boolean log(Collection<AuditEventBase> events) {
         boolean ret = false;
@@ -126,6 +145,18 @@ public boolean log(Collection<AuditEventBase> events) {
                 return ret;
             }
 
+            if (pipeline != null) {
+                try {
+                    ret = pipeline.submit(events);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt(); // the queue interrupts its consumer thread on stop
+                }
+                if (!ret) {
+                    addDeferredCount(events.size());
+                }
+                return ret;
+            }
+
             ArrayList<AuditEventBase> eventList = new ArrayList<>(events);
             BulkRequest bulkRequest = new BulkRequest();
             try {
@@ -167,6 +198,51 @@ public boolean log(Collection<AuditEventBase> events) {
         return ret;
     }
 
+    // sends a batch for the pipeline; failures of items with a transient status are retried by the pipeline
+    void sendBulk(List<AuditEventBase> batch, AuditBulkPipeline.BulkResult result) throws Exception {
+        RestHighLevelClient client = getClient();
+        if (null == client) {
+            throw new IOException("ElasticSearch client is not initialized");
+        }
+
+        BulkRequest bulkRequest = new BulkRequest();
+        for (AuditEventBase event : batch) {
+            AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
+            bulkRequest.add(new IndexRequest(index).id(authzEvent.getEventId()).source(toDoc(authzEvent)));
+        }
+
+        final BulkResponse response;
+        try {
+            response = client.bulk(bulkRequest, RequestOptions.DEFAULT);
+        } catch (ElasticsearchStatusException e) {
+            if (isRetriableStatus(e.status().getStatus())) {
+                throw e;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                result.fail(i, e.getMessage());
+            }
+            return;
+        }
+
+        BulkItemResponse[] items = response.getItems();
+        for (int i = 0; i < items.length; i++) {
+            BulkItemResponse itemResponse = items[i];
+            if (itemResponse.isFailed()) {
+                // getFailureMessage() needs log4j, which might not be in the classpath of the component
+                String reason = "HTTP " + itemResponse.status().getStatus() + ": " + itemResponse.getFailure().getCause().getMessage();
+                if (isRetriableStatus(itemResponse.status().getStatus())) {
+                    result.retry(i, reason);
+                } else {
+                    result.fail(i, reason);
+                }
+            }
+        }
+    }
+
+    static boolean isRetriableStatus(int status) {
+        return status == 429 || status >= 500; // too many requests, or server side errors like unavailable shards
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -263,25 +339,25 @@ private RestHighLevelClient newClient() {
             }
             RestClientBuilder restClientBuilder =
                     getRestClientBuilder(hosts, protocol, user, password, port);
-            try (RestHighLevelClient restHighLevelClient = new RestHighLevelClient(restClientBuilder)) {
+            // the client is kept open for later requests, hence not created in try-with-resources
+            RestHighLevelClient restHighLevelClient = new RestHighLevelClient(restClientBuilder);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Initialized client");
+            }
+            boolean exists = false;
+            try {
+                exists = restHighLevelClient.indices().open(new OpenIndexRequest(this.index), RequestOptions.DEFAULT).isShardsAcknowledged();
+            } catch (Exception e) {
+                LOG.warn("Error validating index " + this.index);
+            }
+            if (exists) {
                 if (LOG.isDebugEnabled()) {
-                    LOG.debug("Initialized client");
-                }
-                boolean exists = false;
-                try {
-                    exists = restHighLevelClient.indices().open(new OpenIndexRequest(this.index), RequestOptions.DEFAULT).isShardsAcknowledged();
-                } catch (Exception e) {
-                    LOG.warn("Error validating index " + this.index);
-                }
-                if (exists) {
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug("Index exists");
-                    }
-                } else {
-                    LOG.info("Index does not exist");
+                    LOG.debug("Index exists");
                 }
-                return restHighLevelClient;
+            } else {
+                LOG.info("Index does not exist");
             }
+            return restHighLevelClient;
         } catch (Throwable t) {
             lastLoggedAt.updateAndGet(lastLoggedAt -> {
                 long now = System.currentTimeMillis();
@@ -317,35 +393,13 @@ private String getStringProperty(Properties props, String propName, String defau
     }
 
     Map<String, Object> toDoc(AuthzAuditEvent auditEvent) {
-        Map<String, Object> doc = new HashMap<>();
-        doc.put("id", auditEvent.getEventId());
-        doc.put("access", auditEvent.getAccessType());
-        doc.put("enforcer", auditEvent.getAclEnforcer());
-        doc.put("agent", auditEvent.getAgentId());
-        doc.put("repo", auditEvent.getRepositoryName());
-        doc.put("sess", auditEvent.getSessionId());
-        doc.put("reqUser", auditEvent.getUser());
-        doc.put("reqData", auditEvent.getRequestData());
-        doc.put("resource", auditEvent.getResourcePath());
-        doc.put("cliIP", auditEvent.getClientIP());
-        doc.put("logType", auditEvent.getLogType());
-        doc.put("result", auditEvent.getAccessResult());
-        doc.put("policy", auditEvent.getPolicyId());
-        doc.put("repoType", auditEvent.getRepositoryType());
-        doc.put("resType", auditEvent.getResourceType());
-        doc.put("reason", auditEvent.getResultReason());
-        doc.put("action", auditEvent.getAction());
-        doc.put("evtTime", auditEvent.getEventTime());
-        doc.put("seq_num", auditEvent.getSeqNum());
-        doc.put("event_count", auditEvent.getEventCount());
-        doc.put("event_dur_ms", auditEvent.getEventDurationMS());
-        doc.put("tags", auditEvent.getTags());
-        doc.put("datasets", auditEvent.getDatasets());
-        doc.put("projects", auditEvent.getProjects());
-        doc.put("cluster", auditEvent.getClusterName());
-        doc.put("zoneName", auditEvent.getZoneName());
-        doc.put("agentHost", auditEvent.getAgentHostname());
-        doc.put("policyVersion", auditEvent.getPolicyVersion());
+        List<AuthzAuditEventField> fields = AuthzAuditEventField.getDocFields();
+        Map<String, Object>        doc    = new HashMap<>(fields.size() * 4 / 3 + 1);
+
+        for (AuthzAuditEventField field : fields) {
+            doc.put(field.getDocName(), field.getValue(auditEvent));
+        }
+
         return doc;
     }
 
@@ -22,6 +22,7 @@
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.model.AuthzAuditEventField;
 import org.apache.ranger.audit.provider.MiscUtil;
 import org.apache.ranger.audit.utils.InMemoryJAASConfiguration;
 import org.apache.ranger.audit.utils.KerberosAction;
@@ -84,21 +85,34 @@ public class SolrAuditDestination extends AuditDestination {
 
 	private volatile SolrClient solrClient = null;
 	private volatile KerberosUser kerberosUser = null;
+	private AuditBulkPipeline pipeline = null;
 
 	public SolrAuditDestination() {
 	}
 
+	// for tests: uses the given client instead of connecting to the configured Solr
+	SolrAuditDestination(SolrClient solrClient) {
+		this.solrClient = solrClient;
+	}
+
 	@Override
 	public void init(Properties props, String propPrefix) {
 		LOG.info("init() called");
 		super.init(props, propPrefix);
 		init();
+		if (AuditBulkPipeline.isEnabled(props, propPrefix)) {
+			pipeline = new AuditBulkPipeline(this, this::sendBulk);
+			pipeline.init(props, propPrefix);
+		}
 		connect();
 	}
 
 	@Override
 	public void stop() {
 		LOG.info("SolrAuditDestination.stop() called..");
+		if (pipeline != null) {
+			pipeline.stop();
+		}
 		logStatus();
 
 		if (solrClient != null) {
@@ -233,6 +247,18 @@ public boolean log(Collection<AuditEventBase> events) {
 				}
 			}
 
+			if (pipeline != null) {
+				try {
+					ret = pipeline.submit(events);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt(); // the queue interrupts its consumer thread on stop
+				}
+				if (!ret) {
+					addDeferredCount(events.size());
+				}
+				return ret;
+			}
+
 			final Collection<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
 			for (AuditEventBase event : events) {
 				AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
@@ -261,6 +287,13 @@ public boolean log(Collection<AuditEventBase> events) {
 		return ret;
 	}
 
+	@Override
+	public void waitToComplete(long timeout) {
+		if (pipeline != null) {
+			pipeline.waitToComplete(timeout);
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 *
@@ -271,36 +304,61 @@ public void flush() {
 
 	}
 
+	// sends a batch for the pipeline
+	void sendBulk(List<AuditEventBase> batch, AuditBulkPipeline.BulkResult result) throws Exception {
+		SolrClient client = solrClient;
+		if (client == null) {
+			connect();
+			client = solrClient;
+			if (client == null) {
+				throw new IOException("Solr client is not initialized");
+			}
+		}
+
+		List<SolrInputDocument> docs = new ArrayList<>(batch.size());
+		for (AuditEventBase event : batch) {
+			docs.add(toSolrDoc((AuthzAuditEvent) event));
+		}
+
+		addDocs(client, docs, 0, docs.size(), result);
+	}
+
+	// Solr rejects an update request as a whole, hence a rejected request is split to find the documents it rejects
+	private void addDocs(SolrClient client, List<SolrInputDocument> docs, int fromIndex, int toIndex, AuditBulkPipeline.BulkResult result) {
+		try {
+			UpdateResponse response = addDocsToSolr(client, docs.subList(fromIndex, toIndex));
+
+			if (response.getStatus() != 0) {
+				for (int i = fromIndex; i < toIndex; i++) {
+					result.retry(i, response.toString());
+				}
+			}
+		} catch (SolrException e) {
+			if (e.code() == 429 || e.code() >= 500 || e.code() <= 0) {
+				for (int i = fromIndex; i < toIndex; i++) {
+					result.retry(i, e.toString());
+				}
+			} else if (toIndex - fromIndex == 1) {
+				result.fail(fromIndex, e.toString());
+			} else {
+				int midIndex = (fromIndex + toIndex) >>> 1;
+
+				addDocs(client, docs, fromIndex, midIndex, result);
+				addDocs(client, docs, midIndex, toIndex, result);
+			}
+		} catch (Exception e) {
+			for (int i = fromIndex; i < toIndex; i++) {
+				result.retry(i, e.toString());
+			}
+		}
+	}
+
 	SolrInputDocument toSolrDoc(AuthzAuditEvent auditEvent) {
 		SolrInputDocument doc = new SolrInputDocument();
-		doc.addField("id", auditEvent.getEventId());
-		doc.addField("access", auditEvent.getAccessType());
-		doc.addField("enforcer", auditEvent.getAclEnforcer());
-		doc.addField("agent", auditEvent.getAgentId());
-		doc.addField("repo", auditEvent.getRepositoryName());
-		doc.addField("sess", auditEvent.getSessionId());
-		doc.addField("reqUser", auditEvent.getUser());
-		doc.addField("reqData", auditEvent.getRequestData());
-		doc.addField("resource", auditEvent.getResourcePath());
-		doc.addField("cliIP", auditEvent.getClientIP());
-		doc.addField("logType", auditEvent.getLogType());
-		doc.addField("result", auditEvent.getAccessResult());
-		doc.addField("policy", auditEvent.getPolicyId());
-		doc.addField("repoType", auditEvent.getRepositoryType());
-		doc.addField("resType", auditEvent.getResourceType());
-		doc.addField("reason", auditEvent.getResultReason());
-		doc.addField("action", auditEvent.getAction());
-		doc.addField("evtTime", auditEvent.getEventTime());
-		doc.addField("seq_num", auditEvent.getSeqNum());
-		doc.setField("event_count", auditEvent.getEventCount());
-		doc.setField("event_dur_ms", auditEvent.getEventDurationMS());
-		doc.setField("tags", auditEvent.getTags());
-		doc.addField("datasets", auditEvent.getDatasets());
-		doc.addField("projects", auditEvent.getProjects());
-		doc.setField("cluster", auditEvent.getClusterName());
-		doc.setField("zoneName", auditEvent.getZoneName());
-		doc.setField("agentHost", auditEvent.getAgentHostname());
-		doc.setField("policyVersion", auditEvent.getPolicyVersion());
+
+		for (AuthzAuditEventField field : AuthzAuditEventField.getDocFields()) {
+			doc.setField(field.getDocName(), field.getValue(auditEvent));
+		}
 
 		return doc;
 	}
@@ -21,11 +21,37 @@
 
 import java.util.Date;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public abstract class AuditEventBase {
+	// set when the event is handed to more than one destination, which must not modify it further; its json is then
+	// created once, by the first MiscUtil.stringify() call, and reused by the other destinations and their spools
+	private transient volatile boolean shared     = false;
+	private transient volatile String  sharedJson = null;
 
 	protected AuditEventBase() {
 	}
 
+	@JsonIgnore
+	public boolean isShared() {
+		return shared;
+	}
+
+	@JsonIgnore
+	public void setShared(boolean shared) {
+		this.shared = shared;
+	}
+
+	@JsonIgnore
+	public String getSharedJson() {
+		return sharedJson;
+	}
+
+	@JsonIgnore
+	public void setSharedJson(String sharedJson) {
+		this.sharedJson = sharedJson;
+	}
+
 	public abstract String getEventKey();
 	public abstract Date getEventTime ();
 	public abstract void setEventCount(long eventCount);
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Accessors of the serialized fields of AuthzAuditEvent, in the order the fields are declared - which is the order
+ * Jackson writes them in. Lets serializers read the fields without reflection or a per-destination list of getters.
+ *
+ * Each field has the name of the java field (used for ORC columns), the name in json (from @JsonProperty) and the name
+ * in Solr/Elasticsearch documents - which is null for fields not stored in documents.
+ */
+public enum AuthzAuditEventField {
+	REPOSITORY_TYPE("repositoryType", "repoType", "repoType", int.class, AuthzAuditEvent::getRepositoryType),
+	REPOSITORY_NAME("repositoryName", "repo", "repo", String.class, AuthzAuditEvent::getRepositoryName),
+	USER("user", "reqUser", "reqUser", String.class, AuthzAuditEvent::getUser),
+	EVENT_TIME("eventTime", "evtTime", "evtTime", Date.class, AuthzAuditEvent::getEventTime),
+	ACCESS_TYPE("accessType", "access", "access", String.class, AuthzAuditEvent::getAccessType),
+	RESOURCE_PATH("resourcePath", "resource", "resource", String.class, AuthzAuditEvent::getResourcePath),
+	RESOURCE_TYPE("resourceType", "resType", "resType", String.class, AuthzAuditEvent::getResourceType),
+	ACTION("action", "action", "action", String.class, AuthzAuditEvent::getAction),
+	ACCESS_RESULT("accessResult", "result", "result", short.class, AuthzAuditEvent::getAccessResult),
+	AGENT_ID("agentId", "agent", "agent", String.class, AuthzAuditEvent::getAgentId),
+	POLICY_ID("policyId", "policy", "policy", long.class, AuthzAuditEvent::getPolicyId),
+	RESULT_REASON("resultReason", "reason", "reason", String.class, AuthzAuditEvent::getResultReason),
+	ACL_ENFORCER("aclEnforcer", "enforcer", "enforcer", String.class, AuthzAuditEvent::getAclEnforcer),
+	SESSION_ID("sessionId", "sess", "sess", String.class, AuthzAuditEvent::getSessionId),
+	CLIENT_TYPE("clientType", "cliType", null, String.class, AuthzAuditEvent::getClientType),
+	CLIENT_IP("clientIP", "cliIP", "cliIP", String.class, AuthzAuditEvent::getClientIP),
+	REQUEST_DATA("requestData", "reqData", "reqData", String.class, AuthzAuditEvent::getRequestData),
+	AGENT_HOSTNAME("agentHostname", "agentHost", "agentHost", String.class, AuthzAuditEvent::getAgentHostname),
+	LOG_TYPE("logType", "logType", "logType", String.class, AuthzAuditEvent::getLogType),
+	EVENT_ID("eventId", "id", "id", String.class, AuthzAuditEvent::getEventId),
+	SEQ_NUM("seqNum", "seq_num", "seq_num", long.class, AuthzAuditEvent::getSeqNum),
+	EVENT_COUNT("eventCount", "event_count", "event_count", long.class, AuthzAuditEvent::getEventCount),
+	EVENT_DURATION_MS("eventDurationMS", "event_dur_ms", "event_dur_ms", long.class, AuthzAuditEvent::getEventDurationMS),
+	TAGS("tags", "tags", "tags", Set.class, AuthzAuditEvent::getTags),
+	DATASETS("datasets", "datasets", "datasets", Set.class, AuthzAuditEvent::getDatasets),
+	PROJECTS("projects", "projects", "projects", Set.class, AuthzAuditEvent::getProjects),
+	ADDITIONAL_INFO("additionalInfo", "additional_info", null, String.class, AuthzAuditEvent::getAdditionalInfo),
+	CLUSTER_NAME("clusterName", "cluster_name", "cluster", String.class, AuthzAuditEvent::getClusterName),
+	ZONE_NAME("zoneName", "zone_name", "zoneName", String.class, AuthzAuditEvent::getZoneName),
+	POLICY_VERSION("policyVersion", "policy_version", "policyVersion", Long.class, AuthzAuditEvent::getPolicyVersion);
+
+	private static final Map<String, AuthzAuditEventField> BY_FIELD_NAME = new HashMap<>();
+	private static final List<AuthzAuditEventField>        DOC_FIELDS;
+
+	static {
+		List<AuthzAuditEventField> docFields = new ArrayList<>();
+
+		for (AuthzAuditEventField field : values()) {
+			BY_FIELD_NAME.put(field.fieldName, field);
+
+			if (field.docName != null) {
+				docFields.add(field);
+			}
+		}
+
+		DOC_FIELDS = Collections.unmodifiableList(docFields);
+	}
+
+	private final String                            fieldName;
+	private final String                            jsonName;
+	private final String                            docName;
+	private final Class<?>                          type;
+	private final ToLongFunction<AuthzAuditEvent>   primitiveGetter;
+	private final Function<AuthzAuditEvent, Object> objectGetter;
+
+	AuthzAuditEventField(String fieldName, String jsonName, String docName, Class<?> type, ToLongFunction<AuthzAuditEvent> getter) {
+		this(fieldName, jsonName, docName, type, getter, null);
+	}
+
+	AuthzAuditEventField(String fieldName, String jsonName, String docName, Class<?> type, Function<AuthzAuditEvent, Object> getter) {
+		this(fieldName, jsonName, docName, type, null, getter);
+	}
+
+	AuthzAuditEventField(String fieldName, String jsonName, String docName, Class<?> type, ToLongFunction<AuthzAuditEvent> primitiveGetter, Function<AuthzAuditEvent, Object> objectGetter) {
+		this.fieldName       = fieldName;
+		this.jsonName        = jsonName;
+		this.docName         = docName;
+		this.type            = type;
+		this.primitiveGetter = primitiveGetter;
+		this.objectGetter    = objectGetter;
+	}
+
+	public static AuthzAuditEventField forFieldName(String fieldName) {
+		return BY_FIELD_NAME.get(fieldName);
+	}
+
+	/**
+	 * @return fields stored in Solr/Elasticsearch documents
+	 */
+	public static List<AuthzAuditEventField> getDocFields() {
+		return DOC_FIELDS;
+	}
+
+	public String getFieldName() { return fieldName; }
+
+	public String getJsonName() { return jsonName; }
+
+	public String getDocName() { return docName; }
+
+	public Class<?> getType() { return type; }
+
+	/**
+	 * @return true for fields of type int, short or long - whose value can be read with getLongValue() without boxing
+	 */
+	public boolean isPrimitive() { return primitiveGetter != null; }
+
+	public long getLongValue(AuthzAuditEvent event) {
+		return primitiveGetter.applyAsLong(event);
+	}
+
+	/**
+	 * @return value of the field, boxed to the wrapper of the field's type for primitive fields
+	 */
+	public Object getValue(AuthzAuditEvent event) {
+		final Object ret;
+
+		if (primitiveGetter == null) {
+			ret = objectGetter.apply(event);
+		} else if (type == int.class) {
+			ret = (int) primitiveGetter.applyAsLong(event);
+		} else if (type == short.class) {
+			ret = (short) primitiveGetter.applyAsLong(event);
+		} else {
+			ret = primitiveGetter.applyAsLong(event);
+		}
+
+		return ret;
+	}
+}
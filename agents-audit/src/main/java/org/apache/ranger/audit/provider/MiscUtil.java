@@ -55,6 +55,9 @@
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.security.authentication.util.KerberosName;
 import org.apache.hadoop.security.authentication.util.KerberosUtil;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.utils.AuthzAuditEventJsonWriter;
 import org.apache.ranger.authorization.hadoop.utils.RangerCredentialProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -320,16 +323,49 @@ public static <T> String stringify(T log) {
 		if (log != null) {
 			if (log instanceof String) {
 				ret = (String) log;
-            } else if (getMapper() != null) {
-                try {
-                    ret = getMapper().writeValueAsString(log);
-                } catch (Exception e) {
-                    logger.error("Error occurred while processing JSOn object  " + log, e);
-                    ret = log.toString(); // Fallback to default toString() method
-                }
+			} else if (log instanceof AuditEventBase && ((AuditEventBase) log).isShared()) {
+				AuditEventBase event = (AuditEventBase) log;
+
+				ret = event.getSharedJson();
+
+				if (ret == null) {
+					synchronized (event) { // destinations racing on the event wait for the first one to serialize it
+						ret = event.getSharedJson();
+
+						if (ret == null) {
+							ret = toJson(event);
+
+							event.setSharedJson(ret);
+						}
+					}
+				}
 			} else {
+				ret = toJson(log);
+			}
+		}
+
+		return ret;
+	}
+
+	private static String toJson(Object log) {
+		String ret;
+
+		if (log.getClass() == AuthzAuditEvent.class) { // subclasses may add fields, hence are serialized by the mapper
+			try {
+				ret = AuthzAuditEventJsonWriter.toJson((AuthzAuditEvent) log);
+			} catch (Exception e) {
+				logger.error("Error occurred while processing JSOn object  " + log, e);
 				ret = log.toString();
 			}
+		} else if (getMapper() != null) {
+			try {
+				ret = getMapper().writeValueAsString(log);
+			} catch (Exception e) {
+				logger.error("Error occurred while processing JSOn object  " + log, e);
+				ret = log.toString(); // Fallback to default toString() method
+			}
+		} else {
+			ret = log.toString();
 		}
 
 		return ret;
@@ -20,21 +20,45 @@
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 
 import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.queue.AuditBatchQueue;
+import org.apache.ranger.audit.queue.AuditQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Sends audit events to all the added destinations.
+ *
+ * By default, log() calls the destinations one after the other, so a slow or failing destination delays the others.
+ * With xasecure.audit.provider.multi_dest.fanout.enabled=true, each destination is instead fed by its own AuditBatchQueue
+ * - with its own bounded queue, consumer thread, file spool and health state - and log() only adds the events to these
+ * queues. The queues are configured with the properties under xasecure.audit.provider.multi_dest.fanout, like
+ * queue.size, batch.size, queue.full.policy and filespool.*; when a queue is full its events are spooled or dropped
+ * (queue.full.policy SPOOL, the default here) instead of blocking the other destinations. A destination that is already
+ * behind an AuditQueue is not wrapped again: its queue is used as is, with only queue.full.policy taken from the fan-out
+ * properties. Events are shared by all the queues: json is created once per event and reused by every destination and
+ * spool that needs it.
+ */
 public class MultiDestAuditProvider extends BaseAuditHandler {
 
 	private static final Logger LOG = LoggerFactory
 			.getLogger(MultiDestAuditProvider.class);
 
-	protected List<AuditHandler> mProviders = new ArrayList<AuditHandler>();
 	static final String DEFAULT_NAME = "multi_dest";
 
+	public static final String PROP_FANOUT_PREFIX  = PROP_DEFAULT_PREFIX + "." + DEFAULT_NAME + ".fanout";
+	public static final String PROP_FANOUT_ENABLED = PROP_FANOUT_PREFIX + ".enabled";
+
+	protected List<AuditHandler> mProviders = new ArrayList<AuditHandler>();
+
+	private boolean               fanOutEnabled = false;
+	private List<AuditQueue>      mFanOutQueues = new ArrayList<AuditQueue>(); // one per provider, in fan-out mode
+
 	public MultiDestAuditProvider() {
 		LOG.info("MultiDestAuditProvider: creating..");
 		setName(DEFAULT_NAME);
@@ -61,12 +85,34 @@ public void init(Properties props) {
 						+ provider.getClass().getCanonicalName() + ")", excp);
 			}
 		}
+
+		fanOutEnabled = MiscUtil.getBooleanProperty(props, PROP_FANOUT_ENABLED, false);
+
+		LOG.info(PROP_FANOUT_ENABLED + "=" + fanOutEnabled);
+
+		if (fanOutEnabled) {
+			for (AuditHandler provider : mProviders) {
+				addFanOutQueue(provider);
+			}
+		}
+	}
+
+	public boolean isFanOutEnabled() {
+		return fanOutEnabled;
+	}
+
+	/**
+	 * @return queues feeding the providers, in the order the providers were added; empty unless fan-out is enabled. For a
+	 *         provider that is itself an AuditQueue, this is the provider.
+	 */
+	public List<AuditQueue> getFanOutQueues() {
+		return Collections.unmodifiableList(mFanOutQueues);
 	}
 
 	@Override
 	public void setParentPath(String parentPath) {
 		super.setParentPath(parentPath);
-		for (AuditHandler provider : mProviders) {
+		for (AuditHandler provider : getHandlers()) {
 			if (provider instanceof BaseAuditHandler) {
 				BaseAuditHandler baseAuditHander = (BaseAuditHandler) provider;
 				baseAuditHander.setParentPath(getName());
@@ -77,7 +123,7 @@ public void setParentPath(String parentPath) {
 	@Override
 	public void setName(String name) {
 		super.setName(name);
-		for (AuditHandler provider : mProviders) {
+		for (AuditHandler provider : getHandlers()) {
 			if (provider instanceof BaseAuditHandler) {
 				BaseAuditHandler baseAuditHander = (BaseAuditHandler) provider;
 				baseAuditHander.setParentPath(getName());
@@ -97,6 +143,10 @@ public void addAuditProvider(AuditHandler provider) {
 				BaseAuditHandler baseAuditHander = (BaseAuditHandler) provider;
 				baseAuditHander.setParentPath(getName());
 			}
+
+			if (fanOutEnabled) {
+				addFanOutQueue(provider);
+			}
 		}
 	}
 
@@ -112,6 +162,10 @@ public void addAuditProviders(List<AuditHandler> providers) {
 
 	@Override
 	public boolean log(AuditEventBase event) {
+		if (fanOutEnabled) {
+			return logToFanOutQueues(Collections.singletonList(event));
+		}
+
 		for (AuditHandler provider : mProviders) {
 			try {
 				provider.log(event);
@@ -124,6 +178,10 @@ public boolean log(AuditEventBase event) {
 
 	@Override
 	public boolean log(Collection<AuditEventBase> events) {
+		if (fanOutEnabled) {
+			return logToFanOutQueues(events);
+		}
+
 		for (AuditHandler provider : mProviders) {
 			try {
 				provider.log(events);
@@ -136,6 +194,10 @@ public boolean log(Collection<AuditEventBase> events) {
 
 	@Override
 	public boolean logJSON(String event) {
+		if (fanOutEnabled) {
+			return logJSON(Collections.singletonList(event));
+		}
+
 		for (AuditHandler provider : mProviders) {
 			try {
 				provider.logJSON(event);
@@ -148,6 +210,24 @@ public boolean logJSON(String event) {
 
 	@Override
 	public boolean logJSON(Collection<String> events) {
+		if (fanOutEnabled) {
+			List<AuditEventBase> eventList = new ArrayList<AuditEventBase>(events.size());
+
+			// parse once for all the queues; the given json is what destinations would have written anyway
+			for (String event : events) {
+				AuditEventBase eventObj = MiscUtil.fromJson(event, AuthzAuditEvent.class);
+
+				if (eventObj != null) {
+					eventObj.setSharedJson(event);
+					eventList.add(eventObj);
+				} else {
+					logFailedEventJSON(event, null);
+				}
+			}
+
+			return logToFanOutQueues(eventList);
+		}
+
 		for (AuditHandler provider : mProviders) {
 			try {
 				provider.logJSON(events);
@@ -173,7 +253,7 @@ public boolean logFile(File file) {
 
 	@Override
 	public void start() {
-		for (AuditHandler provider : mProviders) {
+		for (AuditHandler provider : getHandlers()) {
 			try {
 				provider.start();
 			} catch (Throwable excp) {
@@ -185,7 +265,7 @@ public void start() {
 
 	@Override
 	public void stop() {
-		for (AuditHandler provider : mProviders) {
+		for (AuditHandler provider : getHandlers()) {
 			try {
 				provider.stop();
 			} catch (Throwable excp) {
@@ -197,7 +277,7 @@ public void stop() {
 
 	@Override
 	public void waitToComplete() {
-		for (AuditHandler provider : mProviders) {
+		for (AuditHandler provider : getHandlers()) {
 			try {
 				provider.waitToComplete();
 			} catch (Throwable excp) {
@@ -210,7 +290,7 @@ public void waitToComplete() {
 
 	@Override
 	public void waitToComplete(long timeout) {
-		for (AuditHandler provider : mProviders) {
+		for (AuditHandler provider : getHandlers()) {
 			try {
 				provider.waitToComplete(timeout);
 			} catch (Throwable excp) {
@@ -223,7 +303,7 @@ public void waitToComplete(long timeout) {
 
 	@Override
 	public void flush() {
-		for (AuditHandler provider : mProviders) {
+		for (AuditHandler provider : getHandlers()) {
 			try {
 				provider.flush();
 			} catch (Throwable excp) {
@@ -232,4 +312,81 @@ public void flush() {
 			}
 		}
 	}
+
+	// returns false only if none of the queues took the events
+	private boolean logToFanOutQueues(Collection<AuditEventBase> events) {
+		for (AuditEventBase event : events) {
+			if (event != null) {
+				event.setShared(true);
+			}
+		}
+
+		boolean ret = mFanOutQueues.isEmpty();
+
+		for (AuditQueue queue : mFanOutQueues) {
+			try {
+				if (queue.log(events)) {
+					ret = true;
+				}
+			} catch (Throwable excp) {
+				logFailedEvent(events, excp);
+			}
+		}
+		return ret;
+	}
+
+	private void addFanOutQueue(AuditHandler provider) {
+		final AuditQueue queue;
+
+		if (provider instanceof AuditQueue) { // already queued: wrapping it again would only add a thread and a copy
+			queue = (AuditQueue) provider;
+
+			queue.setQueueFullPolicy(getFanOutQueueFullPolicy());
+
+			LOG.info("MultiDestAuditProvider: using queue " + queue.getName() + " for destination " + getDestinationName(provider) + ", queueFullPolicy=" + queue.getQueueFullPolicy());
+		} else {
+			queue = new AuditBatchQueue(provider);
+
+			// unique and stable across restarts, as the queue name is part of the spool file names
+			queue.setName("fanout_" + getDestinationName(provider));
+			queue.setParentPath(getName());
+			queue.setQueueFullPolicy(AuditQueue.QueueFullPolicy.SPOOL); // spool, or drop if there is no spool; never block other destinations
+			queue.init(props, PROP_FANOUT_PREFIX);
+
+			LOG.info("MultiDestAuditProvider: added queue " + queue.getName() + " for destination " + provider.getName());
+		}
+
+		mFanOutQueues.add(queue);
+	}
+
+	private AuditQueue.QueueFullPolicy getFanOutQueueFullPolicy() {
+		AuditQueue.QueueFullPolicy ret      = AuditQueue.QueueFullPolicy.SPOOL;
+		String                     propName = PROP_FANOUT_PREFIX + "." + AuditQueue.PROP_QUEUE_FULL_POLICY;
+		String                     value    = MiscUtil.getStringProperty(props, propName);
+
+		if (value != null) {
+			try {
+				ret = AuditQueue.QueueFullPolicy.valueOf(value.trim().toUpperCase());
+			} catch (IllegalArgumentException excp) {
+				LOG.error("Invalid value " + value + " for " + propName + ". Using " + ret);
+			}
+		}
+
+		return ret;
+	}
+
+	private List<? extends AuditHandler> getHandlers() {
+		return fanOutEnabled ? mFanOutQueues : mProviders;
+	}
+
+	// last token of the final destination's name, e.g. "hdfs" for hdfs destination behind a batch queue
+	private static String getDestinationName(AuditHandler provider) {
+		String ret = provider instanceof BaseAuditHandler ? ((BaseAuditHandler) provider).getFinalPath() : provider.getName();
+
+		if (ret == null) {
+			ret = provider.getClass().getSimpleName();
+		}
+
+		return ret.substring(ret.lastIndexOf('.') + 1);
+	}
 }
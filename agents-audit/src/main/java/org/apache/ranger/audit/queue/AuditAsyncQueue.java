@@ -21,7 +21,6 @@
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.concurrent.LinkedBlockingQueue;
 
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.provider.AuditHandler;
@@ -30,12 +29,13 @@
 import org.slf4j.MDC;
 
 /**
- * This is a non-blocking queue with no limit on capacity.
+ * This is a non-blocking queue, with capacity limited to the configured queue size. Events are held in a pre-allocated
+ * ring buffer; when it is full, the event is dropped (default) or handled as per the configured QueueFullPolicy.
  */
 public class AuditAsyncQueue extends AuditQueue implements Runnable {
 	private static final Logger logger = LoggerFactory.getLogger(AuditAsyncQueue.class);
 
-	LinkedBlockingQueue<AuditEventBase> queue = new LinkedBlockingQueue<AuditEventBase>();
+	private volatile AuditRingBuffer<AuditEventBase> queue = null;
 	Thread consumerThread = null;
 
 	static final int MAX_DRAIN = 1000;
@@ -61,12 +61,7 @@ public boolean log(AuditEventBase event) {
 		addTotalCount(1);
 
 		// Add to the queue and return ASAP
-		if (queue.size() >= getMaxQueueSize()) {
-			addFailedCount(1);
-			return false;
-		}
-		queue.add(event);
-		return true;
+		return addToQueue(getQueue(), event);
 	}
 
 	@Override
@@ -88,6 +83,8 @@ public boolean log(Collection<AuditEventBase> events) {
 	 */
 	@Override
 	public void start() {
+		getQueue(); // create the queue, if not already created by log()
+
 		if (consumer != null) {
 			consumer.start();
 		} else {
@@ -95,6 +92,11 @@ public void start() {
 					+ getName());
 		}
 
+		// file spool is used only to stash events when the queue is full
+		if (fileSpoolerEnabled && getQueueFullPolicy() == QueueFullPolicy.SPOOL) {
+			fileSpooler.start();
+		}
+
 		consumerThread = new Thread(this, this.getClass().getName()
 				+ (threadCount++));
 		consumerThread.setDaemon(true);
@@ -144,13 +146,38 @@ public void logStatus() {
 		super.logStatus();
 
 		if (isStatusLogEnabled()) {
-			logger.info("AuditAsyncQueue.log(name={}): totalCount={}, currentQueueLength={}", getName(), getTotalCount(), queue.size());
+			logger.info("AuditAsyncQueue.log(name={}): totalCount={}, currentQueueLength={}", getName(), getTotalCount(), size());
 		}
 	}
 
-	public int size() { return queue.size(); }
+	public int size() {
+		AuditRingBuffer<AuditEventBase> queue = this.queue;
+
+		return queue != null ? queue.size() : 0;
+	}
+
+	// created on first use, as the queue size is known only after init()
+	private AuditRingBuffer<AuditEventBase> getQueue() {
+		AuditRingBuffer<AuditEventBase> ret = queue;
+
+		if (ret == null) {
+			synchronized (this) {
+				ret = queue;
+
+				if (ret == null) {
+					logger.info("Creating AuditRingBuffer with maxSize=" + getMaxQueueSize() + ". name=" + getName());
+
+					ret = queue = new AuditRingBuffer<>(getMaxQueueSize());
+				}
+			}
+		}
+
+		return ret;
+	}
 
 	public void runLogAudit() {
+		AuditRingBuffer<AuditEventBase> queue = getQueue();
+
 		while (true) {
 			try {
 				AuditEventBase event = null;
@@ -162,7 +189,7 @@ public void runLogAudit() {
 					event = queue.poll();
 				}
 				if (event != null) {
-					Collection<AuditEventBase> eventList = new ArrayList<AuditEventBase>();
+					Collection<AuditEventBase> eventList = new ArrayList<AuditEventBase>(MAX_DRAIN);
 					eventList.add(event);
 					queue.drainTo(eventList, MAX_DRAIN - 1);
 					consumer.log(eventList);
@@ -195,6 +222,10 @@ public void runLogAudit() {
 
 			// Call stop on the consumer
 			consumer.stop();
+
+			if (fileSpoolerEnabled && getQueueFullPolicy() == QueueFullPolicy.SPOOL) {
+				fileSpooler.stop();
+			}
 		} catch (Throwable t) {
 			logger.error("Error while calling stop on consumer.", t);
 		}
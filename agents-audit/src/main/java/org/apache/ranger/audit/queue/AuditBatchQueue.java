@@ -22,8 +22,6 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Properties;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.ranger.audit.model.AuditEventBase;
@@ -35,16 +33,19 @@
 public class AuditBatchQueue extends AuditQueue implements Runnable {
 	private static final Logger logger = LoggerFactory.getLogger(AuditBatchQueue.class);
 
-	private BlockingQueue<AuditEventBase> queue = null;
+	private AuditRingBuffer<AuditEventBase> queue = null;
 	private Collection<AuditEventBase> localBatchBuffer = new ArrayList<AuditEventBase>();
 
 	Thread consumerThread = null;
 	static int threadCount = 0;
 	static final String DEFAULT_NAME = "batch";
 
+	private volatile boolean isDestActive = true;
+
 	public AuditBatchQueue(AuditHandler consumer) {
 		super(consumer);
 		setName(DEFAULT_NAME);
+		setQueueFullPolicy(QueueFullPolicy.WAIT); // by default, block the caller until there is space in the queue
 	}
 
 	/*
@@ -56,23 +57,19 @@ public AuditBatchQueue(AuditHandler consumer) {
 	 */
 	@Override
 	public boolean log(AuditEventBase event) {
-		try {
-			// Add to batchQueue. Block if full
-			queue.put(event);
-		} catch (InterruptedException ex) {
-			throw new RuntimeException(ex);
-		}
-
-		return true;
+		// Add to batchQueue. If full, block/spool/drop as per queue.full.policy
+		return addToQueue(queue, event);
 	}
 
 	@Override
 	public boolean log(Collection<AuditEventBase> events) {
 		boolean ret = true;
 		for (AuditEventBase event : events) {
-			ret = log(event);
-			if (!ret) {
-				break;
+			if (!log(event)) {
+				ret = false;
+				if (getQueueFullPolicy() == QueueFullPolicy.WAIT) { // don't wait again for each of the remaining events
+					break;
+				}
 			}
 		}
 		return ret;
@@ -100,9 +97,9 @@ synchronized public void start() {
 			logger.error("Provider is already started. name=" + getName());
 			return;
 		}
-		logger.info("Creating ArrayBlockingQueue with maxSize="
-				+ getMaxQueueSize());
-		queue = new ArrayBlockingQueue<AuditEventBase>(getMaxQueueSize());
+		logger.info("Creating AuditRingBuffer with maxSize="
+				+ getMaxQueueSize() + ", queueFullPolicy=" + getQueueFullPolicy());
+		queue = new AuditRingBuffer<AuditEventBase>(getMaxQueueSize());
 
 		// Start the consumer first
 		consumer.start();
@@ -207,6 +204,13 @@ public void flush() {
 		consumer.flush();
 	}
 
+	/**
+	 * @return false after the consumer failed to log a batch, until it logs one successfully
+	 */
+	public boolean isDestinationActive() {
+		return isDestActive;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 *
@@ -225,7 +229,6 @@ public void run() {
 
 	public void runLogAudit() {
 		long lastDispatchTime = System.currentTimeMillis();
-		boolean isDestActive = true;
 		while (true) {
 			logStatusIfRequired();
 
@@ -309,11 +312,18 @@ public void runLogAudit() {
 						isDestActive = false;
 						addStashedCount(localBatchBuffer.size());
 					} else {
+						if (isDestActive) {
+							logger.warn("Destination failed. Dropping events until it recovers. Queue = {}, dest = {}", getName(), consumer.getName());
+						}
+						isDestActive = false;
 						// We need to drop this event
 						addFailedCount(localBatchBuffer.size());
 						logFailedEvent(localBatchBuffer);
 					}
 				} else {
+					if (!fileSpoolerEnabled && !isDestActive) {
+						logger.info("Destination recovered. Queue = {}, dest = {}", getName(), consumer.getName());
+					}
 					isDestActive = true;
 					addSuccessCount(localBatchBuffer.size());
 				}
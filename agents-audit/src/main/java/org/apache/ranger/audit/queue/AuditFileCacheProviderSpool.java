@@ -108,6 +108,9 @@ public enum SPOOL_FILE_STATUS {
     BufferedReader logReader = null;
     Thread destinationThread = null;
 
+    // set when filespool.format=segment; all spool operations are then delegated to it
+    AuditSegmentSpool segmentSpool = null;
+
     boolean isWriting 	= true;
     boolean isDrain 	= false;
     boolean isDestDown 	= false;
@@ -135,6 +138,13 @@ public boolean init(Properties props, String basePropertyName) {
             propPrefix = basePropertyName;
         }
 
+        if (AuditSegmentSpool.isEnabled(props, propPrefix)) {
+            segmentSpool = new AuditSegmentSpool(FILE_CACHE_PROVIDER_NAME, consumerProvider);
+            initDone     = segmentSpool.init(props, propPrefix);
+
+            return initDone;
+        }
+
         try {
             // Initial folder and file properties
             String logFolderProp = MiscUtil.getStringProperty(props, propPrefix
@@ -300,6 +310,11 @@ public boolean init(Properties props, String basePropertyName) {
      * Start looking for outstanding logs and update status according.
      */
     public void start() {
+        if (segmentSpool != null) {
+            segmentSpool.start();
+            return;
+        }
+
         if (!initDone) {
             logger.error("Cannot start Audit File Spooler. Initilization not done yet. queueName="
                     + FILE_CACHE_PROVIDER_NAME);
@@ -318,6 +333,11 @@ public void start() {
     }
 
     public void stop() {
+        if (segmentSpool != null) {
+            segmentSpool.stop();
+            return;
+        }
+
         if (!initDone) {
             logger.error("Cannot stop Audit File Spooler. Initilization not done. queueName="
                     + FILE_CACHE_PROVIDER_NAME);
@@ -366,6 +386,11 @@ public void stop() {
     }
 
     public void flush() {
+        if (segmentSpool != null) {
+            segmentSpool.flush();
+            return;
+        }
+
         if (!initDone) {
             logger.error("Cannot flush Audit File Spooler. Initilization not done. queueName="
                     + FILE_CACHE_PROVIDER_NAME);
@@ -384,6 +409,10 @@ public void flush() {
      * @return
      */
     public boolean isPending() {
+        if (segmentSpool != null) {
+            return segmentSpool.isPending();
+        }
+
         if (!initDone) {
             logError("isPending(): File Spooler not initialized. queueName="
                     + FILE_CACHE_PROVIDER_NAME);
@@ -399,6 +428,10 @@ public boolean isPending() {
      * @return
      */
     public long getLastAttemptTimeDelta() {
+        if (segmentSpool != null) {
+            return segmentSpool.getLastAttemptTimeDelta();
+        }
+
         if (lastAttemptTime == 0) {
             return 0;
         }
@@ -406,6 +439,10 @@ public long getLastAttemptTimeDelta() {
     }
 
     synchronized public void stashLogs(AuditEventBase event) {
+        if (segmentSpool != null) {
+            segmentSpool.stashLogs(event);
+            return;
+        }
 
         if (isDrain) {
             // Stop has been called, so this method shouldn't be called
@@ -432,6 +469,11 @@ synchronized public void stashLogs(AuditEventBase event) {
     }
 
     synchronized public void stashLogs(Collection<AuditEventBase> events) {
+        if (segmentSpool != null) {
+            segmentSpool.stashLogs(events);
+            return;
+        }
+
         for (AuditEventBase event : events) {
             stashLogs(event);
         }
@@ -439,6 +481,11 @@ synchronized public void stashLogs(Collection<AuditEventBase> events) {
     }
 
     synchronized public void stashLogsString(String event) {
+        if (segmentSpool != null) {
+            segmentSpool.stashLogsString(event);
+            return;
+        }
+
         if (isDrain) {
             // Stop has been called, so this method shouldn't be called
             logger.error("stashLogs() is called after stop is called. event="
@@ -458,10 +505,19 @@ synchronized public void stashLogsString(String event) {
     }
 
     synchronized public boolean isSpoolingSuccessful() {
+        if (segmentSpool != null) {
+            return segmentSpool.isSpoolingSuccessful();
+        }
+
         return isSpoolingSuccessful;
     }
 
     synchronized public void stashLogsString(Collection<String> events) {
+        if (segmentSpool != null) {
+            segmentSpool.stashLogsString(events);
+            return;
+        }
+
         for (String event : events) {
             stashLogsString(event);
         }
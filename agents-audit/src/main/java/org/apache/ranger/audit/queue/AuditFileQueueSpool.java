@@ -105,6 +105,9 @@ public class AuditFileQueueSpool implements Runnable {
     BufferedReader logReader = null;
     Thread destinationThread = null;
 
+    // set when filespool.format=segment; all spool operations are then delegated to it
+    AuditSegmentSpool segmentSpool = null;
+
     boolean isWriting 	= true;
     boolean isDrain 	= false;
     boolean isDestDown 	= false;
@@ -132,6 +135,13 @@ public boolean init(Properties props, String basePropertyName) {
             propPrefix = basePropertyName;
         }
 
+        if (AuditSegmentSpool.isEnabled(props, propPrefix)) {
+            segmentSpool = new AuditSegmentSpool(FILE_QUEUE_PROVIDER_NAME, consumerProvider);
+            initDone     = segmentSpool.init(props, propPrefix);
+
+            return initDone;
+        }
+
         try {
             // Initial folder and file properties
             String logFolderProp = MiscUtil.getStringProperty(props, propPrefix
@@ -301,6 +311,11 @@ public boolean init(Properties props, String basePropertyName) {
      * Start looking for outstanding logs and update status according.
      */
     public void start() {
+        if (segmentSpool != null) {
+            segmentSpool.start();
+            return;
+        }
+
         if (!initDone) {
             logger.error("Cannot start Audit File Spooler. Initilization not done yet. queueName="
                     + FILE_QUEUE_PROVIDER_NAME);
@@ -319,6 +334,11 @@ public void start() {
     }
 
     public void stop() {
+        if (segmentSpool != null) {
+            segmentSpool.stop();
+            return;
+        }
+
         if (!initDone) {
             logger.error("Cannot stop Audit File Spooler. Initilization not done. queueName="
                     + FILE_QUEUE_PROVIDER_NAME);
@@ -367,6 +387,11 @@ public void stop() {
     }
 
     public void flush() {
+        if (segmentSpool != null) {
+            segmentSpool.flush();
+            return;
+        }
+
         if (!initDone) {
             logger.error("Cannot flush Audit File Spooler. Initilization not done. queueName="
                     + FILE_QUEUE_PROVIDER_NAME);
@@ -385,6 +410,10 @@ public void flush() {
      * @return
      */
     public boolean isPending() {
+        if (segmentSpool != null) {
+            return segmentSpool.isPending();
+        }
+
         if (!initDone) {
             logError("isPending(): File Spooler not initialized. queueName="
                     + FILE_QUEUE_PROVIDER_NAME);
@@ -400,6 +429,10 @@ public boolean isPending() {
      * @return
      */
     public long getLastAttemptTimeDelta() {
+        if (segmentSpool != null) {
+            return segmentSpool.getLastAttemptTimeDelta();
+        }
+
         if (lastAttemptTime == 0) {
             return 0;
         }
@@ -407,6 +440,10 @@ public long getLastAttemptTimeDelta() {
     }
 
     synchronized public void stashLogs(AuditEventBase event) {
+        if (segmentSpool != null) {
+            segmentSpool.stashLogs(event);
+            return;
+        }
 
         if (isDrain) {
             // Stop has been called, so this method shouldn't be called
@@ -433,6 +470,11 @@ synchronized public void stashLogs(AuditEventBase event) {
     }
 
     synchronized public void stashLogs(Collection<AuditEventBase> events) {
+        if (segmentSpool != null) {
+            segmentSpool.stashLogs(events);
+            return;
+        }
+
         for (AuditEventBase event : events) {
             stashLogs(event);
         }
@@ -440,6 +482,11 @@ synchronized public void stashLogs(Collection<AuditEventBase> events) {
     }
 
     synchronized public void stashLogsString(String event) {
+        if (segmentSpool != null) {
+            segmentSpool.stashLogsString(event);
+            return;
+        }
+
         if (isDrain) {
             // Stop has been called, so this method shouldn't be called
             logger.error("stashLogs() is called after stop is called. event="
@@ -459,10 +506,19 @@ synchronized public void stashLogsString(String event) {
     }
 
     synchronized public boolean isSpoolingSuccessful() {
+        if (segmentSpool != null) {
+            return segmentSpool.isSpoolingSuccessful();
+        }
+
         return isSpoolingSuccessful;
     }
 
     synchronized public void stashLogsString(Collection<String> events) {
+        if (segmentSpool != null) {
+            segmentSpool.stashLogsString(events);
+            return;
+        }
+
         for (String event : events) {
             stashLogsString(event);
         }
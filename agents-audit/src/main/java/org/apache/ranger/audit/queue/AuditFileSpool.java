@@ -99,6 +99,9 @@ public class AuditFileSpool implements Runnable {
 
 	Thread destinationThread = null;
 
+	// set when filespool.format=segment; all spool operations are then delegated to it
+	AuditSegmentSpool segmentSpool = null;
+
 	boolean isWriting = true;
 	boolean isDrain = false;
 	boolean isDestDown = false;
@@ -123,6 +126,13 @@ public boolean init(Properties props, String basePropertyName) {
 			propPrefix = basePropertyName;
 		}
 
+		if (AuditSegmentSpool.isEnabled(props, propPrefix)) {
+			segmentSpool = new AuditSegmentSpool(queueProvider.getName(), consumerProvider);
+			initDone     = segmentSpool.init(props, propPrefix);
+
+			return initDone;
+		}
+
 		try {
 			// Initial folder and file properties
 			String logFolderProp = MiscUtil.getStringProperty(props, propPrefix
@@ -258,6 +268,11 @@ public boolean init(Properties props, String basePropertyName) {
 	 * Start looking for outstanding logs and update status according.
 	 */
 	public void start() {
+		if (segmentSpool != null) {
+			segmentSpool.start();
+			return;
+		}
+
 		if (!initDone) {
 			logger.error("Cannot start Audit File Spooler. Initilization not done yet. queueName={}", queueProvider.getName());
 			return;
@@ -273,6 +288,11 @@ public void start() {
 	}
 
 	public void stop() {
+		if (segmentSpool != null) {
+			segmentSpool.stop();
+			return;
+		}
+
 		if (!initDone) {
 			logger.error("Cannot stop Audit File Spooler. Initilization not done. queueName={}", queueProvider.getName());
 			return;
@@ -317,6 +337,11 @@ public void stop() {
 	}
 
 	public void flush() {
+		if (segmentSpool != null) {
+			segmentSpool.flush();
+			return;
+		}
+
 		if (!initDone) {
 			logger.error("Cannot flush Audit File Spooler. Initilization not done. queueName={}", queueProvider.getName());
 			return;
@@ -334,6 +359,10 @@ public void flush() {
 	 * @return
 	 */
 	public boolean isPending() {
+		if (segmentSpool != null) {
+			return segmentSpool.isPending();
+		}
+
 		if (!initDone) {
 			logError("isPending(): File Spooler not initialized. queueName={}", queueProvider.getName());
 			return false;
@@ -348,6 +377,10 @@ public boolean isPending() {
 	 * @return
 	 */
 	public long getLastAttemptTimeDelta() {
+		if (segmentSpool != null) {
+			return segmentSpool.getLastAttemptTimeDelta();
+		}
+
 		if (lastAttemptTime == 0) {
 			return 0;
 		}
@@ -355,6 +388,11 @@ public long getLastAttemptTimeDelta() {
 	}
 
 	public synchronized void stashLogs(AuditEventBase event) {
+		if (segmentSpool != null) {
+			segmentSpool.stashLogs(event);
+			return;
+		}
+
 		if (isDrain) {
 			// Stop has been called, so this method shouldn't be called
 			logger.error("stashLogs() is called after stop is called. event={}", event);
@@ -376,6 +414,11 @@ public synchronized void stashLogs(AuditEventBase event) {
 	}
 
 	public synchronized void stashLogs(Collection<AuditEventBase> events) {
+		if (segmentSpool != null) {
+			segmentSpool.stashLogs(events);
+			return;
+		}
+
 		for (AuditEventBase event : events) {
 			stashLogs(event);
 		}
@@ -383,6 +426,11 @@ public synchronized void stashLogs(Collection<AuditEventBase> events) {
 	}
 
 	public synchronized void stashLogsString(String event) {
+		if (segmentSpool != null) {
+			segmentSpool.stashLogsString(event);
+			return;
+		}
+
 		if (isDrain) {
 			// Stop has been called, so this method shouldn't be called
 			logger.error("stashLogs() is called after stop is called. event={}", event);
@@ -401,6 +449,11 @@ public synchronized void stashLogsString(String event) {
 	}
 
 	public synchronized void stashLogsString(Collection<String> events) {
+		if (segmentSpool != null) {
+			segmentSpool.stashLogsString(events);
+			return;
+		}
+
 		for (String event : events) {
 			stashLogsString(event);
 		}
@@ -20,8 +20,10 @@
 package org.apache.ranger.audit.queue;
 
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.ranger.audit.destination.AuditDestination;
+import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.provider.AuditHandler;
 import org.apache.ranger.audit.provider.BaseAuditHandler;
 import org.apache.ranger.audit.provider.MiscUtil;
@@ -49,6 +51,9 @@ public abstract class AuditQueue extends BaseAuditHandler {
 	public static final String PROP_QUEUE_SIZE = "queue.size";
 	public static final String PROP_BATCH_INTERVAL = "batch.interval.ms";
 
+	public static final String PROP_QUEUE_FULL_POLICY  = "queue.full.policy";
+	public static final String PROP_QUEUE_FULL_WAIT_MS = "queue.full.wait.ms";
+
 	public static final String PROP_FILE_SPOOL_ENABLE = "filespool.enable";
 	public static final String PROP_FILE_SPOOL_WAIT_FOR_FULL_DRAIN = "filespool.drain.full.wait.ms";
 	public static final String PROP_FILE_SPOOL_QUEUE_THRESHOLD = "filespool.drain.threshold.percent";
@@ -58,6 +63,17 @@ public abstract class AuditQueue extends BaseAuditHandler {
 
 	private boolean isDrain = false;
 
+	/**
+	 * What log() does when the queue is full:
+	 *  DROP  - drop the event, and count it as failed
+	 *  SPOOL - stash the event in the file spool, if enabled; otherwise drop it
+	 *  WAIT  - wait for space up to queue.full.wait.ms (forever if <= 0); drop the event if the queue is still full
+	 */
+	public enum QueueFullPolicy { DROP, SPOOL, WAIT }
+
+	private QueueFullPolicy queueFullPolicy = QueueFullPolicy.DROP;
+	private long            queueFullWaitMs = -1;
+
 	protected boolean fileSpoolerEnabled = false;
 	protected int fileSpoolMaxWaitTime = 5 * 60 * 1000; // Default 5 minutes
 	protected int fileSpoolDrainThresholdPercent = 80;
@@ -95,6 +111,18 @@ public void init(Properties props, String basePropertyName) {
 		setMaxBatchInterval(MiscUtil.getIntProperty(props, propPrefix + "."
 				+ PROP_BATCH_INTERVAL, getMaxBatchInterval()));
 
+		String fullPolicy = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_QUEUE_FULL_POLICY);
+
+		if (fullPolicy != null) {
+			try {
+				setQueueFullPolicy(QueueFullPolicy.valueOf(fullPolicy.trim().toUpperCase()));
+			} catch (IllegalArgumentException excp) {
+				LOG.error("Invalid value " + fullPolicy + " for " + propPrefix + "." + PROP_QUEUE_FULL_POLICY + ". Using " + getQueueFullPolicy());
+			}
+		}
+
+		setQueueFullWaitMs(MiscUtil.getLongProperty(props, propPrefix + "." + PROP_QUEUE_FULL_WAIT_MS, getQueueFullWaitMs()));
+
 		fileSpoolerEnabled = MiscUtil.getBooleanProperty(props, propPrefix
 				+ "." + PROP_FILE_SPOOL_ENABLE, false);
 		String logFolderProp = MiscUtil.getStringProperty(props, propPrefix
@@ -116,6 +144,8 @@ public void init(Properties props, String basePropertyName) {
 				fileSpoolerEnabled = false;
 				LOG.error("Couldn't initialize file spooler. Disabling it. queue="
 						+ getName() + ", consumer=" + consumer.getName());
+			} else if (consumer instanceof AuditDestination) {
+				((AuditDestination) consumer).setFileSpool(fileSpooler::stashLogs);
 			}
 		} else {
 			LOG.info("File spool is disabled for " + getName());
@@ -180,6 +210,22 @@ public void setMaxQueueSize(int maxQueueSize) {
 		this.maxQueueSize = maxQueueSize;
 	}
 
+	public QueueFullPolicy getQueueFullPolicy() {
+		return queueFullPolicy;
+	}
+
+	public void setQueueFullPolicy(QueueFullPolicy queueFullPolicy) {
+		this.queueFullPolicy = queueFullPolicy;
+	}
+
+	public long getQueueFullWaitMs() {
+		return queueFullWaitMs;
+	}
+
+	public void setQueueFullWaitMs(long queueFullWaitMs) {
+		this.queueFullWaitMs = queueFullWaitMs;
+	}
+
 	public int getMaxBatchInterval() {
 		return maxBatchInterval;
 	}
@@ -196,6 +242,45 @@ public void setMaxBatchSize(int maxBatchSize) {
 		this.maxBatchSize = maxBatchSize;
 	}
 
+	/**
+	 * Adds the event to the queue; when the queue is full, applies the configured QueueFullPolicy.
+	 *
+	 * @return false if the event was dropped
+	 */
+	protected boolean addToQueue(AuditRingBuffer<AuditEventBase> queue, AuditEventBase event) {
+		if (queue.offer(event)) {
+			return true;
+		}
+
+		switch (queueFullPolicy) {
+			case WAIT:
+				try {
+					if (queue.offer(event, queueFullWaitMs, TimeUnit.MILLISECONDS)) {
+						return true;
+					}
+				} catch (InterruptedException ex) {
+					throw new RuntimeException(ex);
+				}
+				break;
+
+			case SPOOL:
+				if (fileSpoolerEnabled) {
+					fileSpooler.stashLogs(event);
+					addStashedCount(1);
+
+					return true;
+				}
+				break;
+
+			default:
+				break;
+		}
+
+		addFailedCount(1);
+
+		return false;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 *
@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer/single-consumer queue over a pre-allocated array.
+ *
+ * Producers claim a slot by incrementing the producer index with a CAS and then publish the element into the slot;
+ * no lock is taken and no node is allocated per element. Only one thread - the queue's consumer thread - may call
+ * poll(), take() and drainTo(). A consumer waiting in poll(timeout) is parked, and is unparked by the offer() that
+ * adds the element it waits for.
+ */
+public class AuditRingBuffer<E> {
+	private static final long MAX_FULL_WAIT_PARK_NS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final int                     capacity;
+	private final int                     mask;
+	private final AtomicReferenceArray<E> buffer;
+	private final AtomicLong              producerIndex = new AtomicLong();
+	private volatile long                 consumerIndex;
+	private volatile Thread               waitingConsumer;
+
+	public AuditRingBuffer(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+
+		int bufferSize = capacity > (1 << 30) ? (1 << 30) : Integer.highestOneBit(capacity - 1) << 1;
+
+		this.capacity = Math.min(capacity, 1 << 30);
+		this.mask     = Math.max(bufferSize, 1) - 1;
+		this.buffer   = new AtomicReferenceArray<>(mask + 1);
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	public int size() {
+		long size = producerIndex.get() - consumerIndex;
+
+		return size <= 0 ? 0 : (size >= capacity ? capacity : (int) size);
+	}
+
+	public boolean isEmpty() {
+		return producerIndex.get() == consumerIndex;
+	}
+
+	/**
+	 * Adds the element if the queue is not full; never blocks.
+	 *
+	 * @return false if the queue is full
+	 */
+	public boolean offer(E e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+
+		while (true) {
+			long index = producerIndex.get();
+
+			if (index - consumerIndex >= capacity) {
+				return false;
+			}
+
+			if (producerIndex.compareAndSet(index, index + 1)) {
+				buffer.set((int) index & mask, e);
+
+				// a waiting consumer has found the queue empty, hence it waits for the element at its current index
+				Thread consumer = waitingConsumer;
+
+				if (consumer != null && index == consumerIndex) {
+					LockSupport.unpark(consumer);
+				}
+
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Adds the element, waiting for space up to the given time. A timeout <= 0 waits until space is available.
+	 *
+	 * @return false if the queue is still full after the timeout
+	 * @throws InterruptedException if the calling thread is interrupted while waiting
+	 */
+	public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = timeout > 0 ? System.nanoTime() + unit.toNanos(timeout) : 0;
+
+		while (!offer(e)) {
+			long waitNs = MAX_FULL_WAIT_PARK_NS;
+
+			if (timeout > 0) {
+				long remainingNs = deadline - System.nanoTime();
+
+				if (remainingNs <= 0) {
+					return false;
+				}
+
+				waitNs = Math.min(waitNs, remainingNs);
+			}
+
+			LockSupport.parkNanos(this, waitNs); // consumer doesn't signal producers; full queue is the uncommon case
+
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Removes and returns the head of the queue, or null if empty. Must be called only from the consumer thread.
+	 */
+	public E poll() {
+		long index = consumerIndex;
+		int  slot  = (int) index & mask;
+		E    ret   = buffer.get(slot);
+
+		if (ret == null) {
+			if (index == producerIndex.get()) {
+				return null;
+			}
+
+			// a producer claimed the slot but hasn't published the element yet
+			do {
+				Thread.yield();
+
+				ret = buffer.get(slot);
+			} while (ret == null);
+		}
+
+		buffer.lazySet(slot, null);
+		consumerIndex = index + 1;
+
+		return ret;
+	}
+
+	/**
+	 * Removes and returns the head of the queue, waiting up to the given time for an element to be added.
+	 * Must be called only from the consumer thread.
+	 */
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		E ret = poll();
+
+		if (ret == null && timeout > 0) {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+			waitingConsumer = Thread.currentThread();
+
+			try {
+				while ((ret = poll()) == null) {
+					long remainingNs = deadline - System.nanoTime();
+
+					if (remainingNs <= 0) {
+						break;
+					}
+
+					LockSupport.parkNanos(this, remainingNs);
+
+					if (Thread.interrupted()) {
+						throw new InterruptedException();
+					}
+				}
+			} finally {
+				waitingConsumer = null;
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Removes and returns the head of the queue, waiting for an element to be added if necessary.
+	 * Must be called only from the consumer thread.
+	 */
+	public E take() throws InterruptedException {
+		E ret;
+
+		while ((ret = poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) == null) {
+			// wait until an element is available
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Moves up to maxElements available elements into the given collection, without waiting.
+	 * Must be called only from the consumer thread.
+	 *
+	 * @return number of elements moved
+	 */
+	public int drainTo(Collection<? super E> to, int maxElements) {
+		int  ret   = 0;
+		long index = consumerIndex;
+
+		while (ret < maxElements) {
+			int slot = (int) index & mask;
+			E   e    = buffer.get(slot);
+
+			if (e == null) { // empty, or the element is not published yet - which the next call would pick up
+				break;
+			}
+
+			buffer.lazySet(slot, null);
+			index++;
+
+			to.add(e);
+
+			ret++;
+		}
+
+		consumerIndex = index;
+
+		return ret;
+	}
+}
@@ -0,0 +1,680 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only log of records, stored in a sequence of segment files in a folder.
+ *
+ * Each segment file starts with an 8 byte header (magic, version) followed by records, each framed as
+ * [int length][int crc32 of payload][payload]. Records are appended through a FileChannel, after being batched in
+ * a write buffer; flush(true) additionally forces the segment to the disk, which lets the caller sync a group of
+ * records at once. A torn record at the end of the last segment - from a crash while writing - is truncated on open.
+ *
+ * Progress of the reader is saved in a 64 byte checkpoint file as (segment, offset), in one of two 32 byte slots
+ * alternately, each with a sequence number and a crc; a torn checkpoint write leaves the previous slot valid.
+ * Segments that are fully read are deleted, or moved to the archive folder when one is given - which retains up to
+ * the given number of the most recent segments.
+ *
+ * The log supports one writer thread and one reader thread at a time; append() and flush() must not be called
+ * concurrently, neither must read() and commit().
+ */
+public class AuditSegmentLog implements Closeable {
+	private static final Logger logger = LoggerFactory.getLogger(AuditSegmentLog.class);
+
+	public static final int  DEFAULT_MAX_SEGMENT_BYTES = 64 * 1024 * 1024;
+	public static final int  MAX_RECORD_BYTES          = 32 * 1024 * 1024;
+
+	static final int SEGMENT_MAGIC      = 0x52415347; // RASG
+	static final int CHECKPOINT_MAGIC   = 0x5241434b; // RACK
+	static final int FORMAT_VERSION     = 1;
+	static final int SEGMENT_HEADER_LEN = 8;
+	static final int RECORD_HEADER_LEN  = 8;
+	static final int CHECKPOINT_LEN     = 32;
+
+	private static final int    WRITE_BUFFER_SIZE = 256 * 1024;
+	private static final int    READ_BUFFER_SIZE  = 256 * 1024;
+	private static final String SEGMENT_SUFFIX    = ".seg";
+
+	private final File    folder;
+	private final File    archiveFolder;
+	private final int     maxArchiveSegments;
+	private final String  prefix;
+	private final Pattern segmentNamePattern;
+	private final int     maxSegmentBytes;
+	private final long    maxSegmentAgeMs;
+
+	// segments not fully read yet, the last one being the segment being written to
+	private final ConcurrentSkipListSet<Long> segments = new ConcurrentSkipListSet<>();
+
+	// writer state
+	private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+	private final CRC32      writeCrc    = new CRC32();
+	private FileChannel      writeChannel;
+	private long             writeSegment;
+	private long             writePosition;
+	private long             writeSegmentCreateTime;
+	private volatile WriteMark writeMark;
+
+	// reader state
+	private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+	private final CRC32      readCrc    = new CRC32();
+	private final FileChannel checkpointChannel;
+	private final ByteBuffer checkpointBuffer = ByteBuffer.allocate(CHECKPOINT_LEN);
+	private FileChannel      readChannel;
+	private long             readChannelSegment = -1;
+	private volatile Position committedPosition;
+	private long             checkpointSeq;
+
+	public AuditSegmentLog(File folder, String prefix, int maxSegmentBytes, long maxSegmentAgeMs, File archiveFolder, int maxArchiveSegments) throws IOException {
+		this.folder             = folder;
+		this.archiveFolder      = archiveFolder;
+		this.maxArchiveSegments = maxArchiveSegments;
+		this.prefix             = prefix;
+		this.segmentNamePattern = Pattern.compile(Pattern.quote(prefix) + "_(\\d{20})" + Pattern.quote(SEGMENT_SUFFIX));
+		this.maxSegmentBytes    = maxSegmentBytes > 0 ? maxSegmentBytes : DEFAULT_MAX_SEGMENT_BYTES;
+		this.maxSegmentAgeMs    = maxSegmentAgeMs;
+		this.checkpointChannel  = FileChannel.open(new File(folder, prefix + ".ckpt").toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		Position checkpoint  = loadCheckpoint();
+		long[]   existing     = listSegments(folder);
+		long     firstSegment = nextSegment(existing, checkpoint);
+
+		for (long segment : existing) {
+			if (checkpoint == null || segment >= checkpoint.segment) {
+				segments.add(segment);
+			} else { // fully read, but not removed before the last shutdown
+				retireSegment(segment);
+			}
+		}
+
+		if (!segments.isEmpty()) {
+			recoverSegment(segments.last());
+		}
+
+		if (checkpoint == null || !segments.contains(checkpoint.segment)) {
+			checkpoint = new Position(segments.isEmpty() ? firstSegment : segments.first(), SEGMENT_HEADER_LEN);
+		}
+
+		committedPosition = checkpoint;
+
+		// always start writing to a new segment, so that segments written before a restart are never appended to
+		openWriteSegment(firstSegment);
+
+		logger.info("AuditSegmentLog(folder={}, prefix={}): segments={}, checkpoint={}", folder, prefix, segments, checkpoint);
+	}
+
+	/**
+	 * Appends the record to the write buffer; the record is visible to the reader, and written to the file, after the
+	 * next flush(), or earlier when the write buffer fills up.
+	 */
+	public void append(byte[] payload) throws IOException {
+		if (payload.length > MAX_RECORD_BYTES) {
+			throw new IOException("record too large: length=" + payload.length + ", max=" + MAX_RECORD_BYTES);
+		}
+
+		rollSegmentIfNeeded();
+
+		int recordLen = RECORD_HEADER_LEN + payload.length;
+
+		if (writeBuffer.remaining() < recordLen) {
+			writeBufferToChannel();
+		}
+
+		writeCrc.reset();
+		writeCrc.update(payload, 0, payload.length);
+
+		if (writeBuffer.remaining() < recordLen) { // record larger than the write buffer
+			ByteBuffer record = ByteBuffer.allocate(recordLen);
+
+			record.putInt(payload.length).putInt((int) writeCrc.getValue()).put(payload);
+			((Buffer) record).flip();
+
+			writeFully(record);
+		} else {
+			writeBuffer.putInt(payload.length).putInt((int) writeCrc.getValue()).put(payload);
+		}
+	}
+
+	/**
+	 * Writes buffered records to the segment file and makes them visible to the reader.
+	 *
+	 * @param sync if true, forces the segment file to the disk
+	 */
+	public void flush(boolean sync) throws IOException {
+		writeBufferToChannel();
+
+		if (sync) {
+			writeChannel.force(false);
+		}
+
+		writeMark = new WriteMark(writeSegment, writePosition);
+	}
+
+	/**
+	 * Reads records following the last committed position, without waiting; the read position is not advanced until
+	 * the returned batch is committed - a batch not committed is read again by the next call.
+	 *
+	 * @return records read, and the position following the last of them; records are empty if there is nothing to read
+	 */
+	public Batch read(int maxRecords) throws IOException {
+		List<byte[]> records  = new ArrayList<>();
+		Position     position = committedPosition;
+
+		while (records.size() < maxRecords) {
+			WriteMark mark     = writeMark;
+			boolean   isSealed = position.segment < mark.segment;
+			long      limit    = isSealed ? getReadChannel(position.segment).size() : mark.position;
+
+			position = readRecords(position, limit, isSealed, maxRecords, records);
+
+			if (records.size() < maxRecords && isSealed && position.offset >= limit) {
+				Long next = segments.higher(position.segment);
+
+				if (next == null) {
+					break;
+				}
+
+				position = new Position(next, SEGMENT_HEADER_LEN);
+			} else {
+				break;
+			}
+		}
+
+		return new Batch(records, position);
+	}
+
+	/**
+	 * Saves the position following a batch of records that have been processed, and removes segments that are fully
+	 * read.
+	 *
+	 * @param sync if true, forces the checkpoint file to the disk
+	 */
+	public void commit(Position position, boolean sync) throws IOException {
+		checkpointSeq++;
+
+		((Buffer) checkpointBuffer).clear();
+		checkpointBuffer.putInt(CHECKPOINT_MAGIC).putLong(checkpointSeq).putLong(position.segment).putLong(position.offset);
+
+		readCrc.reset();
+		readCrc.update(checkpointBuffer.array(), 0, checkpointBuffer.position());
+
+		checkpointBuffer.putInt((int) readCrc.getValue());
+		((Buffer) checkpointBuffer).flip();
+
+		long slotOffset = (checkpointSeq % 2) * CHECKPOINT_LEN;
+
+		while (checkpointBuffer.hasRemaining()) {
+			slotOffset += checkpointChannel.write(checkpointBuffer, slotOffset);
+		}
+
+		if (sync) {
+			checkpointChannel.force(false);
+		}
+
+		committedPosition = position;
+
+		for (Long segment = segments.first(); segment < position.segment; segment = segments.first()) {
+			segments.remove(segment);
+
+			closeReadChannel();
+			retireSegment(segment);
+		}
+	}
+
+	/**
+	 * @return true if there are records following the committed position; can be called from any thread
+	 */
+	public boolean hasUnread() {
+		Position  position = committedPosition;
+		WriteMark mark     = writeMark;
+
+		return position.segment < mark.segment ? hasRecordsAfter(position) : position.offset < mark.position;
+	}
+
+	public Position getCommittedPosition() {
+		return committedPosition;
+	}
+
+	public int getSegmentCount() {
+		return segments.size();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if (writeChannel != null) {
+				flush(true);
+
+				writeChannel.close();
+
+				writeChannel = null;
+			}
+		} finally {
+			closeReadChannel();
+
+			checkpointChannel.close();
+		}
+	}
+
+	private boolean hasRecordsAfter(Position position) {
+		if (getSegmentFile(position.segment).length() > position.offset) {
+			return true;
+		}
+
+		// segments following a sealed segment have records, except possibly the one being written to
+		WriteMark mark = writeMark;
+		Long      next = segments.higher(position.segment);
+
+		return next != null && (next < mark.segment || mark.position > SEGMENT_HEADER_LEN);
+	}
+
+	private Position readRecords(Position from, long limit, boolean isSealed, int maxRecords, List<byte[]> records) throws IOException {
+		FileChannel channel = getReadChannel(from.segment);
+		long        offset  = from.offset;
+
+		while (records.size() < maxRecords && offset + RECORD_HEADER_LEN <= limit) {
+			((Buffer) readBuffer).clear();
+			((Buffer) readBuffer).limit((int) Math.min(readBuffer.capacity(), limit - offset));
+
+			readFully(channel, readBuffer, offset);
+			((Buffer) readBuffer).flip();
+
+			int consumed = 0;
+
+			while (records.size() < maxRecords && readBuffer.remaining() >= RECORD_HEADER_LEN) {
+				int  length = readBuffer.getInt();
+				int  crc    = readBuffer.getInt();
+
+				if (length < 0 || length > MAX_RECORD_BYTES || offset + consumed + RECORD_HEADER_LEN + length > limit) {
+					return skipCorruptSegment(from.segment, offset + consumed, isSealed, "invalid record length " + length);
+				}
+
+				byte[] payload = new byte[length];
+
+				if (readBuffer.remaining() >= length) {
+					readBuffer.get(payload);
+				} else { // record spans beyond the read buffer
+					ByteBuffer rest = ByteBuffer.wrap(payload);
+
+					rest.put(readBuffer);
+
+					readFully(channel, rest, offset + consumed + RECORD_HEADER_LEN + rest.position());
+
+					((Buffer) readBuffer).limit(readBuffer.position()); // nothing more in the buffer
+				}
+
+				readCrc.reset();
+				readCrc.update(payload, 0, payload.length);
+
+				if ((int) readCrc.getValue() != crc) {
+					return skipCorruptSegment(from.segment, offset + consumed, isSealed, "crc mismatch");
+				}
+
+				records.add(payload);
+
+				consumed += RECORD_HEADER_LEN + length;
+			}
+
+			if (consumed == 0) { // incomplete record header
+				break;
+			}
+
+			offset += consumed;
+		}
+
+		return new Position(from.segment, offset);
+	}
+
+	private Position skipCorruptSegment(long segment, long offset, boolean isSealed, String reason) throws IOException {
+		if (!isSealed) { // records of the segment being written are read only up to the flushed position, hence never torn
+			throw new IOException("corrupt record in segment " + getSegmentFile(segment) + " at offset " + offset + ": " + reason);
+		}
+
+		logger.error("AuditSegmentLog: corrupt record in segment {} at offset {}: {}. Skipping rest of the segment", getSegmentFile(segment), offset, reason);
+
+		return new Position(segment, getReadChannel(segment).size());
+	}
+
+	private void rollSegmentIfNeeded() throws IOException {
+		boolean isFull = writePosition + writeBuffer.position() >= maxSegmentBytes;
+		boolean isOld  = maxSegmentAgeMs > 0 && writePosition + writeBuffer.position() > SEGMENT_HEADER_LEN && System.currentTimeMillis() - writeSegmentCreateTime >= maxSegmentAgeMs;
+
+		if (isFull || isOld) {
+			flush(true);
+
+			writeChannel.close();
+
+			openWriteSegment(writeSegment + 1);
+		}
+	}
+
+	private void openWriteSegment(long segment) throws IOException {
+		File file = getSegmentFile(segment);
+
+		logger.info("AuditSegmentLog: creating segment {}", file);
+
+		writeChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+		((Buffer) writeBuffer).clear();
+
+		ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_LEN);
+
+		((Buffer) header.putInt(SEGMENT_MAGIC).putInt(FORMAT_VERSION)).flip();
+
+		writeSegment           = segment;
+		writePosition          = 0;
+		writeSegmentCreateTime = System.currentTimeMillis();
+
+		writeFully(header);
+
+		segments.add(segment);
+
+		writeMark = new WriteMark(writeSegment, writePosition);
+	}
+
+	private void writeBufferToChannel() throws IOException {
+		if (writeBuffer.position() > 0) {
+			((Buffer) writeBuffer).flip();
+
+			writeFully(writeBuffer);
+
+			((Buffer) writeBuffer).clear();
+		}
+	}
+
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			writePosition += writeChannel.write(buffer, writePosition);
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+		while (buffer.hasRemaining()) {
+			int count = channel.read(buffer, offset);
+
+			if (count < 0) {
+				throw new IOException("unexpected end of file at offset " + offset);
+			}
+
+			offset += count;
+		}
+	}
+
+	private FileChannel getReadChannel(long segment) throws IOException {
+		if (readChannel == null || readChannelSegment != segment) {
+			closeReadChannel();
+
+			readChannel        = FileChannel.open(getSegmentFile(segment).toPath(), StandardOpenOption.READ);
+			readChannelSegment = segment;
+		}
+
+		return readChannel;
+	}
+
+	private void closeReadChannel() {
+		if (readChannel != null) {
+			try {
+				readChannel.close();
+			} catch (IOException excp) {
+				logger.warn("AuditSegmentLog: failed to close segment {}", readChannelSegment, excp);
+			}
+
+			readChannel        = null;
+			readChannelSegment = -1;
+		}
+	}
+
+	/*
+	 * validates records of the given segment, which could have been written to when the process stopped; a torn record
+	 * at the end is truncated. Segments without records are removed.
+	 */
+	private void recoverSegment(long segment) throws IOException {
+		File file = getSegmentFile(segment);
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			long       size   = channel.size();
+			long       offset = SEGMENT_HEADER_LEN;
+			ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_LEN);
+
+			if (size >= SEGMENT_HEADER_LEN) {
+				readFully(channel, header, 0);
+				((Buffer) header).flip();
+
+				if (header.getInt() != SEGMENT_MAGIC) {
+					throw new IOException("not a segment file: " + file);
+				}
+			} else {
+				offset = 0;
+			}
+
+			while (offset > 0 && offset + RECORD_HEADER_LEN <= size) {
+				((Buffer) header).clear();
+
+				readFully(channel, header, offset);
+				((Buffer) header).flip();
+
+				int length = header.getInt();
+				int crc    = header.getInt();
+
+				if (length < 0 || length > MAX_RECORD_BYTES || offset + RECORD_HEADER_LEN + length > size) {
+					break;
+				}
+
+				ByteBuffer payload = ByteBuffer.allocate(length);
+
+				readFully(channel, payload, offset + RECORD_HEADER_LEN);
+
+				readCrc.reset();
+				readCrc.update(payload.array(), 0, length);
+
+				if ((int) readCrc.getValue() != crc) {
+					break;
+				}
+
+				offset += RECORD_HEADER_LEN + length;
+			}
+
+			if (offset <= SEGMENT_HEADER_LEN) {
+				logger.info("AuditSegmentLog: removing segment without records {}", file);
+			} else if (offset < size) {
+				logger.warn("AuditSegmentLog: truncating torn record at the end of segment {}: offset={}, size={}", file, offset, size);
+
+				channel.truncate(offset);
+				channel.force(false);
+			}
+
+			if (offset > SEGMENT_HEADER_LEN) {
+				return;
+			}
+		}
+
+		segments.remove(segment);
+
+		if (!file.delete()) {
+			logger.warn("AuditSegmentLog: failed to delete {}", file);
+		}
+	}
+
+	private void retireSegment(long segment) {
+		File file = getSegmentFile(segment);
+
+		if (archiveFolder != null) {
+			File archiveFile = new File(archiveFolder, file.getName());
+
+			logger.info("AuditSegmentLog: moving {} to {}", file, archiveFile);
+
+			if (!file.renameTo(archiveFile)) {
+				logger.warn("AuditSegmentLog: failed to move {} to {}", file, archiveFile);
+			}
+
+			long[] archived = listSegments(archiveFolder);
+
+			for (int i = 0; i < archived.length - maxArchiveSegments; i++) {
+				File oldFile = new File(archiveFolder, getSegmentFile(archived[i]).getName());
+
+				logger.info("AuditSegmentLog: deleting archived segment {}", oldFile);
+
+				if (!oldFile.delete()) {
+					logger.warn("AuditSegmentLog: failed to delete {}", oldFile);
+				}
+			}
+		} else {
+			logger.info("AuditSegmentLog: deleting {}", file);
+
+			if (!file.delete()) {
+				logger.warn("AuditSegmentLog: failed to delete {}", file);
+			}
+		}
+	}
+
+	private Position loadCheckpoint() throws IOException {
+		Position ret = null;
+
+		if (checkpointChannel.size() >= CHECKPOINT_LEN) {
+			ByteBuffer buffer = ByteBuffer.allocate(CHECKPOINT_LEN * 2);
+
+			((Buffer) buffer).limit((int) Math.min(buffer.capacity(), checkpointChannel.size()));
+
+			readFully(checkpointChannel, buffer, 0);
+
+			for (int slot = 0; slot * CHECKPOINT_LEN + CHECKPOINT_LEN <= buffer.limit(); slot++) {
+				int base = slot * CHECKPOINT_LEN;
+
+				readCrc.reset();
+				readCrc.update(buffer.array(), base, CHECKPOINT_LEN - 4);
+
+				if (buffer.getInt(base) != CHECKPOINT_MAGIC || buffer.getInt(base + CHECKPOINT_LEN - 4) != (int) readCrc.getValue()) {
+					continue;
+				}
+
+				long seq = buffer.getLong(base + 4);
+
+				if (ret == null || seq > checkpointSeq) {
+					checkpointSeq = seq;
+					ret           = new Position(buffer.getLong(base + 12), buffer.getLong(base + 20));
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	private long[] listSegments(File dir) {
+		TreeSet<Long> ret   = new TreeSet<>();
+		File[]        files = dir.listFiles();
+
+		if (files != null) {
+			for (File file : files) {
+				Matcher matcher = segmentNamePattern.matcher(file.getName());
+
+				if (matcher.matches()) {
+					ret.add(Long.parseLong(matcher.group(1)));
+				}
+			}
+		}
+
+		return ret.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	private static long nextSegment(long[] existing, Position checkpoint) {
+		long ret = existing.length > 0 ? existing[existing.length - 1] + 1 : 0;
+
+		return checkpoint != null ? Math.max(ret, checkpoint.segment + 1) : ret;
+	}
+
+	File getSegmentFile(long segment) {
+		return new File(folder, String.format("%s_%020d%s", prefix, segment, SEGMENT_SUFFIX));
+	}
+
+	public static final class Position {
+		final long segment;
+		final long offset;
+
+		Position(long segment, long offset) {
+			this.segment = segment;
+			this.offset  = offset;
+		}
+
+		@Override
+		public String toString() {
+			return "Position={segment=" + segment + ", offset=" + offset + "}";
+		}
+	}
+
+	public static final class Batch {
+		private final List<byte[]> records;
+		private final Position     end;
+
+		Batch(List<byte[]> records, Position end) {
+			this.records = records;
+			this.end     = end;
+		}
+
+		public List<byte[]> getRecords() {
+			return records;
+		}
+
+		public Position getEnd() {
+			return end;
+		}
+
+		public boolean isEmpty() {
+			return records.isEmpty();
+		}
+
+		@Override
+		public String toString() {
+			return "Batch={recordCount=" + records.size() + ", end=" + end + "}";
+		}
+	}
+
+	private static final class WriteMark {
+		final long segment;
+		final long position;
+
+		WriteMark(long segment, long position) {
+			this.segment  = segment;
+			this.position = position;
+		}
+
+		@Override
+		public String toString() {
+			return "WriteMark={segment=" + segment + ", position=" + position + "}";
+		}
+	}
+}
@@ -0,0 +1,428 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.AuthzAuditEventJsonWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+/**
+ * File spool that stores audit events in an AuditSegmentLog - length-prefixed, crc-checked records in append-only
+ * segment files - and sends them to the consumer from a separate thread. Used by AuditFileSpool, AuditFileQueueSpool
+ * and AuditFileCacheProviderSpool when filespool.format=segment.
+ *
+ * Unlike the json spool, the position of the consumer is saved in a small binary checkpoint after each batch, instead
+ * of rewriting a json index; and events are sent as they are written, instead of after the spool file is rolled over.
+ * Writes are forced to the disk at most once in filespool.sync.interval.ms, covering all events written since.
+ */
+public class AuditSegmentSpool implements Runnable {
+	private static final Logger logger = LoggerFactory.getLogger(AuditSegmentSpool.class);
+
+	public static final String PROP_FILE_SPOOL_FORMAT            = "filespool.format";
+	public static final String PROP_FILE_SPOOL_SEGMENT_MAX_BYTES = "filespool.segment.max.bytes";
+	public static final String PROP_FILE_SPOOL_SYNC_INTERVAL_MS  = "filespool.sync.interval.ms";
+	public static final String PROP_FILE_SPOOL_BATCH_SIZE        = "filespool.buffer.size";
+	public static final String FILE_SPOOL_FORMAT_JSON            = "json";
+	public static final String FILE_SPOOL_FORMAT_SEGMENT         = "segment";
+
+	private final String       queueName;
+	private final AuditHandler consumerProvider;
+
+	private AuditSegmentLog segmentLog           = null;
+	private int             retryDestinationMS   = 30 * 1000; // Default 30 seconds
+	private int             syncIntervalMS       = 1000;
+	private int             batchSize            = 1000;
+	private int             errorLogIntervalMS   = 30 * 1000; // Every 30 seconds
+	private long            lastErrorLogMS       = 0;
+	private long            lastSyncTime         = 0;
+	private long            lastCommitSyncTime   = 0;
+	private long            lastAttemptTime      = 0;
+	private boolean         isUnsynced           = false;
+	private boolean         initDone             = false;
+	private boolean         isSpoolingSuccessful = true;
+	private Thread          destinationThread    = null;
+
+	private volatile boolean isDrain    = false;
+	private volatile boolean isDestDown = false;
+
+	public AuditSegmentSpool(String queueName, AuditHandler consumerProvider) {
+		this.queueName        = queueName;
+		this.consumerProvider = consumerProvider;
+	}
+
+	/**
+	 * @return true if the spool configured with the given property prefix should use the segment format
+	 */
+	public static boolean isEnabled(Properties props, String propPrefix) {
+		String format = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_FILE_SPOOL_FORMAT, FILE_SPOOL_FORMAT_JSON);
+
+		return FILE_SPOOL_FORMAT_SEGMENT.equalsIgnoreCase(format.trim());
+	}
+
+	public boolean init(Properties props, String propPrefix) {
+		if (initDone) {
+			logger.error("init() called more than once. queueName={}, consumer={}", queueName, consumerProvider.getName());
+			return true;
+		}
+
+		try {
+			String logFolderProp     = MiscUtil.getStringProperty(props, propPrefix + "." + AuditFileSpool.PROP_FILE_SPOOL_LOCAL_DIR);
+			String archiveFolderProp = MiscUtil.getStringProperty(props, propPrefix + "." + AuditFileSpool.PROP_FILE_SPOOL_ARCHIVE_DIR);
+			String fileNamePrefix    = MiscUtil.getStringProperty(props, propPrefix + "." + AuditFileSpool.PROP_FILE_SPOOL_FILENAME_PREFIX);
+			int    maxArchiveFiles   = MiscUtil.getIntProperty(props, propPrefix + "." + AuditFileSpool.PROP_FILE_SPOOL_ARCHIVE_MAX_FILES_COUNT, 100);
+			int    fileRolloverSec   = MiscUtil.getIntProperty(props, propPrefix + "." + AuditFileSpool.PROP_FILE_SPOOL_FILE_ROLLOVER, 24 * 60 * 60);
+			int    maxSegmentBytes   = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_FILE_SPOOL_SEGMENT_MAX_BYTES, AuditSegmentLog.DEFAULT_MAX_SEGMENT_BYTES);
+
+			retryDestinationMS = MiscUtil.getIntProperty(props, propPrefix + "." + AuditFileSpool.PROP_FILE_SPOOL_DEST_RETRY_MS, retryDestinationMS);
+			syncIntervalMS     = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_FILE_SPOOL_SYNC_INTERVAL_MS, syncIntervalMS);
+			batchSize          = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_FILE_SPOOL_BATCH_SIZE, batchSize);
+
+			if (logFolderProp == null || logFolderProp.isEmpty()) {
+				logger.error("Audit spool folder is not configured. Please set {}.{}. queueName={}", propPrefix, AuditFileSpool.PROP_FILE_SPOOL_LOCAL_DIR, queueName);
+				return false;
+			}
+
+			File logFolder     = new File(logFolderProp);
+			File archiveFolder = (archiveFolderProp == null || archiveFolderProp.isEmpty()) ? new File(logFolder, "archive") : new File(archiveFolderProp);
+
+			for (File folder : new File[] { logFolder, archiveFolder }) {
+				if (!folder.isDirectory() && !folder.mkdirs()) {
+					logger.error("File Spool folder not found and can't be created. folder={}, queueName={}", folder.getAbsolutePath(), queueName);
+					return false;
+				}
+			}
+
+			if (fileNamePrefix == null || fileNamePrefix.isEmpty()) {
+				fileNamePrefix = queueName + "_" + consumerProvider.getName();
+			}
+
+			segmentLog = new AuditSegmentLog(logFolder, "spool_" + fileNamePrefix, maxSegmentBytes, fileRolloverSec * 1000L, maxArchiveFiles > 0 ? archiveFolder : null, maxArchiveFiles);
+
+			logger.info("Segment spool initialized. queueName={}, consumer={}, logFolder={}, retryDestinationMS={}, syncIntervalMS={}, batchSize={}, maxSegmentBytes={}",
+			            queueName, consumerProvider.getName(), logFolder, retryDestinationMS, syncIntervalMS, batchSize, maxSegmentBytes);
+		} catch (Throwable t) {
+			logger.error("Error initializing File Spooler. queue={}", queueName, t);
+			return false;
+		}
+
+		initDone = true;
+
+		return true;
+	}
+
+	public void start() {
+		if (!initDone) {
+			logger.error("Cannot start Audit File Spooler. Initilization not done yet. queueName={}", queueName);
+			return;
+		}
+
+		logger.info("Starting writerThread, queueName={}, consumer={}", queueName, consumerProvider.getName());
+
+		destinationThread = new Thread(this, queueName + "_" + consumerProvider.getName() + "_destWriter");
+		destinationThread.setDaemon(true);
+		destinationThread.start();
+	}
+
+	public void stop() {
+		if (!initDone) {
+			logger.error("Cannot stop Audit File Spooler. Initilization not done. queueName={}", queueName);
+			return;
+		}
+
+		logger.info("Stop called, queueName={}, consumer={}", queueName, consumerProvider.getName());
+
+		isDrain = true;
+
+		Thread thread = destinationThread;
+
+		if (thread != null) {
+			thread.interrupt();
+
+			try {
+				thread.join(retryDestinationMS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			destinationThread = null;
+		}
+
+		synchronized (this) {
+			try {
+				segmentLog.close();
+			} catch (IOException excp) {
+				logger.error("Error closing spool. queueName={}", queueName, excp);
+			}
+		}
+	}
+
+	public synchronized void flush() {
+		if (!initDone) {
+			logger.error("Cannot flush Audit File Spooler. Initilization not done. queueName={}", queueName);
+			return;
+		}
+
+		if (!isDrain) {
+			try {
+				flushLog();
+			} catch (IOException excp) {
+				logger.error("Error flushing spool. queueName={}", queueName, excp);
+			}
+		}
+	}
+
+	public boolean isPending() {
+		if (!initDone) {
+			logError("isPending(): File Spooler not initialized. queueName={}", queueName);
+			return false;
+		}
+
+		return segmentLog.hasUnread();
+	}
+
+	public long getLastAttemptTimeDelta() {
+		if (lastAttemptTime == 0) {
+			return 0;
+		}
+
+		return System.currentTimeMillis() - lastAttemptTime;
+	}
+
+	public synchronized boolean isSpoolingSuccessful() {
+		return isSpoolingSuccessful;
+	}
+
+	public synchronized void stashLogs(AuditEventBase event) {
+		if (appendRecord(event, toRecord(event))) {
+			flush();
+		}
+	}
+
+	public synchronized void stashLogs(Collection<AuditEventBase> events) {
+		for (AuditEventBase event : events) {
+			appendRecord(event, toRecord(event));
+		}
+
+		flush();
+	}
+
+	public synchronized void stashLogsString(String event) {
+		if (appendRecord(event, event.getBytes(StandardCharsets.UTF_8))) {
+			flush();
+		}
+	}
+
+	public synchronized void stashLogsString(Collection<String> events) {
+		for (String event : events) {
+			appendRecord(event, event.getBytes(StandardCharsets.UTF_8));
+		}
+
+		flush();
+	}
+
+	@Override
+	public void run() {
+		try {
+			//This is done to clear the MDC context to avoid issue with Ranger Auditing for Knox
+			MDC.clear();
+			runLogAudit();
+		} catch (Throwable t) {
+			logger.error("Exited thread without abnormaly. queue={}", consumerProvider.getName(), t);
+		}
+	}
+
+	public void runLogAudit() {
+		List<String> events = new ArrayList<>(batchSize);
+
+		while (!isDrain) {
+			try {
+				if (isDestDown) {
+					logger.info("Destination is down. sleeping for {} milli seconds. queueName={}, consumer={}", retryDestinationMS, queueName, consumerProvider.getName());
+					sleepAndSync(retryDestinationMS);
+				}
+
+				AuditSegmentLog.Batch batch = segmentLog.read(batchSize);
+
+				if (batch.isEmpty()) {
+					synchronized (this) {
+						if (isUnsynced) {
+							flushLog();
+						}
+
+						if (!isDrain && !segmentLog.hasUnread()) {
+							wait(isUnsynced ? getSyncDelay(System.currentTimeMillis()) : retryDestinationMS);
+						}
+					}
+
+					continue;
+				}
+
+				events.clear();
+
+				for (byte[] record : batch.getRecords()) {
+					events.add(new String(record, StandardCharsets.UTF_8));
+				}
+
+				if (sendEvents(events)) {
+					long    now  = System.currentTimeMillis();
+					boolean sync = now - lastCommitSyncTime >= syncIntervalMS;
+
+					segmentLog.commit(batch.getEnd(), sync);
+
+					if (sync) {
+						lastCommitSyncTime = now;
+					}
+				}
+			} catch (InterruptedException e) {
+				logger.info("Caught exception in consumer thread. Shutdown might be in progress");
+				break;
+			} catch (Throwable t) {
+				logger.error("Exception in destination writing thread.", t);
+			}
+		}
+
+		logger.info("Exiting file spooler. provider={}, consumer={}", queueName, consumerProvider.getName());
+	}
+
+	AuditSegmentLog getSegmentLog() {
+		return segmentLog;
+	}
+
+	synchronized boolean isUnsynced() {
+		return isUnsynced;
+	}
+
+	// AuthzAuditEvent is written straight to UTF-8 bytes, without an intermediate String - unless it is shared with other
+	// destinations, whose json is created once by MiscUtil.stringify()
+	private static byte[] toRecord(AuditEventBase event) {
+		if (event != null && event.getClass() == AuthzAuditEvent.class && !event.isShared()) {
+			try {
+				return AuthzAuditEventJsonWriter.toJsonBytes((AuthzAuditEvent) event);
+			} catch (Exception excp) {
+				logger.warn("failed to serialize event to bytes; will retry with MiscUtil.stringify(). event={}", event, excp);
+			}
+		}
+
+		return MiscUtil.stringify(event).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private boolean appendRecord(Object event, byte[] record) {
+		if (isDrain) {
+			// Stop has been called, so this method shouldn't be called
+			logger.error("stashLogs() is called after stop is called. event={}", event);
+			return false;
+		}
+
+		try {
+			segmentLog.append(record);
+
+			isSpoolingSuccessful = true;
+		} catch (Throwable t) {
+			isSpoolingSuccessful = false;
+
+			logger.error("Error writing to file. event={}", event, t);
+		}
+
+		return isSpoolingSuccessful;
+	}
+
+	// must be called with the lock held; writes buffered events and wakes up the destination thread
+	private void flushLog() throws IOException {
+		long    now  = System.currentTimeMillis();
+		boolean sync = now - lastSyncTime >= syncIntervalMS;
+
+		segmentLog.flush(sync);
+
+		if (sync) {
+			lastSyncTime = now;
+			isUnsynced   = false;
+		} else {
+			isUnsynced = true;
+		}
+
+		notifyAll();
+	}
+
+	// sleeps for the given time, waking up to sync records stashed in the meantime once their sync interval is over
+	private synchronized void sleepAndSync(long sleepMs) throws InterruptedException, IOException {
+		long endTime = System.currentTimeMillis() + sleepMs;
+
+		for (long now = System.currentTimeMillis(); now < endTime && !isDrain; now = System.currentTimeMillis()) {
+			if (isUnsynced) {
+				flushLog();
+			}
+
+			wait(isUnsynced ? Math.min(endTime - now, getSyncDelay(now)) : endTime - now); // stashLogs() wakes this up
+		}
+	}
+
+	// must be called with the lock held; time left until the unsynced records are due for a sync
+	private long getSyncDelay(long now) {
+		return Math.max(lastSyncTime + syncIntervalMS - now, 1);
+	}
+
+	private boolean sendEvents(List<String> events) {
+		boolean ret;
+
+		try {
+			ret = consumerProvider.logJSON(events);
+		} catch (Throwable t) {
+			logger.error("Error while sending logs to consumer. provider={}, consumer={}, logEventCount={}", queueName, consumerProvider.getName(), events.size(), t);
+
+			ret = false;
+		}
+
+		if (!ret) {
+			isDestDown      = true;
+			lastAttemptTime = System.currentTimeMillis();
+
+			logError("Destination down. queueName={}, consumer={}", queueName, consumerProvider.getName());
+		} else if (isDestDown) {
+			isDestDown = false;
+
+			logger.info("Destination up now. queueName={}, consumer={}", queueName, consumerProvider.getName());
+		}
+
+		return ret;
+	}
+
+	private void logError(String msg, Object... arguments) {
+		long currTimeMS = System.currentTimeMillis();
+
+		if (currTimeMS - lastErrorLogMS > errorLogIntervalMS) {
+			logger.error(msg, arguments);
+
+			lastErrorLogMS = currTimeMS;
+		}
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.model.AuthzAuditEventField;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * Writes AuthzAuditEvent as json directly with a JsonGenerator, using the field accessors in AuthzAuditEventField
+ * instead of Jackson databind's reflection based serializer.
+ *
+ * The output is the same as that of MiscUtil.getMapper().writeValueAsString(): fields in declaration order, null values
+ * included and dates formatted as "yyyy-MM-dd HH:mm:ss.SSS" in the default timezone. Field names are encoded once, and
+ * each thread reuses its generators and buffers across events - except after an event larger than
+ * MAX_RETAINED_BUFFER_SIZE, so that a rare large event doesn't pin large buffers to every thread that wrote one.
+ */
+public class AuthzAuditEventJsonWriter {
+    public static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss.SSS";
+
+    private static final String SECONDS_DATE_FORMAT = "yyyy-MM-dd HH:mm:ss.";
+
+    private static final AuthzAuditEventField[] FIELDS      = AuthzAuditEventField.values();
+    private static final SerializedString[]     FIELD_NAMES = new SerializedString[FIELDS.length];
+    private static final JsonFactory            FACTORY     = new JsonFactory();
+
+    // buffers only grow; after an event larger than this, the thread's buffers are dropped instead of kept for reuse
+    static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<WriterState> STATE = ThreadLocal.withInitial(WriterState::new);
+
+    static {
+        for (int i = 0; i < FIELDS.length; i++) {
+            FIELD_NAMES[i] = new SerializedString(FIELDS[i].getJsonName());
+        }
+
+        FACTORY.setRootValueSeparator(null); // generators are reused for many root values; don't add separators between them
+    }
+
+    private AuthzAuditEventJsonWriter() {
+    }
+
+    public static String toJson(AuthzAuditEvent event) throws IOException {
+        WriterState state = STATE.get();
+
+        try {
+            write(state.charGenerator, event, state);
+
+            state.charGenerator.flush();
+
+            String ret = state.chars.toString();
+
+            if (ret.length() > MAX_RETAINED_BUFFER_SIZE) {
+                STATE.remove();
+            }
+
+            return ret;
+        } catch (IOException | RuntimeException excp) {
+            STATE.remove(); // generator state is unknown after a failure
+
+            throw excp;
+        } finally {
+            state.chars.reset();
+        }
+    }
+
+    public static byte[] toJsonBytes(AuthzAuditEvent event) throws IOException {
+        WriterState state = STATE.get();
+
+        try {
+            write(state.byteGenerator, event, state);
+
+            state.byteGenerator.flush();
+
+            byte[] ret = state.bytes.toByteArray();
+
+            if (ret.length > MAX_RETAINED_BUFFER_SIZE) {
+                STATE.remove();
+            }
+
+            return ret;
+        } catch (IOException | RuntimeException excp) {
+            STATE.remove();
+
+            throw excp;
+        } finally {
+            state.bytes.reset();
+        }
+    }
+
+    // for tests
+    static Object getState() {
+        return STATE.get();
+    }
+
+    /**
+     * Writes the event as a json object to the given generator.
+     */
+    public static void write(JsonGenerator gen, AuthzAuditEvent event) throws IOException {
+        write(gen, event, STATE.get());
+    }
+
+    private static void write(JsonGenerator gen, AuthzAuditEvent event, WriterState state) throws IOException {
+        gen.writeStartObject();
+
+        for (int i = 0; i < FIELDS.length; i++) {
+            AuthzAuditEventField field = FIELDS[i];
+
+            gen.writeFieldName(FIELD_NAMES[i]);
+
+            if (field.isPrimitive()) {
+                gen.writeNumber(field.getLongValue(event));
+
+                continue;
+            }
+
+            Object value = field.getValue(event);
+
+            if (value == null) {
+                gen.writeNull();
+            } else if (value instanceof String) {
+                gen.writeString((String) value);
+            } else if (value instanceof Date) {
+                gen.writeString(state.formatDate((Date) value));
+            } else if (value instanceof Long) {
+                gen.writeNumber((Long) value);
+            } else if (value instanceof Collection) {
+                gen.writeStartArray();
+
+                for (Object item : (Collection<?>) value) {
+                    if (item == null) {
+                        gen.writeNull();
+                    } else {
+                        gen.writeString(item.toString());
+                    }
+                }
+
+                gen.writeEndArray();
+            } else {
+                gen.writeString(value.toString());
+            }
+        }
+
+        gen.writeEndObject();
+    }
+
+    private static class WriterState {
+        final ByteArrayBuilder bytes      = new ByteArrayBuilder(1024);
+        final CharArrayWriter  chars      = new CharArrayWriter(1024);
+        final SimpleDateFormat dateFormat = new SimpleDateFormat(SECONDS_DATE_FORMAT);
+        final StringBuilder    dateStr    = new StringBuilder(DATE_FORMAT.length());
+        final JsonGenerator    byteGenerator;
+        final JsonGenerator    charGenerator;
+        long                   lastSecond = Long.MIN_VALUE;
+        String                 lastSecondStr;
+
+        WriterState() {
+            try {
+                byteGenerator = FACTORY.createGenerator(bytes);
+                charGenerator = FACTORY.createGenerator(chars);
+            } catch (IOException excp) { // not expected, as generators are created over in-memory buffers
+                throw new IllegalStateException(excp);
+            }
+        }
+
+        // audit events are mostly logged in time order, hence the formatted seconds are reused for events of the same second
+        String formatDate(Date date) {
+            long time   = date.getTime();
+            long second = Math.floorDiv(time, 1000);
+            int  millis = (int) Math.floorMod(time, 1000);
+
+            if (second != lastSecond) {
+                lastSecondStr = dateFormat.format(date);
+                lastSecond    = second;
+            }
+
+            dateStr.setLength(0);
+            dateStr.append(lastSecondStr);
+
+            if (millis < 100) {
+                dateStr.append(millis < 10 ? "00" : "0");
+            }
+
+            return dateStr.append(millis).toString();
+        }
+    }
+}
@@ -19,7 +19,6 @@
  * under the License.
  */
 
-import com.fasterxml.jackson.annotation.JsonProperty;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -30,17 +29,16 @@
 import org.apache.orc.TypeDescription;
 import org.apache.orc.Writer;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.model.AuthzAuditEventField;
 import org.apache.ranger.audit.model.EnumRepositoryType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Map;
 import java.util.HashMap;
-import java.text.Format;
 import java.text.SimpleDateFormat;
 
 public class ORCFileUtil {
@@ -60,6 +58,11 @@ public class ORCFileUtil {
     protected int                       orcBufferSize;
     protected long                      orcStripeSize;
 
+    private AuthzAuditEventField[] columnFields     = new AuthzAuditEventField[0]; // event field of each column in schemaFields
+    private ColumnVector[]         columnVectors    = new ColumnVector[0];
+    private SimpleDateFormat       dateFormatter    = null;
+    private String                 dateFormatterFor = null;
+
     public static ORCFileUtil getInstance() {
         ORCFileUtil orcFileUtil = me;
         if (orcFileUtil == null) {
@@ -128,14 +131,16 @@ public void log(Writer writer, Collection<AuthzAuditEvent> events) throws Except
         try {
             for(AuthzAuditEvent event : events) {
                 int row = batch.size++;
-                for (int j=0;j<schemaFields.size();j++) {
-                    String fieldName          = schemaFields.get(j);
-                    SchemaInfo schemaInfo     = getFieldValue(event, fieldName);
-                    ColumnVector columnVector = vectorizedRowBatchMap.get(fieldName);
+                for (int j=0;j<columnFields.length;j++) {
+                    AuthzAuditEventField field        = columnFields[j];
+                    ColumnVector         columnVector = columnVectors[j];
+                    if (field == null) {
+                        continue;
+                    }
                     if (columnVector instanceof LongColumnVector) {
-                        ((LongColumnVector) columnVector).vector[row] = castLongObject(schemaInfo.getValue());
+                        ((LongColumnVector) columnVector).vector[row] = field.isPrimitive() ? field.getLongValue(event) : castLongObject(field.getValue(event));
                     } else if (columnVector instanceof BytesColumnVector) {
-                        ((BytesColumnVector) columnVector).setVal(row, getBytesValues(castStringObject(schemaInfo.getValue())));
+                        ((BytesColumnVector) columnVector).setVal(row, getBytesValues(castStringObject(field.getValue(event))));
                     }
                 }
                 if (batch.size == orcBufferSize) {
@@ -168,8 +173,11 @@ protected byte[] getBytesValues(String val) {
 
     protected String getDateString(Date date) {
         String ret = null;
-        Format formatter = new SimpleDateFormat(dateFormat);
-        ret = formatter.format(date);
+        if (dateFormatter == null || !dateFormat.equals(dateFormatterFor)) {
+            dateFormatter    = new SimpleDateFormat(dateFormat);
+            dateFormatterFor = dateFormat;
+        }
+        ret = dateFormatter.format(date);
         return ret;
     }
 
@@ -218,21 +226,28 @@ protected void buildVectorRowBatch(Map<String,String> schemaFieldTypeMap) throws
                 vectorizedRowBatchMap.put(fld, (DecimalColumnVector) batch.cols[i]);
             }
         }
+
+        columnFields  = new AuthzAuditEventField[schemaFields.size()];
+        columnVectors = new ColumnVector[schemaFields.size()];
+        for (i=0;i<schemaFields.size();i++) {
+            String fld = schemaFields.get(i);
+            columnFields[i]  = AuthzAuditEventField.forFieldName(fld);
+            columnVectors[i] = vectorizedRowBatchMap.get(fld);
+        }
     }
 
     protected SchemaInfo getFieldValue(AuthzAuditEvent event, String fieldName ) {
         SchemaInfo ret = new SchemaInfo();
         try {
-            Class aClass  = AuthzAuditEvent.class;
-            Field fld     = aClass.getDeclaredField(fieldName);
-            fld.setAccessible(true);
+            AuthzAuditEventField field = AuthzAuditEventField.forFieldName(fieldName);
 
-            Class<?> cls  = fld.getType();
-            Object  value = fld.get(event);
+            if (field == null) {
+                throw new NoSuchFieldException(fieldName);
+            }
 
             ret.setField(fieldName);
-            ret.setType(cls.getName());
-            ret.setValue(value);
+            ret.setType(field.getType().getName());
+            ret.setValue(field.getValue(event));
         } catch (Exception e){
             logger.error("Error while writing into ORC File:", e);
         }
@@ -309,17 +324,14 @@ protected String  getAuditSchema() {
         String  fieldStr = "struct<";
         StringBuilder sb = new StringBuilder(fieldStr);
 
-        Class auditEventClass = AuthzAuditEvent.class;
-        for(Field fld: auditEventClass.getDeclaredFields()) {
-            if (fld.isAnnotationPresent(JsonProperty.class)) {
-                String field     = fld.getName();
-                String fieldType = getShortFieldType(fld.getType().getName());
-                if (fieldType == null) {
-                    continue;
-                }
-                fieldStr = field + ":" + fieldType + ",";
-                sb.append(fieldStr);
+        for(AuthzAuditEventField fld: AuthzAuditEventField.values()) {
+            String field     = fld.getFieldName();
+            String fieldType = getShortFieldType(fld.getType().getName());
+            if (fieldType == null) {
+                continue;
             }
+            fieldStr = field + ":" + fieldType + ",";
+            sb.append(fieldStr);
         }
         fieldStr = sb.toString();
         if (fieldStr.endsWith(",")) {
@@ -0,0 +1,490 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ranger.audit.destination;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.queue.AuditBatchQueue;
+import org.apache.ranger.audit.queue.AuditFileSpool;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.NamedList;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AuditBulkPipelineTest {
+    private static final String PREFIX = "xasecure.audit.destination.test";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private HttpServer server;
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testBatchesAreSentConcurrently() throws Exception {
+        AtomicInteger       inFlight    = new AtomicInteger();
+        AtomicInteger       maxInFlight = new AtomicInteger();
+        List<Integer>       batchSizes  = new CopyOnWriteArrayList<>();
+        TestDestination     destination = new TestDestination();
+        AuditBulkPipeline   pipeline    = new AuditBulkPipeline(destination, (batch, result) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            inFlight.decrementAndGet();
+            batchSizes.add(batch.size());
+        });
+
+        pipeline.init(props(AuditBulkPipeline.PROP_PIPELINE_MAX_INFLIGHT, "3", AuditBulkPipeline.PROP_PIPELINE_BATCH_MAX_DOCS, "10"), PREFIX);
+
+        assertTrue(pipeline.submit(events(0, 95)));
+        assertTrue(pipeline.waitToComplete(10000));
+
+        assertEquals(3, maxInFlight.get());
+        assertEquals(10, batchSizes.size());
+        assertEquals(95, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(95, destination.getTotalSuccessCount());
+
+        pipeline.stop();
+    }
+
+    @Test
+    public void testBatchesAreLimitedByBytes() throws Exception {
+        List<Integer>     batchSizes = new CopyOnWriteArrayList<>();
+        AuditBulkPipeline pipeline   = new AuditBulkPipeline(new TestDestination(), (batch, result) -> batchSizes.add(batch.size()));
+        int               docSize    = AuditBulkPipeline.estimateDocSize(events(0, 1).get(0));
+
+        pipeline.init(props(AuditBulkPipeline.PROP_PIPELINE_MAX_INFLIGHT, "1", AuditBulkPipeline.PROP_PIPELINE_BATCH_MAX_BYTES, Integer.toString(docSize * 4)), PREFIX);
+
+        assertTrue(pipeline.submit(events(0, 10)));
+        assertTrue(pipeline.waitToComplete(10000));
+
+        assertEquals(3, batchSizes.size());
+        assertEquals(4, (int) batchSizes.get(0));
+        assertEquals(2, (int) batchSizes.get(2));
+
+        pipeline.stop();
+    }
+
+    @Test
+    public void testOnlyFailedItemsAreRetried() throws Exception {
+        List<List<String>> requests    = new CopyOnWriteArrayList<>();
+        TestDestination    destination = new TestDestination();
+        AuditBulkPipeline  pipeline    = new AuditBulkPipeline(destination, (batch, result) -> {
+            requests.add(ids(batch));
+
+            for (int i = 0; i < batch.size(); i++) {
+                String id = ((AuthzAuditEvent) batch.get(i)).getEventId();
+
+                if (id.equals("event-3")) {
+                    result.fail(i, "mapping error");
+                } else if (id.equals("event-5") && requests.size() < 3) {
+                    result.retry(i, "shard unavailable");
+                }
+            }
+        });
+
+        pipeline.init(props(AuditBulkPipeline.PROP_PIPELINE_RETRY_BACKOFF_MS, "1"), PREFIX);
+
+        assertTrue(pipeline.submit(events(0, 8)));
+        assertTrue(pipeline.waitToComplete(10000));
+
+        assertEquals(3, requests.size());
+        assertEquals(Collections.singletonList("event-5"), requests.get(1));
+        assertEquals(Collections.singletonList("event-5"), requests.get(2));
+        assertEquals(7, destination.getTotalSuccessCount());
+        assertEquals(1, destination.getTotalFailedCount());
+
+        pipeline.stop();
+    }
+
+    @Test
+    public void testRetriesAreLimited() throws Exception {
+        AtomicInteger     attempts    = new AtomicInteger();
+        TestDestination   destination = new TestDestination();
+        AuditBulkPipeline pipeline    = new AuditBulkPipeline(destination, (batch, result) -> {
+            attempts.incrementAndGet();
+
+            throw new IOException("connection refused");
+        });
+
+        pipeline.init(props(AuditBulkPipeline.PROP_PIPELINE_MAX_RETRIES, "2", AuditBulkPipeline.PROP_PIPELINE_RETRY_BACKOFF_MS, "1"), PREFIX);
+
+        assertTrue(pipeline.submit(events(0, 5)));
+        assertTrue(pipeline.waitToComplete(10000));
+
+        assertEquals(3, attempts.get());
+        assertEquals(5, destination.getTotalFailedCount());
+
+        pipeline.stop();
+    }
+
+    @Test
+    public void testExhaustedRetriesAreStashed() throws Exception {
+        List<AuditEventBase> stashed     = new CopyOnWriteArrayList<>();
+        TestDestination      destination = new TestDestination();
+        AuditBulkPipeline    pipeline    = new AuditBulkPipeline(destination, (batch, result) -> {
+            throw new IOException("connection refused");
+        });
+
+        destination.setFileSpool(stashed::addAll);
+
+        pipeline.init(props(AuditBulkPipeline.PROP_PIPELINE_MAX_RETRIES, "2", AuditBulkPipeline.PROP_PIPELINE_RETRY_BACKOFF_MS, "1"), PREFIX);
+
+        assertTrue(pipeline.submit(events(0, 5)));
+        assertTrue(pipeline.waitToComplete(10000));
+
+        assertEquals(ids(events(0, 5)), ids(stashed));
+        assertEquals(5, destination.getTotalStashedCount());
+        assertEquals(0, destination.getTotalFailedCount());
+
+        pipeline.stop();
+    }
+
+    @Test
+    public void testStopDuringOutageSpoolsEvents() throws Exception {
+        AtomicInteger       attempts    = new AtomicInteger();
+        PipelineDestination destination = new PipelineDestination((batch, result) -> {
+            attempts.incrementAndGet();
+
+            throw new IOException("connection refused");
+        });
+        AuditBatchQueue     queue       = new AuditBatchQueue(destination);
+        File                spoolDir    = tempFolder.newFolder("spool");
+        String              queuePrefix = PREFIX + ".batch";
+        Properties          props       = props(AuditBulkPipeline.PROP_PIPELINE_RETRY_BACKOFF_MS, "10");
+
+        props.setProperty(queuePrefix + "." + AuditFileSpool.PROP_FILE_SPOOL_LOCAL_DIR, spoolDir.getPath());
+        props.setProperty(queuePrefix + ".batch.interval.ms", "10");
+
+        destination.init(props, PREFIX);
+        queue.init(props, queuePrefix);
+        queue.start();
+
+        for (AuditEventBase event : events(0, 5)) {
+            queue.log(event);
+        }
+
+        waitFor(() -> attempts.get() >= 2); // events are with the pipeline, which keeps retrying
+
+        queue.stop();
+
+        waitFor(() -> destination.getTotalStashedCount() == 5);
+
+        StringBuilder spooled = new StringBuilder();
+
+        for (File file : spoolDir.listFiles((dir, name) -> name.endsWith(".log"))) {
+            spooled.append(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        }
+
+        for (String id : ids(events(0, 5))) {
+            assertTrue(id + " not found in the spool", spooled.indexOf("\"" + id + "\"") >= 0);
+        }
+
+        assertEquals(0, destination.getTotalFailedCount());
+    }
+
+    @Test
+    public void testSubmitWaitsForFreeSender() throws Exception {
+        CountDownLatch    release  = new CountDownLatch(1);
+        AuditBulkPipeline pipeline = new AuditBulkPipeline(new TestDestination(), (batch, result) -> release.await());
+
+        pipeline.init(props(AuditBulkPipeline.PROP_PIPELINE_MAX_INFLIGHT, "1", AuditBulkPipeline.PROP_PIPELINE_SUBMIT_TIMEOUT_MS, "100"), PREFIX);
+
+        assertTrue(pipeline.submit(events(0, 1)));
+
+        long startTime = System.currentTimeMillis();
+
+        assertFalse("submit must fail when no sender is free within the timeout", pipeline.submit(events(1, 1)));
+        assertTrue(System.currentTimeMillis() - startTime >= 100);
+
+        release.countDown();
+
+        assertTrue(pipeline.waitToComplete(10000));
+        assertTrue(pipeline.submit(events(2, 1)));
+
+        pipeline.stop();
+    }
+
+    @Test
+    public void testElasticSearchRetriesFailedItems() throws Exception {
+        List<List<String>> bulkRequests = new CopyOnWriteArrayList<>();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+
+        server.createContext("/", exchange -> {
+            String body     = readBody(exchange.getRequestBody());
+            String response = "{}";
+
+            if (exchange.getRequestURI().getPath().endsWith("/_bulk")) {
+                List<String> ids   = new ArrayList<>();
+                StringBuilder sb   = new StringBuilder("{\"took\":1,\"errors\":true,\"items\":[");
+                Matcher      match = Pattern.compile("\"_id\":\"([^\"]+)\"").matcher(body);
+
+                while (match.find()) {
+                    String id     = match.group(1);
+                    int    status = id.equals("event-1") ? 400 : (id.equals("event-2") && bulkRequests.isEmpty() ? 429 : 201);
+
+                    if (!ids.isEmpty()) {
+                        sb.append(',');
+                    }
+
+                    sb.append("{\"index\":{\"_index\":\"ranger_audits\",\"_type\":\"_doc\",\"_id\":\"").append(id).append("\",\"status\":").append(status);
+
+                    if (status >= 400) {
+                        sb.append(",\"error\":{\"type\":\"error_").append(status).append("\",\"reason\":\"test\"}");
+                    } else {
+                        sb.append(",\"_version\":1,\"result\":\"created\",\"_seq_no\":0,\"_primary_term\":1,\"_shards\":{\"total\":1,\"successful\":1,\"failed\":0}");
+                    }
+
+                    sb.append("}}");
+
+                    ids.add(id);
+                }
+
+                response = sb.append("]}").toString();
+
+                bulkRequests.add(ids);
+            }
+
+            sendResponse(exchange, "application/json", response.getBytes(StandardCharsets.UTF_8));
+        });
+        server.start();
+
+        Properties props = props(AuditBulkPipeline.PROP_PIPELINE_ENABLED, "true", AuditBulkPipeline.PROP_PIPELINE_RETRY_BACKOFF_MS, "1");
+
+        props.setProperty(PREFIX + "." + ElasticSearchAuditDestination.CONFIG_URLS, "127.0.0.1");
+        props.setProperty(PREFIX + "." + ElasticSearchAuditDestination.CONFIG_PORT, Integer.toString(server.getAddress().getPort()));
+
+        ElasticSearchAuditDestination destination = new ElasticSearchAuditDestination();
+
+        destination.init(props, PREFIX);
+
+        assertTrue(destination.log(events(0, 4)));
+
+        destination.waitToComplete(10000);
+        destination.stop();
+
+        assertEquals(2, bulkRequests.size());
+        assertEquals(4, bulkRequests.get(0).size());
+        assertEquals(Collections.singletonList("event-2"), bulkRequests.get(1));
+        assertEquals(3, destination.getTotalSuccessCount());
+        assertEquals(1, destination.getTotalFailedCount());
+    }
+
+    @Test
+    public void testSolrSplitsRejectedRequest() throws Exception {
+        List<List<String>> updateRequests = new CopyOnWriteArrayList<>();
+        List<String>       indexed        = new CopyOnWriteArrayList<>();
+        SolrClient         solrClient     = mock(SolrClient.class); // stand-in Solr: rejects requests with a bad document
+
+        when(solrClient.add(anyCollection())).thenAnswer(invocation -> {
+            Collection<SolrInputDocument> docs = invocation.getArgument(0);
+            List<String>                  ids  = new ArrayList<>();
+
+            docs.forEach(doc -> ids.add((String) doc.getFieldValue("id")));
+
+            updateRequests.add(ids);
+
+            if (ids.contains("event-6")) {
+                throw new SolrException(SolrException.ErrorCode.BAD_REQUEST, "unknown field");
+            }
+
+            indexed.addAll(ids);
+
+            NamedList<Object> header   = new NamedList<>();
+            NamedList<Object> response = new NamedList<>();
+
+            header.add("status", 0);
+            response.add("responseHeader", header);
+
+            UpdateResponse ret = new UpdateResponse();
+
+            ret.setResponse(response);
+
+            return ret;
+        });
+
+        SolrAuditDestination destination = new SolrAuditDestination(solrClient);
+
+        destination.init(props(AuditBulkPipeline.PROP_PIPELINE_ENABLED, "true"), PREFIX);
+
+        assertTrue(destination.log(events(0, 8)));
+
+        destination.waitToComplete(10000);
+        destination.stop();
+
+        // 0-7 rejected, 0-3 written, 4-7 rejected, 4-5 written, 6-7 rejected, 6 rejected, 7 written
+        assertEquals(7, updateRequests.size());
+        assertEquals(7, indexed.size());
+        assertFalse(indexed.contains("event-6"));
+        assertEquals(7, destination.getTotalSuccessCount());
+        assertEquals(1, destination.getTotalFailedCount());
+    }
+
+    private static Properties props(String... nameValues) {
+        Properties ret = new Properties();
+
+        for (int i = 0; i < nameValues.length; i += 2) {
+            ret.setProperty(PREFIX + "." + nameValues[i], nameValues[i + 1]);
+        }
+
+        return ret;
+    }
+
+    private static List<AuditEventBase> events(int start, int count) {
+        List<AuditEventBase> ret = new ArrayList<>();
+
+        for (int i = start; i < start + count; i++) {
+            AuthzAuditEvent event = new AuthzAuditEvent();
+
+            event.setEventId("event-" + i);
+            event.setUser("user1");
+            event.setResourcePath("/tmp/file-" + i);
+            event.setAccessType("read");
+
+            ret.add(event);
+        }
+
+        return ret;
+    }
+
+    private static List<String> ids(List<AuditEventBase> events) {
+        List<String> ret = new ArrayList<>();
+
+        for (AuditEventBase event : events) {
+            ret.add(((AuthzAuditEvent) event).getEventId());
+        }
+
+        return ret;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+
+        while (!condition.getAsBoolean()) {
+            assertTrue("timed out waiting for condition", System.currentTimeMillis() < timeout);
+
+            Thread.sleep(10);
+        }
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out    = new ByteArrayOutputStream();
+        byte[]                buffer = new byte[8192];
+
+        for (int len = in.read(buffer); len != -1; len = in.read(buffer)) {
+            out.write(buffer, 0, len);
+        }
+
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void sendResponse(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private static class TestDestination extends AuditDestination {
+        TestDestination() {
+            setName("test");
+        }
+
+        @Override
+        public boolean log(Collection<AuditEventBase> events) {
+            return true;
+        }
+    }
+
+    private static class PipelineDestination extends AuditDestination {
+        private final AuditBulkPipeline pipeline;
+
+        PipelineDestination(AuditBulkPipeline.BulkSender sender) {
+            setName("test");
+
+            pipeline = new AuditBulkPipeline(this, sender);
+        }
+
+        @Override
+        public void init(Properties props, String propPrefix) {
+            super.init(props, propPrefix);
+
+            pipeline.init(props, propPrefix);
+        }
+
+        @Override
+        public boolean log(Collection<AuditEventBase> events) {
+            try {
+                return pipeline.submit(events);
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+
+                return false;
+            }
+        }
+
+        @Override
+        public void stop() {
+            pipeline.stop();
+        }
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.provider;
+
+import org.apache.ranger.audit.destination.AuditDestination;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.queue.AuditBatchQueue;
+import org.apache.ranger.audit.queue.AuditQueue;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MultiDestAuditProviderTest {
+    @Test
+    public void testFanOutDisabledByDefault() {
+        TestDestination        dest     = new TestDestination("dest");
+        MultiDestAuditProvider provider = new MultiDestAuditProvider(dest);
+
+        provider.init(new Properties());
+        provider.start();
+
+        provider.log(createEvent(0));
+
+        assertFalse(provider.isFanOutEnabled());
+        assertTrue(provider.getFanOutQueues().isEmpty());
+        assertEquals(1, dest.getEvents().size()); // logged inline
+
+        provider.stop();
+    }
+
+    @Test
+    public void testSlowDestinationDoesNotBlockOthers() throws Exception {
+        CountDownLatch         release  = new CountDownLatch(1);
+        TestDestination        slow     = new TestDestination("slow") {
+            @Override
+            public boolean log(Collection<AuditEventBase> events) {
+                try {
+                    release.await();
+                } catch (InterruptedException excp) {
+                    Thread.currentThread().interrupt();
+                }
+
+                return super.log(events);
+            }
+        };
+        TestDestination        fast     = new TestDestination("fast");
+        MultiDestAuditProvider provider = createFanOutProvider(slow, fast);
+
+        long startTime = System.currentTimeMillis();
+
+        for (int i = 0; i < 1000; i++) {
+            provider.log(createEvent(i));
+
+            if ((i + 1) % 100 == 0) { // queue.size is 100
+                int count = i + 1;
+
+                waitFor(() -> fast.getEvents().size() == count);
+            }
+        }
+
+        assertTrue("log() was blocked by the slow destination", System.currentTimeMillis() - startTime < 5000);
+
+        AuditBatchQueue slowQueue = (AuditBatchQueue) provider.getFanOutQueues().get(0);
+
+        assertTrue(slowQueue.getTotalFailedCount() > 0); // slow destination's queue is full; without a spool, its events are dropped
+
+        release.countDown();
+
+        waitFor(() -> slow.getEvents().size() + slowQueue.getTotalFailedCount() == 1000);
+
+        provider.stop();
+    }
+
+    @Test
+    public void testFailingDestinationHealth() throws Exception {
+        TestDestination        failing  = new TestDestination("failing");
+        TestDestination        healthy  = new TestDestination("healthy");
+        MultiDestAuditProvider provider = createFanOutProvider(failing, healthy);
+        AuditBatchQueue        queue    = (AuditBatchQueue) provider.getFanOutQueues().get(0);
+
+        failing.setFailing(true);
+
+        provider.log(createEvent(0));
+
+        waitFor(() -> !queue.isDestinationActive());
+
+        assertTrue(((AuditBatchQueue) provider.getFanOutQueues().get(1)).isDestinationActive());
+        assertEquals(1, healthy.getEvents().size());
+
+        failing.setFailing(false);
+
+        provider.log(createEvent(1));
+
+        waitFor(queue::isDestinationActive);
+
+        assertEquals(1, failing.getEvents().size());
+        assertEquals(2, healthy.getEvents().size());
+
+        provider.stop();
+    }
+
+    @Test
+    public void testEventSerializedOnce() throws Exception {
+        TestDestination        dest1    = new TestDestination("dest1");
+        TestDestination        dest2    = new TestDestination("dest2");
+        MultiDestAuditProvider provider = createFanOutProvider(dest1, dest2);
+
+        provider.log(Arrays.asList(createEvent(0), createEvent(1)));
+
+        String json = MiscUtil.stringify(createEvent(2));
+
+        provider.logJSON(json);
+
+        waitFor(() -> dest1.getJsons().size() == 3 && dest2.getJsons().size() == 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(dest1.getJsons().get(i));
+            assertSame(dest1.getJsons().get(i), dest2.getJsons().get(i));
+        }
+
+        assertSame(json, dest1.getJsons().get(2)); // json given to logJSON() is passed on as is
+
+        provider.stop();
+    }
+
+    @Test
+    public void testExistingQueueIsNotWrapped() throws Exception {
+        TestDestination        dest     = new TestDestination("dest");
+        AuditBatchQueue        queued   = new AuditBatchQueue(dest);
+        TestDestination        plain    = new TestDestination("plain");
+
+        queued.init(new Properties(), "test.queued");
+
+        assertEquals(AuditQueue.QueueFullPolicy.WAIT, queued.getQueueFullPolicy());
+
+        MultiDestAuditProvider provider = createFanOutProvider(queued, plain);
+
+        assertSame(queued, provider.getFanOutQueues().get(0));
+        assertEquals(AuditQueue.QueueFullPolicy.SPOOL, queued.getQueueFullPolicy()); // fan-out policy, so a full queue never blocks the others
+        assertNotSame(plain, provider.getFanOutQueues().get(1));
+
+        provider.log(createEvent(0));
+
+        waitFor(() -> dest.getEvents().size() == 1 && plain.getEvents().size() == 1);
+
+        provider.stop();
+    }
+
+    @Test
+    public void testLogReturnsFalseWhenAllQueuesReject() throws Exception {
+        CountDownLatch         release  = new CountDownLatch(1);
+        TestDestination        dest1    = new BlockedDestination("dest1", release);
+        TestDestination        dest2    = new BlockedDestination("dest2", release);
+        MultiDestAuditProvider provider = createFanOutProvider(dest1, dest2);
+
+        assertTrue(provider.log(createEvent(0)));
+
+        // both destinations are blocked: once both queues are full, and without a spool, the events are dropped
+        int count = 1;
+
+        while (provider.log(createEvent(count))) {
+            assertTrue("queues never filled up", ++count < 1000);
+        }
+
+        for (AuditQueue queue : provider.getFanOutQueues()) {
+            assertTrue(queue.getTotalFailedCount() > 0);
+        }
+
+        release.countDown();
+
+        provider.stop();
+    }
+
+    private static MultiDestAuditProvider createFanOutProvider(AuditHandler... destinations) {
+        Properties props = new Properties();
+
+        props.setProperty(MultiDestAuditProvider.PROP_FANOUT_ENABLED, "true");
+        props.setProperty(MultiDestAuditProvider.PROP_FANOUT_PREFIX + ".queue.size", "100");
+        props.setProperty(MultiDestAuditProvider.PROP_FANOUT_PREFIX + ".batch.interval.ms", "10");
+
+        MultiDestAuditProvider ret = new MultiDestAuditProvider();
+
+        ret.init(props);
+        ret.addAuditProviders(Arrays.asList(destinations));
+        ret.start();
+
+        assertEquals(destinations.length, ret.getFanOutQueues().size());
+
+        return ret;
+    }
+
+    private static AuthzAuditEvent createEvent(int i) {
+        AuthzAuditEvent ret = new AuthzAuditEvent();
+
+        ret.setEventId("event-" + i);
+        ret.setUser("user1");
+        ret.setResourcePath("/tmp/file-" + i);
+
+        return ret;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+
+        while (!condition.getAsBoolean()) {
+            assertTrue("timed out waiting for condition", System.currentTimeMillis() < timeout);
+
+            Thread.sleep(10);
+        }
+    }
+
+    private static class TestDestination extends AuditDestination {
+        private final List<AuditEventBase> events = new ArrayList<>();
+        private final List<String>         jsons  = new ArrayList<>();
+        private volatile boolean           failing;
+
+        TestDestination(String name) {
+            setName(name);
+        }
+
+        void setFailing(boolean failing) {
+            this.failing = failing;
+        }
+
+        synchronized List<AuditEventBase> getEvents() {
+            return new ArrayList<>(events);
+        }
+
+        synchronized List<String> getJsons() {
+            return new ArrayList<>(jsons);
+        }
+
+        @Override
+        public synchronized boolean log(Collection<AuditEventBase> events) {
+            if (failing) {
+                return false;
+            }
+
+            for (AuditEventBase event : events) {
+                this.events.add(event);
+                this.jsons.add(MiscUtil.stringify(event));
+            }
+
+            return true;
+        }
+    }
+
+    private static class BlockedDestination extends TestDestination {
+        private final CountDownLatch release;
+
+        BlockedDestination(String name, CountDownLatch release) {
+            super(name);
+
+            this.release = release;
+        }
+
+        @Override
+        public boolean log(Collection<AuditEventBase> events) {
+            try {
+                release.await();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            }
+
+            return super.log(events);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class AuditRingBufferTest {
+
+    @Test
+    public void testBoundedFifo() {
+        AuditRingBuffer<Integer> queue = new AuditRingBuffer<>(5); // not a power of 2
+
+        assertEquals(5, queue.capacity());
+
+        for (int lap = 0; lap < 3; lap++) {
+            for (int i = 0; i < 5; i++) {
+                assertTrue(queue.offer(i));
+            }
+
+            assertFalse("queue must be full", queue.offer(5));
+            assertEquals(5, queue.size());
+            assertEquals(Integer.valueOf(0), queue.poll());
+
+            List<Integer> drained = new ArrayList<>();
+
+            assertEquals(3, queue.drainTo(drained, 3));
+            assertEquals(Integer.valueOf(1), drained.get(0));
+            assertEquals(Integer.valueOf(3), drained.get(2));
+            assertEquals(Integer.valueOf(4), queue.poll());
+            assertNull(queue.poll());
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    @Test
+    public void testMultipleProducers() throws Exception {
+        final int                     producerCount = 4;
+        final int                     eventCount    = 100000;
+        final AuditRingBuffer<long[]> queue         = new AuditRingBuffer<>(1024);
+        final Thread[]                producers     = new Thread[producerCount];
+
+        for (int p = 0; p < producerCount; p++) {
+            final int producerId = p;
+
+            producers[p] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < eventCount; i++) {
+                        assertTrue(queue.offer(new long[] { producerId, i }, -1, TimeUnit.MILLISECONDS));
+                    }
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            producers[p].start();
+        }
+
+        long[]       nextSeq  = new long[producerCount];
+        List<long[]> batch    = new ArrayList<>();
+        int          received = 0;
+
+        while (received < producerCount * eventCount) {
+            long[] event = queue.poll(10, TimeUnit.SECONDS);
+
+            assertTrue("timed out waiting for events; received=" + received, event != null);
+
+            batch.add(event);
+            queue.drainTo(batch, 100);
+
+            for (long[] e : batch) {
+                assertEquals("events from a producer must be received in order", nextSeq[(int) e[0]]++, e[1]);
+            }
+
+            received += batch.size();
+            batch.clear();
+        }
+
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testOfferWithTimeout() throws Exception {
+        final AuditRingBuffer<Integer> queue = new AuditRingBuffer<>(1);
+
+        assertTrue(queue.offer(1));
+        assertFalse(queue.offer(2, 20, TimeUnit.MILLISECONDS));
+
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+
+            queue.poll();
+        });
+
+        consumer.start();
+
+        assertTrue(queue.offer(2, 10, TimeUnit.SECONDS));
+
+        consumer.join();
+
+        assertEquals(Integer.valueOf(2), queue.poll());
+    }
+
+    @Test
+    public void testQueueFullPolicy() {
+        AuditAsyncQueue dropQueue = createAsyncQueue("2", null, null);
+
+        assertEquals(AuditQueue.QueueFullPolicy.DROP, dropQueue.getQueueFullPolicy());
+        assertTrue(dropQueue.log(createEvent()));
+        assertTrue(dropQueue.log(createEvent()));
+        assertFalse(dropQueue.log(createEvent()));
+        assertEquals(1, dropQueue.getTotalFailedCount());
+        assertEquals(2, dropQueue.size());
+
+        AuditAsyncQueue waitQueue = createAsyncQueue("1", "wait", "20");
+        long            startTime = System.currentTimeMillis();
+
+        assertEquals(AuditQueue.QueueFullPolicy.WAIT, waitQueue.getQueueFullPolicy());
+        assertTrue(waitQueue.log(createEvent()));
+        assertFalse(waitQueue.log(createEvent()));
+        assertTrue(System.currentTimeMillis() - startTime >= 20);
+        assertEquals(1, waitQueue.getTotalFailedCount());
+
+        // spool without file spool enabled drops the event
+        AuditAsyncQueue spoolQueue = createAsyncQueue("1", "spool", null);
+
+        assertTrue(spoolQueue.log(createEvent()));
+        assertFalse(spoolQueue.log(createEvent()));
+        assertEquals(1, spoolQueue.getTotalFailedCount());
+
+        assertEquals(AuditQueue.QueueFullPolicy.WAIT, new AuditBatchQueue(mock(AuditHandler.class)).getQueueFullPolicy());
+    }
+
+    private AuditAsyncQueue createAsyncQueue(String queueSize, String fullPolicy, String fullWaitMs) {
+        AuditAsyncQueue ret   = new AuditAsyncQueue(mock(AuditHandler.class));
+        Properties      props = new Properties();
+
+        props.setProperty("test.async." + AuditQueue.PROP_QUEUE_SIZE, queueSize);
+
+        if (fullPolicy != null) {
+            props.setProperty("test.async." + AuditQueue.PROP_QUEUE_FULL_POLICY, fullPolicy);
+        }
+
+        if (fullWaitMs != null) {
+            props.setProperty("test.async." + AuditQueue.PROP_QUEUE_FULL_WAIT_MS, fullWaitMs);
+        }
+
+        ret.init(props, "test.async");
+
+        return ret;
+    }
+
+    private AuditEventBase createEvent() {
+        return new AuthzAuditEvent();
+    }
+}
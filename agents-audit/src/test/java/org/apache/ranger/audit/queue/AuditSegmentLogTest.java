@@ -0,0 +1,284 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AuditSegmentLogTest {
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testReadAcrossSegmentsAndRestart() throws Exception {
+        File folder  = tempFolder.newFolder("spool");
+        File archive = tempFolder.newFolder("archive");
+
+        try (AuditSegmentLog log = new AuditSegmentLog(folder, "test", 512, 0, archive, 2)) {
+            appendRecords(log, 0, 100);
+            log.flush(true);
+
+            assertTrue("records must be rolled over to multiple segments", log.getSegmentCount() > 2);
+            assertTrue(log.hasUnread());
+
+            AuditSegmentLog.Batch batch = log.read(30);
+
+            assertRecords(batch, 0, 30);
+
+            assertRecords(log.read(30), 0, 30); // not committed, hence read again
+
+            log.commit(batch.getEnd(), true);
+
+            assertRecords(log.read(30), 30, 30);
+        }
+
+        // records after the checkpoint are read after restart; records written after restart follow them
+        try (AuditSegmentLog log = new AuditSegmentLog(folder, "test", 512, 0, archive, 2)) {
+            appendRecords(log, 100, 10);
+            log.flush(false);
+
+            AuditSegmentLog.Batch batch = log.read(1000);
+
+            assertRecords(batch, 30, 80);
+
+            log.commit(batch.getEnd(), false);
+
+            assertFalse(log.hasUnread());
+            assertEquals(1, log.getSegmentCount());
+            assertEquals("archive must retain the given number of segments", 2, archive.listFiles().length);
+        }
+    }
+
+    @Test
+    public void testTornRecordIsTruncated() throws Exception {
+        File folder = tempFolder.newFolder("spool");
+        File segmentFile;
+
+        try (AuditSegmentLog log = new AuditSegmentLog(folder, "test", 0, 0, null, 0)) {
+            appendRecords(log, 0, 10);
+            log.flush(true);
+
+            segmentFile = log.getSegmentFile(log.getCommittedPosition().segment);
+        }
+
+        long validLength = segmentFile.length();
+
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile, "rw")) { // partially written record
+            file.seek(validLength);
+            file.writeInt(100);
+            file.writeInt(0);
+            file.write("partial".getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (AuditSegmentLog log = new AuditSegmentLog(folder, "test", 0, 0, null, 0)) {
+            assertEquals(validLength, segmentFile.length());
+
+            appendRecords(log, 10, 5);
+            log.flush(false);
+
+            assertRecords(log.read(100), 0, 15);
+        }
+    }
+
+    @Test
+    public void testCorruptRecordSkipsRestOfSegment() throws Exception {
+        File folder = tempFolder.newFolder("spool");
+        File segmentFile;
+
+        try (AuditSegmentLog log = new AuditSegmentLog(folder, "test", 0, 0, null, 0)) {
+            appendRecords(log, 0, 10);
+
+            segmentFile = log.getSegmentFile(log.getCommittedPosition().segment);
+        }
+
+        try (AuditSegmentLog log = new AuditSegmentLog(folder, "test", 0, 0, null, 0)) { // writes to a new segment
+            appendRecords(log, 10, 1);
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile, "rw")) { // corrupt payload of the 6th record
+            file.seek(AuditSegmentLog.SEGMENT_HEADER_LEN + 5 * (AuditSegmentLog.RECORD_HEADER_LEN + 11) + AuditSegmentLog.RECORD_HEADER_LEN);
+            file.write('X');
+        }
+
+        try (AuditSegmentLog log = new AuditSegmentLog(folder, "test", 0, 0, null, 0)) {
+            AuditSegmentLog.Batch batch = log.read(100);
+
+            assertEquals(6, batch.getRecords().size());
+            assertEquals("record-0010", new String(batch.getRecords().get(5), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testTornCheckpointUsesPreviousSlot() throws Exception {
+        File folder = tempFolder.newFolder("spool");
+
+        try (AuditSegmentLog log = new AuditSegmentLog(folder, "test", 0, 0, null, 0)) {
+            appendRecords(log, 0, 10);
+            log.flush(true);
+
+            log.commit(log.read(4).getEnd(), true);
+            log.commit(log.read(4).getEnd(), true);
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(new File(folder, "test.ckpt"), "rw")) { // latest slot is 0, as seq=2
+            file.seek(20);
+            file.writeLong(12345);
+        }
+
+        try (AuditSegmentLog log = new AuditSegmentLog(folder, "test", 0, 0, null, 0)) {
+            assertRecords(log.read(100), 4, 6);
+        }
+    }
+
+    @Test
+    public void testSegmentSpoolRetriesUntilDelivered() throws Exception {
+        AuditHandler  consumer  = mock(AuditHandler.class);
+        List<String>  delivered = new CopyOnWriteArrayList<>();
+        AtomicInteger attempts  = new AtomicInteger();
+
+        when(consumer.getName()).thenReturn("test-consumer");
+
+        doAnswer(invocation -> {
+            if (attempts.incrementAndGet() == 1) { // destination down on the first attempt
+                return false;
+            }
+
+            Collection<String> events = invocation.getArgument(0);
+
+            delivered.addAll(events);
+
+            return true;
+        }).when(consumer).logJSON(anyCollection());
+
+        Properties props  = new Properties();
+        String     prefix = "test.spool";
+
+        props.setProperty(prefix + "." + AuditSegmentSpool.PROP_FILE_SPOOL_FORMAT, "segment");
+        props.setProperty(prefix + "." + AuditFileSpool.PROP_FILE_SPOOL_LOCAL_DIR, tempFolder.newFolder("spool").getPath());
+        props.setProperty(prefix + "." + AuditFileSpool.PROP_FILE_SPOOL_DEST_RETRY_MS, "10");
+
+        AuditFileSpool spool = new AuditFileSpool(mock(AuditQueue.class), consumer);
+
+        assertTrue(spool.init(props, prefix));
+
+        List<String> events = new ArrayList<>();
+
+        for (int i = 0; i < 25; i++) {
+            events.add("{\"id\":\"event-" + i + "\"}");
+        }
+
+        spool.stashLogsString(events);
+
+        assertTrue(spool.isPending());
+
+        spool.start();
+
+        for (int i = 0; i < 500 && spool.isPending(); i++) {
+            Thread.sleep(10);
+        }
+
+        spool.stop();
+
+        assertFalse(spool.isPending());
+        assertEquals(2, attempts.get());
+        assertEquals(25, delivered.size());
+        assertTrue(delivered.get(24).contains("event-24"));
+    }
+
+    @Test
+    public void testUnsyncedRecordsSyncedWithinIntervalWhenDestinationDown() throws Exception {
+        verifyUnsyncedRecordsSynced(false);
+    }
+
+    @Test
+    public void testUnsyncedRecordsSyncedWithinIntervalWhenIdle() throws Exception {
+        verifyUnsyncedRecordsSynced(true);
+    }
+
+    // records stashed within the sync interval must be synced once it is over, not after the 30 seconds retry wait
+    private void verifyUnsyncedRecordsSynced(boolean isDestinationUp) throws Exception {
+        AuditHandler consumer = mock(AuditHandler.class);
+
+        when(consumer.getName()).thenReturn("test-consumer");
+        when(consumer.logJSON(anyCollection())).thenReturn(isDestinationUp);
+
+        Properties props  = new Properties();
+        String     prefix = "test.spool";
+
+        props.setProperty(prefix + "." + AuditFileSpool.PROP_FILE_SPOOL_LOCAL_DIR, tempFolder.newFolder("spool").getPath());
+        props.setProperty(prefix + "." + AuditFileSpool.PROP_FILE_SPOOL_DEST_RETRY_MS, "30000");
+        props.setProperty(prefix + "." + AuditSegmentSpool.PROP_FILE_SPOOL_SYNC_INTERVAL_MS, "200");
+
+        AuditSegmentSpool spool = new AuditSegmentSpool("test-queue", consumer);
+
+        assertTrue(spool.init(props, prefix));
+
+        spool.start();
+
+        try {
+            spool.stashLogsString("{\"id\":\"event-0\"}"); // first flush syncs
+            spool.stashLogsString("{\"id\":\"event-1\"}"); // within the sync interval: written, not synced
+
+            assertTrue(spool.isUnsynced());
+
+            for (int i = 0; i < 500 && spool.isUnsynced(); i++) {
+                Thread.sleep(10);
+            }
+
+            assertFalse(spool.isUnsynced());
+        } finally {
+            spool.stop();
+        }
+    }
+
+    private static void appendRecords(AuditSegmentLog log, int start, int count) throws IOException {
+        for (int i = start; i < start + count; i++) {
+            log.append(String.format("record-%04d", i).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void assertRecords(AuditSegmentLog.Batch batch, int start, int count) {
+        assertEquals(count, batch.getRecords().size());
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(String.format("record-%04d", start + i), new String(batch.getRecords().get(i), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.model.AuthzAuditEventField;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class AuthzAuditEventJsonWriterTest {
+    @Test
+    public void testFieldsMatchJsonProperties() {
+        List<Field> jsonFields = new ArrayList<>();
+
+        for (Field field : AuthzAuditEvent.class.getDeclaredFields()) {
+            if (field.isAnnotationPresent(JsonProperty.class)) {
+                jsonFields.add(field);
+            }
+        }
+
+        AuthzAuditEventField[] fields = AuthzAuditEventField.values();
+
+        assertEquals(jsonFields.size(), fields.length);
+
+        for (int i = 0; i < fields.length; i++) {
+            Field jsonField = jsonFields.get(i);
+
+            assertEquals(jsonField.getName(), fields[i].getFieldName());
+            assertEquals(jsonField.getAnnotation(JsonProperty.class).value(), fields[i].getJsonName());
+            assertEquals(jsonField.getType(), fields[i].getType());
+            assertEquals(fields[i], AuthzAuditEventField.forFieldName(jsonField.getName()));
+        }
+    }
+
+    @Test
+    public void testLargeEventBuffersAreNotRetained() throws Exception {
+        AuthzAuditEvent small = new AuthzAuditEvent();
+        AuthzAuditEvent large = new AuthzAuditEvent();
+        char[]          data  = new char[AuthzAuditEventJsonWriter.MAX_RETAINED_BUFFER_SIZE];
+
+        Arrays.fill(data, 'x');
+
+        small.setRequestData("select 1");
+        large.setRequestData(new String(data));
+
+        AuthzAuditEventJsonWriter.toJson(small);
+
+        Object state = AuthzAuditEventJsonWriter.getState();
+
+        AuthzAuditEventJsonWriter.toJsonBytes(small);
+
+        assertSame(state, AuthzAuditEventJsonWriter.getState());
+
+        assertEquals(MiscUtil.getMapper().writeValueAsString(large), AuthzAuditEventJsonWriter.toJson(large));
+
+        assertNotSame(state, AuthzAuditEventJsonWriter.getState());
+
+        state = AuthzAuditEventJsonWriter.getState();
+
+        assertEquals(MiscUtil.getMapper().writeValueAsString(large), new String(AuthzAuditEventJsonWriter.toJsonBytes(large), StandardCharsets.UTF_8));
+
+        assertNotSame(state, AuthzAuditEventJsonWriter.getState());
+    }
+
+    @Test
+    public void testOutputMatchesMapper() throws Exception {
+        AuthzAuditEvent empty = new AuthzAuditEvent();
+        AuthzAuditEvent full  = new AuthzAuditEvent();
+
+        full.setRepositoryType(1);
+        full.setRepositoryName("dev_hdfs");
+        full.setUser("user\"1\\");
+        full.setEventTime(new Date());
+        full.setAccessType("read");
+        full.setResourcePath("/tmp/ü/é中\tfile\n");
+        full.setResourceType("path");
+        full.setAction("read");
+        full.setAccessResult((short) 1);
+        full.setAgentId("hdfs");
+        full.setPolicyId(42);
+        full.setResultReason("/tmp");
+        full.setAclEnforcer("ranger-acl");
+        full.setSessionId("session-1");
+        full.setClientType("cli");
+        full.setClientIP("127.0.0.1");
+        full.setRequestData("select * from t where c = '\u0001'");
+        full.setAgentHostname("host-1");
+        full.setLogType("RangerAudit");
+        full.setEventId("event-1");
+        full.setSeqNum(Long.MAX_VALUE);
+        full.setEventCount(5);
+        full.setEventDurationMS(-1);
+        full.setTags(new HashSet<>(Arrays.asList("PII", "FINANCE")));
+        full.setDatasets(new HashSet<>(Arrays.asList("ds1")));
+        full.setProjects(new HashSet<>());
+        full.setAdditionalInfo("{\"remote-ip-address\":\"10.0.0.1\"}");
+        full.setClusterName("cl1");
+        full.setZoneName("zone1");
+        full.setPolicyVersion(7L);
+
+        for (AuthzAuditEvent event : Arrays.asList(empty, full, empty, full)) { // generators are reused across calls
+            String expected = MiscUtil.getMapper().writeValueAsString(event);
+
+            assertEquals(expected, AuthzAuditEventJsonWriter.toJson(event));
+            assertEquals(expected, new String(AuthzAuditEventJsonWriter.toJsonBytes(event), StandardCharsets.UTF_8));
+            assertEquals(expected, MiscUtil.stringify(event));
+        }
+
+        long now = System.currentTimeMillis() / 1000 * 1000;
+
+        for (long time : new long[] { now + 5, now + 50, now + 999, now + 1000, 0, -1 }) { // milliseconds padding, cached seconds
+            full.setEventTime(new Date(time));
+
+            assertEquals(MiscUtil.getMapper().writeValueAsString(full), AuthzAuditEventJsonWriter.toJson(full));
+        }
+    }
+}
@@ -21,8 +21,11 @@
 package org.apache.ranger.plugin.conditionevaluator;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -37,8 +40,10 @@
  */
 public class RangerIpMatcher extends RangerAbstractConditionEvaluator {
 	private static final Logger LOG = LoggerFactory.getLogger(RangerIpMatcher.class);
-	private List<String> _exactIps = new ArrayList<>();
-	private List<String> _wildCardIps = new ArrayList<>();
+	private Set<String> _exactIps = new HashSet<>();
+	private Set<String> _wildCardIpPrefixes = new HashSet<>(); // digested wildcard ips that end with '.' or ':', like "10.20.", "a0:b0:"
+	private List<String> _wildCardIps = new ArrayList<>();     // other digested wildcard ips; matched by linear scan
+	private RangerIpPrefixTree _ipRanges = new RangerIpPrefixTree(); // ips in CIDR notation, like 10.20.0.0/16, 2001:db8::/32
 	private boolean _allowAny;
 	
 	@Override
@@ -61,12 +66,18 @@ public void init() {
 			LOG.debug("init: wildcard value found.  Will match always.");
 		} else {
 			for (String ip : condition.getValues()) {
+				if (RangerIpPrefixTree.isCidr(ip) && _ipRanges.add(ip)) {
+					continue;
+				}
+
 				String digestedIp = digestPolicyIp(ip);
 				if (digestedIp.isEmpty()) {
 					LOG.debug("init: digested ip was empty! Will match always");
 					_allowAny = true;
 				} else if (digestedIp.equals(ip)) {
 					_exactIps.add(ip);
+				} else if (isSeparator(digestedIp.charAt(digestedIp.length() - 1))) {
+					_wildCardIpPrefixes.add(digestedIp);
 				} else {
 					_wildCardIps.add(digestedIp);
 				}
@@ -74,7 +85,7 @@ public void init() {
 		}
 
 		if(LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerIpMatcher.init(" + condition + "): exact-ips[" + _exactIps + "], wildcard-ips[" + _wildCardIps + "]");
+			LOG.debug("<== RangerIpMatcher.init(" + condition + "): exact-ips[" + _exactIps + "], wildcard-ip-prefixes[" + _wildCardIpPrefixes + "], wildcard-ips[" + _wildCardIps + "], ip-ranges[" + _ipRanges + "]");
 		}
 	}
 
@@ -92,7 +103,10 @@ public boolean isMatched(final RangerAccessRequest request) {
 			if (requestIp == null) {
 				LOG.debug("isMatched: couldn't get ip address from request.  Ok.  Implicitly matched!");
 			} else {
-				ipMatched = isWildcardMatched(_wildCardIps, requestIp) || isExactlyMatched(_exactIps, requestIp);
+				ipMatched = isExactlyMatched(_exactIps, requestIp) ||
+				            (!_ipRanges.isEmpty() && _ipRanges.contains(requestIp)) ||
+				            isWildcardPrefixMatched(_wildCardIpPrefixes, requestIp) ||
+				            (!_wildCardIps.isEmpty() && isWildcardMatched(_wildCardIps, requestIp));
 			}
 		}
 		
@@ -170,7 +184,38 @@ boolean isWildcardMatched(final List<String> ips, final String requestIp) {
 		return matchFound;
 	}
 	
-	boolean isExactlyMatched(final List<String> ips, final String requestIp) {
+	/**
+	 * Same result as isWildcardMatched(), for wildcard ips that end with a separator: as such an ip can only be a prefix of requestIp up to
+	 * one of its separators, only these prefixes of requestIp are looked up in the set - instead of comparing requestIp with each ip.
+	 * @param ipPrefixes
+	 * @param requestIp
+	 * @return
+	 */
+	boolean isWildcardPrefixMatched(final Set<String> ipPrefixes, final String requestIp) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerIpMatcher.isWildcardPrefixMatched(" + ipPrefixes + ", " + requestIp + ")");
+		}
+
+		boolean matchFound = false;
+		if (!ipPrefixes.isEmpty()) {
+			boolean isIpv4 = requestIp.contains(".");
+			matchFound = isIpv4 && isAnyPrefixIn(ipPrefixes, requestIp);
+
+			if (!matchFound) {
+				String lowerCaseIp = requestIp.toLowerCase();
+				if (!isIpv4 || !lowerCaseIp.equals(requestIp)) { // no need to look up again, if lower-casing didn't change the ip
+					matchFound = isAnyPrefixIn(ipPrefixes, lowerCaseIp);
+				}
+			}
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerIpMatcher.isWildcardPrefixMatched(" + ipPrefixes + ", " + requestIp + "): " + matchFound);
+		}
+		return matchFound;
+	}
+
+	boolean isExactlyMatched(final Collection<String> ips, final String requestIp) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerIpMatcher.isExactlyMatched(" + ips+ ", " + requestIp + ")");
 		}
@@ -188,6 +233,19 @@ boolean isExactlyMatched(final List<String> ips, final String requestIp) {
 		return matchFound;
 	}
 	
+	private static boolean isAnyPrefixIn(final Set<String> ipPrefixes, final String ip) {
+		for (int i = 0; i < ip.length(); i++) {
+			if (isSeparator(ip.charAt(i)) && ipPrefixes.contains(ip.substring(0, i + 1))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isSeparator(final char ch) {
+		return ch == '.' || ch == ':';
+	}
+
 	/**
 	 * Extracts and returns the ip address from the request.  Returns null if one can't be obtained out of the request.
 	 * @param request
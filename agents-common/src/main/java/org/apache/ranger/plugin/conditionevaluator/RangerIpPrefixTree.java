@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.conditionevaluator;
+
+import java.util.Arrays;
+
+/*
+ * Set of IPv4 and IPv6 address ranges in CIDR notation (like 10.1.0.0/16, 2001:db8::/32), stored in a binary prefix tree
+ * - one bit of the address per level. Lookup of an address walks at most 32 (IPv4) or 128 (IPv6) levels, independent of
+ * the number of ranges in the set.
+ *
+ * Nodes are stored in arrays, indexed by node-id: children of node n are at childNodes[2n] (bit 0) and childNodes[2n + 1]
+ * (bit 1); 0 indicates no child, as node 0 is the root for IPv4 addresses and never a child. Node 1 is the root for IPv6.
+ *
+ * Ranges are added during initialization; once populated, the tree is only read and can be shared by multiple threads.
+ */
+final class RangerIpPrefixTree {
+	private static final int IPV4_ROOT         = 0;
+	private static final int IPV6_ROOT         = 1;
+	private static final int IPV4_ADDRESS_SIZE = 4;
+	private static final int IPV6_ADDRESS_SIZE = 16;
+
+	private int[]     childNodes = new int[2 * 16];
+	private boolean[] isRangeEnd = new boolean[16]; // true if the path to the node is one of the ranges added
+	private int       nodeCount  = 2;
+	private int       rangeCount = 0;
+
+	static boolean isCidr(String value) {
+		return value != null && value.indexOf('/') > 0;
+	}
+
+	/*
+	 * Adds the range given in CIDR notation. Bits of the address beyond the prefix-length are ignored, i.e. 10.1.2.3/16
+	 * is same as 10.1.0.0/16. Returns false if the value is not a valid CIDR.
+	 */
+	boolean add(String cidr) {
+		int sepIdx = cidr != null ? cidr.indexOf('/') : -1;
+
+		if (sepIdx <= 0 || sepIdx == cidr.length() - 1 || cidr.length() - sepIdx > 4) {
+			return false;
+		}
+
+		byte[] address = parseAddress(cidr.substring(0, sepIdx));
+
+		if (address == null) {
+			return false;
+		}
+
+		int prefixLength = 0;
+
+		for (int i = sepIdx + 1; i < cidr.length(); i++) {
+			char ch = cidr.charAt(i);
+
+			if (ch < '0' || ch > '9') {
+				return false;
+			}
+
+			prefixLength = prefixLength * 10 + (ch - '0');
+		}
+
+		if (prefixLength > address.length * 8) {
+			return false;
+		}
+
+		int node = address.length == IPV4_ADDRESS_SIZE ? IPV4_ROOT : IPV6_ROOT;
+
+		for (int i = 0; i < prefixLength; i++) {
+			if (isRangeEnd[node]) { // a shorter range, that includes this one, is already in the tree
+				rangeCount++;
+
+				return true;
+			}
+
+			int childIdx = 2 * node + getBit(address, i);
+
+			if (childNodes[childIdx] == 0) {
+				int child = newNode(); // newNode() can replace childNodes array, hence not assigned in the same statement
+
+				childNodes[childIdx] = child;
+			}
+
+			node = childNodes[childIdx];
+		}
+
+		// this range includes all ranges in the subtree, if any; the subtree is detached, as lookup would stop at this node
+		isRangeEnd[node]         = true;
+		childNodes[2 * node]     = 0;
+		childNodes[2 * node + 1] = 0;
+
+		rangeCount++;
+
+		return true;
+	}
+
+	boolean contains(String ipAddress) {
+		byte[] address = parseAddress(ipAddress);
+
+		return address != null && contains(address);
+	}
+
+	boolean contains(byte[] address) {
+		int node = address.length == IPV4_ADDRESS_SIZE ? IPV4_ROOT : IPV6_ROOT;
+
+		for (int i = 0, bitCount = address.length * 8; i < bitCount; i++) {
+			if (isRangeEnd[node]) {
+				return true;
+			}
+
+			node = childNodes[2 * node + getBit(address, i)];
+
+			if (node == 0) {
+				return false;
+			}
+		}
+
+		return isRangeEnd[node];
+	}
+
+	boolean isEmpty() { return rangeCount == 0; }
+
+	int getRangeCount() { return rangeCount; }
+
+	int getNodeCount() { return nodeCount; }
+
+	@Override
+	public String toString() {
+		return "RangerIpPrefixTree={rangeCount=" + rangeCount + ", nodeCount=" + nodeCount + "}";
+	}
+
+	/*
+	 * Returns 4 bytes for an IPv4 address (like 10.1.2.3), 16 bytes for an IPv6 address (like 2001:db8::1, ::ffff:10.1.2.3,
+	 * fe80::1%eth0), or null if the value is not a valid IP address. Unlike InetAddress.getByName(), this never performs a
+	 * name lookup.
+	 */
+	static byte[] parseAddress(String value) {
+		if (value == null || value.isEmpty()) {
+			return null;
+		}
+
+		if (value.indexOf(':') == -1) {
+			byte[] ret = new byte[IPV4_ADDRESS_SIZE];
+
+			return parseIpv4(value, 0, value.length(), ret, 0) ? ret : null;
+		}
+
+		return parseIpv6(value);
+	}
+
+	private static boolean parseIpv4(String value, int startIdx, int endIdx, byte[] dest, int destIdx) {
+		int octetCount = 0;
+		int octet      = 0;
+		int digitCount = 0;
+
+		for (int i = startIdx; i < endIdx; i++) {
+			char ch = value.charAt(i);
+
+			if (ch >= '0' && ch <= '9') {
+				octet = octet * 10 + (ch - '0');
+
+				if (++digitCount > 3 || octet > 255) {
+					return false;
+				}
+			} else if (ch == '.' && digitCount > 0 && octetCount < 3) {
+				dest[destIdx + octetCount++] = (byte) octet;
+
+				octet      = 0;
+				digitCount = 0;
+			} else {
+				return false;
+			}
+		}
+
+		if (digitCount == 0 || octetCount != 3) {
+			return false;
+		}
+
+		dest[destIdx + octetCount] = (byte) octet;
+
+		return true;
+	}
+
+	private static byte[] parseIpv6(String value) {
+		int   endIdx             = value.indexOf('%'); // ignore zone-id, if present
+		int[] groups             = new int[8];
+		int   groupCount         = 0;
+		int   compressedGroupIdx = -1; // index of the group following "::", if present
+		int   idx                = 0;
+
+		if (endIdx == -1) {
+			endIdx = value.length();
+		}
+
+		if (endIdx >= 2 && value.charAt(0) == ':' && value.charAt(1) == ':') {
+			compressedGroupIdx = 0;
+			idx                = 2;
+		} else if (endIdx > 0 && value.charAt(0) == ':') {
+			return null;
+		}
+
+		byte[] ret = new byte[IPV6_ADDRESS_SIZE];
+
+		while (idx < endIdx) {
+			int sepIdx = idx;
+
+			while (sepIdx < endIdx && value.charAt(sepIdx) != ':') {
+				sepIdx++;
+			}
+
+			if (sepIdx == endIdx && value.lastIndexOf('.', endIdx - 1) >= idx) { // embedded IPv4 address in the last 32 bits
+				if (groupCount > 6 || !parseIpv4(value, idx, endIdx, ret, 12)) {
+					return null;
+				}
+
+				groups[groupCount++] = ((ret[12] & 0xff) << 8) | (ret[13] & 0xff);
+				groups[groupCount++] = ((ret[14] & 0xff) << 8) | (ret[15] & 0xff);
+
+				idx = endIdx;
+
+				break;
+			}
+
+			int groupLength = sepIdx - idx;
+
+			if (groupLength == 0 || groupLength > 4 || groupCount == 8) {
+				return null;
+			}
+
+			int group = 0;
+
+			for (int i = idx; i < sepIdx; i++) {
+				int digit = Character.digit(value.charAt(i), 16);
+
+				if (digit == -1) {
+					return null;
+				}
+
+				group = (group << 4) | digit;
+			}
+
+			groups[groupCount++] = group;
+
+			if (sepIdx == endIdx) {
+				idx = endIdx;
+			} else if (sepIdx + 1 < endIdx && value.charAt(sepIdx + 1) == ':') { // "::"
+				if (compressedGroupIdx != -1) {
+					return null;
+				}
+
+				compressedGroupIdx = groupCount;
+				idx                = sepIdx + 2;
+			} else if (sepIdx + 1 == endIdx) { // ends with a single ':'
+				return null;
+			} else {
+				idx = sepIdx + 1;
+			}
+		}
+
+		if (compressedGroupIdx == -1) {
+			if (groupCount != 8) {
+				return null;
+			}
+		} else if (groupCount > 7) {
+			return null;
+		} else { // move groups after "::" to the end
+			int trailingGroupCount = groupCount - compressedGroupIdx;
+
+			System.arraycopy(groups, compressedGroupIdx, groups, 8 - trailingGroupCount, trailingGroupCount);
+			Arrays.fill(groups, compressedGroupIdx, 8 - trailingGroupCount, 0);
+		}
+
+		for (int i = 0; i < 8; i++) {
+			ret[2 * i]     = (byte) (groups[i] >>> 8);
+			ret[2 * i + 1] = (byte) groups[i];
+		}
+
+		return ret;
+	}
+
+	private static int getBit(byte[] address, int bitIdx) {
+		return (address[bitIdx >>> 3] >>> (7 - (bitIdx & 7))) & 1;
+	}
+
+	private int newNode() {
+		if (nodeCount == isRangeEnd.length) {
+			isRangeEnd = Arrays.copyOf(isRangeEnd, nodeCount * 2);
+			childNodes = Arrays.copyOf(childNodes, nodeCount * 4);
+		}
+
+		return nodeCount++;
+	}
+}
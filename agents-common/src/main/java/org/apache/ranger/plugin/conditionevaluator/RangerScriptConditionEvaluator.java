@@ -23,7 +23,9 @@
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerNativeConditionScript;
 import org.apache.ranger.plugin.policyengine.RangerRequestScriptEvaluator;
+import org.apache.ranger.plugin.util.RangerCompiledScriptCache;
 import org.apache.ranger.plugin.util.ScriptEngineUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,8 +40,10 @@
 public class RangerScriptConditionEvaluator extends RangerAbstractConditionEvaluator {
 	private static final Logger LOG = LoggerFactory.getLogger(RangerScriptConditionEvaluator.class);
 
-	private ScriptEngine scriptEngine;
-	private Boolean      enableJsonCtx = null;
+	private ScriptEngine                scriptEngine;
+	private RangerCompiledScriptCache   compiledScripts;
+	private RangerNativeConditionScript nativeScript;
+	private Boolean                     enableJsonCtx = null;
 
 	@Override
 	public void init() {
@@ -70,14 +74,29 @@ public void init() {
 			LOG.debug("RangerScriptConditionEvaluator.init() - engineName=" + engineName);
 		}
 
-		scriptEngine = ScriptEngineUtil.createScriptEngine(serviceDef.getName());
+		String script = condition != null ? getScript() : null;
 
-		if (scriptEngine == null) {
-			String conditionType = condition != null ? condition.getType() : null;
+		// scripts referring to JSON context variables fail in the script engine when JSON context is disabled
+		if (script != null && (enableJsonCtx == null || enableJsonCtx || !RangerRequestScriptEvaluator.needsJsonCtxEnabled(script))) {
+			nativeScript = RangerNativeConditionScript.compile(script);
+		}
 
-			LOG.error("failed to initialize condition '" + conditionType + "': script engine '" + engineName + "' was not created");
+		if (nativeScript != null) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("RangerScriptConditionEvaluator.init(): script will be evaluated without script engine - " + script);
+			}
 		} else {
-			LOG.info("ScriptEngine for engineName=[" + engineName + "] is successfully created");
+			scriptEngine = ScriptEngineUtil.createScriptEngine(serviceDef.getName());
+
+			if (scriptEngine == null) {
+				String conditionType = condition != null ? condition.getType() : null;
+
+				LOG.error("failed to initialize condition '" + conditionType + "': script engine '" + engineName + "' was not created");
+			} else {
+				LOG.info("ScriptEngine for engineName=[" + engineName + "] is successfully created");
+
+				compiledScripts = new RangerCompiledScriptCache(scriptEngine);
+			}
 		}
 
 		if (LOG.isDebugEnabled()) {
@@ -93,7 +112,15 @@ public boolean isMatched(RangerAccessRequest request) {
 
 		boolean result = true;
 
-		if (scriptEngine != null) {
+		if (nativeScript != null) {
+			try {
+				result = nativeScript.evaluate(new RangerRequestScriptEvaluator(request));
+			} catch (Exception excp) { // same as failure in script engine
+				LOG.error("RangerScriptConditionEvaluator.isMatched(): failed to evaluate script", excp);
+
+				result = false;
+			}
+		} else if (scriptEngine != null) {
 			String script = getScript();
 
 			if (StringUtils.isNotBlank(script)) {
@@ -105,11 +132,15 @@ public boolean isMatched(RangerAccessRequest request) {
 					enableJsonCtx = RangerRequestScriptEvaluator.needsJsonCtxEnabled(script);
 				}
 
-				RangerRequestScriptEvaluator evaluator = new RangerRequestScriptEvaluator(request, scriptEngine, enableJsonCtx);
+				RangerRequestScriptEvaluator evaluator = new RangerRequestScriptEvaluator(request, compiledScripts, enableJsonCtx);
 
-				evaluator.evaluateConditionScript(script);
+				try {
+					evaluator.evaluateConditionScript(script);
 
-				result = evaluator.getResult();
+					result = evaluator.getResult();
+				} finally {
+					evaluator.release();
+				}
 			} else {
 				String conditionType = condition != null ? condition.getType() : null;
 
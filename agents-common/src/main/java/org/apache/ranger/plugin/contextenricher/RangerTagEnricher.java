@@ -93,8 +93,8 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 	private RangerServiceDefHelper             serviceDefHelper;
 
 	private final BlockingQueue<DownloadTrigger> tagDownloadQueue = new LinkedBlockingQueue<>();
-	private final RangerReadWriteLock            lock             = new RangerReadWriteLock(false);
-	private final CachedResourceEvaluators       cache            = new CachedResourceEvaluators();
+	private RangerReadWriteLock                  lock             = new RangerReadWriteLock(false);
+	private CachedResourceEvaluators             cache            = new CachedResourceEvaluators();
 
 
 	@Override
@@ -112,6 +112,8 @@ public void init() {
 		dedupStrings               = getBooleanConfig(propertyPrefix + ".dedup.strings", true);
 		disableTrieLookupPrefilter = getBooleanOption(TAG_DISABLE_TRIE_PREFILTER_OPTION, false);
 		serviceDefHelper           = new RangerServiceDefHelper(serviceDef, false);
+		cache                      = new CachedResourceEvaluators(getIntConfig(propertyPrefix + ".tag.resource.evaluators.cache.max.entries", CachedResourceEvaluators.DEFAULT_MAX_ENTRIES),
+		                                                          getLongConfig(propertyPrefix + ".tag.resource.evaluators.cache.max.weight", CachedResourceEvaluators.DEFAULT_MAX_WEIGHT));
 
 		if (StringUtils.isNotBlank(tagRetrieverClassName)) {
 
@@ -141,7 +143,7 @@ public void init() {
 
 				String cacheFile = cacheDir == null ? null : (cacheDir + File.separator + cacheFilename);
 
-				createLock();
+				lock = createLock();
 
 				tagRetriever.setServiceName(serviceName);
 				tagRetriever.setServiceDef(serviceDef);
@@ -429,6 +431,10 @@ public EnrichedServiceTags getEnrichedServiceTags() {
 		return enrichedServiceTags;
 	}
 
+	public CachedResourceEvaluators getCachedResourceEvaluators() {
+		return cache;
+	}
+
 	protected RangerReadWriteLock createLock() {
 		String             propertyPrefix        = getPropertyPrefix();
 		RangerPluginConfig config                = getPluginConfig();
@@ -438,9 +444,16 @@ protected RangerReadWriteLock createLock() {
 
 		LOG.info("Policy-Engine will" + (useReadWriteLock ? " " : " not ") + "use read-write locking to update tags in place when tag-deltas are provided");
 
-		return new RangerReadWriteLock(useReadWriteLock);
+		return new RangerReadWriteLock(useReadWriteLock, getLockType());
+	}
 
+	protected RangerReadWriteLock.LockType getLockType() {
+		RangerPluginConfig config = getPluginConfig();
+		String             value  = config != null ? config.get(getPropertyPrefix() + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_READ_WRITE_LOCK_TYPE, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_READ_WRITE_LOCK_TYPE_DEFAULT) : null;
+
+		return RangerReadWriteLock.LockType.fromString(value);
 	}
+
 	private EnrichedServiceTags processServiceTags(ServiceTags serviceTags) {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("Processing all service-tags");
@@ -477,7 +490,7 @@ private EnrichedServiceTags processServiceTags(ServiceTags serviceTags) {
 				serviceResourceTrie = new HashMap<>();
 
 				for (RangerResourceDef resourceDef : serviceDef.getResources()) {
-					serviceResourceTrie.put(resourceDef.getName(), new RangerResourceTrie(resourceDef, resourceMatchers, getPolicyEngineOptions().optimizeTagTrieForRetrieval, getPolicyEngineOptions().optimizeTagTrieForSpace, null));
+					serviceResourceTrie.put(resourceDef.getName(), new RangerResourceTrie(resourceDef, resourceMatchers, getPolicyEngineOptions().optimizeTagTrieForRetrieval, getPolicyEngineOptions().optimizeTagTrieForSpace, getPolicyEngineOptions().enableCompactTrieNodes, null));
 				}
 			}
 			ret = new EnrichedServiceTags(serviceTags, resourceMatchers, serviceResourceTrie);
@@ -527,7 +540,7 @@ private EnrichedServiceTags processServiceTagDeltas(ServiceTags deltas, ServiceT
 									LOG.debug("Added resource-matcher for policy-resource:[" + policyResource + "]");
 								}
 							} else {
-								trie = new RangerResourceTrie<>(resourceDef, Collections.singletonList(resourceMatcher), getPolicyEngineOptions().optimizeTagTrieForRetrieval, getPolicyEngineOptions().optimizeTagTrieForSpace, null);
+								trie = new RangerResourceTrie<>(resourceDef, Collections.singletonList(resourceMatcher), getPolicyEngineOptions().optimizeTagTrieForRetrieval, getPolicyEngineOptions().optimizeTagTrieForSpace, getPolicyEngineOptions().enableCompactTrieNodes, null);
 								serviceResourceTrie.put(resourceDef.getName(), trie);
 							}
 						}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.geo;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/*
+ * Geolocation index held in sorted arrays: fromIPAddresses is searched with binary search for the last range that starts at or
+ * before the address. maxToIPAddresses[i] is the largest toIPAddress in ranges 0..i, which limits the backward scan needed
+ * when ranges overlap; for non-overlapping ranges no scan is needed.
+ */
+public class RangerGeolocationArrayIndex implements RangerGeolocationIndex {
+	private final long[]                  fromIPAddresses;
+	private final long[]                  toIPAddresses;
+	private final long[]                  maxToIPAddresses;
+	private final RangerGeolocationData[] data;
+
+	public RangerGeolocationArrayIndex(Collection<RangerGeolocationData> values) {
+		RangerGeolocationData[] sorted = values.toArray(new RangerGeolocationData[0]);
+		int                     count  = 0;
+
+		Arrays.sort(sorted);
+
+		for (RangerGeolocationData value : sorted) { // remove duplicates
+			if (count == 0 || sorted[count - 1].compareTo(value) != 0) {
+				sorted[count++] = value;
+			}
+		}
+
+		this.fromIPAddresses  = new long[count];
+		this.toIPAddresses    = new long[count];
+		this.maxToIPAddresses = new long[count];
+		this.data             = Arrays.copyOf(sorted, count);
+
+		for (int i = 0; i < count; i++) {
+			fromIPAddresses[i]  = data[i].getFromIPAddress();
+			toIPAddresses[i]    = data[i].getToIPAddress();
+			maxToIPAddresses[i] = i == 0 ? toIPAddresses[i] : Math.max(maxToIPAddresses[i - 1], toIPAddresses[i]);
+		}
+	}
+
+	@Override
+	public RangerGeolocationData find(long ipAddress) {
+		int idx = Arrays.binarySearch(fromIPAddresses, ipAddress);
+
+		if (idx < 0) {
+			idx = -idx - 2; // last range that starts before ipAddress
+		} else {
+			while (idx + 1 < fromIPAddresses.length && fromIPAddresses[idx + 1] == ipAddress) { // last of the ranges that start at ipAddress
+				idx++;
+			}
+		}
+
+		for (; idx >= 0 && maxToIPAddresses[idx] >= ipAddress; idx--) {
+			if (toIPAddresses[idx] >= ipAddress) {
+				return data[idx];
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public int size() {
+		return data.length;
+	}
+
+	@Override
+	public void forEach(ValueProcessor<RangerGeolocationData> processor) {
+		for (RangerGeolocationData value : data) {
+			processor.process(value);
+		}
+	}
+}
@@ -71,12 +71,20 @@ public static RangerGeolocationData create(String fields[], int index, boolean u
 		return data;
 	}
 
-	private RangerGeolocationData(final long fromIPAddress, final long toIPAddress, final String[] locationData) {
+	RangerGeolocationData(final long fromIPAddress, final long toIPAddress, final String[] locationData) {
 		this.fromIPAddress = fromIPAddress;
 		this.toIPAddress = toIPAddress;
 		this.locationData = locationData;
 	}
 
+	public long getFromIPAddress() {
+		return fromIPAddress;
+	}
+
+	public long getToIPAddress() {
+		return toIPAddress;
+	}
+
 	public String[] getLocationData() {
 		return locationData;
 	}
@@ -23,10 +23,12 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+
 public class RangerGeolocationDatabase {
 	private static final Logger LOG = LoggerFactory.getLogger(RangerGeolocationDatabase.class);
 
-	private BinarySearchTree<RangerGeolocationData, Long> data = new BinarySearchTree<>();
+	private RangerGeolocationIndex data = new RangerGeolocationArrayIndex(Collections.<RangerGeolocationData>emptyList());
 
 	private GeolocationMetadata metadata = new GeolocationMetadata();
 
@@ -61,29 +63,17 @@ public RangerGeolocationData find(final String ipAddressStr) {
 		return ret;
 	}
 
-	public void optimize() {
-		long start = 0L, end = 0L;
-
-		start = System.currentTimeMillis();
-		data.rebalance();
-		end = System.currentTimeMillis();
-
-		if (LOG.isDebugEnabled()) {
-			LOG.debug("RangerGeolocationDatabase.optimize() - Time taken for optimizing database = " + (end - start) + " milliseconds");
-		}
-	}
-
-	public void setData(final BinarySearchTree<RangerGeolocationData, Long> dataArg) { data = dataArg != null ? dataArg : new BinarySearchTree<RangerGeolocationData, Long>();}
+	public void setData(final RangerGeolocationIndex dataArg) { data = dataArg != null ? dataArg : new RangerGeolocationArrayIndex(Collections.<RangerGeolocationData>emptyList());}
 
 	public void setMetadata(final GeolocationMetadata metadataArg) { metadata = metadataArg != null ? metadataArg : new GeolocationMetadata();}
 
 	public GeolocationMetadata getMetadata() { return metadata; }
 
-	public BinarySearchTree<RangerGeolocationData, Long> getData() { return data; }
+	public RangerGeolocationIndex getData() { return data; }
 
 	public void dump(ValuePrinter<RangerGeolocationData> processor) {
 
-		BinarySearchTree<RangerGeolocationData, Long> geoDatabase = getData();
+		RangerGeolocationIndex geoDatabase = getData();
 		GeolocationMetadata metadata = getMetadata();
 		processor.build();
 
@@ -91,7 +81,7 @@ public void dump(ValuePrinter<RangerGeolocationData> processor) {
 		processor.print(metadata.toString());
 
 		processor.print("#================== Dump of geoDatabase - START ==================");
-		geoDatabase.preOrderTraverseTree(processor);
+		geoDatabase.forEach(processor);
 		processor.print("#================== Dump of geoDatabase - END   ==================");
 
 		processor.close();
@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.geo;
+
+/*
+ * Read-only index of geolocation data, to look up the range that contains an IP address.
+ * Implementations must be safe for concurrent lookups.
+ */
+public interface RangerGeolocationIndex {
+	/*
+	 * Returns the data whose range [fromIPAddress, toIPAddress] contains the given address; null if no range contains it.
+	 * If more than one range contains the address, the one with the largest fromIPAddress is returned.
+	 */
+	RangerGeolocationData find(long ipAddress);
+
+	int size();
+
+	// calls processor for each data in the index, in increasing order of fromIPAddress
+	void forEach(ValueProcessor<RangerGeolocationData> processor);
+}
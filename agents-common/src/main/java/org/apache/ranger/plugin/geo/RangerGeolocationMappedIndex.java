@@ -0,0 +1,355 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.geo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Geolocation index read directly from a memory-mapped file, in the binary format written by write(). Opening the file only
+ * maps it - no parsing, sorting or object creation is needed - hence even databases with millions of ranges load instantly,
+ * and pages of the file are shared by all processes that map it. Within a JVM, open() returns the same instance for a file,
+ * until the file is modified.
+ *
+ * File format - all values in big-endian order:
+ *   header:                int magic, int version, int rangeCount, int attributeCount
+ *   attributeNameOffsets:  int[attributeCount]; followed by padding to 8-byte boundary
+ *   fromIPAddresses:       long[rangeCount]; sorted
+ *   toIPAddresses:         long[rangeCount]
+ *   maxToIPAddresses:      long[rangeCount]; maxToIPAddresses[i] = max(toIPAddresses[0..i])
+ *   locationDataOffsets:   int[rangeCount]
+ *   location data:         for each range: int valueCount, int[valueCount] stringOffsets
+ *   strings:               for each distinct string: int length, UTF-8 bytes
+ * Offsets are from the beginning of the file; a string offset of -1 indicates null.
+ */
+public class RangerGeolocationMappedIndex implements RangerGeolocationIndex {
+	private static final Logger LOG = LoggerFactory.getLogger(RangerGeolocationMappedIndex.class);
+
+	private static final int MAGIC       = 0x89474549; // non-text first byte, to distinguish from text format
+	private static final int VERSION     = 1;
+	private static final int HEADER_SIZE = 16;
+
+	private static final Map<String, RangerGeolocationMappedIndex> MAPPED_INDEXES = new ConcurrentHashMap<>();
+
+	private final String              filePath;
+	private final long                fileLength;
+	private final long                fileLastModified;
+	private final ByteBuffer          buffer; // only absolute get methods are used, hence safe for concurrent use
+	private final int                 rangeCount;
+	private final GeolocationMetadata metadata;
+	private final int                 fromIPAddressesOffset;
+	private final int                 toIPAddressesOffset;
+	private final int                 maxToIPAddressesOffset;
+	private final int                 locationDataOffsetsOffset;
+
+	private RangerGeolocationMappedIndex(File file) throws IOException {
+		this.filePath         = file.getCanonicalPath();
+		this.fileLength       = file.length();
+		this.fileLastModified = file.lastModified();
+
+		if (fileLength > Integer.MAX_VALUE) {
+			throw new IOException(filePath + ": file too large (" + fileLength + " bytes)");
+		}
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileLength); // mapping remains valid after the channel is closed
+		}
+
+		if (fileLength < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException(filePath + ": not a geolocation index file");
+		}
+
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException(filePath + ": unsupported geolocation index version " + buffer.getInt(4));
+		}
+
+		this.rangeCount = buffer.getInt(8);
+
+		int attributeCount = buffer.getInt(12);
+
+		if (rangeCount < 0 || attributeCount < 0 || attributeCount > fileLength / 4 || align8(HEADER_SIZE + 4 * attributeCount) + 28L * rangeCount > fileLength) {
+			throw new IOException(filePath + ": invalid geolocation index file; rangeCount=" + rangeCount + ", attributeCount=" + attributeCount + ", length=" + fileLength);
+		}
+
+		this.fromIPAddressesOffset     = align8(HEADER_SIZE + 4 * attributeCount);
+		this.toIPAddressesOffset       = fromIPAddressesOffset + 8 * rangeCount;
+		this.maxToIPAddressesOffset    = toIPAddressesOffset + 8 * rangeCount;
+		this.locationDataOffsetsOffset = maxToIPAddressesOffset + 8 * rangeCount;
+
+		String[] attributeNames = new String[attributeCount];
+
+		for (int i = 0; i < attributeCount; i++) {
+			attributeNames[i] = getString(buffer.getInt(HEADER_SIZE + 4 * i));
+		}
+
+		this.metadata = new GeolocationMetadata(attributeNames);
+	}
+
+	/*
+	 * Returns the index in the given file; the index is shared with earlier callers, unless the file has been modified since.
+	 */
+	public static RangerGeolocationMappedIndex open(File file) throws IOException {
+		String                       filePath = file.getCanonicalPath();
+		RangerGeolocationMappedIndex ret      = MAPPED_INDEXES.get(filePath);
+
+		if (ret == null || ret.fileLength != file.length() || ret.fileLastModified != file.lastModified()) {
+			long start = System.currentTimeMillis();
+
+			if (ret != null) { // don't keep the stale mapping, even if the modified file fails to load
+				MAPPED_INDEXES.remove(filePath, ret);
+			}
+
+			ret = new RangerGeolocationMappedIndex(file);
+
+			MAPPED_INDEXES.put(filePath, ret);
+
+			LOG.info("RangerGeolocationMappedIndex.open(" + filePath + "): rangeCount=" + ret.rangeCount + ", time taken=" + (System.currentTimeMillis() - start) + "ms");
+		} else if (LOG.isDebugEnabled()) {
+			LOG.debug("RangerGeolocationMappedIndex.open(" + filePath + "): using already mapped index");
+		}
+
+		return ret;
+	}
+
+	/*
+	 * Removes the index from the shared indexes, if present. The file remains mapped until the index is no longer
+	 * referenced and is garbage collected, as Java 8 has no API to unmap a buffer that readers may still be using.
+	 */
+	public static void release(RangerGeolocationMappedIndex index) {
+		if (index != null && MAPPED_INDEXES.remove(index.filePath, index)) {
+			LOG.info("RangerGeolocationMappedIndex.release(" + index.filePath + ")");
+		}
+	}
+
+	public static boolean isMappedIndexFile(File file) {
+		boolean ret = false;
+
+		if (file.isFile() && file.length() >= HEADER_SIZE) {
+			try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+				ret = in.readInt() == MAGIC;
+			} catch (IOException excp) {
+				LOG.warn("RangerGeolocationMappedIndex.isMappedIndexFile(" + file + "): failed to read", excp);
+			}
+		}
+
+		return ret;
+	}
+
+	/*
+	 * Writes the index in the format read by open(). The file is written to a temporary file first and then renamed, so that
+	 * readers never see a partially written file.
+	 */
+	public static void write(GeolocationMetadata metadata, RangerGeolocationIndex index, File file) throws IOException {
+		final List<RangerGeolocationData> ranges         = new ArrayList<>(index.size());
+		final String[]                    attributeNames = metadata.getLocationDataItemNames();
+
+		index.forEach(value -> { ranges.add(value); return value; });
+
+		// assign offsets to location data and strings; strings are written once, however often they occur
+		long                locationDataStart = align8(HEADER_SIZE + 4 * attributeNames.length) + 28L * ranges.size();
+		long                locationDataSize  = 0;
+		Map<String, byte[]> strings           = new LinkedHashMap<>();
+
+		for (String attributeName : attributeNames) {
+			strings.computeIfAbsent(attributeName, RangerGeolocationMappedIndex::toBytes);
+		}
+
+		for (RangerGeolocationData range : ranges) {
+			locationDataSize += 4 + 4L * range.getLocationData().length;
+
+			for (String value : range.getLocationData()) {
+				if (value != null) {
+					strings.computeIfAbsent(value, RangerGeolocationMappedIndex::toBytes);
+				}
+			}
+		}
+
+		Map<String, Integer> stringOffsets = new LinkedHashMap<>();
+		long                 offset        = locationDataStart + locationDataSize;
+
+		for (Map.Entry<String, byte[]> entry : strings.entrySet()) {
+			stringOffsets.put(entry.getKey(), (int) offset);
+
+			offset += 4 + entry.getValue().length;
+		}
+
+		if (offset > Integer.MAX_VALUE) {
+			throw new IOException(file + ": geolocation index too large; number of ranges=" + ranges.size());
+		}
+
+		File tmpFile = new File(file.getPath() + ".tmp");
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 64 * 1024))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(ranges.size());
+			out.writeInt(attributeNames.length);
+
+			for (String attributeName : attributeNames) {
+				out.writeInt(stringOffsets.get(attributeName));
+			}
+
+			for (int i = align8(HEADER_SIZE + 4 * attributeNames.length) - (HEADER_SIZE + 4 * attributeNames.length); i > 0; i--) {
+				out.writeByte(0);
+			}
+
+			long maxToIPAddress = Long.MIN_VALUE;
+
+			for (RangerGeolocationData range : ranges) {
+				out.writeLong(range.getFromIPAddress());
+			}
+
+			for (RangerGeolocationData range : ranges) {
+				out.writeLong(range.getToIPAddress());
+			}
+
+			for (RangerGeolocationData range : ranges) {
+				maxToIPAddress = Math.max(maxToIPAddress, range.getToIPAddress());
+
+				out.writeLong(maxToIPAddress);
+			}
+
+			int locationDataOffset = (int) locationDataStart;
+
+			for (RangerGeolocationData range : ranges) {
+				out.writeInt(locationDataOffset);
+
+				locationDataOffset += 4 + 4 * range.getLocationData().length;
+			}
+
+			for (RangerGeolocationData range : ranges) {
+				out.writeInt(range.getLocationData().length);
+
+				for (String value : range.getLocationData()) {
+					out.writeInt(value != null ? stringOffsets.get(value) : -1);
+				}
+			}
+
+			for (byte[] bytes : strings.values()) {
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+
+		Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	public GeolocationMetadata getMetadata() {
+		return metadata;
+	}
+
+	@Override
+	public RangerGeolocationData find(long ipAddress) {
+		int low  = 0;
+		int high = rangeCount - 1;
+
+		while (low <= high) { // find the last range that starts at or before ipAddress
+			int mid = (low + high) >>> 1;
+
+			if (getFromIPAddress(mid) <= ipAddress) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+
+		for (int idx = high; idx >= 0 && buffer.getLong(maxToIPAddressesOffset + 8 * idx) >= ipAddress; idx--) {
+			if (buffer.getLong(toIPAddressesOffset + 8 * idx) >= ipAddress) {
+				return getRange(idx);
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public int size() {
+		return rangeCount;
+	}
+
+	@Override
+	public void forEach(ValueProcessor<RangerGeolocationData> processor) {
+		for (int i = 0; i < rangeCount; i++) {
+			processor.process(getRange(i));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "RangerGeolocationMappedIndex={filePath=" + filePath + ", rangeCount=" + rangeCount + "}";
+	}
+
+	private long getFromIPAddress(int idx) {
+		return buffer.getLong(fromIPAddressesOffset + 8 * idx);
+	}
+
+	private RangerGeolocationData getRange(int idx) {
+		int      offset       = buffer.getInt(locationDataOffsetsOffset + 4 * idx);
+		String[] locationData = new String[buffer.getInt(offset)];
+
+		for (int i = 0; i < locationData.length; i++) {
+			locationData[i] = getString(buffer.getInt(offset + 4 + 4 * i));
+		}
+
+		return new RangerGeolocationData(getFromIPAddress(idx), buffer.getLong(toIPAddressesOffset + 8 * idx), locationData);
+	}
+
+	private String getString(int offset) {
+		if (offset == -1) {
+			return null;
+		}
+
+		byte[]     bytes = new byte[buffer.getInt(offset)];
+		ByteBuffer dup   = buffer.duplicate(); // position of the shared buffer must not be changed
+
+		((Buffer) dup).position(offset + 4); // cast: ByteBuffer.position(int) of Java 9+ isn't available in Java 8
+		dup.get(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static byte[] toBytes(String str) {
+		return str.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static int align8(int offset) {
+		return (offset + 7) & ~7;
+	}
+}
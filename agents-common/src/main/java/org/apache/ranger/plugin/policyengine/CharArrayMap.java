@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/*
+ * Map with char keys, for use in place of HashMap<Character, V> for children of RangerResourceTrie nodes.
+ *
+ * Keys are kept sorted in a char[], with the value of each key at the same index in an Object[]. get(char) is a
+ * binary search over the keys and doesn't box the key. Unlike HashMap, there is no hash table and no entry object
+ * per key - for trie nodes, most of which have very few children, this takes a fraction of the memory.
+ * put()/remove() of a new key copies the arrays, which is fine given the number of children of a trie node is
+ * bounded by the number of distinct characters in resource names.
+ *
+ * Like HashMap, this class is not thread-safe.
+ */
+public class CharArrayMap<V> extends AbstractMap<Character, V> {
+    private static final char[]   EMPTY_KEYS   = new char[0];
+    private static final Object[] EMPTY_VALUES = new Object[0];
+
+    private char[]   keys   = EMPTY_KEYS;
+    private Object[] values = EMPTY_VALUES;
+
+    @SuppressWarnings("unchecked")
+    public V get(char key) {
+        int idx = indexOf(key);
+
+        return idx >= 0 ? (V) values[idx] : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(char key, V value) {
+        int idx = indexOf(key);
+
+        if (idx >= 0) {
+            V ret = (V) values[idx];
+
+            values[idx] = value;
+
+            return ret;
+        }
+
+        idx = -(idx + 1);
+
+        char[]   newKeys   = new char[keys.length + 1];
+        Object[] newValues = new Object[values.length + 1];
+
+        System.arraycopy(keys, 0, newKeys, 0, idx);
+        System.arraycopy(values, 0, newValues, 0, idx);
+
+        newKeys[idx]   = key;
+        newValues[idx] = value;
+
+        System.arraycopy(keys, idx, newKeys, idx + 1, keys.length - idx);
+        System.arraycopy(values, idx, newValues, idx + 1, values.length - idx);
+
+        keys   = newKeys;
+        values = newValues;
+
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(char key) {
+        int idx = indexOf(key);
+
+        if (idx < 0) {
+            return null;
+        }
+
+        V ret = (V) values[idx];
+
+        if (keys.length == 1) {
+            keys   = EMPTY_KEYS;
+            values = EMPTY_VALUES;
+        } else {
+            char[]   newKeys   = new char[keys.length - 1];
+            Object[] newValues = new Object[values.length - 1];
+
+            System.arraycopy(keys, 0, newKeys, 0, idx);
+            System.arraycopy(values, 0, newValues, 0, idx);
+            System.arraycopy(keys, idx + 1, newKeys, idx, keys.length - idx - 1);
+            System.arraycopy(values, idx + 1, newValues, idx, values.length - idx - 1);
+
+            keys   = newKeys;
+            values = newValues;
+        }
+
+        return ret;
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof Character ? get(((Character) key).charValue()) : null;
+    }
+
+    @Override
+    public V put(Character key, V value) {
+        return put(key.charValue(), value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return key instanceof Character ? remove(((Character) key).charValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Character && indexOf((Character) key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    @Override
+    public void clear() {
+        keys   = EMPTY_KEYS;
+        values = EMPTY_VALUES;
+    }
+
+    @Override
+    public Collection<V> values() {
+        final Object[] values = this.values;
+
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ArrayIterator<V>(values.length) {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    V get(int idx) { return (V) values[idx]; }
+                };
+            }
+
+            @Override
+            public int size() { return values.length; }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<Character, V>> entrySet() {
+        final char[]   keys   = this.keys;
+        final Object[] values = this.values;
+
+        return new AbstractSet<Map.Entry<Character, V>>() {
+            @Override
+            public Iterator<Map.Entry<Character, V>> iterator() {
+                return new ArrayIterator<Map.Entry<Character, V>>(keys.length) {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    Map.Entry<Character, V> get(int idx) { return new SimpleImmutableEntry<>(keys[idx], (V) values[idx]); }
+                };
+            }
+
+            @Override
+            public int size() { return keys.length; }
+        };
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, key);
+    }
+
+    private abstract static class ArrayIterator<E> implements Iterator<E> {
+        private final int length;
+        private       int next;
+
+        ArrayIterator(int length) {
+            this.length = length;
+        }
+
+        abstract E get(int idx);
+
+        @Override
+        public boolean hasNext() { return next < length; }
+
+        @Override
+        public E next() {
+            if (next >= length) {
+                throw new NoSuchElementException();
+            }
+
+            return get(next++);
+        }
+    }
+}
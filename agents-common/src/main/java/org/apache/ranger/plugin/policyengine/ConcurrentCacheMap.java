@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/*
+ * Bounded cache, for use in place of Collections.synchronizedMap(new CacheMap<>(capacity)).
+ *
+ * Entries are spread across segments by key hash; each segment has its own ConcurrentHashMap and eviction queue.
+ * get() doesn't take any lock: it only marks the entry as referenced. Adding a new key or remove() locks only the segment of the key.
+ * When a segment exceeds its share of the capacity, entries are evicted in CLOCK (second-chance) order - an entry
+ * referenced since it was last examined is moved to the back of the queue instead of being evicted, which makes
+ * the eviction approximate LRU order of CacheMap.
+ * Optionally, the total weight of values (as computed by a weigher) can be bounded as well; in this case put() of an existing
+ * key also locks the segment, to keep the weight accurate.
+ */
+public class ConcurrentCacheMap<K, V> {
+    private static final Logger LOG = LoggerFactory.getLogger(ConcurrentCacheMap.class);
+
+    private static final int MAX_SEGMENT_COUNT    = 16;
+    private static final int MIN_SEGMENT_CAPACITY = 32;
+
+    private final int                      capacity;
+    private final long                     maxWeight;
+    private final ToIntFunction<? super V> weigher;
+    private final Segment<K, V>[]          segments;
+    private final int                      segmentShift;
+    private final LongAdder                evictionCount = new LongAdder();
+
+    public ConcurrentCacheMap(int capacity) {
+        this(capacity, Long.MAX_VALUE, null);
+    }
+
+    public ConcurrentCacheMap(int capacity, long maxWeight, ToIntFunction<? super V> weigher) {
+        this.capacity  = Math.max(capacity, 1);
+        this.maxWeight = weigher != null ? Math.max(maxWeight, 1) : Long.MAX_VALUE;
+        this.weigher   = weigher;
+
+        int segmentCount = 1;
+
+        while (segmentCount < MAX_SEGMENT_COUNT && (segmentCount * 2 * MIN_SEGMENT_CAPACITY) <= Math.min(this.capacity, this.maxWeight)) {
+            segmentCount *= 2;
+        }
+
+        @SuppressWarnings("unchecked")
+        Segment<K, V>[] segments = new Segment[segmentCount];
+
+        for (int i = 0; i < segmentCount; i++) { // distribute the remainder, so that total capacity is exactly as requested
+            segments[i] = new Segment<>(this.capacity / segmentCount + (i < this.capacity % segmentCount ? 1 : 0), weigher == null ? Long.MAX_VALUE : (this.maxWeight / segmentCount + (i < this.maxWeight % segmentCount ? 1 : 0)), weigher);
+        }
+
+        this.segments     = segments;
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("ConcurrentCacheMap(capacity=" + capacity + ", maxWeight=" + maxWeight + "): segmentCount=" + segmentCount);
+        }
+    }
+
+    public int getCapacity() { return capacity; }
+
+    public long getMaxWeight() { return maxWeight; }
+
+    public long getEvictionCount() { return evictionCount.sum(); }
+
+    public V get(K key) {
+        Entry<K, V> entry = segmentFor(key).map.get(key);
+
+        if (entry == null) {
+            return null;
+        }
+
+        if (!entry.referenced) { // avoid writing to shared memory for frequently accessed entries
+            entry.referenced = true;
+        }
+
+        return entry.value;
+    }
+
+    public V put(K key, V value) {
+        Segment<K, V> segment  = segmentFor(key);
+        Entry<K, V>   existing = weigher == null ? segment.map.get(key) : null;
+
+        if (existing != null) { // update without locking; a concurrent eviction of this entry would only lose this update
+            return existing.setValue(value);
+        }
+
+        return segment.put(key, value, evictionCount);
+    }
+
+    public V remove(K key) {
+        return segmentFor(key).remove(key);
+    }
+
+    public boolean containsKey(K key) {
+        return segmentFor(key).map.containsKey(key);
+    }
+
+    public int size() {
+        int ret = 0;
+
+        for (Segment<K, V> segment : segments) {
+            ret += segment.map.size();
+        }
+
+        return ret;
+    }
+
+    public long getWeight() {
+        long ret = 0;
+
+        for (Segment<K, V> segment : segments) {
+            ret += segment.weight;
+        }
+
+        return ret;
+    }
+
+    public boolean isEmpty() {
+        for (Segment<K, V> segment : segments) {
+            if (!segment.map.isEmpty()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrentCacheMap={capacity=" + capacity + ", segmentCount=" + segments.length + ", size=" + size() + (weigher != null ? (", maxWeight=" + maxWeight + ", weight=" + getWeight()) : "") + ", evictionCount=" + getEvictionCount() + "}";
+    }
+
+    // segment is selected by high bits of the scrambled hash, as ConcurrentHashMap within the segment uses low bits
+    private Segment<K, V> segmentFor(Object key) {
+        return segments.length == 1 ? segments[0] : segments[(key.hashCode() * 0x9E3779B9) >>> segmentShift];
+    }
+
+    private static final class Entry<K, V> {
+        final    K       key;
+        volatile V       value;
+        volatile boolean referenced;
+        boolean          removed; // guarded by segment lock
+        int              weight;  // guarded by segment lock
+
+        Entry(K key, V value) {
+            this.key   = key;
+            this.value = value;
+        }
+
+        V setValue(V value) {
+            V ret = this.value;
+
+            this.value = value;
+
+            if (!referenced) {
+                referenced = true;
+            }
+
+            return ret;
+        }
+    }
+
+    private static final class Segment<K, V> {
+        final int                      capacity;
+        final long                     maxWeight;
+        final ToIntFunction<? super V> weigher;
+        final Map<K, Entry<K, V>>      map   = new ConcurrentHashMap<>();
+        final ArrayDeque<Entry<K, V>>  queue = new ArrayDeque<>(); // guarded by this
+        int                            size;                       // guarded by this
+        volatile long                  weight;                     // updated with this held
+
+        Segment(int capacity, long maxWeight, ToIntFunction<? super V> weigher) {
+            this.capacity  = Math.max(capacity, 1);
+            this.maxWeight = Math.max(maxWeight, 1);
+            this.weigher   = weigher;
+        }
+
+        synchronized V put(K key, V value, LongAdder evictionCount) {
+            Entry<K, V> entry    = new Entry<>(key, value);
+            Entry<K, V> existing = map.putIfAbsent(key, entry);
+            final V     ret;
+
+            if (existing != null) {
+                entry = existing;
+                ret   = existing.setValue(value);
+            } else {
+                if (queue.size() > size + capacity) {
+                    queue.removeIf(e -> e.removed);
+                }
+
+                queue.addLast(entry);
+
+                size++;
+
+                ret = null;
+            }
+
+            if (weigher != null) {
+                int entryWeight = Math.max(weigher.applyAsInt(value), 0);
+
+                weight      += entryWeight - entry.weight;
+                entry.weight = entryWeight;
+            }
+
+            // size > 1 check ensures termination when the entry being added alone exceeds maxWeight
+            while (size > capacity || (weight > maxWeight && size > 1)) {
+                Entry<K, V> candidate = queue.pollFirst();
+
+                if (candidate == null) {
+                    break;
+                }
+
+                if (candidate.removed) {
+                    continue;
+                }
+
+                if (candidate.referenced || candidate == entry) { // give a second chance; never evict the entry being added
+                    candidate.referenced = false;
+
+                    queue.addLast(candidate);
+                } else {
+                    map.remove(candidate.key);
+
+                    candidate.removed = true;
+
+                    size--;
+                    weight -= candidate.weight;
+
+                    evictionCount.increment();
+                }
+            }
+
+            return ret;
+        }
+
+        synchronized V remove(K key) {
+            Entry<K, V> entry = map.remove(key);
+
+            if (entry == null) {
+                return null;
+            }
+
+            // entry stays in the queue until it reaches the head, or until the queue is compacted in put()
+            entry.removed = true;
+
+            size--;
+            weight -= entry.weight;
+
+            return entry.value;
+        }
+
+        synchronized void clear() {
+            for (Entry<K, V> entry : queue) {
+                entry.removed = true;
+            }
+
+            map.clear();
+            queue.clear();
+
+            size   = 0;
+            weight = 0;
+        }
+    }
+}
@@ -30,6 +30,7 @@
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
 import org.apache.ranger.plugin.contextenricher.RangerContextEnricher;
 import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerPolicyDelta;
@@ -38,6 +39,7 @@
 import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
 import org.apache.ranger.plugin.resourcematcher.RangerAbstractResourceMatcher;
 import org.apache.ranger.plugin.service.RangerAuthContext;
+import org.apache.ranger.plugin.util.RangerCommonConstants;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerPolicyDeltaUtil;
 import org.apache.ranger.plugin.util.RangerReadWriteLock;
@@ -76,6 +78,14 @@ public RangerReadWriteLock.RangerLock getWriteLock() {
         return lock.getWriteLock();
     }
 
+    public long tryOptimisticRead() {
+        return lock.tryOptimisticRead();
+    }
+
+    public boolean validate(long stamp) {
+        return lock.validate(stamp);
+    }
+
     public boolean getUseForwardedIPAddress() {
         return useForwardedIPAddress;
     }
@@ -200,7 +210,7 @@ public PolicyEngine(ServicePolicies servicePolicies, RangerPluginContext pluginC
         pluginContext.cleanResourceMatchers();
 
         this.pluginContext = pluginContext;
-        this.lock          = new RangerReadWriteLock(isUseReadWriteLock);
+        this.lock          = new RangerReadWriteLock(isUseReadWriteLock, getLockType(pluginContext));
         this.zoneMatcher   = new RangerSecurityZoneMatcher(servicePolicies.getSecurityZones(), servicePolicies.getServiceDef(), pluginContext);
 
         Boolean                  hasPolicyDeltas      = RangerPolicyDeltaUtil.hasPolicyDeltas(servicePolicies);
@@ -376,8 +386,12 @@ public RangerPolicyRepository getRepositoryForMatchedZone(RangerPolicy policy) {
         return ret;
     }
 
+    public boolean hasSecurityZones() {
+        return zoneMatcher.hasZones();
+    }
+
     public Set<String> getMatchedZonesForResourceAndChildren(Map<String, ?> resource) {
-        Set<String> ret = zoneMatcher.getZonesForResourceAndChildren(resource);
+        Set<String> ret = zoneMatcher.hasZones() ? zoneMatcher.getZonesForResourceAndChildren(resource) : null;
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("getMatchedZonesForResourceAndChildren(resource={}): ret={}", resource, ret);
@@ -387,7 +401,7 @@ public Set<String> getMatchedZonesForResourceAndChildren(Map<String, ?> resource
     }
 
     public Set<String> getMatchedZonesForResourceAndChildren(RangerAccessResource resource) {
-        Set<String> ret = zoneMatcher.getZonesForResourceAndChildren(resource);
+        Set<String> ret = zoneMatcher.hasZones() ? zoneMatcher.getZonesForResourceAndChildren(resource) : null;
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("getMatchedZonesForResourceAndChildren(resource={}): ret={}", resource, ret);
@@ -397,7 +411,7 @@ public Set<String> getMatchedZonesForResourceAndChildren(RangerAccessResource re
     }
 
     public String getUniquelyMatchedZoneName(Map<String, ?> resourceAsMap) {
-        Set<String> matchedZones = zoneMatcher.getZonesForResourceAndChildren(resourceAsMap);
+        Set<String> matchedZones = zoneMatcher.hasZones() ? zoneMatcher.getZonesForResourceAndChildren(resourceAsMap) : null;
         String      ret          = (matchedZones != null && matchedZones.size() == 1) ? matchedZones.iterator().next() : null;
 
         if (LOG.isDebugEnabled()) {
@@ -427,6 +441,38 @@ public RangerPolicyRepository getRepositoryForZone(String zoneName) {
         return ret;
     }
 
+    public boolean hasContextSensitiveAccessPolicies() {
+        boolean ret = policyRepository != null && policyRepository.hasContextSensitiveAccessPolicies();
+
+        if (!ret && MapUtils.isNotEmpty(zonePolicyRepositories)) {
+            for (RangerPolicyRepository zonePolicyRepository : zonePolicyRepositories.values()) {
+                if (zonePolicyRepository.hasContextSensitiveAccessPolicies()) {
+                    ret = true;
+
+                    break;
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    public boolean hasDynamicEvalResourcePolicies() {
+        boolean ret = policyRepository != null && policyRepository.hasDynamicEvalResourcePolicies();
+
+        if (!ret && MapUtils.isNotEmpty(zonePolicyRepositories)) {
+            for (RangerPolicyRepository zonePolicyRepository : zonePolicyRepositories.values()) {
+                if (zonePolicyRepository.hasDynamicEvalResourcePolicies()) {
+                    ret = true;
+
+                    break;
+                }
+            }
+        }
+
+        return ret;
+    }
+
     public boolean hasTagPolicies(RangerPolicyRepository tagPolicyRepository) {
         return tagPolicyRepository != null && CollectionUtils.isNotEmpty(tagPolicyRepository.getPolicies());
     }
@@ -475,6 +521,13 @@ public void preCleanup(boolean isForced) {
         }
     }
 
+    private static RangerReadWriteLock.LockType getLockType(RangerPluginContext pluginContext) {
+        RangerPluginConfig config = pluginContext.getConfig();
+        String             value  = config.get(config.getPropertyPrefix() + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_READ_WRITE_LOCK_TYPE, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_READ_WRITE_LOCK_TYPE_DEFAULT);
+
+        return RangerReadWriteLock.LockType.fromString(value);
+    }
+
     private void normalizeServiceDefs(ServicePolicies servicePolicies) {
         RangerServiceDef serviceDef = servicePolicies.getServiceDef();
 
@@ -0,0 +1,315 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest.ResourceElementMatchingScope;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest.ResourceMatchingScope;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerPerfTracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Caches results of access evaluation, keyed by the request attributes that determine the result:
+ * user, groups, roles, resource, resource-owner, access-type and matching scopes.
+ *
+ * Results are cached only when the outcome can't depend on any other request attribute:
+ *  - policies in resource/zone repositories have no conditions, validity schedules or dynamic resource values
+ *  - request doesn't carry tags, GDS result or multiple access-types in its context
+ *  - request is not for ANY access
+ *
+ * Cached entries are tagged with policy-version and role-version of the policy engine; a change in either
+ * drops all entries. Tag policy changes need no invalidation, as requests having tags are never cached.
+ *
+ * Entries are stored in a ConcurrentCacheMap: lookups don't take any lock, and least recently used entries are
+ * evicted when number of entries exceeds the configured limit.
+ */
+public class RangerAccessDecisionCache {
+	private static final Logger LOG = LoggerFactory.getLogger(RangerAccessDecisionCache.class);
+
+	private static final Logger PERF_DECISION_CACHE_LOG = RangerPerfTracer.getPerfLogger("policyengine.decisioncache");
+
+	public static final int DEFAULT_MAX_SIZE = 64 * 1024;
+
+	private final PolicyEngine                policyEngine;
+	private final int                         maxSize;
+	private final AtomicReference<Generation> generation        = new AtomicReference<>();
+	private final LongAdder                   hitCount          = new LongAdder();
+	private final LongAdder                   missCount         = new LongAdder();
+	private final LongAdder                   evictionCount     = new LongAdder();
+	private final LongAdder                   invalidationCount = new LongAdder();
+
+	public RangerAccessDecisionCache(PolicyEngine policyEngine, int maxSize) {
+		this.policyEngine = policyEngine;
+		this.maxSize      = maxSize > 0 ? maxSize : DEFAULT_MAX_SIZE;
+	}
+
+	public int getMaxSize() { return maxSize; }
+
+	public int getSize() {
+		Generation current = generation.get();
+
+		return current != null && current.entries != null ? current.entries.size() : 0;
+	}
+
+	public long getHitCount() { return hitCount.sum(); }
+
+	public long getMissCount() { return missCount.sum(); }
+
+	public long getEvictionCount() {
+		Generation current = generation.get();
+
+		return evictionCount.sum() + (current != null && current.entries != null ? current.entries.getEvictionCount() : 0);
+	}
+
+	public long getInvalidationCount() { return invalidationCount.sum(); }
+
+	/*
+	 * Returns the cache-key for the request; null if the result of this request should not be cached
+	 */
+	public CacheKey getCacheKey(RangerAccessRequest request, int policyType) {
+		CacheKey ret = null;
+
+		if (policyType == RangerPolicy.POLICY_TYPE_ACCESS && isCacheable(request) && getGeneration().isCacheable) {
+			ret = new CacheKey(request, policyType);
+		}
+
+		return ret;
+	}
+
+	/*
+	 * Returns the cached result for the given request, or null if not found
+	 */
+	public RangerAccessResult get(CacheKey key, RangerAccessRequest request) {
+		RangerAccessResult                         ret     = null;
+		ConcurrentCacheMap<CacheKey, CachedResult> entries = getGeneration().entries;
+		CachedResult                               cached  = entries != null ? entries.get(key) : null;
+
+		if (cached != null) {
+			ret = cached.toResult(request);
+
+			hitCount.increment();
+		} else {
+			missCount.increment();
+		}
+
+		if (RangerPerfTracer.isPerfTraceEnabled(PERF_DECISION_CACHE_LOG)) {
+			RangerPerfTracer.log(RangerPerfTracer.getPerfTracer(PERF_DECISION_CACHE_LOG, (cached != null ? "RangerAccessDecisionCache.hit" : "RangerAccessDecisionCache.miss") + "(resource=" + request.getResource().getAsString() + ")"));
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("RangerAccessDecisionCache.get(" + key + "): " + (cached != null ? "hit" : "miss"));
+		}
+
+		return ret;
+	}
+
+	public void put(CacheKey key, RangerAccessResult result) {
+		if (key == null || result == null) {
+			return;
+		}
+
+		ConcurrentCacheMap<CacheKey, CachedResult> entries = getGeneration().entries;
+
+		if (entries != null) {
+			entries.put(key.copy(), new CachedResult(result));
+		}
+	}
+
+	public void clear() {
+		generation.set(null);
+	}
+
+	@Override
+	public String toString() {
+		return "RangerAccessDecisionCache={maxSize=" + maxSize + ", size=" + getSize() + ", hitCount=" + getHitCount() + ", missCount=" + getMissCount() + ", evictionCount=" + getEvictionCount() + ", invalidationCount=" + getInvalidationCount() + "}";
+	}
+
+	private boolean isCacheable(RangerAccessRequest request) {
+		final boolean ret;
+
+		if (request.isAccessTypeAny() || request.getResource() == null) {
+			ret = false;
+		} else {
+			Map<String, Object> context = request.getContext();
+
+			ret = MapUtils.isEmpty(context) ||
+			      (CollectionUtils.isEmpty(RangerAccessRequestUtil.getRequestTagsFromContext(context)) &&
+			       RangerAccessRequestUtil.getGdsResultFromContext(context) == null &&
+			       !context.containsKey(RangerAccessRequestUtil.KEY_CONTEXT_ALL_ACCESSTYPES) &&
+			       !context.containsKey(RangerAccessRequestUtil.KEY_CONTEXT_ALL_ACCESSTYPE_GROUPS) &&
+			       !context.containsKey(RangerAccessRequestUtil.KEY_CONTEXT_IGNORE_IF_NOT_DENIED_ACCESSTYPES));
+		}
+
+		return ret;
+	}
+
+	private Generation getGeneration() {
+		long       policyVersion = policyEngine.getPolicyVersion();
+		long       roleVersion   = policyEngine.getRoleVersion();
+		Generation ret           = generation.get();
+
+		if (ret == null || ret.policyVersion != policyVersion || ret.roleVersion != roleVersion) {
+			Generation current = ret;
+
+			ret = new Generation(policyVersion, roleVersion, !policyEngine.hasContextSensitiveAccessPolicies(), maxSize);
+
+			if (generation.compareAndSet(current, ret)) {
+				if (current != null) {
+					invalidationCount.increment();
+
+					if (current.entries != null) {
+						evictionCount.add(current.entries.getEvictionCount());
+					}
+				}
+
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("RangerAccessDecisionCache: started new generation(policyVersion=" + policyVersion + ", roleVersion=" + roleVersion + ", isCacheable=" + ret.isCacheable + ")");
+				}
+			} else { // another thread created the generation
+				ret = generation.get();
+			}
+		}
+
+		return ret;
+	}
+
+	private static final class Generation {
+		final long                                       policyVersion;
+		final long                                       roleVersion;
+		final boolean                                    isCacheable;
+		final ConcurrentCacheMap<CacheKey, CachedResult> entries;
+
+		Generation(long policyVersion, long roleVersion, boolean isCacheable, int maxSize) {
+			this.policyVersion = policyVersion;
+			this.roleVersion   = roleVersion;
+			this.isCacheable   = isCacheable;
+			this.entries       = isCacheable ? new ConcurrentCacheMap<>(maxSize) : null;
+		}
+	}
+
+	public static final class CacheKey {
+		private final String                                    user;
+		private final Set<String>                               userGroups;
+		private final Set<String>                               userRoles;
+		private final String                                    resource;
+		private final String                                    owner;
+		private final String                                    accessType;
+		private final int                                       policyType;
+		private final ResourceMatchingScope                     matchingScope;
+		private final Map<String, ResourceElementMatchingScope> elementMatchingScopes;
+		private final boolean                                   ignoreDescendantDeny;
+		private final int                                       hashCode;
+
+		CacheKey(RangerAccessRequest request, int policyType) {
+			this(request.getUser(), request.getUserGroups(), request.getUserRoles(), request.getResource().getCacheKey(), request.getResource().getOwnerUser(),
+			     request.getAccessType(), policyType, request.getResourceMatchingScope(), request.getResourceElementMatchingScopes(), request.ignoreDescendantDeny());
+		}
+
+		private CacheKey(String user, Set<String> userGroups, Set<String> userRoles, String resource, String owner, String accessType, int policyType,
+		                 ResourceMatchingScope matchingScope, Map<String, ResourceElementMatchingScope> elementMatchingScopes, boolean ignoreDescendantDeny) {
+			this.user                  = user;
+			this.userGroups            = userGroups != null ? userGroups : Collections.emptySet();
+			this.userRoles             = userRoles != null ? userRoles : Collections.emptySet();
+			this.resource              = resource;
+			this.owner                 = owner;
+			this.accessType            = accessType;
+			this.policyType            = policyType;
+			this.matchingScope         = matchingScope;
+			this.elementMatchingScopes = elementMatchingScopes != null ? elementMatchingScopes : Collections.emptyMap();
+			this.ignoreDescendantDeny  = ignoreDescendantDeny;
+			this.hashCode              = Objects.hash(user, this.userGroups, this.userRoles, resource, owner, accessType, policyType, matchingScope, this.elementMatchingScopes, ignoreDescendantDeny);
+		}
+
+		// keys stored in the cache must not share collections with the request, which can be modified by the caller
+		CacheKey copy() {
+			return new CacheKey(user, new HashSet<>(userGroups), new HashSet<>(userRoles), resource, owner, accessType, policyType,
+			                    matchingScope, elementMatchingScopes.isEmpty() ? elementMatchingScopes : new HashMap<>(elementMatchingScopes), ignoreDescendantDeny);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			} else if (!(obj instanceof CacheKey)) {
+				return false;
+			}
+
+			CacheKey other = (CacheKey) obj;
+
+			return hashCode == other.hashCode &&
+			       policyType == other.policyType &&
+			       ignoreDescendantDeny == other.ignoreDescendantDeny &&
+			       matchingScope == other.matchingScope &&
+			       Objects.equals(user, other.user) &&
+			       Objects.equals(accessType, other.accessType) &&
+			       Objects.equals(resource, other.resource) &&
+			       Objects.equals(owner, other.owner) &&
+			       Objects.equals(userGroups, other.userGroups) &&
+			       Objects.equals(userRoles, other.userRoles) &&
+			       Objects.equals(elementMatchingScopes, other.elementMatchingScopes);
+		}
+
+		@Override
+		public String toString() {
+			return "CacheKey={user=" + user + ", userGroups=" + userGroups + ", userRoles=" + userRoles + ", resource=" + resource + ", owner=" + owner +
+			       ", accessType=" + accessType + ", policyType=" + policyType + ", matchingScope=" + matchingScope + ", elementMatchingScopes=" + elementMatchingScopes +
+			       ", ignoreDescendantDeny=" + ignoreDescendantDeny + "}";
+		}
+	}
+
+	private static final class CachedResult {
+		private final RangerAccessResult result;
+
+		CachedResult(RangerAccessResult result) {
+			// copy, as the result returned to the caller would be updated further, for example by audit evaluation
+			this.result = new RangerAccessResult(result.getPolicyType(), result.getServiceName(), result.getServiceDef(), null);
+
+			this.result.setAccessResultFrom(result);
+			this.result.setAuditResultFrom(result);
+		}
+
+		RangerAccessResult toResult(RangerAccessRequest request) {
+			RangerAccessResult ret = new RangerAccessResult(result.getPolicyType(), result.getServiceName(), result.getServiceDef(), request);
+
+			ret.setAccessResultFrom(result);
+			ret.setAuditResultFrom(result);
+
+			return ret;
+		}
+	}
+}
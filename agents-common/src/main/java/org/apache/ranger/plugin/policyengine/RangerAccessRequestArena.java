@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/*
+ * Requests reused across authorization calls made by a thread, to avoid allocating a request and its context map for
+ * each call. Lifecycle:
+ *   - begin(): called before the first acquire() of an outer call, like checkPermission() in HDFS
+ *   - acquire(): returns a request in the state after its default constructor
+ *   - end(): called after the results of the outer call, and the requests they refer to, are no longer used - for
+ *            example after audit events are created from them. Requests acquired since begin() are reset for reuse.
+ * Instances are not thread-safe; use one instance per thread, for example via forThread(). An arena in use by an
+ * enclosing call in the same thread returns false from begin(); such callers should use a new arena instead.
+ */
+public class RangerAccessRequestArena<T extends RangerAccessRequestImpl> {
+	public static final int DEFAULT_MAX_RETAINED = 64;
+
+	private final Supplier<T> factory;
+	private final int         maxRetained;
+	private final List<T>     requests = new ArrayList<>();
+	private       int         acquired = 0;
+	private       boolean     isActive = false;
+
+	public RangerAccessRequestArena(Supplier<T> factory) {
+		this(factory, DEFAULT_MAX_RETAINED);
+	}
+
+	public RangerAccessRequestArena(Supplier<T> factory, int maxRetained) {
+		this.factory     = factory;
+		this.maxRetained = maxRetained;
+	}
+
+	public static <T extends RangerAccessRequestImpl> ThreadLocal<RangerAccessRequestArena<T>> forThread(Supplier<T> factory) {
+		return ThreadLocal.withInitial(() -> new RangerAccessRequestArena<>(factory));
+	}
+
+	public boolean begin() {
+		boolean ret = !isActive;
+
+		isActive = true;
+
+		return ret;
+	}
+
+	public T acquire() {
+		final T ret;
+
+		if (acquired < requests.size()) {
+			ret = requests.get(acquired++);
+		} else {
+			ret = factory.get();
+
+			if (requests.size() < maxRetained) { // requests beyond this are left to GC, to bound memory held by the thread
+				requests.add(ret);
+
+				acquired++;
+			}
+		}
+
+		return ret;
+	}
+
+	public void end() {
+		for (int i = 0; i < acquired; i++) {
+			requests.get(i).reset();
+		}
+
+		acquired = 0;
+		isActive = false;
+	}
+
+	public boolean isActive() {
+		return isActive;
+	}
+
+	public int getRetainedCount() {
+		return requests.size();
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.plugin.service.RangerAuthContext;
+
+import java.util.Set;
+
+/*
+ * Holds results of pre-processing that can be shared by requests of the same batch. A batch context is used only for
+ * the duration of one evaluatePolicies(Collection) call, hence it doesn't need to track changes to users/groups/roles;
+ * it is thread-safe, as requests of a batch can be pre-processed in parallel.
+ */
+public class RangerAccessRequestBatchContext {
+	public Set<String> getRolesForUserAndGroups(String user, Set<String> groups, RangerAuthContext authContext) {
+		return authContext.getRangerRolesUtil().getRolesForUserAndGroups(user, groups); // memoized per (user, groups) by RangerRolesUtil; shared, unmodifiable set
+	}
+}
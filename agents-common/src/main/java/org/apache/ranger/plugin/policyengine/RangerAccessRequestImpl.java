@@ -307,6 +307,49 @@ public void setContext(Map<String, Object> context) {
 		}
 	}
 
+	/*
+	 * Restores this request to the state after construction with default constructor, for reuse by
+	 * RangerAccessRequestArena. The context map is cleared and retained, instead of allocating a new map.
+	 */
+	public void reset() {
+		Map<String, Object> context = this.context;
+
+		setResource(null);
+		setAccessType(null);
+		setUser(null);
+
+		if (!userGroups.isEmpty()) { // retain empty collections, instead of allocating new ones
+			setUserGroups(null);
+		}
+
+		if (!userRoles.isEmpty()) {
+			setUserRoles(null);
+		}
+
+		if (!forwardedAddresses.isEmpty()) {
+			setForwardedAddresses(null);
+		}
+
+		setAccessTime(null);
+		setClientIPAddress(null);
+		setRemoteIPAddress(null);
+		setClientType(null);
+		setAction(null);
+		setRequestData(null);
+		setSessionId(null);
+		setClusterName(null);
+		setClusterType(null);
+		setIgnoreDescendantDeny(null);
+		setResourceMatchingScope(ResourceMatchingScope.SELF);
+		setResourceElementMatchingScopes(null);
+
+		if (context != null) {
+			context.clear();
+		}
+
+		setContext(context);
+	}
+
 	public void extractAndSetClientIPAddress(boolean useForwardedIPAddress, String[] trustedProxyAddresses) {
 		String ip = getRemoteIPAddress();
 		if (ip == null) {
@@ -22,5 +22,7 @@
 public interface RangerAccessRequestProcessor {
     void preProcess(RangerAccessRequest request);
 
+    default void preProcess(RangerAccessRequest request, RangerAccessRequestBatchContext batchContext) { preProcess(request); }
+
     default void enrich(RangerAccessRequest request) {}
 }
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.util.RangerEvalOrderIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Usage-driven evaluation order of access policy evaluators. For a sample of requests, the evaluator that determined the
+ * access decision is counted; every reorderIntervalMs a shared background thread folds the counts into a decaying score
+ * per evaluator and re-publishes the order, with evaluators having higher scores evaluated earlier. Request threads
+ * only increment counters.
+ *
+ * Only the order of evaluators having the same priority and the same hasDeny() is changed. Within such a group the
+ * access decision doesn't depend on the order: an allow from a policy without deny is final only after all policies
+ * with deny (and of higher priority) are evaluated, and a deny overrides an earlier allow from the same group.
+ * Ties are broken by EVAL_ORDER_COMPARATOR, so that the order is the static order until usage is recorded.
+ */
+public class RangerAdaptiveEvalOrder {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerAdaptiveEvalOrder.class);
+
+    public static final long   DEFAULT_REORDER_INTERVAL_MS = 60 * 1000L;
+    public static final int    DEFAULT_SAMPLE_RATE         = 8;
+    public static final double SCORE_DECAY                 = 0.5;
+
+    private static final ScheduledExecutorService REORDER_EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread ret = new Thread(runnable, "RangerAdaptiveEvalOrder-reorder");
+
+        ret.setDaemon(true);
+
+        return ret;
+    });
+
+    private final    Map<RangerPolicyEvaluator, Stats>           stats;
+    private final    int                                         sampleRate;
+    private final    AtomicBoolean                               isReordering = new AtomicBoolean(false);
+    private final    ScheduledFuture<?>                          reorderTask; // null when reorder() is only called explicitly
+    private volatile RangerEvalOrderIndex<RangerPolicyEvaluator> evalOrderIndex;
+
+    /*
+     * Scores of evaluators present in other are carried over, so that the usage-driven order survives policy deltas.
+     */
+    public RangerAdaptiveEvalOrder(Collection<RangerPolicyEvaluator> evaluators, long reorderIntervalMs, int sampleRate, RangerAdaptiveEvalOrder other) {
+        RangerEvalOrderIndex<RangerPolicyEvaluator> staticOrder = new RangerEvalOrderIndex<>(evaluators, RangerPolicyEvaluator.EVAL_ORDER_COMPARATOR);
+
+        this.stats      = new IdentityHashMap<>(staticOrder.size());
+        this.sampleRate = Math.max(sampleRate, 1);
+
+        for (RangerPolicyEvaluator evaluator : staticOrder.getValuesInOrder()) {
+            Stats otherStats = other != null ? other.stats.get(evaluator) : null;
+
+            stats.put(evaluator, new Stats(staticOrder.getOrdinal(evaluator), otherStats != null ? otherStats.score : 0));
+        }
+
+        this.evalOrderIndex = other != null ? new RangerEvalOrderIndex<>(stats.keySet(), new AdaptiveEvalOrderComparator()) : staticOrder;
+        this.reorderTask    = reorderIntervalMs > 0 && reorderIntervalMs < Long.MAX_VALUE ? ReorderTask.schedule(this, reorderIntervalMs) : null;
+    }
+
+    public RangerEvalOrderIndex<RangerPolicyEvaluator> getEvalOrderIndex() {
+        return evalOrderIndex;
+    }
+
+    public List<RangerPolicyEvaluator> getEvaluatorsInOrder() {
+        return evalOrderIndex.getValuesInOrder();
+    }
+
+    /*
+     * Called after evaluation of a request with the evaluator that determined the access decision. Cheap enough to be
+     * called for every request: only a sample of calls update the striped counter of the evaluator, and reordering is
+     * left to the background thread.
+     */
+    public void recordDetermined(RangerPolicyEvaluator evaluator) {
+        if (sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0) {
+            Stats evaluatorStats = stats.get(evaluator);
+
+            if (evaluatorStats != null) {
+                evaluatorStats.determinedCount.increment();
+            }
+        }
+    }
+
+    /*
+     * Folds the counts recorded since the last call into the scores, and re-publishes the order if it changed. Returns
+     * false if another thread is reordering.
+     */
+    public boolean reorder() {
+        boolean ret = isReordering.compareAndSet(false, true);
+
+        if (ret) {
+            try {
+                for (Stats evaluatorStats : stats.values()) {
+                    evaluatorStats.score = evaluatorStats.score * SCORE_DECAY + evaluatorStats.determinedCount.sumThenReset();
+                }
+
+                RangerEvalOrderIndex<RangerPolicyEvaluator> current = evalOrderIndex;
+                RangerEvalOrderIndex<RangerPolicyEvaluator> updated = new RangerEvalOrderIndex<>(current.getValuesInOrder(), new AdaptiveEvalOrderComparator());
+
+                if (!updated.getValuesInOrder().equals(current.getValuesInOrder())) {
+                    evalOrderIndex = updated;
+
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("RangerAdaptiveEvalOrder.reorder(): re-published order of " + updated.size() + " evaluators");
+                    }
+                }
+
+            } finally {
+                isReordering.set(false);
+            }
+        }
+
+        return ret;
+    }
+
+    /*
+     * Stops the periodic reorder. Orders that are just dropped stop being reordered once they are garbage collected.
+     */
+    public void close() {
+        if (reorderTask != null) {
+            reorderTask.cancel(false);
+        }
+    }
+
+    /*
+     * Holds the order only weakly, so that a scheduled task doesn't keep a replaced order - and its evaluators - alive.
+     */
+    private static class ReorderTask implements Runnable {
+        private final    WeakReference<RangerAdaptiveEvalOrder> evalOrder;
+        private volatile ScheduledFuture<?>                     future;
+
+        private ReorderTask(RangerAdaptiveEvalOrder evalOrder) {
+            this.evalOrder = new WeakReference<>(evalOrder);
+        }
+
+        static ScheduledFuture<?> schedule(RangerAdaptiveEvalOrder evalOrder, long reorderIntervalMs) {
+            ReorderTask ret = new ReorderTask(evalOrder);
+
+            ret.future = REORDER_EXECUTOR.scheduleWithFixedDelay(ret, reorderIntervalMs, reorderIntervalMs, TimeUnit.MILLISECONDS);
+
+            return ret.future;
+        }
+
+        @Override
+        public void run() {
+            RangerAdaptiveEvalOrder evalOrder = this.evalOrder.get();
+
+            if (evalOrder == null) {
+                ScheduledFuture<?> future = this.future;
+
+                if (future != null) {
+                    future.cancel(false);
+                }
+            } else {
+                try {
+                    evalOrder.reorder();
+                } catch (Throwable excp) { // an exception would cancel further runs
+                    LOG.error("RangerAdaptiveEvalOrder.reorder() failed", excp);
+                }
+            }
+        }
+    }
+
+    private static class Stats {
+        final LongAdder determinedCount = new LongAdder();
+        final int       staticOrdinal;
+        double          score; // updated only while holding isReordering
+
+        Stats(int staticOrdinal, double score) {
+            this.staticOrdinal = staticOrdinal;
+            this.score         = score;
+        }
+    }
+
+    private class AdaptiveEvalOrderComparator implements Comparator<RangerPolicyEvaluator> {
+        @Override
+        public int compare(RangerPolicyEvaluator me, RangerPolicyEvaluator other) {
+            Stats meStats    = stats.get(me);
+            Stats otherStats = stats.get(other);
+            int   ret        = Integer.compare(other.getPolicyPriority(), me.getPolicyPriority());
+
+            if (ret == 0 && me.hasDeny() != other.hasDeny()) {
+                ret = me.hasDeny() ? -1 : 1;
+            }
+
+            if (ret == 0) {
+                ret = Double.compare(otherStats.score, meStats.score);
+            }
+
+            return ret == 0 ? Integer.compare(meStats.staticOrdinal, otherStats.staticOrdinal) : ret;
+        }
+    }
+}
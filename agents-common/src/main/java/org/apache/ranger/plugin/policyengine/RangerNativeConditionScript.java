@@ -0,0 +1,515 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.apache.ranger.plugin.util.RangerCommonConstants.*;
+
+/*
+ * Evaluates a subset of condition scripts in Java, without a script engine:
+ *  - boolean operators: &&, ||, ! and parentheses
+ *  - comparisons ==, !=, ===, !==, <, <=, >, >= of string/number literals, USER.attr, USER['attr'], TAG.attr, TAG['attr']
+ *  - boolean macros like HAS_TAG('PII'), IS_IN_GROUP('finance'), IS_IN_ANY_ROLE, IS_ACCESS_TIME_AFTER('2024/01/01')
+ * Comparisons follow JavaScript semantics for strings, numbers and undefined (i.e. a missing attribute).
+ * compile() returns null for scripts outside this subset; such scripts must be evaluated by the script engine.
+ */
+public class RangerNativeConditionScript {
+	private static final Logger LOG = LoggerFactory.getLogger(RangerNativeConditionScript.class);
+
+	private static final Pattern JS_NUMBER_PATTERN = Pattern.compile("[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?");
+	private static final Pattern JS_HEX_PATTERN    = Pattern.compile("0[xX][0-9a-fA-F]{1,15}");
+
+	private final String   script;
+	private final BoolExpr expr;
+
+	private RangerNativeConditionScript(String script, BoolExpr expr) {
+		this.script = script;
+		this.expr   = expr;
+	}
+
+	public static RangerNativeConditionScript compile(String script) {
+		RangerNativeConditionScript ret = null;
+
+		if (script != null) {
+			try {
+				BoolExpr expr = new Parser(script).parse();
+
+				if (expr != null) {
+					ret = new RangerNativeConditionScript(script, expr);
+				}
+			} catch (NativeParseException excp) {
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("RangerNativeConditionScript.compile(" + script + "): not supported - " + excp.getMessage());
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	public String getScript() {
+		return script;
+	}
+
+	public boolean evaluate(RangerRequestScriptEvaluator ctx) {
+		return expr.evaluate(ctx);
+	}
+
+	private interface BoolExpr {
+		boolean evaluate(RangerRequestScriptEvaluator ctx);
+	}
+
+	// evaluates to a String, a Double or null (undefined)
+	private interface ValueExpr {
+		Object evaluate(RangerRequestScriptEvaluator ctx);
+	}
+
+	private enum TokenType { IDENT, STRING, NUMBER, OPERATOR, END }
+
+	// thrown by the parser for expressions it doesn't support, which are then left to the script engine
+	private static class NativeParseException extends Exception {
+		NativeParseException(String message) {
+			super(message);
+		}
+	}
+
+	private static class Token {
+		final TokenType type;
+		final String    text;
+
+		Token(TokenType type, String text) {
+			this.type = type;
+			this.text = text;
+		}
+
+		boolean is(TokenType type, String text) {
+			return this.type == type && this.text.equals(text);
+		}
+	}
+
+	private static class Parser {
+		private static final String[] OPERATORS = { "===", "!==", "==", "!=", "<=", ">=", "&&", "||", "<", ">", "!", "(", ")", "[", "]", ".", "," };
+
+		private final List<Token> tokens;
+		private       int         pos = 0;
+
+		Parser(String script) throws NativeParseException {
+			this.tokens = tokenize(script);
+		}
+
+		BoolExpr parse() throws NativeParseException {
+			BoolExpr ret = parseOr();
+
+			expect(TokenType.END, "");
+
+			return ret;
+		}
+
+		private BoolExpr parseOr() throws NativeParseException {
+			BoolExpr ret = parseAnd();
+
+			while (accept(TokenType.OPERATOR, "||")) {
+				BoolExpr left  = ret;
+				BoolExpr right = parseAnd();
+
+				ret = ctx -> left.evaluate(ctx) || right.evaluate(ctx);
+			}
+
+			return ret;
+		}
+
+		private BoolExpr parseAnd() throws NativeParseException {
+			BoolExpr ret = parseUnary();
+
+			while (accept(TokenType.OPERATOR, "&&")) {
+				BoolExpr left  = ret;
+				BoolExpr right = parseUnary();
+
+				ret = ctx -> left.evaluate(ctx) && right.evaluate(ctx);
+			}
+
+			return ret;
+		}
+
+		private BoolExpr parseUnary() throws NativeParseException {
+			final BoolExpr ret;
+
+			if (accept(TokenType.OPERATOR, "!")) {
+				if (peek().type != TokenType.OPERATOR && !(peek().type == TokenType.IDENT && isBooleanName(peek().text))) {
+					throw new NativeParseException("'!' applies to the left operand of comparison"); // !a == b is (!a) == b
+				}
+
+				BoolExpr operand = parseUnary();
+
+				ret = ctx -> !operand.evaluate(ctx);
+			} else if (accept(TokenType.OPERATOR, "(")) {
+				ret = parseOr();
+
+				expect(TokenType.OPERATOR, ")");
+			} else if (peek().type == TokenType.IDENT && isBooleanName(peek().text)) {
+				ret = parseBooleanName(next().text);
+			} else {
+				ret = parseComparison();
+			}
+
+			return ret;
+		}
+
+		private BoolExpr parseComparison() throws NativeParseException {
+			ValueExpr left     = parseValue();
+			Token     operator = next();
+			ValueExpr right    = parseValue();
+
+			if (operator.type != TokenType.OPERATOR) {
+				throw new NativeParseException("expected comparison operator, found '" + operator.text + "'");
+			}
+
+			switch (operator.text) {
+				case "==":  return ctx -> looseEquals(left.evaluate(ctx), right.evaluate(ctx));
+				case "!=":  return ctx -> !looseEquals(left.evaluate(ctx), right.evaluate(ctx));
+				case "===": return ctx -> strictEquals(left.evaluate(ctx), right.evaluate(ctx));
+				case "!==": return ctx -> !strictEquals(left.evaluate(ctx), right.evaluate(ctx));
+				case "<":   return ctx -> compare(left.evaluate(ctx), right.evaluate(ctx), operator.text);
+				case "<=":  return ctx -> compare(left.evaluate(ctx), right.evaluate(ctx), operator.text);
+				case ">":   return ctx -> compare(left.evaluate(ctx), right.evaluate(ctx), operator.text);
+				case ">=":  return ctx -> compare(left.evaluate(ctx), right.evaluate(ctx), operator.text);
+			}
+
+			throw new NativeParseException("unsupported operator '" + operator.text + "'");
+		}
+
+		private ValueExpr parseValue() throws NativeParseException {
+			Token token = next();
+
+			if (token.type == TokenType.STRING) {
+				return ctx -> token.text;
+			} else if (token.type == TokenType.NUMBER) {
+				Double value = Double.valueOf(token.text);
+
+				return ctx -> value;
+			} else if (token.type == TokenType.IDENT && (token.text.equals(SCRIPT_VAR_USER) || token.text.equals(SCRIPT_VAR_TAG))) {
+				final String attrName;
+
+				if (accept(TokenType.OPERATOR, ".")) {
+					attrName = expect(TokenType.IDENT, null).text;
+				} else {
+					expect(TokenType.OPERATOR, "[");
+
+					attrName = expect(TokenType.STRING, null).text;
+
+					expect(TokenType.OPERATOR, "]");
+				}
+
+				if (token.text.equals(SCRIPT_VAR_USER)) {
+					return ctx -> ctx.getUserAttrValue(attrName);
+				} else {
+					return ctx -> ctx.getCurrentTagAttrValue(attrName);
+				}
+			}
+
+			throw new NativeParseException("unsupported value '" + token.text + "'");
+		}
+
+		private static boolean isBooleanName(String name) {
+			switch (name) {
+				case "true":
+				case "false":
+				case SCRIPT_MACRO_HAS_ANY_TAG:
+				case SCRIPT_MACRO_HAS_NO_TAG:
+				case SCRIPT_MACRO_IS_IN_ANY_GROUP:
+				case SCRIPT_MACRO_IS_IN_ANY_ROLE:
+				case SCRIPT_MACRO_IS_NOT_IN_ANY_GROUP:
+				case SCRIPT_MACRO_IS_NOT_IN_ANY_ROLE:
+				case SCRIPT_MACRO_HAS_TAG:
+				case SCRIPT_MACRO_HAS_USER_ATTR:
+				case SCRIPT_MACRO_HAS_UG_ATTR:
+				case SCRIPT_MACRO_HAS_TAG_ATTR:
+				case SCRIPT_MACRO_IS_IN_GROUP:
+				case SCRIPT_MACRO_IS_IN_ROLE:
+				case SCRIPT_MACRO_IS_ACCESS_TIME_AFTER:
+				case SCRIPT_MACRO_IS_ACCESS_TIME_BEFORE:
+				case SCRIPT_MACRO_IS_ACCESS_TIME_BETWEEN:
+					return true;
+			}
+
+			return false;
+		}
+
+		private BoolExpr parseBooleanName(String name) throws NativeParseException {
+			switch (name) {
+				case "true":                           return ctx -> true;
+				case "false":                          return ctx -> false;
+				case SCRIPT_MACRO_HAS_ANY_TAG:         return RangerRequestScriptEvaluator::hasAnyTag;
+				case SCRIPT_MACRO_HAS_NO_TAG:          return ctx -> !ctx.hasAnyTag();
+				case SCRIPT_MACRO_IS_IN_ANY_GROUP:     return RangerRequestScriptEvaluator::isInAnyGroup;
+				case SCRIPT_MACRO_IS_IN_ANY_ROLE:      return RangerRequestScriptEvaluator::isInAnyRole;
+				case SCRIPT_MACRO_IS_NOT_IN_ANY_GROUP: return ctx -> !ctx.isInAnyGroup();
+				case SCRIPT_MACRO_IS_NOT_IN_ANY_ROLE:  return ctx -> !ctx.isInAnyRole();
+			}
+
+			List<String> args = parseArgs();
+
+			switch (name) {
+				case SCRIPT_MACRO_HAS_TAG:       checkArgCount(name, args, 1, 1); return ctx -> ctx.hasTag(args.get(0));
+				case SCRIPT_MACRO_HAS_USER_ATTR: checkArgCount(name, args, 1, 1); return ctx -> ctx.hasUserAttr(args.get(0));
+				case SCRIPT_MACRO_HAS_UG_ATTR:   checkArgCount(name, args, 1, 1); return ctx -> ctx.hasUgAttr(args.get(0));
+				case SCRIPT_MACRO_HAS_TAG_ATTR:  checkArgCount(name, args, 1, 1); return ctx -> ctx.hasTagAttr(args.get(0));
+				case SCRIPT_MACRO_IS_IN_GROUP:   checkArgCount(name, args, 1, 1); return ctx -> ctx.isInGroup(args.get(0));
+				case SCRIPT_MACRO_IS_IN_ROLE:    checkArgCount(name, args, 1, 1); return ctx -> ctx.isInRole(args.get(0));
+				case SCRIPT_MACRO_IS_ACCESS_TIME_AFTER:
+					checkArgCount(name, args, 1, 2);
+					return ctx -> ctx.isAccessTimeBetween(args.get(0), null, args.size() > 1 ? args.get(1) : null);
+				case SCRIPT_MACRO_IS_ACCESS_TIME_BEFORE:
+					checkArgCount(name, args, 1, 2);
+					return ctx -> ctx.isAccessTimeBetween(null, args.get(0), args.size() > 1 ? args.get(1) : null);
+				case SCRIPT_MACRO_IS_ACCESS_TIME_BETWEEN:
+					checkArgCount(name, args, 2, 3);
+					return ctx -> ctx.isAccessTimeBetween(args.get(0), args.get(1), args.size() > 2 ? args.get(2) : null);
+			}
+
+			throw new NativeParseException("unsupported macro '" + name + "'");
+		}
+
+		private List<String> parseArgs() throws NativeParseException {
+			List<String> ret = new ArrayList<>();
+
+			expect(TokenType.OPERATOR, "(");
+
+			if (!accept(TokenType.OPERATOR, ")")) {
+				do {
+					ret.add(expect(TokenType.STRING, null).text);
+				} while (accept(TokenType.OPERATOR, ","));
+
+				expect(TokenType.OPERATOR, ")");
+			}
+
+			return ret;
+		}
+
+		private static void checkArgCount(String name, List<String> args, int min, int max) throws NativeParseException {
+			if (args.size() < min || args.size() > max) {
+				throw new NativeParseException(name + "(): unexpected number of arguments " + args.size());
+			}
+		}
+
+		private Token peek() {
+			return tokens.get(pos);
+		}
+
+		private Token next() {
+			Token ret = tokens.get(pos);
+
+			if (ret.type != TokenType.END) {
+				pos++;
+			}
+
+			return ret;
+		}
+
+		private boolean accept(TokenType type, String text) {
+			boolean ret = peek().is(type, text);
+
+			if (ret) {
+				pos++;
+			}
+
+			return ret;
+		}
+
+		private Token expect(TokenType type, String text) throws NativeParseException {
+			Token ret = next();
+
+			if (ret.type != type || (text != null && !ret.text.equals(text))) {
+				throw new NativeParseException("expected '" + (text != null ? text : type) + "', found '" + ret.text + "'");
+			}
+
+			return ret;
+		}
+
+		private static List<Token> tokenize(String script) throws NativeParseException {
+			List<Token> ret = new ArrayList<>();
+			int         len = script.length();
+			int         i   = 0;
+
+			while (i < len) {
+				char c = script.charAt(i);
+
+				if (Character.isWhitespace(c)) {
+					i++;
+				} else if (c == ';') { // allow trailing semicolons only
+					if (!script.substring(i).matches("[;\\s]*")) {
+						throw new NativeParseException("multiple statements");
+					}
+
+					break;
+				} else if (c == '\'' || c == '"') {
+					StringBuilder sb = new StringBuilder();
+
+					for (i++; i < len && script.charAt(i) != c; i++) {
+						char ch = script.charAt(i);
+
+						if (ch == '\\') {
+							char escaped = ++i < len ? script.charAt(i) : 0;
+
+							if (escaped != '\\' && escaped != '\'' && escaped != '"') {
+								throw new NativeParseException("unsupported escape sequence");
+							}
+
+							ch = escaped;
+						}
+
+						sb.append(ch);
+					}
+
+					if (i >= len) {
+						throw new NativeParseException("unterminated string");
+					}
+
+					i++;
+
+					ret.add(new Token(TokenType.STRING, sb.toString()));
+				} else if (Character.isDigit(c)) {
+					int start = i;
+
+					while (i < len && (Character.isDigit(script.charAt(i)) || script.charAt(i) == '.')) {
+						i++;
+					}
+
+					String number = script.substring(start, i);
+
+					if (!JS_NUMBER_PATTERN.matcher(number).matches() || (i < len && Character.isJavaIdentifierPart(script.charAt(i)))) {
+						throw new NativeParseException("unsupported number");
+					}
+
+					if (number.length() > 1 && number.charAt(0) == '0' && number.charAt(1) != '.') { // like 010: octal (i.e. 8) for the script engine
+						throw new NativeParseException("unsupported number");
+					}
+
+					ret.add(new Token(TokenType.NUMBER, number));
+				} else if (Character.isJavaIdentifierStart(c)) {
+					int start = i;
+
+					while (i < len && Character.isJavaIdentifierPart(script.charAt(i))) {
+						i++;
+					}
+
+					ret.add(new Token(TokenType.IDENT, script.substring(start, i)));
+				} else {
+					String operator = null;
+
+					for (String op : OPERATORS) {
+						if (script.startsWith(op, i)) {
+							operator = op;
+
+							break;
+						}
+					}
+
+					if (operator == null) {
+						throw new NativeParseException("unsupported character '" + c + "'");
+					}
+
+					i += operator.length();
+
+					ret.add(new Token(TokenType.OPERATOR, operator));
+				}
+			}
+
+			ret.add(new Token(TokenType.END, ""));
+
+			return ret;
+		}
+	}
+
+	static boolean looseEquals(Object left, Object right) {
+		if (left == null || right == null) {
+			return left == right;
+		} else if (left instanceof String && right instanceof String) {
+			return left.equals(right);
+		} else {
+			return toNumber(left) == toNumber(right); // NaN is not equal to anything
+		}
+	}
+
+	static boolean strictEquals(Object left, Object right) {
+		if (left == null || right == null) {
+			return left == right;
+		} else if (left instanceof Double && right instanceof Double) {
+			return (Double) left == (double) (Double) right;
+		} else {
+			return left.equals(right);
+		}
+	}
+
+	static boolean compare(Object left, Object right, String operator) {
+		final int cmp;
+
+		if (left instanceof String && right instanceof String) {
+			cmp = ((String) left).compareTo((String) right);
+		} else {
+			double l = toNumber(left);
+			double r = toNumber(right);
+
+			if (Double.isNaN(l) || Double.isNaN(r)) {
+				return false;
+			}
+
+			cmp = l < r ? -1 : (l > r ? 1 : 0);
+		}
+
+		switch (operator) {
+			case "<":  return cmp < 0;
+			case "<=": return cmp <= 0;
+			case ">":  return cmp > 0;
+			default:   return cmp >= 0;
+		}
+	}
+
+	// JavaScript ToNumber() for undefined, strings and numbers
+	static double toNumber(Object value) {
+		if (value instanceof Double) {
+			return (Double) value;
+		} else if (value == null) {
+			return Double.NaN;
+		}
+
+		String str = value.toString().trim();
+
+		if (str.isEmpty()) {
+			return 0;
+		} else if (JS_NUMBER_PATTERN.matcher(str).matches()) {
+			return Double.parseDouble(str);
+		} else if (JS_HEX_PATTERN.matcher(str).matches()) {
+			return Long.parseLong(str.substring(2), 16);
+		} else if (str.equals("Infinity") || str.equals("+Infinity")) {
+			return Double.POSITIVE_INFINITY;
+		} else if (str.equals("-Infinity")) {
+			return Double.NEGATIVE_INFINITY;
+		} else {
+			return Double.NaN;
+		}
+	}
+}
@@ -69,6 +69,13 @@ public interface RangerPolicyEngine {
 
 	Collection<RangerAccessResult> evaluatePolicies(Collection<RangerAccessRequest> requests, int policyType, RangerAccessResultProcessor resultProcessor);
 
+	/*
+	 * Evaluates row-filter policies for tableRequest and data-mask policies for each of columnRequests, which are
+	 * requests for columns of the table of tableRequest. Policies likely to match the table are looked up once and
+	 * shared by the column requests. tableRequest can be null, to evaluate only data-mask policies.
+	 */
+	RangerRowFilterAndDataMaskResult evaluateRowFilterAndDataMaskPolicies(RangerAccessRequest tableRequest, List<RangerAccessRequest> columnRequests, RangerAccessResultProcessor resultProcessor);
+
 	void evaluateAuditPolicies(RangerAccessResult result);
 
 	RangerResourceACLs getResourceACLs(RangerAccessRequest request);
@@ -50,9 +50,15 @@
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static org.apache.ranger.plugin.policyengine.PolicyEvaluatorForTag.MATCH_TYPE_COMPARATOR;
@@ -63,10 +69,20 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 	private static final Logger PERF_POLICYENGINE_REQUEST_LOG  = RangerPerfTracer.getPerfLogger("policyengine.request");
 	private static final Logger PERF_POLICYENGINE_AUDIT_LOG    = RangerPerfTracer.getPerfLogger("policyengine.audit");
 	private static final Logger PERF_POLICYENGINE_GET_ACLS_LOG = RangerPerfTracer.getPerfLogger("policyengine.getResourceACLs");
+	private static final Logger PERF_POLICYENGINE_BATCH_LOG    = RangerPerfTracer.getPerfLogger("policyengine.batch");
+
+	public static final int DEFAULT_BATCH_EVALUATION_MIN_SIZE = 64;
+
+	private static final int                        BATCH_EVALUATION_TASK_SIZE = 16;
+	private static final Map<Integer, ForkJoinPool> BATCH_EVALUATION_POOLS     = new ConcurrentHashMap<>();
 
 	private final PolicyEngine                 policyEngine;
 	private final RangerAccessRequestProcessor requestProcessor;
 	private final ServiceConfig                serviceConfig;
+	private final RangerAccessDecisionCache    decisionCache;
+	private final RangerResourceACLsCache      aclsCache;
+	private final ForkJoinPool                 batchEvaluationPool; // null when parallel batch evaluation is disabled
+	private final int                          batchEvaluationMinSize;
 
 
 	static public RangerPolicyEngine getPolicyEngine(final RangerPolicyEngineImpl other, final ServicePolicies servicePolicies) {
@@ -102,6 +118,11 @@ public RangerPolicyEngineImpl(ServicePolicies servicePolicies, RangerPluginConte
 		policyEngine     = new PolicyEngine(servicePolicies, pluginContext, roles, isUseReadWriteLock);
 		serviceConfig    = new ServiceConfig(servicePolicies.getServiceConfig());
 		requestProcessor = new RangerDefaultRequestProcessor(policyEngine);
+		decisionCache    = createDecisionCache(policyEngine);
+		aclsCache        = createResourceACLsCache(policyEngine);
+
+		batchEvaluationPool    = getBatchEvaluationPool(policyEngine);
+		batchEvaluationMinSize = getBatchEvaluationMinSize(policyEngine);
 	}
 
 	@Override
@@ -136,7 +157,7 @@ public RangerAccessResult evaluatePolicies(RangerAccessRequest request, int poli
 
 			requestProcessor.preProcess(request);
 
-			ret = zoneAwareAccessEvaluationWithNoAudit(request, policyType);
+			ret = evaluateAccessWithNoAudit(request, policyType);
 
 			if (resultProcessor != null) {
 				RangerPerfTracer perfAuditTracer = null;
@@ -177,12 +198,18 @@ public Collection<RangerAccessResult> evaluatePolicies(Collection<RangerAccessRe
 				}
 			}
 			if (requests != null) {
-				for (RangerAccessRequest request : requests) {
-					requestProcessor.preProcess(request);
+				RangerAccessRequestBatchContext batchContext = new RangerAccessRequestBatchContext();
 
-					RangerAccessResult result = zoneAwareAccessEvaluationWithNoAudit(request, policyType);
+				if (batchEvaluationPool != null && requests.size() >= batchEvaluationMinSize && isEachRequestDistinct(requests)) {
+					evaluatePoliciesInParallel(new ArrayList<>(requests), policyType, batchContext, ret);
+				} else {
+					for (RangerAccessRequest request : requests) {
+						requestProcessor.preProcess(request, batchContext);
+
+						RangerAccessResult result = evaluateAccessWithNoAudit(request, policyType);
 
-					ret.add(result);
+						ret.add(result);
+					}
 				}
 			}
 
@@ -198,6 +225,68 @@ public Collection<RangerAccessResult> evaluatePolicies(Collection<RangerAccessRe
 		return ret;
 	}
 
+	@Override
+	public RangerRowFilterAndDataMaskResult evaluateRowFilterAndDataMaskPolicies(RangerAccessRequest tableRequest, List<RangerAccessRequest> columnRequests, RangerAccessResultProcessor resultProcessor) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyEngineImpl.evaluateRowFilterAndDataMaskPolicies(" + tableRequest + ", " + columnRequests + ")");
+		}
+
+		RangerPerfTracer perf = null;
+
+		if (RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_REQUEST_LOG)) {
+			String requestHashCode = Integer.toHexString(System.identityHashCode(tableRequest)) + "_" + (columnRequests != null ? columnRequests.size() : 0);
+
+			perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_REQUEST_LOG, "RangerPolicyEngine.evaluateRowFilterAndDataMaskPolicies(requestHashCode=" + requestHashCode + ")");
+		}
+
+		final RangerRowFilterAndDataMaskResult ret;
+
+		try (RangerReadWriteLock.RangerLock readLock = policyEngine.getReadLock()) {
+			if (LOG.isDebugEnabled()) {
+				if (readLock.isLockingEnabled()) {
+					LOG.debug("Acquired lock - " + readLock);
+				}
+			}
+
+			RangerAccessRequestBatchContext                 batchContext    = new RangerAccessRequestBatchContext();
+			RangerPolicyRepository.ParentResourceEvaluators tableEvaluators = null;
+			RangerAccessResult                              rowFilterResult = null;
+			List<RangerAccessResult>                        dataMaskResults = new ArrayList<>(columnRequests != null ? columnRequests.size() : 0);
+
+			if (tableRequest != null) {
+				requestProcessor.preProcess(tableRequest, batchContext);
+
+				rowFilterResult = evaluateAccessWithNoAudit(tableRequest, RangerPolicy.POLICY_TYPE_ROWFILTER, null);
+
+				if (tableRequest.getResource() != null) {
+					tableEvaluators = new RangerPolicyRepository.ParentResourceEvaluators(tableRequest.getResource());
+				}
+			}
+
+			if (columnRequests != null) {
+				for (RangerAccessRequest columnRequest : columnRequests) {
+					requestProcessor.preProcess(columnRequest, batchContext);
+
+					dataMaskResults.add(evaluateAccessWithNoAudit(columnRequest, RangerPolicy.POLICY_TYPE_DATAMASK, tableEvaluators));
+				}
+			}
+
+			ret = new RangerRowFilterAndDataMaskResult(rowFilterResult, dataMaskResults);
+
+			if (resultProcessor != null) {
+				resultProcessor.processResults(ret.getAllResults());
+			}
+		}
+
+		RangerPerfTracer.log(perf);
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyEngineImpl.evaluateRowFilterAndDataMaskPolicies(" + tableRequest + ", " + columnRequests + "): " + ret);
+		}
+
+		return ret;
+	}
+
 	@Override
 	public void evaluateAuditPolicies(RangerAccessResult result) {
 		if (LOG.isDebugEnabled()) {
@@ -252,7 +341,7 @@ public RangerResourceACLs getResourceACLs(RangerAccessRequest request, Integer r
 			LOG.debug("==> RangerPolicyEngineImpl.getResourceACLs(request=" + request + ", policyType=" + requestedPolicyType + ")");
 		}
 
-		RangerResourceACLs ret  = new RangerResourceACLs();
+		RangerResourceACLs ret  = null;
 		RangerPerfTracer   perf = null;
 
 		if(RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_GET_ACLS_LOG)) {
@@ -268,73 +357,89 @@ public RangerResourceACLs getResourceACLs(RangerAccessRequest request, Integer r
 
 			requestProcessor.preProcess(request);
 
-			String zoneName = RangerAccessRequestUtil.getResourceZoneNameFromContext(request.getContext());
+			RangerResourceACLsCache.CacheKey cacheKey = aclsCache != null ? aclsCache.getCacheKey(request, requestedPolicyType) : null;
 
-			if (LOG.isDebugEnabled()) {
-				LOG.debug("zoneName:[" + zoneName + "]");
+			ret = cacheKey != null ? aclsCache.get(cacheKey) : null;
+
+			if (ret == null) {
+				ret = getResourceACLsNoCache(request, requestedPolicyType);
+
+				if (cacheKey != null) {
+					aclsCache.put(cacheKey, ret);
+				}
 			}
+		}
 
-			int[] policyTypes = requestedPolicyType == null ? RangerPolicy.POLICY_TYPES : new int[] { requestedPolicyType };
+		RangerPerfTracer.logAlways(perf);
 
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyEngineImpl.getResourceACLs(request=" + request + ", policyType=" + requestedPolicyType + ") : ret=" + ret);
+		}
 
-			for (int policyType : policyTypes) {
-				// if resource isn't applicable for the policyType, skip evaluating policies and gathering ACLs
-				// for example, following resources are not applicable for listed policy-types
-				//   - database: masking/row-filter policies
-				//   - table:    masking policies
-				//   - column:   row-filter policies
-				boolean requireExactMatch = (policyType == RangerPolicy.POLICY_TYPE_DATAMASK) || (policyType == RangerPolicy.POLICY_TYPE_ROWFILTER);
+		return ret;
+	}
 
-				if (!policyEngine.getServiceDefHelper().isValidHierarchy(policyType, request.getResource().getKeys(), requireExactMatch)) {
-					continue;
-				}
+	private RangerResourceACLs getResourceACLsNoCache(RangerAccessRequest request, Integer requestedPolicyType) {
+		RangerResourceACLs ret      = new RangerResourceACLs();
+		String             zoneName = RangerAccessRequestUtil.getResourceZoneNameFromContext(request.getContext());
 
-				List<RangerPolicyEvaluator> allEvaluators           = new ArrayList<>();
-				Map<Long, MatchType>        tagMatchTypeMap         = new HashMap<>();
-				Set<Long>                   policyIdForTemporalTags = new HashSet<>();
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("zoneName:[" + zoneName + "]");
+		}
 
-				getResourceACLEvaluatorsForZone(request, zoneName, policyType, allEvaluators, tagMatchTypeMap, policyIdForTemporalTags);
+		int[] policyTypes = requestedPolicyType == null ? RangerPolicy.POLICY_TYPES : new int[] { requestedPolicyType };
 
-				allEvaluators.sort(RangerPolicyEvaluator.EVAL_ORDER_COMPARATOR);
+		for (int policyType : policyTypes) {
+			// if resource isn't applicable for the policyType, skip evaluating policies and gathering ACLs
+			// for example, following resources are not applicable for listed policy-types
+			//   - database: masking/row-filter policies
+			//   - table:    masking policies
+			//   - column:   row-filter policies
+			boolean requireExactMatch = (policyType == RangerPolicy.POLICY_TYPE_DATAMASK) || (policyType == RangerPolicy.POLICY_TYPE_ROWFILTER);
 
-				if (CollectionUtils.isEmpty(allEvaluators)) {
-					continue;
-				}
+			if (!policyEngine.getServiceDefHelper().isValidHierarchy(policyType, request.getResource().getKeys(), requireExactMatch)) {
+				continue;
+			}
 
-				Integer policyPriority = null;
+			List<RangerPolicyEvaluator> allEvaluators           = new ArrayList<>();
+			Map<Long, MatchType>        tagMatchTypeMap         = new HashMap<>();
+			Set<Long>                   policyIdForTemporalTags = new HashSet<>();
 
-				for (RangerPolicyEvaluator evaluator : allEvaluators) {
-					if (policyPriority == null) {
-						policyPriority = evaluator.getPolicyPriority();
-					}
+			getResourceACLEvaluatorsForZone(request, zoneName, policyType, allEvaluators, tagMatchTypeMap, policyIdForTemporalTags);
 
-					if (policyPriority != evaluator.getPolicyPriority()) {
-						if (policyType == RangerPolicy.POLICY_TYPE_ACCESS) {
-							ret.finalizeAcls();
-						}
+			allEvaluators.sort(RangerPolicyEvaluator.EVAL_ORDER_COMPARATOR);
 
-						policyPriority = evaluator.getPolicyPriority();
-					}
+			if (CollectionUtils.isEmpty(allEvaluators)) {
+				continue;
+			}
 
-					boolean   isTemporalTagPolicy = policyIdForTemporalTags.contains(evaluator.getPolicyId());
-					MatchType tagMatchType        = tagMatchTypeMap.get(evaluator.getPolicyId());
+			Integer policyPriority = null;
 
-					// tag assigned to ANCESTORS must apply to SELF as well, to be consistent with policy evaluation in RangerDefaultPolicyEvaluator.evaluate()
-					if (tagMatchType == MatchType.ANCESTOR) {
-						tagMatchType = MatchType.SELF;
+			for (RangerPolicyEvaluator evaluator : allEvaluators) {
+				if (policyPriority == null) {
+					policyPriority = evaluator.getPolicyPriority();
+				}
+
+				if (policyPriority != evaluator.getPolicyPriority()) {
+					if (policyType == RangerPolicy.POLICY_TYPE_ACCESS) {
+						ret.finalizeAcls();
 					}
 
-					evaluator.getResourceACLs(request, ret, isTemporalTagPolicy, null, tagMatchType, policyEngine);
+					policyPriority = evaluator.getPolicyPriority();
 				}
 
-				ret.finalizeAcls();
-			}
-		}
+				boolean   isTemporalTagPolicy = policyIdForTemporalTags.contains(evaluator.getPolicyId());
+				MatchType tagMatchType        = tagMatchTypeMap.get(evaluator.getPolicyId());
 
-		RangerPerfTracer.logAlways(perf);
+				// tag assigned to ANCESTORS must apply to SELF as well, to be consistent with policy evaluation in RangerDefaultPolicyEvaluator.evaluate()
+				if (tagMatchType == MatchType.ANCESTOR) {
+					tagMatchType = MatchType.SELF;
+				}
 
-		if (LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerPolicyEngineImpl.getResourceACLs(request=" + request + ", policyType=" + requestedPolicyType + ") : ret=" + ret);
+				evaluator.getResourceACLs(request, ret, isTemporalTagPolicy, null, tagMatchType, policyEngine);
+			}
+
+			ret.finalizeAcls();
 		}
 
 		return ret;
@@ -366,6 +471,16 @@ public void setTrustedProxyAddresses(String[] trustedProxyAddresses) {
 
 	@Override
 	public RangerServiceDef getServiceDef() {
+		long stamp = policyEngine.tryOptimisticRead();
+
+		if (stamp != 0L) {
+			RangerServiceDef ret = policyEngine.getServiceDef();
+
+			if (policyEngine.validate(stamp)) {
+				return ret;
+			}
+		}
+
 		final RangerServiceDef ret;
 
 		try (RangerReadWriteLock.RangerLock readLock = policyEngine.getReadLock()) {
@@ -381,6 +496,16 @@ public RangerServiceDef getServiceDef() {
 
 	@Override
 	public RangerServiceDefHelper getServiceDefHelper() {
+		long stamp = policyEngine.tryOptimisticRead();
+
+		if (stamp != 0L) {
+			RangerServiceDefHelper ret = policyEngine.getServiceDefHelper();
+
+			if (policyEngine.validate(stamp)) {
+				return ret;
+			}
+		}
+
 		final RangerServiceDefHelper ret;
 
 		try (RangerReadWriteLock.RangerLock readLock = policyEngine.getReadLock()) {
@@ -396,6 +521,16 @@ public RangerServiceDefHelper getServiceDefHelper() {
 
 	@Override
 	public long getPolicyVersion() {
+		long stamp = policyEngine.tryOptimisticRead();
+
+		if (stamp != 0L) {
+			long ret = policyEngine.getPolicyVersion();
+
+			if (policyEngine.validate(stamp)) {
+				return ret;
+			}
+		}
+
 		long ret;
 
 		try (RangerReadWriteLock.RangerLock readLock = policyEngine.getReadLock()) {
@@ -412,6 +547,10 @@ public long getPolicyVersion() {
 	@Override
 	public long getRoleVersion() { return policyEngine.getRoleVersion(); }
 
+	public RangerAccessDecisionCache getDecisionCache() { return decisionCache; }
+
+	public RangerResourceACLsCache getResourceACLsCache() { return aclsCache; }
+
 	@Override
 	public void setRoles(RangerRoles roles) {
 		try (RangerReadWriteLock.RangerLock writeLock = policyEngine.getWriteLock()) {
@@ -601,9 +740,121 @@ private RangerPolicyEngineImpl(final PolicyEngine policyEngine, RangerPolicyEngi
 		this.policyEngine     = policyEngine;
 		this.requestProcessor = new RangerDefaultRequestProcessor(policyEngine);
 		this.serviceConfig    = new ServiceConfig(other.serviceConfig);
+		this.decisionCache    = createDecisionCache(policyEngine);
+		this.aclsCache        = createResourceACLsCache(policyEngine);
+
+		this.batchEvaluationPool    = other.batchEvaluationPool;
+		this.batchEvaluationMinSize = other.batchEvaluationMinSize;
+	}
+
+	private static RangerAccessDecisionCache createDecisionCache(PolicyEngine policyEngine) {
+		RangerAccessDecisionCache ret           = null;
+		RangerPluginContext       pluginContext = policyEngine.getPluginContext();
+		RangerPluginConfig        pluginConfig  = pluginContext != null ? pluginContext.getConfig() : null;
+
+		if (pluginConfig != null && pluginConfig.getPolicyEngineOptions() != null && pluginConfig.getPolicyEngineOptions().enableAccessDecisionCache) {
+			int maxSize = pluginConfig.getInt(pluginConfig.getPropertyPrefix() + ".policyengine.access.decision.cache.size", RangerAccessDecisionCache.DEFAULT_MAX_SIZE);
+
+			ret = new RangerAccessDecisionCache(policyEngine, maxSize);
+		}
+
+		return ret;
+	}
+
+	private static RangerResourceACLsCache createResourceACLsCache(PolicyEngine policyEngine) {
+		RangerResourceACLsCache ret           = null;
+		RangerPluginContext     pluginContext = policyEngine.getPluginContext();
+		RangerPluginConfig      pluginConfig  = pluginContext != null ? pluginContext.getConfig() : null;
+
+		if (pluginConfig != null && pluginConfig.getPolicyEngineOptions() != null && pluginConfig.getPolicyEngineOptions().enableResourceACLsCache) {
+			int maxSize = pluginConfig.getInt(pluginConfig.getPropertyPrefix() + ".policyengine.resource.acls.cache.size", RangerResourceACLsCache.DEFAULT_MAX_SIZE);
+
+			ret = new RangerResourceACLsCache(policyEngine, maxSize);
+		}
+
+		return ret;
+	}
+
+	private static ForkJoinPool getBatchEvaluationPool(PolicyEngine policyEngine) {
+		ForkJoinPool        ret           = null;
+		RangerPluginContext pluginContext = policyEngine.getPluginContext();
+		RangerPluginConfig  pluginConfig  = pluginContext != null ? pluginContext.getConfig() : null;
+
+		if (pluginConfig != null && pluginConfig.getPolicyEngineOptions() != null && pluginConfig.getPolicyEngineOptions().enableParallelBatchEvaluation) {
+			int parallelism = pluginConfig.getInt(pluginConfig.getPropertyPrefix() + ".policyengine.batch.evaluation.parallelism", Runtime.getRuntime().availableProcessors());
+
+			if (parallelism > 1) {
+				// pools are shared by all engine instances having the same parallelism, so that policy refreshes don't create new threads
+				ret = BATCH_EVALUATION_POOLS.computeIfAbsent(parallelism, p -> new ForkJoinPool(p, pool -> {
+					ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+
+					thread.setName("RangerBatchEvaluator-" + p + "-" + thread.getPoolIndex());
+
+					return thread;
+				}, null, false));
+			}
+		}
+
+		return ret;
+	}
+
+	private static int getBatchEvaluationMinSize(PolicyEngine policyEngine) {
+		RangerPluginContext pluginContext = policyEngine.getPluginContext();
+		RangerPluginConfig  pluginConfig  = pluginContext != null ? pluginContext.getConfig() : null;
+
+		return pluginConfig != null ? pluginConfig.getInt(pluginConfig.getPropertyPrefix() + ".policyengine.batch.evaluation.min.size", DEFAULT_BATCH_EVALUATION_MIN_SIZE) : DEFAULT_BATCH_EVALUATION_MIN_SIZE;
+	}
+
+	// pre-processing updates the request, hence the same request object can't be processed in multiple threads
+	private static boolean isEachRequestDistinct(Collection<RangerAccessRequest> requests) {
+		Set<RangerAccessRequest> seen = Collections.newSetFromMap(new IdentityHashMap<>(requests.size()));
+
+		for (RangerAccessRequest request : requests) {
+			if (!seen.add(request)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void evaluatePoliciesInParallel(List<RangerAccessRequest> requests, int policyType, RangerAccessRequestBatchContext batchContext, Collection<RangerAccessResult> results) {
+		RangerPerfTracer perf = null;
+
+		if (RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_BATCH_LOG)) {
+			perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_BATCH_LOG, "RangerPolicyEngine.evaluatePoliciesInParallel(batchSize=" + requests.size() + ")");
+		}
+
+		RangerAccessResult[] ret = new RangerAccessResult[requests.size()];
+
+		// the caller holds the read-lock of policyEngine until all tasks complete, so tasks don't need to acquire it
+		batchEvaluationPool.invoke(new BatchEvaluationTask(requests, policyType, batchContext, ret, 0, ret.length));
+
+		Collections.addAll(results, ret);
+
+		RangerPerfTracer.log(perf);
 	}
 
-	private RangerAccessResult zoneAwareAccessEvaluationWithNoAudit(RangerAccessRequest request, int policyType) {
+	private RangerAccessResult evaluateAccessWithNoAudit(RangerAccessRequest request, int policyType) {
+		return evaluateAccessWithNoAudit(request, policyType, null);
+	}
+
+	private RangerAccessResult evaluateAccessWithNoAudit(RangerAccessRequest request, int policyType, RangerPolicyRepository.ParentResourceEvaluators parentEvaluators) {
+		RangerAccessDecisionCache.CacheKey cacheKey = decisionCache != null ? decisionCache.getCacheKey(request, policyType) : null;
+		RangerAccessResult                 ret      = cacheKey != null ? decisionCache.get(cacheKey, request) : null;
+
+		if (ret == null) {
+			ret = zoneAwareAccessEvaluationWithNoAudit(request, policyType, parentEvaluators);
+
+			if (cacheKey != null) {
+				decisionCache.put(cacheKey, ret);
+			}
+		}
+
+		return ret;
+	}
+
+	private RangerAccessResult zoneAwareAccessEvaluationWithNoAudit(RangerAccessRequest request, int policyType, RangerPolicyRepository.ParentResourceEvaluators parentEvaluators) {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerPolicyEngineImpl.zoneAwareAccessEvaluationWithNoAudit(" + request + ", policyType =" + policyType + ")");
 		}
@@ -621,7 +872,7 @@ private RangerAccessResult zoneAwareAccessEvaluationWithNoAudit(RangerAccessRequ
 			// Evaluate default policies
 			policyRepository = policyEngine.getRepositoryForZone(null);
 
-			ret = evaluatePoliciesNoAudit(request, policyType, null, policyRepository, tagPolicyRepository);
+			ret = evaluatePoliciesNoAudit(request, policyType, null, policyRepository, tagPolicyRepository, parentEvaluators);
 
 			ret.setZoneName(null);
 		} else if (zoneNames.size() == 1 || request.isAccessTypeAny()) {
@@ -629,7 +880,7 @@ private RangerAccessResult zoneAwareAccessEvaluationWithNoAudit(RangerAccessRequ
 			for (String zoneName : zoneNames) {
 				policyRepository = policyEngine.getRepositoryForZone(zoneName);
 
-				ret = evaluatePoliciesNoAudit(request, policyType, zoneName, policyRepository, tagPolicyRepository);
+				ret = evaluatePoliciesNoAudit(request, policyType, zoneName, policyRepository, tagPolicyRepository, parentEvaluators);
 				ret.setZoneName(zoneName);
 
 				if (ret.getIsAllowed()) {
@@ -657,7 +908,7 @@ private RangerAccessResult zoneAwareAccessEvaluationWithNoAudit(RangerAccessRequ
 				}
 
 				if (policyRepository != null) {
-					accessResult = evaluatePoliciesNoAudit(request, policyType, someZone, policyRepository, tagPolicyRepository);
+					accessResult = evaluatePoliciesNoAudit(request, policyType, someZone, policyRepository, tagPolicyRepository, parentEvaluators);
 
 					if (accessResult.getIsAllowed()) {
 						if (LOG.isDebugEnabled()) {
@@ -680,7 +931,7 @@ private RangerAccessResult zoneAwareAccessEvaluationWithNoAudit(RangerAccessRequ
 		return ret;
 	}
 
-	private RangerAccessResult evaluatePoliciesNoAudit(RangerAccessRequest request, int policyType, String zoneName, RangerPolicyRepository policyRepository, RangerPolicyRepository tagPolicyRepository) {
+	private RangerAccessResult evaluatePoliciesNoAudit(RangerAccessRequest request, int policyType, String zoneName, RangerPolicyRepository policyRepository, RangerPolicyRepository tagPolicyRepository, RangerPolicyRepository.ParentResourceEvaluators parentEvaluators) {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerPolicyEngineImpl.evaluatePoliciesNoAudit(" + request + ", policyType =" + policyType + ", zoneName=" + zoneName + ")");
 		}
@@ -697,7 +948,7 @@ private RangerAccessResult evaluatePoliciesNoAudit(RangerAccessRequest request,
 			}
 		}
 
-		ret = evaluatePoliciesForOneAccessTypeNoAudit(request, policyType, zoneName, policyRepository, tagPolicyRepository);
+		ret = evaluatePoliciesForOneAccessTypeNoAudit(request, policyType, zoneName, policyRepository, tagPolicyRepository, parentEvaluators);
 
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("<== RangerPolicyEngineImpl.evaluatePoliciesNoAudit(" + request + ", policyType =" + policyType + ", zoneName=" + zoneName + "): " + ret);
@@ -706,7 +957,7 @@ private RangerAccessResult evaluatePoliciesNoAudit(RangerAccessRequest request,
 		return ret;
 	}
 
-	private RangerAccessResult evaluatePoliciesForOneAccessTypeNoAudit(RangerAccessRequest request, int policyType, String zoneName, RangerPolicyRepository policyRepository, RangerPolicyRepository tagPolicyRepository) {
+	private RangerAccessResult evaluatePoliciesForOneAccessTypeNoAudit(RangerAccessRequest request, int policyType, String zoneName, RangerPolicyRepository policyRepository, RangerPolicyRepository tagPolicyRepository, RangerPolicyRepository.ParentResourceEvaluators parentEvaluators) {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerPolicyEngineImpl.evaluatePoliciesForOneAccessTypeNoAudit(" + request + ", policyType =" + policyType + ", zoneName=" + zoneName + ")");
 		}
@@ -745,7 +996,10 @@ private RangerAccessResult evaluatePoliciesForOneAccessTypeNoAudit(RangerAccessR
 
 			ret.setIsAccessDetermined(false); // discard result by tag-policies, to evaluate resource policies for possible override
 
-			List<RangerPolicyEvaluator> evaluators = policyRepository.getLikelyMatchPolicyEvaluators(request, policyType);
+			List<RangerPolicyEvaluator>      evaluators      = policyRepository.getLikelyMatchPolicyEvaluators(request, policyType, parentEvaluators);
+			Predicate<RangerPolicyEvaluator> principalFilter = null;
+			boolean                          trackDecider    = policyType == RangerPolicy.POLICY_TYPE_ACCESS && policyRepository.getAdaptiveEvalOrder() != null;
+			RangerPolicyEvaluator            decider         = null;
 
 			for (RangerPolicyEvaluator evaluator : evaluators) {
 				if (!evaluator.isApplicable(accessTime)) {
@@ -770,8 +1024,24 @@ private RangerAccessResult evaluatePoliciesForOneAccessTypeNoAudit(RangerAccessR
 					}
 				}
 
-				ret.incrementEvaluatedPoliciesCount();
-				evaluator.evaluate(request, ret);
+				boolean isPrincipalMatch = true;
+
+				if (ret.getIsAuditedDetermined()) { // once audit is determined, policies whose items can't match the user don't change the result
+					if (principalFilter == null) {
+						principalFilter = policyRepository.getPrincipalFilter(request);
+					}
+
+					isPrincipalMatch = principalFilter == null || principalFilter.test(evaluator);
+				}
+
+				if (isPrincipalMatch) {
+					ret.incrementEvaluatedPoliciesCount();
+					evaluator.evaluate(request, ret);
+
+					if (trackDecider && ret.getPolicyId() == evaluator.getPolicyId()) {
+						decider = evaluator;
+					}
+				}
 
 				if (ret.getIsAllowed()) {
 					if (!evaluator.hasDeny()) { // No more deny policies left
@@ -784,6 +1054,10 @@ private RangerAccessResult evaluatePoliciesForOneAccessTypeNoAudit(RangerAccessR
 				}
 			}
 
+			if (decider != null && ret.getIsAccessDetermined() && ret.getPolicyId() == decider.getPolicyId()) {
+				policyRepository.recordAccessDeterminedBy(decider);
+			}
+
 			if (!ret.getIsAccessDetermined()) {
 				if (isDeniedByTags) {
 					ret.setIsAllowed(false);
@@ -1252,4 +1526,40 @@ public boolean isServiceAdmin(String userName) {
 			return serviceAdmins.contains(userName);
 		}
 	}
+
+	private final class BatchEvaluationTask extends RecursiveAction {
+		private final List<RangerAccessRequest>       requests;
+		private final int                             policyType;
+		private final RangerAccessRequestBatchContext batchContext;
+		private final RangerAccessResult[]            results;
+		private final int                             start;
+		private final int                             end;
+
+		BatchEvaluationTask(List<RangerAccessRequest> requests, int policyType, RangerAccessRequestBatchContext batchContext, RangerAccessResult[] results, int start, int end) {
+			this.requests     = requests;
+			this.policyType   = policyType;
+			this.batchContext = batchContext;
+			this.results      = results;
+			this.start        = start;
+			this.end          = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= BATCH_EVALUATION_TASK_SIZE) {
+				for (int i = start; i < end; i++) {
+					RangerAccessRequest request = requests.get(i);
+
+					requestProcessor.preProcess(request, batchContext);
+
+					results[i] = evaluateAccessWithNoAudit(request, policyType);
+				}
+			} else {
+				int mid = (start + end) >>> 1;
+
+				invokeAll(new BatchEvaluationTask(requests, policyType, batchContext, results, start, mid),
+				          new BatchEvaluationTask(requests, policyType, batchContext, results, mid, end));
+			}
+		}
+	}
 }
@@ -45,7 +45,12 @@ public class RangerPolicyEngineOptions {
 	public boolean optimizeTrieForSpace = false;
 	public boolean optimizeTagTrieForRetrieval = false;
 	public boolean optimizeTagTrieForSpace = false;
-
+	public boolean enableAccessDecisionCache = false;
+	public boolean enableParallelBatchEvaluation = false;
+	public boolean enableCompactTrieNodes = false;
+	public boolean disablePrincipalPrefilter = false;
+	public boolean enableAdaptiveEvalOrder = false;
+	public boolean enableResourceACLsCache = false;
 
 	private RangerServiceDefHelper serviceDefHelper;
 
@@ -71,6 +76,12 @@ public RangerPolicyEngineOptions(final RangerPolicyEngineOptions other) {
 		this.optimizeTrieForSpace = other.optimizeTrieForSpace;
 		this.optimizeTagTrieForRetrieval = other.optimizeTagTrieForRetrieval;
 		this.optimizeTagTrieForSpace = other.optimizeTagTrieForSpace;
+		this.enableAccessDecisionCache = other.enableAccessDecisionCache;
+		this.enableParallelBatchEvaluation = other.enableParallelBatchEvaluation;
+		this.enableCompactTrieNodes = other.enableCompactTrieNodes;
+		this.disablePrincipalPrefilter = other.disablePrincipalPrefilter;
+		this.enableAdaptiveEvalOrder = other.enableAdaptiveEvalOrder;
+		this.enableResourceACLsCache = other.enableResourceACLsCache;
 	}
 
 	public RangerPolicyEngineOptions(final RangerPolicyEngineOptions other, RangerServiceDefHelper serviceDefHelper) {
@@ -103,7 +114,12 @@ public void configureForPlugin(Configuration conf, String propertyPrefix) {
 		optimizeTrieForSpace = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.trie.for.space", false);
 		optimizeTagTrieForRetrieval = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.tag.trie.for.retrieval", false);
 		optimizeTagTrieForSpace = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.tag.trie.for.space", false);
-
+		enableAccessDecisionCache = conf.getBoolean(propertyPrefix + ".policyengine.option.enable.access.decision.cache", false);
+		enableParallelBatchEvaluation = conf.getBoolean(propertyPrefix + ".policyengine.option.enable.parallel.batch.evaluation", false);
+		enableCompactTrieNodes = conf.getBoolean(propertyPrefix + ".policyengine.option.enable.compact.trie.nodes", false);
+		disablePrincipalPrefilter = conf.getBoolean(propertyPrefix + ".policyengine.option.disable.principal.prefilter", false);
+		enableAdaptiveEvalOrder = conf.getBoolean(propertyPrefix + ".policyengine.option.enable.adaptive.eval.order", false);
+		enableResourceACLsCache = conf.getBoolean(propertyPrefix + ".policyengine.option.enable.resource.acls.cache", false);
 	}
 
 	public void configureDefaultRangerAdmin(Configuration conf, String propertyPrefix) {
@@ -201,6 +217,12 @@ public boolean equals(Object other) {
 					&& this.optimizeTagTrieForRetrieval == that.optimizeTagTrieForRetrieval
 					&& this.optimizeTagTrieForSpace == that.optimizeTagTrieForSpace
 					&& this.enableResourceMatcherReuse == that.enableResourceMatcherReuse
+					&& this.enableAccessDecisionCache == that.enableAccessDecisionCache
+					&& this.enableParallelBatchEvaluation == that.enableParallelBatchEvaluation
+					&& this.enableCompactTrieNodes == that.enableCompactTrieNodes
+					&& this.disablePrincipalPrefilter == that.disablePrincipalPrefilter
+					&& this.enableAdaptiveEvalOrder == that.enableAdaptiveEvalOrder
+					&& this.enableResourceACLsCache == that.enableResourceACLsCache
 			;
 		}
 		return ret;
@@ -245,6 +267,18 @@ public int hashCode() {
 		ret *= 2;
 		ret += enableResourceMatcherReuse ? 1 : 0;
 		ret *= 2;
+		ret += enableAccessDecisionCache ? 1 : 0;
+		ret *= 2;
+		ret += enableParallelBatchEvaluation ? 1 : 0;
+		ret *= 2;
+		ret += enableCompactTrieNodes ? 1 : 0;
+		ret *= 2;
+		ret += disablePrincipalPrefilter ? 1 : 0;
+		ret *= 2;
+		ret += enableAdaptiveEvalOrder ? 1 : 0;
+		ret *= 2;
+		ret += enableResourceACLsCache ? 1 : 0;
+		ret *= 2;
 		return ret;
 	}
 
@@ -270,6 +304,12 @@ public String toString() {
 				", optimizeTagTrieForRetrieval: " + optimizeTagTrieForRetrieval +
 				", optimizeTagTrieForSpace: " + optimizeTagTrieForSpace +
 				", enableResourceMatcherReuse: " + enableResourceMatcherReuse +
+				", enableAccessDecisionCache: " + enableAccessDecisionCache +
+				", enableParallelBatchEvaluation: " + enableParallelBatchEvaluation +
+				", enableCompactTrieNodes: " + enableCompactTrieNodes +
+				", disablePrincipalPrefilter: " + disablePrincipalPrefilter +
+				", enableAdaptiveEvalOrder: " + enableAdaptiveEvalOrder +
+				", enableResourceACLsCache: " + enableResourceACLsCache +
 				" }";
 
 	}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.ranger.plugin.policyevaluator.RangerOptimizedPolicyEvaluator;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerEvalOrderIndex;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/*
+ * Inverted index from users, groups and roles to ordinals of policy evaluators whose policy items reference them.
+ * Evaluators having public group, {USER} or deny-all-else match all users; evaluators having {OWNER} match the resource
+ * owner. Evaluators that don't expose the principals of their policy items are treated as matching all users.
+ */
+public class RangerPolicyPrincipalIndex {
+    private final RangerEvalOrderIndex<RangerPolicyEvaluator> evalOrderIndex;
+    private final BitSet                                      matchAll   = new BitSet();
+    private final BitSet                                      matchOwner = new BitSet();
+    private final Map<String, int[]>                          userIndex;
+    private final Map<String, int[]>                          groupIndex;
+    private final Map<String, int[]>                          roleIndex;
+
+    public RangerPolicyPrincipalIndex(RangerEvalOrderIndex<RangerPolicyEvaluator> evalOrderIndex) {
+        Map<String, List<Integer>>  users      = new HashMap<>();
+        Map<String, List<Integer>>  groups     = new HashMap<>();
+        Map<String, List<Integer>>  roles      = new HashMap<>();
+        List<RangerPolicyEvaluator> evaluators = evalOrderIndex.getValuesInOrder();
+
+        for (int ordinal = 0; ordinal < evaluators.size(); ordinal++) {
+            RangerPolicyEvaluator evaluator = evaluators.get(ordinal);
+
+            if (evaluator instanceof RangerOptimizedPolicyEvaluator) {
+                RangerOptimizedPolicyEvaluator optimizedEvaluator = (RangerOptimizedPolicyEvaluator) evaluator;
+
+                if (optimizedEvaluator.hasPublicGroup() || optimizedEvaluator.hasCurrentUser()) {
+                    matchAll.set(ordinal);
+                } else {
+                    if (optimizedEvaluator.hasResourceOwner()) {
+                        matchOwner.set(ordinal);
+                    }
+
+                    addToIndex(users, optimizedEvaluator.getUsers(), ordinal);
+                    addToIndex(groups, optimizedEvaluator.getGroups(), ordinal);
+                    addToIndex(roles, optimizedEvaluator.getRoles(), ordinal);
+                }
+            } else {
+                matchAll.set(ordinal);
+            }
+        }
+
+        this.evalOrderIndex = evalOrderIndex;
+        this.userIndex      = toArrays(users);
+        this.groupIndex     = toArrays(groups);
+        this.roleIndex      = toArrays(roles);
+    }
+
+    /*
+     * Returns a filter that rejects evaluators whose policy items can't match the user, groups or roles of the given
+     * request; for such evaluators hasMatchablePolicyItem() returns false. Evaluators not in this index are accepted.
+     */
+    public Predicate<RangerPolicyEvaluator> getFilter(RangerAccessRequest request) {
+        final BitSet               matches  = (BitSet) matchAll.clone();
+        final String               user     = request.getUser();
+        final RangerAccessResource resource = request.getResource();
+
+        if (user != null) {
+            addMatches(matches, userIndex.get(user));
+
+            if (resource != null && user.equals(resource.getOwnerUser())) {
+                matches.or(matchOwner);
+            }
+        }
+
+        addMatches(matches, groupIndex, request.getUserGroups());
+
+        if (!roleIndex.isEmpty()) {
+            addMatches(matches, roleIndex, request.getUserRoles());
+            addMatches(matches, roleIndex, RangerAccessRequestUtil.getCurrentUserRolesFromContext(request.getContext()));
+        }
+
+        return evaluator -> {
+            int ordinal = evalOrderIndex.getOrdinal(evaluator);
+
+            return ordinal == -1 || matches.get(ordinal);
+        };
+    }
+
+    private static void addToIndex(Map<String, List<Integer>> index, Collection<String> principals, int ordinal) {
+        for (String principal : principals) {
+            index.computeIfAbsent(principal, k -> new ArrayList<>()).add(ordinal);
+        }
+    }
+
+    private static Map<String, int[]> toArrays(Map<String, List<Integer>> index) {
+        Map<String, int[]> ret = new HashMap<>(index.size());
+
+        for (Map.Entry<String, List<Integer>> entry : index.entrySet()) {
+            ret.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        return ret;
+    }
+
+    private static void addMatches(BitSet matches, Map<String, int[]> index, Collection<String> principals) {
+        if (CollectionUtils.isNotEmpty(principals)) {
+            for (String principal : principals) {
+                addMatches(matches, index.get(principal));
+            }
+        }
+    }
+
+    private static void addMatches(BitSet matches, int[] ordinals) {
+        if (ordinals != null) {
+            for (int ordinal : ordinals) {
+                matches.set(ordinal);
+            }
+        }
+    }
+}
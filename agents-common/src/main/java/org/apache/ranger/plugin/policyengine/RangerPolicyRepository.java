@@ -22,6 +22,7 @@
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
 import org.apache.ranger.authorization.utils.JsonUtils;
 import org.apache.ranger.plugin.contextenricher.RangerAbstractContextEnricher;
 import org.apache.ranger.plugin.contextenricher.RangerContextEnricher;
@@ -42,6 +43,7 @@
 import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
 import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator.RangerPolicyResourceEvaluator;
 import org.apache.ranger.plugin.store.AbstractServiceStore;
+import org.apache.ranger.plugin.util.RangerEvalOrderIndex;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerResourceEvaluatorsRetriever;
 import org.apache.ranger.plugin.util.ServiceDefUtil;
@@ -55,10 +57,13 @@
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Predicate;
 
 import static org.apache.ranger.plugin.contextenricher.RangerGdsEnricher.RETRIEVER_CLASSNAME_OPTION;
 import static org.apache.ranger.plugin.contextenricher.RangerTagEnricher.TAG_RETRIEVER_CLASSNAME_OPTION;
@@ -85,7 +90,7 @@ enum AuditModeEnum {
     private final long                                                           policyVersion;
     private /*final*/ List<RangerContextEnricher>                                contextEnrichers;
     private final AuditModeEnum                                                  auditModeEnum;
-    private final Map<String, AuditInfo>                                         accessAuditCache;
+    private final ConcurrentCacheMap<String, AuditInfo>                          accessAuditCache;
     private final String                                                         componentServiceName;
     private final RangerServiceDef                                               componentServiceDef;
     private final Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> policyResourceTrie;
@@ -97,6 +102,9 @@ enum AuditModeEnum {
     private       List<RangerPolicyEvaluator>                                    rowFilterPolicyEvaluators;
     private final List<RangerPolicyEvaluator>                                    auditPolicyEvaluators;
     private       Map<Long, RangerPolicyEvaluator>                               policyEvaluatorsMap;
+    private final RangerEvalOrderIndex<RangerPolicyEvaluator>                    evalOrderIndex; // to order evaluators retrieved from tries
+    private final RangerPolicyPrincipalIndex                                     principalIndex;
+    private       RangerAdaptiveEvalOrder                                        adaptiveEvalOrder; // null unless adaptive eval order is enabled
     private       boolean                                                        isContextEnrichersShared = false;
     private       boolean                                                        isPreCleaned             = false;
 
@@ -158,9 +166,9 @@ enum AuditModeEnum {
         }
 
         if (other.accessAuditCache != null) {
-            int auditResultCacheSize = other.accessAuditCache.size();
+            int auditResultCacheSize = other.accessAuditCache.getCapacity();
 
-            this.accessAuditCache = Collections.synchronizedMap(new CacheMap<>(auditResultCacheSize));
+            this.accessAuditCache = new ConcurrentCacheMap<>(auditResultCacheSize);
         } else {
             this.accessAuditCache = null;
         }
@@ -169,6 +177,10 @@ enum AuditModeEnum {
 
         updateResourceTrie(deltas);
 
+        this.evalOrderIndex    = buildEvalOrderIndex();
+        this.principalIndex    = evalOrderIndex != null && !options.disablePrincipalPrefilter ? new RangerPolicyPrincipalIndex(evalOrderIndex) : null;
+        this.adaptiveEvalOrder = other.adaptiveEvalOrder != null ? buildAdaptiveEvalOrder(other.adaptiveEvalOrder) : null;
+
         if (CollectionUtils.isNotEmpty(this.policies)) {
             this.contextEnrichers = isExistingPolicies ? shareWith(other) : buildContextEnrichers(options);
         } else {
@@ -220,7 +232,7 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
                 final int RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE = 64 * 1024;
 
                 int auditResultCacheSize = pluginContext.getConfig().getInt(propertyName, RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE);
-                accessAuditCache = Collections.synchronizedMap(new CacheMap<>(auditResultCacheSize));
+                accessAuditCache = new ConcurrentCacheMap<>(auditResultCacheSize);
             } else {
                 accessAuditCache = null;
             }
@@ -253,6 +265,10 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
             rowFilterResourceTrie   = createResourceTrieMap(rowFilterPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
             auditFilterResourceTrie = createResourceTrieMap(auditPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
         }
+
+        this.evalOrderIndex    = buildEvalOrderIndex();
+        this.principalIndex    = evalOrderIndex != null && !options.disablePrincipalPrefilter ? new RangerPolicyPrincipalIndex(evalOrderIndex) : null;
+        this.adaptiveEvalOrder = options.enableAdaptiveEvalOrder ? buildAdaptiveEvalOrder(null) : null;
     }
 
     RangerPolicyRepository(ServicePolicies.TagPolicies tagPolicies, RangerPluginContext pluginContext,
@@ -307,6 +323,9 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
             rowFilterResourceTrie   = createResourceTrieMap(rowFilterPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
             auditFilterResourceTrie = createResourceTrieMap(auditPolicyEvaluators, options.optimizeTrieForRetrieval, options.optimizeTrieForSpace);
         }
+
+        this.evalOrderIndex = buildEvalOrderIndex();
+        this.principalIndex = evalOrderIndex != null && !options.disablePrincipalPrefilter ? new RangerPolicyPrincipalIndex(evalOrderIndex) : null;
     }
 
     private List<RangerPolicyEvaluator> buildAuditPolicyEvaluators(Map<String, String> svcConfigs) {
@@ -428,6 +447,9 @@ void preCleanup(boolean isForced) {
             LOG.debug("==> preCleanup(isForced=" + isForced + " )");
             LOG.debug("Repository holds [" + (CollectionUtils.isEmpty(this.contextEnrichers) ? 0 : this.contextEnrichers.size()) + "] enrichers. isPreCleaned=" + isPreCleaned);
         }
+        if (adaptiveEvalOrder != null && (!isContextEnrichersShared || isForced)) { // a shared repository is still in use by the new engine
+            adaptiveEvalOrder.close();
+        }
         if (!isPreCleaned) {
             if (CollectionUtils.isNotEmpty(this.contextEnrichers) && (!isContextEnrichersShared || isForced)) {
                 isPreCleaned = true;
@@ -601,6 +623,44 @@ List<RangerPolicyEvaluator> getAuditPolicyEvaluators() {
 
     RangerPolicyEngineOptions getOptions() { return options; }
 
+    /*
+     * Returns true if outcome of access evaluation can depend on request attributes other than
+     * user/groups/roles/resource/access-type, like access-time, client-ip or request context
+     */
+    boolean hasContextSensitiveAccessPolicies() {
+        for (RangerPolicyEvaluator evaluator : policyEvaluators) {
+            if (evaluator.getPolicyConditionsCount() > 0 || evaluator.getCustomConditionsCount() > 0 || evaluator.getValidityScheduleEvaluatorsCount() > 0) {
+                return true;
+            }
+
+            for (RangerPolicyResourceEvaluator resourceEvaluator : evaluator.getResourceEvaluators()) {
+                if (resourceEvaluator.getPolicyResourceMatcher().getNeedsDynamicEval()) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /*
+     * Returns true if a policy of any type has resource values with macros - like {USER} - which are replaced with values
+     * from the request; resource ACLs for such policies then depend on the request user and context
+     */
+    boolean hasDynamicEvalResourcePolicies() {
+        for (int policyType : RangerPolicy.POLICY_TYPES) {
+            for (RangerPolicyEvaluator evaluator : getPolicyEvaluators(policyType)) {
+                for (RangerPolicyResourceEvaluator resourceEvaluator : evaluator.getResourceEvaluators()) {
+                    if (resourceEvaluator.getPolicyResourceMatcher().getNeedsDynamicEval()) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
     List<PolicyEvaluatorForTag> getLikelyMatchPolicyEvaluators(RangerAccessRequest request, Set<RangerTagForEval> tags, int policyType, Date accessTime) {
         List<PolicyEvaluatorForTag> ret = Collections.EMPTY_LIST;
 
@@ -675,6 +735,51 @@ public List<RangerPolicyEvaluator> getLikelyMatchPolicyEvaluators(RangerAccessRe
         }
     }
 
+    /*
+     * Same as getLikelyMatchPolicyEvaluators(request, policyType), for a request whose resource is a child of the
+     * resource of parentEvaluators - like a column of a table. Evaluators likely to match the parent resource are
+     * looked up once and shared across such requests; only the trie of the child resource is looked up per request.
+     */
+    List<RangerPolicyEvaluator> getLikelyMatchPolicyEvaluators(RangerAccessRequest request, int policyType, ParentResourceEvaluators parentEvaluators) {
+        Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> resourceTrie             = parentEvaluators != null && policyType != RangerPolicy.POLICY_TYPE_ACCESS ? getTrie(policyType) : null;
+        String                                                         childResourceName        = resourceTrie != null ? parentEvaluators.getChildResourceName(request) : null;
+        RangerResourceTrie<RangerPolicyResourceEvaluator>              childTrie                = childResourceName != null ? resourceTrie.get(childResourceName) : null;
+        Set<RangerPolicyResourceEvaluator>                             parentResourceEvaluators = childTrie != null ? parentEvaluators.getEvaluators(resourceTrie) : null;
+        final List<RangerPolicyEvaluator>                              ret;
+
+        if (parentResourceEvaluators == null) {
+            ret = getLikelyMatchPolicyEvaluators(request, policyType);
+        } else {
+            Set<RangerPolicyResourceEvaluator> resourceEvaluators = parentResourceEvaluators.isEmpty() ? null : childTrie.getEvaluatorsForResource(request.getResource().getAsMap().get(childResourceName), null, parentResourceEvaluators);
+
+            ret = getPolicyEvaluatorsInOrder(resourceEvaluators != null ? resourceEvaluators : Collections.emptySet(), evalOrderIndex);
+        }
+
+        return ret;
+    }
+
+    /*
+     * Returns a filter for evaluators returned by getLikelyMatchPolicyEvaluators(), to skip evaluators whose policy items
+     * can't match the user/groups/roles of the request. Returns null when principal prefilter is not enabled.
+     */
+    Predicate<RangerPolicyEvaluator> getPrincipalFilter(RangerAccessRequest request) {
+        return principalIndex != null ? principalIndex.getFilter(request) : null;
+    }
+
+    RangerAdaptiveEvalOrder getAdaptiveEvalOrder() {
+        return adaptiveEvalOrder;
+    }
+
+    /*
+     * Records the access policy evaluator that determined the access decision, for usage-driven evaluation order.
+     */
+    void recordAccessDeterminedBy(RangerPolicyEvaluator evaluator) {
+        RangerAdaptiveEvalOrder adaptiveEvalOrder = this.adaptiveEvalOrder;
+
+        if (adaptiveEvalOrder != null) {
+            adaptiveEvalOrder.recordDetermined(evaluator);
+        }
+    }
 
     Map<Long, RangerPolicyEvaluator> getPolicyEvaluatorsMap() { return policyEvaluatorsMap; }
 
@@ -686,6 +791,12 @@ private List<RangerPolicyEvaluator> getLikelyMatchAccessPolicyEvaluators(RangerA
         RangerAccessResource resource = request.getResource();
         String resourceStr = resource == null ? null : resource.getAsString();
 
+        RangerAdaptiveEvalOrder adaptiveEvalOrder = this.adaptiveEvalOrder;
+
+        if (adaptiveEvalOrder != null) {
+            return policyResourceTrie == null || StringUtils.isEmpty(resourceStr) ? adaptiveEvalOrder.getEvaluatorsInOrder() : getLikelyMatchPolicyEvaluators(policyResourceTrie, request, adaptiveEvalOrder.getEvalOrderIndex());
+        }
+
         return policyResourceTrie == null || StringUtils.isEmpty(resourceStr) ? getPolicyEvaluators() : getLikelyMatchPolicyEvaluators(policyResourceTrie, request);
     }
 
@@ -711,6 +822,10 @@ List<RangerPolicyEvaluator> getLikelyMatchAuditPolicyEvaluators(RangerAccessRequ
     }
 
     private List<RangerPolicyEvaluator> getLikelyMatchPolicyEvaluators(Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> resourceTrie, RangerAccessRequest request) {
+        return getLikelyMatchPolicyEvaluators(resourceTrie, request, evalOrderIndex);
+    }
+
+    private List<RangerPolicyEvaluator> getLikelyMatchPolicyEvaluators(Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> resourceTrie, RangerAccessRequest request, RangerEvalOrderIndex<RangerPolicyEvaluator> evalOrderIndex) {
         List<RangerPolicyEvaluator> ret          = Collections.EMPTY_LIST;
 
         RangerAccessResource              resource = request.getResource();
@@ -724,22 +839,40 @@ private List<RangerPolicyEvaluator> getLikelyMatchPolicyEvaluators(Map<String, R
         Collection<RangerPolicyResourceEvaluator> smallestList = RangerResourceEvaluatorsRetriever.getEvaluators(resourceTrie, resource.getAsMap(), request.getResourceElementMatchingScopes());
 
         if (smallestList != null) {
-            if (smallestList.size() == 0) {
-                ret = new ArrayList<>();
-            } else if (smallestList.size() == 1) {
-                ret = new ArrayList<>(1);
+            ret = getPolicyEvaluatorsInOrder(smallestList, evalOrderIndex);
+        }
 
-                for (RangerPolicyResourceEvaluator resourceEvaluator : smallestList) {
-                    RangerPolicyEvaluator policyEvaluator = resourceEvaluator.getPolicyEvaluator();
+        RangerPerfTracer.logAlways(perf);
 
-                    ret.add(policyEvaluator);
-                }
-            } else {
-                ret = new ArrayList<>(smallestList.size());
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("<== RangerPolicyRepository.getLikelyMatchPolicyEvaluators(" + resource.getAsString() + "): evaluatorCount=" + ret.size());
+        }
+
+        return ret;
+    }
+
+    private static List<RangerPolicyEvaluator> getPolicyEvaluatorsInOrder(Collection<RangerPolicyResourceEvaluator> resourceEvaluators, RangerEvalOrderIndex<RangerPolicyEvaluator> evalOrderIndex) {
+        List<RangerPolicyEvaluator> ret;
+
+        if (resourceEvaluators.size() == 0) {
+            ret = new ArrayList<>();
+        } else if (resourceEvaluators.size() == 1) {
+            ret = new ArrayList<>(1);
+
+            for (RangerPolicyResourceEvaluator resourceEvaluator : resourceEvaluators) {
+                RangerPolicyEvaluator policyEvaluator = resourceEvaluator.getPolicyEvaluator();
+
+                ret.add(policyEvaluator);
+            }
+        } else {
+            ret = evalOrderIndex != null ? evalOrderIndex.getDistinctInOrder(resourceEvaluators, RangerPolicyResourceEvaluator::getPolicyEvaluator) : null;
+
+            if (ret == null) { // evaluator not found in evalOrderIndex; de-duplicate by policy-id and sort
+                ret = new ArrayList<>(resourceEvaluators.size());
 
                 Set<Long> policyIds = new HashSet<>();
 
-                for (RangerPolicyResourceEvaluator resourceEvaluator : smallestList) {
+                for (RangerPolicyResourceEvaluator resourceEvaluator : resourceEvaluators) {
                     RangerPolicyEvaluator policyEvaluator = resourceEvaluator.getPolicyEvaluator();
 
                     if (policyIds.add(policyEvaluator.getPolicyId())) {
@@ -751,12 +884,6 @@ private List<RangerPolicyEvaluator> getLikelyMatchPolicyEvaluators(Map<String, R
             }
         }
 
-        RangerPerfTracer.logAlways(perf);
-
-        if(LOG.isDebugEnabled()) {
-            LOG.debug("<== RangerPolicyRepository.getLikelyMatchPolicyEvaluators(" + resource.getAsString() + "): evaluatorCount=" + ret.size());
-        }
-
         return ret;
     }
 
@@ -1183,6 +1310,35 @@ private void removeNulls(Collection<String> strings, final Long policyId, final
         }
     }
 
+    private RangerEvalOrderIndex<RangerPolicyEvaluator> buildEvalOrderIndex() {
+        final RangerEvalOrderIndex<RangerPolicyEvaluator> ret;
+
+        if (policyResourceTrie != null || dataMaskResourceTrie != null || rowFilterResourceTrie != null || auditFilterResourceTrie != null) {
+            List<RangerPolicyEvaluator> evaluators = new ArrayList<>(policyEvaluators);
+
+            evaluators.addAll(dataMaskPolicyEvaluators);
+            evaluators.addAll(rowFilterPolicyEvaluators);
+
+            if (auditPolicyEvaluators != null) {
+                evaluators.addAll(auditPolicyEvaluators);
+            }
+
+            ret = new RangerEvalOrderIndex<>(evaluators, RangerPolicyEvaluator.EVAL_ORDER_COMPARATOR);
+        } else {
+            ret = null;
+        }
+
+        return ret;
+    }
+
+    private RangerAdaptiveEvalOrder buildAdaptiveEvalOrder(RangerAdaptiveEvalOrder other) {
+        RangerPluginConfig config            = pluginContext.getConfig();
+        long               reorderIntervalMs = config.getLong(config.getPropertyPrefix() + ".policyengine.adaptive.eval.order.interval.ms", RangerAdaptiveEvalOrder.DEFAULT_REORDER_INTERVAL_MS);
+        int                sampleRate        = config.getInt(config.getPropertyPrefix() + ".policyengine.adaptive.eval.order.sample.rate", RangerAdaptiveEvalOrder.DEFAULT_SAMPLE_RATE);
+
+        return new RangerAdaptiveEvalOrder(policyEvaluators, reorderIntervalMs, sampleRate, other);
+    }
+
     private List<RangerPolicyEvaluator> getReorderedPolicyEvaluators(List<RangerPolicyEvaluator> evaluators) {
         List<RangerPolicyEvaluator> ret = evaluators;
 
@@ -1201,7 +1357,7 @@ private Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> createRes
             ret = new HashMap<>();
 
             for (RangerServiceDef.RangerResourceDef resourceDef : serviceDef.getResources()) {
-                ret.put(resourceDef.getName(), new RangerResourceTrie(resourceDef, evaluators, optimizeTrieForRetrieval, optimizeTrieForSpace, pluginContext));
+                ret.put(resourceDef.getName(), new RangerResourceTrie(resourceDef, evaluators, optimizeTrieForRetrieval, optimizeTrieForSpace, options.enableCompactTrieNodes, pluginContext));
             }
         } else {
             ret = null;
@@ -1224,7 +1380,7 @@ private void updateTrie(Map<String, RangerResourceTrie<RangerPolicyResourceEvalu
                 if (RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE == policyDeltaType || RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE == policyDeltaType) {
                     LOG.warn("policyDeltaType is not for POLICY_CREATE and trie for resourceDef:[" + resourceDefName + "] was null! Should not have happened!!");
                 }
-                trie = new RangerResourceTrie<>(resourceDef, new ArrayList<>(), options.optimizeTrieForRetrieval, options.optimizeTrieForSpace, pluginContext);
+                trie = new RangerResourceTrie<>(resourceDef, new ArrayList<>(), options.optimizeTrieForRetrieval, options.optimizeTrieForSpace, options.enableCompactTrieNodes, pluginContext);
                 trieMap.put(resourceDefName, trie);
             }
 
@@ -1448,6 +1604,59 @@ Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> getTrie(final int
         return ret;
     }
 
+    /*
+     * Evaluators likely to match a parent resource, like a table, looked up once per resource trie and shared by
+     * requests for its child resources. Instances are not thread-safe.
+     */
+    static final class ParentResourceEvaluators {
+        private final Map<String, Object>                                                                                  parentResource;
+        private final Map<Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>>, Set<RangerPolicyResourceEvaluator>> evaluators = new IdentityHashMap<>();
+
+        ParentResourceEvaluators(RangerAccessResource parentResource) {
+            this.parentResource = new HashMap<>(parentResource.getAsMap());
+        }
+
+        /*
+         * Returns the name of the resource that the request has in addition to the parent resource; returns null if
+         * the resource of the request isn't a child of the parent resource.
+         */
+        String getChildResourceName(RangerAccessRequest request) {
+            Map<String, Object> resource = request.getResource() != null ? request.getResource().getAsMap() : null;
+            String              ret      = null;
+
+            if (resource != null && resource.size() == parentResource.size() + 1 && MapUtils.isEmpty(request.getResourceElementMatchingScopes())) {
+                for (Map.Entry<String, Object> entry : resource.entrySet()) {
+                    if (!parentResource.containsKey(entry.getKey())) {
+                        ret = entry.getKey();
+                    } else if (!Objects.equals(entry.getValue(), parentResource.get(entry.getKey()))) {
+                        ret = null;
+
+                        break;
+                    }
+                }
+            }
+
+            return ret;
+        }
+
+        /*
+         * Returns null if none of the parent resources has a trie.
+         */
+        Set<RangerPolicyResourceEvaluator> getEvaluators(Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> resourceTrie) {
+            Set<RangerPolicyResourceEvaluator> ret = evaluators.get(resourceTrie);
+
+            if (ret == null && !evaluators.containsKey(resourceTrie)) {
+                Collection<RangerPolicyResourceEvaluator> resourceEvaluators = RangerResourceEvaluatorsRetriever.getEvaluators(resourceTrie, parentResource);
+
+                ret = resourceEvaluators == null || resourceEvaluators instanceof Set ? (Set<RangerPolicyResourceEvaluator>) resourceEvaluators : new HashSet<>(resourceEvaluators);
+
+                evaluators.put(resourceTrie, ret);
+            }
+
+            return ret;
+        }
+    }
+
     static private final class AuditInfo {
         final boolean isAudited;
         final long    auditPolicyId;
@@ -1469,6 +1678,14 @@ void reinit(List<RangerPolicyDelta> deltas) {
 
         updateResourceTrie(deltas);
 
+        if (adaptiveEvalOrder != null) {
+            RangerAdaptiveEvalOrder replaced = adaptiveEvalOrder;
+
+            adaptiveEvalOrder = buildAdaptiveEvalOrder(replaced);
+
+            replaced.close();
+        }
+
         if (StringUtils.isEmpty(zoneName) && CollectionUtils.isNotEmpty(this.policies)) {
             if (!isExistingPolicies) {
                 this.contextEnrichers = buildContextEnrichers(options);
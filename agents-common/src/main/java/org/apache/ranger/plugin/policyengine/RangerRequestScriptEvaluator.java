@@ -26,6 +26,7 @@
 import org.apache.ranger.authorization.utils.StringUtil;
 import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
 import org.apache.ranger.plugin.util.MacroProcessor;
+import org.apache.ranger.plugin.util.RangerCompiledScriptCache;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerTimeRangeChecker;
@@ -35,11 +36,13 @@
 import org.slf4j.LoggerFactory;
 
 import javax.script.Bindings;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.function.UnaryOperator;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -81,7 +84,9 @@ public final class RangerRequestScriptEvaluator {
 
 	private final RangerAccessRequest              accessRequest;
 	private final ScriptEngine                     scriptEngine;
+	private final RangerCompiledScriptCache        compiledScripts;
 	private final Bindings                         bindings;
+	private       boolean                          initJsonCtx;
 	private       boolean                          initDone   = false;
 	private       Map<String, String>              userAttrs  = Collections.emptyMap();
 	private       Map<String, Map<String, String>> groupAttrs = Collections.emptyMap();
@@ -181,43 +186,57 @@ public static String expandMacros(String script) {
 		return MACRO_PROCESSOR.expandMacros(script);
 	}
 
+	// for evaluation of RangerNativeConditionScript, which doesn't need a script engine
+	public RangerRequestScriptEvaluator(RangerAccessRequest accessRequest) {
+		this(accessRequest, null, null, false);
+	}
+
 	public RangerRequestScriptEvaluator(RangerAccessRequest accessRequest, ScriptEngine scriptEngine) {
 		this(accessRequest, scriptEngine, true);
 	}
 
 	public RangerRequestScriptEvaluator(RangerAccessRequest accessRequest, ScriptEngine scriptEngine, boolean enableJsonCtx) {
-		this.accessRequest = accessRequest.getReadOnlyCopy();
-		this.scriptEngine  = scriptEngine;
-		this.bindings      = scriptEngine.createBindings();
-
-		RangerTagForEval    currentTag = this.getCurrentTag();
-		Map<String, String> tagAttribs = currentTag != null ? currentTag.getAttributes() : Collections.emptyMap();
+		this(accessRequest, scriptEngine, null, enableJsonCtx);
+	}
 
-		bindings.put(SCRIPT_VAR_ctx, this);
-		bindings.put(SCRIPT_VAR_tag, currentTag);
-		bindings.put(SCRIPT_VAR_tagAttr, tagAttribs);
+	public RangerRequestScriptEvaluator(RangerAccessRequest accessRequest, RangerCompiledScriptCache compiledScripts, boolean enableJsonCtx) {
+		this(accessRequest, compiledScripts.getScriptEngine(), compiledScripts, enableJsonCtx);
+	}
 
-		String preExecScript = "";
+	private RangerRequestScriptEvaluator(RangerAccessRequest accessRequest, ScriptEngine scriptEngine, RangerCompiledScriptCache compiledScripts, boolean enableJsonCtx) {
+		this.accessRequest   = accessRequest.getReadOnlyCopy();
+		this.scriptEngine    = scriptEngine;
+		this.compiledScripts = compiledScripts;
+		this.bindings        = compiledScripts != null ? compiledScripts.acquireBindings() : (scriptEngine != null ? scriptEngine.createBindings() : null);
+		this.initJsonCtx     = enableJsonCtx;
 
-		if (enableJsonCtx) {
-			bindings.put(SCRIPT_VAR__CTX_JSON, this.toJson());
+		if (bindings != null) {
+			RangerTagForEval    currentTag = this.getCurrentTag();
+			Map<String, String> tagAttribs = currentTag != null ? currentTag.getAttributes() : Collections.emptyMap();
 
-			preExecScript += SCRIPT_PREEXEC;
-		}
-
-		if (StringUtils.isNotBlank(preExecScript)) {
-			try {
-				scriptEngine.eval(preExecScript, bindings);
-			} catch (ScriptException excp) {
-				LOG.error("RangerRequestScriptEvaluator(): initialization failed", excp);
-			}
+			bindings.put(SCRIPT_VAR_ctx, this);
+			bindings.put(SCRIPT_VAR_tag, currentTag);
+			bindings.put(SCRIPT_VAR_tagAttr, tagAttribs);
 		}
 	}
 
 	public Object evaluateScript(String script) {
-		script = expandMacros(script);
+		initJsonCtx();
+
+		CompiledScript compiledScript = compiledScripts != null ? compiledScripts.getCompiledScript(script, RangerRequestScriptEvaluator::getScriptToEval) : null;
+
+		if (compiledScript != null) {
+			return evaluateScriptImpl(compiledScript);
+		}
+
+		return evaluateScriptImpl(getScriptToEval(script));
+	}
 
-		return evaluateScriptImpl(script);
+	// returns the bindings to the cache for reuse by a later request; this instance must not be used after this call
+	public void release() {
+		if (compiledScripts != null) {
+			compiledScripts.releaseBindings(bindings);
+		}
 	}
 
 	public Object evaluateConditionScript(String script) {
@@ -234,7 +253,48 @@ public Object evaluateConditionScript(String script) {
 		return ret;
 	}
 
-	private Object evaluateScriptImpl(String script) {
+	// JSON context is serialized on first evaluation, so that it isn't built for requests that don't evaluate a script
+	private void initJsonCtx() {
+		if (initJsonCtx) {
+			initJsonCtx = false;
+
+			bindings.put(SCRIPT_VAR__CTX_JSON, this.toJson());
+
+			try {
+				CompiledScript compiledScript = compiledScripts != null ? compiledScripts.getCompiledScript(SCRIPT_PREEXEC, UnaryOperator.identity()) : null;
+
+				if (compiledScript != null) {
+					compiledScript.eval(bindings);
+				} else {
+					scriptEngine.eval(SCRIPT_PREEXEC, bindings);
+				}
+			} catch (ScriptException excp) {
+				LOG.error("RangerRequestScriptEvaluator(): initialization failed", excp);
+			}
+		}
+	}
+
+	private static String getScriptToEval(String script) {
+		script = expandMacros(script);
+
+		String preExec = SCRIPT_SAFE_PREEXEC;
+
+		if (script.contains(".includes(")) {
+			preExec += SCRIPT_POLYFILL_INCLUDES;
+		}
+
+		if (script.contains(".intersects(")) {
+			preExec += SCRIPT_POLYFILL_INTERSECTS;
+		}
+
+		if (JavaScriptEdits.hasDoubleBrackets(script)) {
+			script = JavaScriptEdits.replaceDoubleBrackets(script);
+		}
+
+		return preExec + script;
+	}
+
+	private Object evaluateScriptImpl(Object script) {
 		Object           ret  = null;
 		RangerPerfTracer perf = null;
 
@@ -243,21 +303,11 @@ private Object evaluateScriptImpl(String script) {
 				perf = RangerPerfTracer.getPerfTracer(PERF_POLICY_CONDITION_SCRIPT_EVAL, "RangerRequestScriptEvaluator.evaluateScript(requestHash=" + accessRequest.hashCode() + ")");
 			}
 
-			String preExec = SCRIPT_SAFE_PREEXEC;
-
-			if (script.contains(".includes(")) {
-				preExec += SCRIPT_POLYFILL_INCLUDES;
-			}
-
-			if (script.contains(".intersects(")) {
-				preExec += SCRIPT_POLYFILL_INTERSECTS;
-			}
-
-			if (JavaScriptEdits.hasDoubleBrackets(script)) {
-				script = JavaScriptEdits.replaceDoubleBrackets(script);
+			if (script instanceof CompiledScript) {
+				ret = ((CompiledScript) script).eval(bindings);
+			} else {
+				ret = scriptEngine.eval((String) script, bindings);
 			}
-
-			ret = scriptEngine.eval(preExec + script, bindings);
 		} catch (NullPointerException nullp) {
 			LOG.error("RangerRequestScriptEvaluator.evaluateScript(): eval called with NULL argument(s)", nullp);
 		} catch (ScriptException excp) {
@@ -766,6 +816,22 @@ public String userAttrQ(String attrName, Object... args) {
 		return toCsvQ(Collections.singletonList(attrVal), args);
 	}
 
+	// value of USER.attrName in scripts
+	String getUserAttrValue(String attrName) {
+		init();
+
+		return userAttrs.get(attrName);
+	}
+
+	// value of TAG.attrName in scripts
+	String getCurrentTagAttrValue(String attrName) {
+		init();
+
+		Object ret = tag.get(attrName);
+
+		return ret != null ? ret.toString() : null;
+	}
+
 	public boolean hasTag(String tagName) {
 		init();
 
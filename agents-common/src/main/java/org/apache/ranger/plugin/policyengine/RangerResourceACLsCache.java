@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest.ResourceElementMatchingScope;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest.ResourceMatchingScope;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Caches results of RangerPolicyEngine.getResourceACLs(), keyed by the request attributes that determine the ACLs:
+ * resource, resource-owner, matching scopes, zone and the requested policy-type. ACLs don't depend on the request user,
+ * as long as no policy has resource values with macros like {USER}; results are not cached when such policies exist.
+ *
+ * The lookup is done after the request is enriched, and requests carrying tags are never cached; hence tag policy
+ * and tag changes need no invalidation. Entries are tagged with policy-version and role-version of the policy engine,
+ * a change in either drops all entries.
+ *
+ * ACLs are mutable and are updated by callers, for example when merged with ACLs from chained plugins - so a copy is
+ * stored in the cache and a copy is returned on each hit.
+ */
+public class RangerResourceACLsCache {
+	private static final Logger LOG = LoggerFactory.getLogger(RangerResourceACLsCache.class);
+
+	public static final int DEFAULT_MAX_SIZE = 16 * 1024;
+
+	private final PolicyEngine                policyEngine;
+	private final int                         maxSize;
+	private final AtomicReference<Generation> generation        = new AtomicReference<>();
+	private final LongAdder                   hitCount          = new LongAdder();
+	private final LongAdder                   missCount         = new LongAdder();
+	private final LongAdder                   invalidationCount = new LongAdder();
+
+	public RangerResourceACLsCache(PolicyEngine policyEngine, int maxSize) {
+		this.policyEngine = policyEngine;
+		this.maxSize      = maxSize > 0 ? maxSize : DEFAULT_MAX_SIZE;
+	}
+
+	public int getMaxSize() { return maxSize; }
+
+	public int getSize() {
+		Generation current = generation.get();
+
+		return current != null && current.entries != null ? current.entries.size() : 0;
+	}
+
+	public long getHitCount() { return hitCount.sum(); }
+
+	public long getMissCount() { return missCount.sum(); }
+
+	public long getInvalidationCount() { return invalidationCount.sum(); }
+
+	/*
+	 * Returns the cache-key for the request, which must be pre-processed; null if ACLs for the request should not be cached
+	 */
+	public CacheKey getCacheKey(RangerAccessRequest request, Integer requestedPolicyType) {
+		CacheKey ret = null;
+
+		if (isCacheable(request) && getGeneration().isCacheable) {
+			ret = new CacheKey(request, requestedPolicyType);
+		}
+
+		return ret;
+	}
+
+	/*
+	 * Returns a copy of the cached ACLs for the given key, or null if not found
+	 */
+	public RangerResourceACLs get(CacheKey key) {
+		ConcurrentCacheMap<CacheKey, RangerResourceACLs> entries = getGeneration().entries;
+		RangerResourceACLs                               cached  = entries != null ? entries.get(key) : null;
+
+		if (cached != null) {
+			hitCount.increment();
+		} else {
+			missCount.increment();
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("RangerResourceACLsCache.get(" + key + "): " + (cached != null ? "hit" : "miss"));
+		}
+
+		return cached != null ? new RangerResourceACLs(cached) : null;
+	}
+
+	public void put(CacheKey key, RangerResourceACLs acls) {
+		if (key == null || acls == null) {
+			return;
+		}
+
+		ConcurrentCacheMap<CacheKey, RangerResourceACLs> entries = getGeneration().entries;
+
+		if (entries != null) {
+			entries.put(key.copy(), new RangerResourceACLs(acls));
+		}
+	}
+
+	public void clear() {
+		generation.set(null);
+	}
+
+	@Override
+	public String toString() {
+		return "RangerResourceACLsCache={maxSize=" + maxSize + ", size=" + getSize() + ", hitCount=" + getHitCount() + ", missCount=" + getMissCount() + ", invalidationCount=" + getInvalidationCount() + "}";
+	}
+
+	private boolean isCacheable(RangerAccessRequest request) {
+		final boolean ret;
+
+		if (request.getResource() == null || request.getResource().getCacheKey() == null) {
+			ret = false;
+		} else {
+			Map<String, Object> context = request.getContext();
+
+			ret = MapUtils.isEmpty(context) || CollectionUtils.isEmpty(RangerAccessRequestUtil.getRequestTagsFromContext(context));
+		}
+
+		return ret;
+	}
+
+	private Generation getGeneration() {
+		long       policyVersion = policyEngine.getPolicyVersion();
+		long       roleVersion   = policyEngine.getRoleVersion();
+		Generation ret           = generation.get();
+
+		if (ret == null || ret.policyVersion != policyVersion || ret.roleVersion != roleVersion) {
+			Generation current = ret;
+
+			ret = new Generation(policyVersion, roleVersion, !policyEngine.hasDynamicEvalResourcePolicies(), maxSize);
+
+			if (generation.compareAndSet(current, ret)) {
+				if (current != null) {
+					invalidationCount.increment();
+				}
+
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("RangerResourceACLsCache: started new generation(policyVersion=" + policyVersion + ", roleVersion=" + roleVersion + ", isCacheable=" + ret.isCacheable + ")");
+				}
+			} else { // another thread created the generation
+				ret = generation.get();
+			}
+		}
+
+		return ret;
+	}
+
+	private static final class Generation {
+		final long                                             policyVersion;
+		final long                                             roleVersion;
+		final boolean                                          isCacheable;
+		final ConcurrentCacheMap<CacheKey, RangerResourceACLs> entries;
+
+		Generation(long policyVersion, long roleVersion, boolean isCacheable, int maxSize) {
+			this.policyVersion = policyVersion;
+			this.roleVersion   = roleVersion;
+			this.isCacheable   = isCacheable;
+			this.entries       = isCacheable ? new ConcurrentCacheMap<>(maxSize) : null;
+		}
+	}
+
+	public static final class CacheKey {
+		private final String                                    resource;
+		private final String                                    owner;
+		private final String                                    zoneName;
+		private final Integer                                   policyType;
+		private final ResourceMatchingScope                     matchingScope;
+		private final Map<String, ResourceElementMatchingScope> elementMatchingScopes;
+		private final int                                       hashCode;
+
+		CacheKey(RangerAccessRequest request, Integer policyType) {
+			this(request.getResource().getCacheKey(), request.getResource().getOwnerUser(), RangerAccessRequestUtil.getResourceZoneNameFromContext(request.getContext()),
+			     policyType, request.getResourceMatchingScope(), request.getResourceElementMatchingScopes());
+		}
+
+		private CacheKey(String resource, String owner, String zoneName, Integer policyType, ResourceMatchingScope matchingScope, Map<String, ResourceElementMatchingScope> elementMatchingScopes) {
+			this.resource              = resource;
+			this.owner                 = owner;
+			this.zoneName              = zoneName;
+			this.policyType            = policyType;
+			this.matchingScope         = matchingScope;
+			this.elementMatchingScopes = elementMatchingScopes != null ? elementMatchingScopes : Collections.emptyMap();
+			this.hashCode              = Objects.hash(resource, owner, zoneName, policyType, matchingScope, this.elementMatchingScopes);
+		}
+
+		// keys stored in the cache must not share collections with the request, which can be modified by the caller
+		CacheKey copy() {
+			return new CacheKey(resource, owner, zoneName, policyType, matchingScope, elementMatchingScopes.isEmpty() ? elementMatchingScopes : new HashMap<>(elementMatchingScopes));
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			} else if (!(obj instanceof CacheKey)) {
+				return false;
+			}
+
+			CacheKey other = (CacheKey) obj;
+
+			return hashCode == other.hashCode &&
+			       matchingScope == other.matchingScope &&
+			       Objects.equals(policyType, other.policyType) &&
+			       Objects.equals(resource, other.resource) &&
+			       Objects.equals(owner, other.owner) &&
+			       Objects.equals(zoneName, other.zoneName) &&
+			       Objects.equals(elementMatchingScopes, other.elementMatchingScopes);
+		}
+
+		@Override
+		public String toString() {
+			return "CacheKey={resource=" + resource + ", owner=" + owner + ", zoneName=" + zoneName + ", policyType=" + policyType +
+			       ", matchingScope=" + matchingScope + ", elementMatchingScopes=" + elementMatchingScopes + "}";
+		}
+	}
+}
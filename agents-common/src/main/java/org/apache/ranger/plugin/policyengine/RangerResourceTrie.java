@@ -50,67 +50,88 @@
     private static final Logger PERF_TRIE_INIT_LOG = RangerPerfTracer.getPerfLogger("resourcetrie.init");
     private static final Logger PERF_TRIE_OP_LOG   = RangerPerfTracer.getPerfLogger("resourcetrie.op");
 
-    private static final String DEFAULT_WILDCARD_CHARS    = "*?";
-    private static final String TRIE_BUILDER_THREAD_COUNT = "ranger.policyengine.trie.builder.thread.count";
-
-    private final RangerResourceDef resourceDef;
-    private final boolean           optIgnoreCase;
-    private final boolean           optWildcard;
-    private final String            wildcardChars;
-    private final boolean           isOptimizedForRetrieval;
-    private final boolean           isOptimizedForSpace;
-    private final Character         separatorChar;
-    private       Set<T>            inheritedEvaluators;
-    private final TrieNode<T>       root;
+    private static final String DEFAULT_WILDCARD_CHARS              = "*?";
+    private static final String TRIE_BUILDER_THREAD_COUNT           = "ranger.policyengine.trie.builder.thread.count";
+    private static final int    COMPACT_NODE_EVALUATOR_SET_CAPACITY = 2;
+
+    private final RangerResourceDef     resourceDef;
+    private final boolean               optIgnoreCase;
+    private final boolean               optWildcard;
+    private final String                wildcardChars;
+    private final boolean               isOptimizedForRetrieval;
+    private final boolean               isOptimizedForSpace;
+    private final boolean               isCompactNodes;
+    private final Character             separatorChar;
+    private final RangerResourceTrie<T> nodeFactory;
+    private       Set<T>                inheritedEvaluators;
+    private       boolean               isInheritedEvaluatorsShared; // true when shared with a copy of this trie
+    private       TrieNode<T>           root;
+    private       Set<TrieNode<T>>      updatedNodes;                // nodes created since last wrapUpUpdate(), not yet shared with a copy
 
     public RangerResourceTrie(RangerResourceDef resourceDef, List<T> evaluators) {
         this(resourceDef, evaluators, true, null);
     }
 
+    /*
+     * The copy shares all nodes with the given trie, until updated: add() and delete() replace the shared nodes in the path
+     * to the updated node with copies, so that the cost of applying a delta is proportional to the number of nodes updated
+     * rather than the size of the trie. Since a shared node can be reached from more than one root, nodes don't track
+     * their parent.
+     */
     public RangerResourceTrie(RangerResourceTrie<T> other) {
+        this(other, other.nodeFactory);
+
         RangerPerfTracer perf = null;
 
         if(RangerPerfTracer.isPerfTraceEnabled(PERF_TRIE_INIT_LOG)) {
             perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrie.copyTrie(name=" + other.resourceDef.getName() + ")");
         }
 
-        this.resourceDef             = other.resourceDef;
-        this.optIgnoreCase           = other.optIgnoreCase;
-        this.optWildcard             = other.optWildcard;
-        this.wildcardChars           = other.wildcardChars;
-        this.isOptimizedForSpace     = other.isOptimizedForSpace;
-        this.isOptimizedForRetrieval = other.isOptimizedForRetrieval;
-        this.separatorChar           = other.separatorChar;
-        this.inheritedEvaluators     = other.inheritedEvaluators != null ? new HashSet<>(other.inheritedEvaluators) : null;
-        this.root                    = copyTrieSubtree(other.root, null);
+        other.setShared();
 
-        wrapUpUpdate();
-
-        if (!isOptimizedForRetrieval) {
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("Trie for " + this.resourceDef.getName() + " is not optimized for retrieval. Resetting isSetup flag by calling undoSetup() on the root");
-            }
-            root.undoSetup();
-        }
+        this.inheritedEvaluators         = other.inheritedEvaluators;
+        this.isInheritedEvaluatorsShared = other.isInheritedEvaluatorsShared;
+        this.root                        = other.root;
 
         RangerPerfTracer.logAlways(perf);
 
-        if (PERF_TRIE_INIT_LOG.isDebugEnabled()) {
-            PERF_TRIE_INIT_LOG.debug(toString());
-        }
-
         if (TRACE_LOG.isTraceEnabled()) {
             TRACE_LOG.trace("Trie Dump from RangerResourceTrie.copyTrie(name=" + other.resourceDef.getName() + "):\n[" + dumpTrie() + "]");
         }
     }
 
+    /*
+     * nodeFactory: enclosing instance of all nodes of the trie and its copies. When null, this trie is used as the factory;
+     * such a trie has no root, hence nodes shared with later copies don't keep earlier roots reachable.
+     */
+    private RangerResourceTrie(RangerResourceTrie<T> other, RangerResourceTrie<T> nodeFactory) {
+        this.resourceDef             = other.resourceDef;
+        this.optIgnoreCase           = other.optIgnoreCase;
+        this.optWildcard             = other.optWildcard;
+        this.wildcardChars           = other.wildcardChars;
+        this.isOptimizedForSpace     = other.isOptimizedForSpace;
+        this.isOptimizedForRetrieval = other.isOptimizedForRetrieval;
+        this.isCompactNodes          = other.isCompactNodes;
+        this.separatorChar           = other.separatorChar;
+        this.nodeFactory             = nodeFactory != null ? nodeFactory : this;
+    }
+
     public RangerResourceTrie(RangerResourceDef resourceDef, List<T> evaluators, boolean isOptimizedForRetrieval, RangerPluginContext pluginContext) {
         this(resourceDef, evaluators, isOptimizedForRetrieval, false, pluginContext);
     }
 
     public <E> RangerResourceTrie(RangerResourceDef resourceDef, List<E> evaluators, boolean isOptimizedForRetrieval, boolean isOptimizedForSpace, RangerPluginContext pluginContext) {
+        this(resourceDef, evaluators, isOptimizedForRetrieval, isOptimizedForSpace, false, pluginContext);
+    }
+
+    /*
+     * isCompactNodes: when true, children of each node are stored in a CharArrayMap instead of HashMap and evaluator sets of nodes
+     * start small; this reduces the memory used by the trie significantly, at the cost of a binary-search (instead of hash lookup)
+     * at each node during retrieval.
+     */
+    public <E> RangerResourceTrie(RangerResourceDef resourceDef, List<E> evaluators, boolean isOptimizedForRetrieval, boolean isOptimizedForSpace, boolean isCompactNodes, RangerPluginContext pluginContext) {
         if(LOG.isDebugEnabled()) {
-            LOG.debug("==> RangerResourceTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + ", isOptimizedForRetrieval=" + isOptimizedForRetrieval + ", isOptimizedForSpace=" + isOptimizedForSpace + ")");
+            LOG.debug("==> RangerResourceTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + ", isOptimizedForRetrieval=" + isOptimizedForRetrieval + ", isOptimizedForSpace=" + isOptimizedForSpace + ", isCompactNodes=" + isCompactNodes + ")");
         }
 
         RangerPerfTracer perf = null;
@@ -155,7 +176,9 @@ public <E> RangerResourceTrie(RangerResourceDef resourceDef, List<E> evaluators,
         this.wildcardChars           = optWildcard ? DEFAULT_WILDCARD_CHARS + tokenReplaceSpecialChars : "" + tokenReplaceSpecialChars;
         this.isOptimizedForSpace     = isOptimizedForSpace;
         this.isOptimizedForRetrieval = !isOptimizedForSpace && isOptimizedForRetrieval;  // isOptimizedForSpace takes precedence
+        this.isCompactNodes          = isCompactNodes;
         this.separatorChar           = ServiceDefUtil.getCharOption(matcherOptions, OPTION_PATH_SEPARATOR, DEFAULT_PATH_SEPARATOR_CHAR);
+        this.nodeFactory             = new RangerResourceTrie<>(this, null);
 
         final TrieNode<T> tmpRoot = buildTrie(resourceDef, evaluators, builderThreadCount);
 
@@ -178,7 +201,7 @@ public <E> RangerResourceTrie(RangerResourceDef resourceDef, List<E> evaluators,
         }
 
         if(LOG.isDebugEnabled()) {
-            LOG.debug("<== RangerResourceTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + ", isOptimizedForRetrieval=" + this.isOptimizedForRetrieval + ", isOptimizedForSpace=" + this.isOptimizedForSpace + "): " + this);
+            LOG.debug("<== RangerResourceTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + ", isOptimizedForRetrieval=" + this.isOptimizedForRetrieval + ", isOptimizedForSpace=" + this.isOptimizedForSpace + ", isCompactNodes=" + this.isCompactNodes + "): " + this);
         }
     }
 
@@ -239,7 +262,7 @@ public void add(RangerPolicyResource resource, T evaluator) {
             } else {
                 if (CollectionUtils.isNotEmpty(resource.getValues())) {
                     for (String value : resource.getValues()) {
-                        insert(root, value, resource.getIsRecursive(), evaluator);
+                        insertForUpdate(value, resource.getIsRecursive(), evaluator);
                     }
                 }
             }
@@ -268,8 +291,9 @@ public void delete(RangerPolicyResource resource, T evaluator) {
         } else {
             for (String value : resource.getValues()) {
                 TrieNode<T> node = getNodeForResource(value);
-                if (node != null) {
-                    node.removeEvaluatorFromSubtree(evaluator);
+
+                if (node != null && node.hasEvaluator(evaluator)) {
+                    removeForUpdate(value, evaluator);
                 }
             }
         }
@@ -288,6 +312,8 @@ public void wrapUpUpdate() {
                 TRACE_LOG.trace("Trie Dump from RangerResourceTrie.wrapUpUpdate(name=" + resourceDef.getName() + "):\n[" + dumpTrie() + "]");
             }
         }
+
+        updatedNodes = null;
     }
 
     public StringBuilder dumpTrie() {
@@ -305,13 +331,22 @@ TrieNode<T> getRoot() {
     private void addInheritedEvaluator(T evaluator) {
         if (inheritedEvaluators == null) {
             inheritedEvaluators = new HashSet<>();
+        } else if (isInheritedEvaluatorsShared) {
+            inheritedEvaluators = new HashSet<>(inheritedEvaluators);
         }
 
+        isInheritedEvaluatorsShared = false;
+
         inheritedEvaluators.add(evaluator);
     }
 
     private void removeInheritedEvaluator(T evaluator) {
         if (CollectionUtils.isNotEmpty(inheritedEvaluators) && inheritedEvaluators.contains(evaluator)) {
+            if (isInheritedEvaluatorsShared) {
+                inheritedEvaluators         = new HashSet<>(inheritedEvaluators);
+                isInheritedEvaluatorsShared = false;
+            }
+
             inheritedEvaluators.remove(evaluator);
             if (CollectionUtils.isEmpty(inheritedEvaluators)) {
                 inheritedEvaluators = null;
@@ -319,63 +354,178 @@ private void removeInheritedEvaluator(T evaluator) {
         }
     }
 
-    private TrieNode<T> copyTrieSubtree(final TrieNode<T> source, final TrieNode<T> parent) {
-        if (TRACE_LOG.isTraceEnabled()) {
-            StringBuilder sb = new StringBuilder();
-            source.toString(sb);
-            TRACE_LOG.trace("==> copyTrieSubtree(" + sb + ")");
+    // nodes and inherited-evaluators are now shared with a copy, hence must be copied before being updated
+    private void setShared() {
+        updatedNodes                = null;
+        isInheritedEvaluatorsShared = inheritedEvaluators != null;
+    }
+
+    private void insertForUpdate(String resource, boolean isRecursive, T evaluator) {
+        final String            prefix     = getNonWildcardPrefix(resource);
+        final boolean           isWildcard = prefix.length() != resource.length();
+        final List<TrieNode<T>> path       = getPathForUpdate(prefix);
+        final TrieNode<T>       node       = path.get(path.size() - 1);
+
+        if (isWildcard || isRecursive) {
+            if (node.getWildcardEvaluators() == null || !node.getWildcardEvaluators().contains(evaluator)) {
+                copySubtreeForUpdate(node, getWildcardEvaluatorsForSetup(path));
+
+                node.addWildcardEvaluator(evaluator);
+            }
+        } else {
+            node.addEvaluator(evaluator);
+        }
+    }
+
+    private void removeForUpdate(String resource, T evaluator) {
+        final List<TrieNode<T>> path = getPathForUpdate(getNonWildcardPrefix(resource));
+        final TrieNode<T>       node = path.get(path.size() - 1);
+
+        if (node.getWildcardEvaluators() != null && node.getWildcardEvaluators().contains(evaluator)) {
+            copySubtreeForUpdate(node, getWildcardEvaluatorsForSetup(path));
+
+            node.removeWildcardEvaluator(evaluator);
+        } else {
+            node.removeEvaluator(evaluator);
         }
 
-        TrieNode<T> dest = new TrieNode<>(source.str);
+        if (path.size() > 1 && node.isEmpty()) {
+            TrieNode<T> parent = path.get(path.size() - 2);
 
-        if (parent != null) {
-            parent.addChild(dest);
+            parent.getChildren().remove(getLookupChar(node.getStr(), 0));
         }
+    }
 
-        synchronized (source.children) {
-            dest.isSetup                           = source.isSetup;
-            dest.isSharingParentWildcardEvaluators = source.isSharingParentWildcardEvaluators;
+    /*
+     * Returns nodes in the path from root to the node for the given non-wildcard prefix, creating the node if necessary.
+     * Nodes in the returned path can be updated: nodes shared with other tries are replaced with copies.
+     */
+    private List<TrieNode<T>> getPathForUpdate(String prefix) {
+        final List<TrieNode<T>> ret                = new ArrayList<>();
+        TrieNode<T>             curr               = getNodeForUpdate(null, root, null);
+        Set<T>                  wildcardEvaluators = getWildcardEvaluatorsForSetup(curr, null);
+        String                  str                = prefix;
 
-            if (source.isSharingParentWildcardEvaluators) {
-                if (dest.getParent() != null) {
-                    dest.wildcardEvaluators = dest.getParent().getWildcardEvaluators();
-                } else {
-                    dest.wildcardEvaluators = null;
-                }
+        ret.add(curr);
+
+        while (!str.isEmpty()) {
+            TrieNode<T> child = curr.getChild(getLookupChar(str, 0));
+
+            if (child == null) {
+                child = newNodeForUpdate(str);
+
+                curr.addChild(child);
+
+                str = "";
             } else {
-                if (source.wildcardEvaluators != null) {
-                    dest.wildcardEvaluators = new HashSet<>(source.wildcardEvaluators);
-                } else {
-                    dest.wildcardEvaluators = null;
+                final String childStr = child.getStr();
+                final int    len      = Math.min(childStr.length(), str.length());
+                int          index    = 1;
+
+                while (index < len && getLookupChar(childStr, index) == getLookupChar(str, index)) {
+                    index++;
                 }
-            }
 
-            if (source.evaluators != null) {
-                if (source.evaluators == source.wildcardEvaluators) {
-                    dest.evaluators = dest.wildcardEvaluators;
-                } else {
-                    dest.evaluators = new HashSet<>(source.evaluators);
+                child = getNodeForUpdate(curr, child, wildcardEvaluators);
+
+                if (index < childStr.length()) { // break up the child node: prefix matched so far, with the remaining part as its child
+                    TrieNode<T> newChild = newNodeForUpdate(str.substring(0, index));
+
+                    child.setStr(childStr.substring(index));
+                    newChild.addChild(child);
+                    curr.addChild(newChild);
+
+                    child = newChild;
                 }
+
+                str = str.substring(index);
+            }
+
+            wildcardEvaluators = getWildcardEvaluatorsForSetup(child, wildcardEvaluators);
+            curr               = child;
+
+            ret.add(curr);
+        }
+
+        return ret;
+    }
+
+    // returns the given node if it can be updated; otherwise replaces it in parent with a copy
+    private TrieNode<T> getNodeForUpdate(TrieNode<T> parent, TrieNode<T> node, Set<T> parentWildcardEvaluators) {
+        final TrieNode<T> ret;
+
+        if (node == null) {
+            ret  = newNodeForUpdate(null);
+            root = ret;
+        } else if (updatedNodes != null && updatedNodes.contains(node)) {
+            ret = node;
+        } else {
+            ret = newNodeForUpdate(node.getStr());
+
+            ret.copyFrom(node, parentWildcardEvaluators);
+
+            if (parent == null) {
+                root = ret;
             } else {
-                dest.evaluators = null;
+                parent.addChild(ret);
             }
         }
 
-        Map<Character, TrieNode<T>> children = source.getChildren();
+        return ret;
+    }
 
-        for (Map.Entry<Character, TrieNode<T>> entry : children.entrySet()) {
-            copyTrieSubtree(entry.getValue(), dest);
+    private TrieNode<T> newNodeForUpdate(String str) {
+        TrieNode<T> ret = nodeFactory.new TrieNode<>(str);
+
+        if (updatedNodes == null) {
+            updatedNodes = Collections.newSetFromMap(new IdentityHashMap<>());
         }
 
-        if (TRACE_LOG.isTraceEnabled()) {
-            StringBuilder sourceAsString = new StringBuilder(), destAsString = new StringBuilder();
-            source.toString(sourceAsString);
-            dest.toString(destAsString);
+        updatedNodes.add(ret);
+
+        return ret;
+    }
+
+    /*
+     * Wildcard-evaluators of a node are included in evaluators of all its descendants during setup. Hence, on change in
+     * wildcard-evaluators of a node, its descendants that are shared with other tries are replaced with copies; copies are
+     * not setup, hence will include updated wildcard-evaluators once setup.
+     */
+    private void copySubtreeForUpdate(TrieNode<T> node, Set<T> wildcardEvaluators) {
+        if (!isOptimizedForSpace) {
+            for (TrieNode<T> child : new ArrayList<>(node.getChildren().values())) {
+                TrieNode<T> childForUpdate = getNodeForUpdate(node, child, wildcardEvaluators);
 
-            TRACE_LOG.trace("<== copyTrieSubtree(" + sourceAsString + ") : " + destAsString);
+                copySubtreeForUpdate(childForUpdate, getWildcardEvaluatorsForSetup(childForUpdate, wildcardEvaluators));
+            }
         }
+    }
+
+    // wildcard-evaluators of the node, including those inherited from its ancestors, as computed by setup of the node
+    private Set<T> getWildcardEvaluatorsForSetup(TrieNode<T> node, Set<T> parentWildcardEvaluators) {
+        final Set<T> ret;
 
-        return dest;
+        if (isOptimizedForSpace || CollectionUtils.isEmpty(node.getWildcardEvaluators())) {
+            ret = parentWildcardEvaluators;
+        } else if (CollectionUtils.isEmpty(parentWildcardEvaluators)) {
+            ret = node.getWildcardEvaluators();
+        } else {
+            ret = new HashSet<>(parentWildcardEvaluators);
+
+            ret.addAll(node.getWildcardEvaluators());
+        }
+
+        return ret;
+    }
+
+    private Set<T> getWildcardEvaluatorsForSetup(List<TrieNode<T>> path) {
+        Set<T> ret = null;
+
+        for (TrieNode<T> node : path) {
+            ret = getWildcardEvaluatorsForSetup(node, ret);
+        }
+
+        return ret;
     }
 
     private <E> TrieNode<T> buildTrie(RangerResourceDef resourceDef, List<E> evaluators, int builderThreadCount) {
@@ -389,7 +539,7 @@ private <E> TrieNode<T> buildTrie(RangerResourceDef resourceDef, List<E> evaluat
             perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_INIT_LOG, "RangerResourceTrie.init(resourceDef=" + resourceDef.getName() + ")");
         }
 
-        TrieNode<T>                           ret             = new TrieNode<>(null);
+        TrieNode<T>                           ret             = nodeFactory.new TrieNode<>(null);
         final boolean                         isMultiThreaded = builderThreadCount > 1;
         final List<ResourceTrieBuilderThread> builderThreads;
         final Map<Character, Integer>         builderThreadMap;
@@ -537,11 +687,11 @@ private int getMaxDepth() {
         return root.getMaxDepth();
     }
 
-    private Character getLookupChar(char ch) {
+    private char getLookupChar(char ch) {
         return optIgnoreCase ? Character.toLowerCase(ch) : ch;
     }
 
-    private Character getLookupChar(String str, int index) {
+    private char getLookupChar(String str, int index) {
         return getLookupChar(str.charAt(index));
     }
 
@@ -690,12 +840,14 @@ public void traverse(String resource, ResourceElementMatchingScope scope, Traver
 
             if (isSelfMatch) { // resource == path(curr)
                 if (resourceEndsWithSep) { // ex: resource=/tmp/
-                    curr.getChildren().values().forEach(c -> c.collectChildEvaluators(separatorChar, 0, handler));
+                    final TrieNode<T> parentNode = curr;
+
+                    curr.getChildren().values().forEach(c -> c.collectChildEvaluators(parentNode, separatorChar, 0, handler));
                 } else { // ex: resource=/tmp
-                    curr = curr.getChild(separatorChar);
+                    TrieNode<T> sepChild = curr.getChild(separatorChar);
 
-                    if (curr != null) {
-                        curr.collectChildEvaluators(separatorChar, 1, handler);
+                    if (sepChild != null) {
+                        sepChild.collectChildEvaluators(curr, separatorChar, 1, handler);
                     }
                 }
             } else if (child != null) { // resource != path(child) ex: (resource=/tmp, path(child)=/tmp/test.txt or path(child)=/tmpdir)
@@ -704,9 +856,9 @@ public void traverse(String resource, ResourceElementMatchingScope scope, Traver
 
                 if (isPrefixMatch) {
                     if (resourceEndsWithSep) { // ex: resource=/tmp/
-                        child.collectChildEvaluators(separatorChar, remainingLen, handler);
+                        child.collectChildEvaluators(curr, separatorChar, remainingLen, handler);
                     } else if (child.getStr().charAt(remainingLen) == separatorChar) { //  ex: resource=/tmp
-                        child.collectChildEvaluators(separatorChar, remainingLen + 1, handler);
+                        child.collectChildEvaluators(curr, separatorChar, remainingLen + 1, handler);
                     }
                 }
             }
@@ -774,6 +926,7 @@ public String toString() {
         sb.append("; optIgnoreCase=").append(optIgnoreCase);
         sb.append("; optWildcard=").append(optWildcard);
         sb.append("; wildcardChars=").append(wildcardChars);
+        sb.append("; isCompactNodes=").append(isCompactNodes);
         sb.append("; nodeCount=").append(trieData.nodeCount);
         sb.append("; leafNodeCount=").append(trieData.leafNodeCount);
         sb.append("; singleChildNodeCount=").append(trieData.singleChildNodeCount);
@@ -808,7 +961,7 @@ public String toString() {
             }
         }
 
-        private final TrieNode<T>             thisRoot  = new TrieNode<>(null);
+        private final TrieNode<T>             thisRoot  = nodeFactory.new TrieNode<>(null);
         private final BlockingQueue<WorkItem> workQueue = new LinkedBlockingQueue<>();
 
         ResourceTrieBuilderThread() {
@@ -867,8 +1020,7 @@ static class TrieData {
 
     class TrieNode<U extends T> {
         private          String                      str;
-        private          TrieNode<U>                 parent;
-        private final    Map<Character, TrieNode<U>> children = new HashMap<>();
+        private final    Map<Character, TrieNode<U>> children = isCompactNodes ? new CharArrayMap<>() : new HashMap<>();
         private volatile Set<U>                      evaluators;
         private volatile Set<U>                      wildcardEvaluators;
         private          boolean                     isSharingParentWildcardEvaluators;
@@ -886,14 +1038,6 @@ void setStr(String str) {
             this.str = str;
         }
 
-        TrieNode<U> getParent() {
-            return parent;
-        }
-
-        void setParent(TrieNode<U> parent) {
-            this.parent = parent;
-        }
-
         Map<Character, TrieNode<U>> getChildren() {
             return children;
         }
@@ -906,8 +1050,9 @@ Set<U> getWildcardEvaluators() {
             return wildcardEvaluators;
         }
 
-        TrieNode<U> getChild(Character ch) {
-            return children.get(ch);
+        @SuppressWarnings("unchecked")
+        TrieNode<U> getChild(char ch) {
+            return isCompactNodes ? ((CharArrayMap<TrieNode<U>>) children).get(ch) : children.get(ch);
         }
 
         void populateTrieData(RangerResourceTrie.TrieData trieData) {
@@ -962,7 +1107,7 @@ int getMaxDepth() {
 
         TrieNode<U> getOrCreateChild(String str) {
             int         len   = str.length();
-            TrieNode<U> child = children.get(getLookupChar(str, 0));
+            TrieNode<U> child = getChild(getLookupChar(str, 0));
 
             if (child == null) {
                 child = new TrieNode<>(str);
@@ -1015,14 +1160,62 @@ TrieNode<U> getOrCreateChild(String str) {
             return child;
         }
 
+        // most nodes have only a few evaluators; with compact nodes, start with a small set instead of the default capacity of 16
+        private Set<U> newEvaluatorSet() {
+            return isCompactNodes ? new HashSet<>(COMPACT_NODE_EVALUATOR_SET_CAPACITY) : new HashSet<>();
+        }
+
         private void addChild(TrieNode<U> child) {
             children.put(getLookupChar(child.getStr(), 0), child);
-            child.setParent(this);
+        }
+
+        boolean hasEvaluator(U evaluator) {
+            synchronized (children) {
+                return (evaluators != null && evaluators.contains(evaluator)) || (wildcardEvaluators != null && wildcardEvaluators.contains(evaluator));
+            }
+        }
+
+        boolean isEmpty() {
+            return evaluators == null && wildcardEvaluators == null && children.isEmpty();
+        }
+
+        /*
+         * Copies evaluators and children of the given node, to be updated in a copy of the trie. Setup of the node is
+         * undone in the copy i.e. evaluators inherited from the parent are removed.
+         */
+        void copyFrom(TrieNode<U> other, Set<U> parentWildcardEvaluators) {
+            synchronized (other.children) {
+                Set<U> otherEvaluators         = other.evaluators;
+                Set<U> otherWildcardEvaluators = other.wildcardEvaluators;
+
+                if (other.isSetup) {
+                    if (otherEvaluators == otherWildcardEvaluators) {
+                        otherEvaluators = null;
+                    } else if (otherEvaluators != null && otherWildcardEvaluators != null) {
+                        otherEvaluators = new HashSet<>(otherEvaluators);
+
+                        otherEvaluators.removeAll(otherWildcardEvaluators);
+                    }
+
+                    if (other.isSharingParentWildcardEvaluators) {
+                        otherWildcardEvaluators = null;
+                    } else if (otherWildcardEvaluators != null && parentWildcardEvaluators != null) {
+                        otherWildcardEvaluators = new HashSet<>(otherWildcardEvaluators);
+
+                        otherWildcardEvaluators.removeAll(parentWildcardEvaluators);
+                    }
+                }
+
+                evaluators         = CollectionUtils.isEmpty(otherEvaluators) ? null : new HashSet<>(otherEvaluators);
+                wildcardEvaluators = CollectionUtils.isEmpty(otherWildcardEvaluators) ? null : new HashSet<>(otherWildcardEvaluators);
+
+                children.putAll(other.children);
+            }
         }
 
         void addEvaluator(U evaluator) {
             if (evaluators == null) {
-                evaluators = new HashSet<>();
+                evaluators = newEvaluatorSet();
             }
 
             evaluators.add(evaluator);
@@ -1030,7 +1223,7 @@ void addEvaluator(U evaluator) {
 
         void addWildcardEvaluator(U evaluator) {
             if (wildcardEvaluators == null) {
-                wildcardEvaluators = new HashSet<>();
+                wildcardEvaluators = newEvaluatorSet();
             }
 
             wildcardEvaluators.add(evaluator);
@@ -1056,66 +1249,6 @@ void removeWildcardEvaluator(U evaluator) {
             }
         }
 
-        void undoSetup() {
-            for (TrieNode<U> child : children.values()) {
-                child.undoSetup();
-            }
-
-            if (isSetup) {
-                if (evaluators != null) {
-                    if (evaluators == wildcardEvaluators) {
-                        evaluators = null;
-                    } else {
-                        if (wildcardEvaluators != null) {
-                            evaluators.removeAll(wildcardEvaluators);
-
-                            if (CollectionUtils.isEmpty(evaluators)) {
-                                evaluators = null;
-                            }
-                        }
-                    }
-                }
-
-                if (wildcardEvaluators != null) {
-                    if (isSharingParentWildcardEvaluators) {
-                        wildcardEvaluators = null;
-                    } else {
-                        Set<U> parentWildcardEvaluators = getParent() == null ? null : getParent().getWildcardEvaluators();
-
-                        if (parentWildcardEvaluators != null) {
-                            wildcardEvaluators.removeAll(parentWildcardEvaluators);
-
-                            if (CollectionUtils.isEmpty(wildcardEvaluators)) {
-                                wildcardEvaluators = null;
-                            }
-                        }
-                    }
-                }
-
-                isSharingParentWildcardEvaluators = false;
-                isSetup                           = false;
-            }
-        }
-
-        void removeSelfFromTrie() {
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("==> removeSelfFromTrie(" + this + ")");
-            }
-            if (evaluators == null && wildcardEvaluators == null && children.size() == 0) {
-                TrieNode<U> parent = getParent();
-                if (parent != null) {
-                    parent.children.remove(str.charAt(0));
-                }
-            } else {
-                if (LOG.isDebugEnabled()) {
-                    LOG.debug("removeSelfFromTrie(" + this + "): node is not removed from Trie : [evaluators:" + evaluators + ", wildcard-evaluators:" + wildcardEvaluators + ", number-of-children-nodes:" + children.size() + "]");
-                }
-            }
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("<== removeSelfFromTrie(" + this + ")");
-            }
-        }
-
         void wrapUpUpdate() {
             if (isOptimizedForRetrieval) {
                 RangerPerfTracer postSetupPerf = null;
@@ -1136,7 +1269,9 @@ void postSetup(Set<U> parentWildcardEvaluators) {
             for (Map.Entry<Character, TrieNode<U>> entry : children.entrySet()) {
                 TrieNode<U> child = entry.getValue();
 
-                child.postSetup(wildcardEvaluators);
+                if (!child.isSetup) { // subtree of a node that is setup is already setup; for example, nodes shared with the trie this was copied from
+                    child.postSetup(wildcardEvaluators);
+                }
             }
         }
 
@@ -1189,9 +1324,9 @@ void setup(Set<U> parentWildcardEvaluators) {
             }
         }
 
-        void collectChildEvaluators(Character sep, int startIdx, TraverseMatchHandler<U> handler) {
+        void collectChildEvaluators(TrieNode<U> parent, char sep, int startIdx, TraverseMatchHandler<U> handler) {
             if (!isOptimizedForSpace) {
-                setupIfNeeded(getParent());
+                setupIfNeeded(parent);
             }
 
             final int sepPos = startIdx < str.length() ? str.indexOf(sep, startIdx) : -1;
@@ -1203,7 +1338,7 @@ void collectChildEvaluators(Character sep, int startIdx, TraverseMatchHandler<U>
 
                 handler.process(this.evaluators);
 
-                children.values().forEach(c -> c.collectChildEvaluators(sep, 0, handler));
+                children.values().forEach(c -> c.collectChildEvaluators(this, sep, 0, handler));
             } else if (sepPos == (str.length() - 1)) { // ex: str=/tmp/test/, startIdx=5
                 if (isOptimizedForSpace) {
                     handler.process(this.wildcardEvaluators);
@@ -1217,12 +1352,12 @@ void collectChildEvaluators(String resource, int startIndex, TraverseMatchHandle
             if (startIndex == resource.length()) {
                 collectChildEvaluators(handler);
             } else if (startIndex < resource.length()) {
-                Character   startChar = getLookupChar(resource, startIndex);
-                TrieNode<U> childNode = children.get(startChar);
+                char        startChar = getLookupChar(resource, startIndex);
+                TrieNode<U> childNode = getChild(startChar);
 
                 if (childNode != null) {
                     if (!isOptimizedForSpace) {
-                        childNode.setupIfNeeded(childNode.getParent());
+                        childNode.setupIfNeeded(this);
                     }
 
                     String childStr = childNode.getStr();
@@ -1245,34 +1380,26 @@ void collectChildEvaluators(String resource, int startIndex, TraverseMatchHandle
         private void collectChildEvaluators(TraverseMatchHandler<U> childEvaluators) {
             Stack<TrieNode<U>> nodes = new Stack<>();
 
-            nodes.addAll(children.values());
+            pushChildren(nodes);
 
             while (!nodes.isEmpty()) {
                 TrieNode<U> childNode = nodes.pop();
 
-                if (!isOptimizedForSpace) {
-                    childNode.setupIfNeeded(childNode.getParent());
-                }
-
                 childEvaluators.process(childNode.wildcardEvaluators);
                 childEvaluators.process(childNode.evaluators);
 
-                nodes.addAll(childNode.children.values());
+                childNode.pushChildren(nodes);
             }
         }
 
-        private void removeEvaluatorFromSubtree(U evaluator) {
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("==> removeEvaluatorFromSubtree(" + evaluator.getId() + ")");
-            }
-            if (CollectionUtils.isNotEmpty(wildcardEvaluators) && wildcardEvaluators.contains(evaluator)) {
-                removeWildcardEvaluator(evaluator);
-            } else {
-                removeEvaluator(evaluator);
-            }
-            removeSelfFromTrie();
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("<== removeEvaluatorFromSubtree(" + evaluator.getId() + ")");
+        // children are setup before being pushed, as setup needs the parent
+        private void pushChildren(Stack<TrieNode<U>> nodes) {
+            for (TrieNode<U> child : children.values()) {
+                if (!isOptimizedForSpace) {
+                    child.setupIfNeeded(this);
+                }
+
+                nodes.push(child);
             }
         }
 
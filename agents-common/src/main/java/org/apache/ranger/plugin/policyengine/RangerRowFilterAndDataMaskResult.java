@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Results of RangerPolicyEngine.evaluateRowFilterAndDataMaskPolicies(): the row-filter result for a table, and the
+ * data-mask results for its columns - in the same order as the column requests.
+ */
+public class RangerRowFilterAndDataMaskResult {
+    private final RangerAccessResult       rowFilterResult;
+    private final List<RangerAccessResult> dataMaskResults;
+
+    public RangerRowFilterAndDataMaskResult(RangerAccessResult rowFilterResult, List<RangerAccessResult> dataMaskResults) {
+        this.rowFilterResult = rowFilterResult;
+        this.dataMaskResults = dataMaskResults != null ? dataMaskResults : new ArrayList<>();
+    }
+
+    public RangerAccessResult getRowFilterResult() {
+        return rowFilterResult;
+    }
+
+    public List<RangerAccessResult> getDataMaskResults() {
+        return dataMaskResults;
+    }
+
+    public List<RangerAccessResult> getAllResults() {
+        List<RangerAccessResult> ret = new ArrayList<>(dataMaskResults.size() + 1);
+
+        if (rowFilterResult != null) {
+            ret.add(rowFilterResult);
+        }
+
+        ret.addAll(dataMaskResults);
+
+        return ret;
+    }
+
+    @Override
+    public String toString() {
+        return "RangerRowFilterAndDataMaskResult={rowFilterResult={" + rowFilterResult + "} dataMaskResults={" + dataMaskResults + "}}";
+    }
+}
@@ -21,6 +21,7 @@
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
@@ -35,12 +36,24 @@
 
 import java.util.*;
 
+/*
+ * Finds security zones of a resource. Zone names returned are unmodifiable sets, shared across calls: results are
+ * cached, keyed by the resource cache-key, as most requests are for resources in a handful of zones. Zone matchers
+ * don't depend on anything in the request other than the resource values, hence cached entries need no invalidation;
+ * a new matcher (and cache) is created when security zones change.
+ */
 public class RangerSecurityZoneMatcher {
     private static final Logger LOG = LoggerFactory.getLogger(RangerSecurityZoneMatcher.class);
 
+    public static final int DEFAULT_ZONES_CACHE_SIZE = 4096;
+
+    private static final Set<String> NO_MATCHERS = Collections.unmodifiableSet(new HashSet<>()); // cached value for resources without any potential zone match
+
     private final Map<String, RangerResourceTrie<RangerZoneResourceMatcher>> resourceZoneTrie;
     private final Set<String>                                                zonesWithTagService;
     private final RangerServiceDef                                           serviceDef;
+    private final boolean                                                    hasZones;
+    private final ConcurrentCacheMap<String, Set<String>>                    zonesCache;
 
     public RangerSecurityZoneMatcher(Map<String, SecurityZoneInfo> securityZones, RangerServiceDef serviceDef, RangerPluginContext pluginContext) {
         this.resourceZoneTrie    = new HashMap<>();
@@ -48,6 +61,13 @@ public RangerSecurityZoneMatcher(Map<String, SecurityZoneInfo> securityZones, Ra
         this.serviceDef          = serviceDef;
 
         buildZoneTrie(securityZones, serviceDef, pluginContext);
+
+        this.hasZones   = MapUtils.isNotEmpty(resourceZoneTrie);
+        this.zonesCache = hasZones ? createZonesCache(pluginContext) : null;
+    }
+
+    public boolean hasZones() {
+        return hasZones;
     }
 
     public boolean hasTagService(String zoneName) {
@@ -55,11 +75,11 @@ public boolean hasTagService(String zoneName) {
     }
 
     public Set<String> getZonesForResourceAndChildren(Map<String, ?> resource) {
-        return getZonesForResourceAndChildren(resource, convertToAccessResource(resource));
+        return hasZones ? getZonesForResourceAndChildren(resource, convertToAccessResource(resource)) : null;
     }
 
     public Set<String> getZonesForResourceAndChildren(RangerAccessResource resource) {
-        return getZonesForResourceAndChildren(resource.getAsMap(), resource);
+        return hasZones ? getZonesForResourceAndChildren(null, resource) : null;
     }
 
     @Override
@@ -82,8 +102,25 @@ public int hashCode() {
     }
 
     private Set<String> getZonesForResourceAndChildren(Map<String, ?> resource, RangerAccessResource accessResource) {
+        String      cacheKey = zonesCache != null ? accessResource.getCacheKey() : null;
+        Set<String> ret      = cacheKey != null ? zonesCache.get(cacheKey) : null;
+
+        if (ret == null) {
+            ret = findZonesForResourceAndChildren(resource != null ? resource : accessResource.getAsMap(), accessResource);
+
+            if (cacheKey != null) {
+                zonesCache.put(cacheKey, ret != null ? ret : NO_MATCHERS);
+            }
+        } else if (LOG.isDebugEnabled()) {
+            LOG.debug("RangerSecurityZoneMatcher.getZonesForResourceAndChildren({}): found in cache - {}", accessResource, ret);
+        }
+
+        return ret == NO_MATCHERS ? null : ret;
+    }
+
+    private Set<String> findZonesForResourceAndChildren(Map<String, ?> resource, RangerAccessResource accessResource) {
         if (LOG.isDebugEnabled()) {
-            LOG.debug("==> RangerSecurityZoneMatcher.getZonesForResourceAndChildren({})", accessResource);
+            LOG.debug("==> RangerSecurityZoneMatcher.findZonesForResourceAndChildren({})", accessResource);
         }
 
         Set<String> ret = null;
@@ -125,6 +162,8 @@ private Set<String> getZonesForResourceAndChildren(Map<String, ?> resource, Rang
                     }
                 }
 
+                ret = ret.size() == 1 ? Collections.singleton(ret.iterator().next()) : Collections.unmodifiableSet(ret);
+
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("zone-names matched resource:[{}]: {}", accessResource, ret);
                 }
@@ -132,7 +171,7 @@ private Set<String> getZonesForResourceAndChildren(Map<String, ?> resource, Rang
         }
 
         if (LOG.isDebugEnabled()) {
-            LOG.debug("<== RangerSecurityZoneMatcher.getZonesForResourceAndChildren({}): ret={}", accessResource, ret);
+            LOG.debug("<== RangerSecurityZoneMatcher.findZonesForResourceAndChildren({}): ret={}", accessResource, ret);
         }
 
         return ret;
@@ -194,7 +233,7 @@ private void buildZoneTrie(Map<String, SecurityZoneInfo> securityZones, RangerSe
             RangerPolicyEngineOptions options = pluginContext.getConfig().getPolicyEngineOptions();
 
             for (RangerResourceDef resourceDef : serviceDef.getResources()) {
-                resourceZoneTrie.put(resourceDef.getName(), new RangerResourceTrie<>(resourceDef, matchers, options.optimizeTrieForSpace, options.optimizeTrieForRetrieval, pluginContext));
+                resourceZoneTrie.put(resourceDef.getName(), new RangerResourceTrie<>(resourceDef, matchers, options.optimizeTrieForSpace, options.optimizeTrieForRetrieval, options.enableCompactTrieNodes, pluginContext));
             }
         }
 
@@ -203,6 +242,13 @@ private void buildZoneTrie(Map<String, SecurityZoneInfo> securityZones, RangerSe
         }
     }
 
+    private static ConcurrentCacheMap<String, Set<String>> createZonesCache(RangerPluginContext pluginContext) {
+        RangerPluginConfig pluginConfig = pluginContext != null ? pluginContext.getConfig() : null;
+        int                cacheSize    = pluginConfig != null ? pluginConfig.getInt(pluginConfig.getPropertyPrefix() + ".policyengine.zones.cache.size", DEFAULT_ZONES_CACHE_SIZE) : DEFAULT_ZONES_CACHE_SIZE;
+
+        return cacheSize > 0 ? new ConcurrentCacheMap<>(cacheSize) : null;
+    }
+
     private RangerAccessResource convertToAccessResource(Map<String, ?> resource) {
         RangerAccessResourceImpl ret = new RangerAccessResourceImpl();
 
@@ -280,6 +280,31 @@ protected boolean hasMatchablePolicyItem(RangerAccessRequest request) {
         return ret;
     }
 
+    // principals referenced in policy items, to index policies by principal; hasMatchablePolicyItem() is false for others
+    public Set<String> getUsers() {
+        return users;
+    }
+
+    public Set<String> getGroups() {
+        return groups;
+    }
+
+    public Set<String> getRoles() {
+        return roles;
+    }
+
+    public boolean hasPublicGroup() {
+        return hasPublicGroup;
+    }
+
+    public boolean hasCurrentUser() {
+        return hasCurrentUser;
+    }
+
+    public boolean hasResourceOwner() {
+        return hasResourceOwner;
+    }
+
     private boolean isOwnerMatch(RangerAccessRequest request) {
         boolean ret = false;
 
@@ -25,7 +25,6 @@
 import java.util.Map;
 
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOCase;
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
@@ -607,12 +606,12 @@ final class CaseSensitiveWildcardMatcher extends AbstractStringResourceMatcher {
 
 	@Override
 	boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-		return FilenameUtils.wildcardMatch(resourceValue, getExpandedValue(evalContext), IOCase.SENSITIVE);
+		return getWildcardPattern(evalContext).isMatch(resourceValue, IOCase.SENSITIVE);
 	}
 
 	@Override
 	public boolean isPrefixMatch(String resourceValue, Map<String, Object> evalContext) {
-		return ResourceMatcher.wildcardPrefixMatch(resourceValue, getExpandedValue(evalContext), IOCase.SENSITIVE);
+		return getWildcardPattern(evalContext).isPrefixMatch(resourceValue, IOCase.SENSITIVE);
 	}
 
 	int getPriority() { return 5 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0); }
@@ -626,12 +625,12 @@ final class CaseInsensitiveWildcardMatcher extends AbstractStringResourceMatcher
 
 	@Override
 	boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-		return FilenameUtils.wildcardMatch(resourceValue, getExpandedValue(evalContext), IOCase.INSENSITIVE);
+		return getWildcardPattern(evalContext).isMatch(resourceValue, IOCase.INSENSITIVE);
 	}
 
 	@Override
 	public boolean isPrefixMatch(String resourceValue, Map<String, Object> evalContext) {
-		return ResourceMatcher.wildcardPrefixMatch(resourceValue, getExpandedValue(evalContext), IOCase.INSENSITIVE);
+		return getWildcardPattern(evalContext).isPrefixMatch(resourceValue, IOCase.INSENSITIVE);
 	}
 
 	int getPriority() {return 6 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0); }
@@ -650,14 +649,14 @@ final class QuotedCaseSensitiveWildcardMatcher extends AbstractStringResourceMat
 	boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
 		IOCase caseSensitivity = startsWithAnyChar(resourceValue, quoteChars) ? IOCase.SENSITIVE : IOCase.INSENSITIVE;
 
-		return FilenameUtils.wildcardMatch(resourceValue, getExpandedValue(evalContext), caseSensitivity);
+		return getWildcardPattern(evalContext).isMatch(resourceValue, caseSensitivity);
 	}
 
 	@Override
 	public boolean isPrefixMatch(String resourceValue, Map<String, Object> evalContext) {
 		IOCase caseSensitivity = startsWithAnyChar(resourceValue, quoteChars) ? IOCase.SENSITIVE : IOCase.INSENSITIVE;
 
-		return ResourceMatcher.wildcardPrefixMatch(resourceValue, getExpandedValue(evalContext), caseSensitivity);
+		return getWildcardPattern(evalContext).isPrefixMatch(resourceValue, caseSensitivity);
 	}
 
 	int getPriority() {return 6 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0); }
@@ -20,7 +20,6 @@
 package org.apache.ranger.plugin.resourcematcher;
 
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOCase;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
@@ -140,7 +139,7 @@ ResourceMatcher getMatcher(String policyValue) {
 		return ret;
 	}
 
-	static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath, Character pathSeparatorChar, IOCase caseSensitivity, String[] wildcardPathElements) {
+	static boolean isRecursiveWildCardMatch(String pathToCheck, WildcardPattern wildcardPath, Character pathSeparatorChar, IOCase caseSensitivity, String[] wildcardPathElements) {
 
 		boolean ret = false;
 
@@ -179,7 +178,7 @@ static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath,
 					}
 
 					if (!useStringMatching) {
-						ret = FilenameUtils.wildcardMatch(sb.toString(), wildcardPath, caseSensitivity);
+						ret = wildcardPath.isMatch(sb.toString(), caseSensitivity);
 						if (ret) {
 							break;
 						}
@@ -198,7 +197,7 @@ static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath,
 
 				sb = null;
 			} else { // pathToCheck consists of only pathSeparatorChar
-				ret = FilenameUtils.wildcardMatch(pathToCheck, wildcardPath, caseSensitivity);
+				ret = wildcardPath.isMatch(pathToCheck, caseSensitivity);
 			}
 		}
 		return ret;
@@ -261,14 +260,14 @@ private ResourceMatcher getPathMatcher(String policyValue) {
 		}
 
 		if (needWildcardMatch) { // test?, test*a*, test*a*b, *test*a
-			ret = new WildcardResourceMatcher(policyValue, getOptions(), pathSeparatorChar, optIgnoreCase, FilenameUtils::wildcardMatch, 6);
+			ret = new WildcardResourceMatcher(policyValue, getOptions(), pathSeparatorChar, optIgnoreCase, 6);
 		} else if (wildcardStartIdx == -1) { // test, testa, testab
 			ret = new PathResourceMatcher(policyValue, getOptions(), pathSeparatorChar, optIgnoreCase ? StringUtils::equalsIgnoreCase : StringUtils::equals, !optIgnoreCase, optIgnoreCase ? 2 : 1);
 		} else if (wildcardStartIdx == 0) { // *test, **test, *testa, *testab
 			String matchStr = policyValue.substring(wildcardEndIdx + 1);
 			ret = new PathEndsWithResourceMatcher(matchStr, getOptions(), pathSeparatorChar, !optIgnoreCase, optIgnoreCase ? 4 : 3);
 		} else if (wildcardEndIdx != (len - 1)) { // test*a, test*ab
-			ret = new WildcardResourceMatcher(policyValue, getOptions(), pathSeparatorChar, optIgnoreCase, FilenameUtils::wildcardMatch, 6);
+			ret = new WildcardResourceMatcher(policyValue, getOptions(), pathSeparatorChar, optIgnoreCase, 6);
 		} else { // test*, test**, testa*, testab*
 			String matchStr = policyValue.substring(0, wildcardStartIdx);
 			ret = new PathStartsWithResourceMatcher(matchStr, getOptions(), pathSeparatorChar, !optIgnoreCase, optIgnoreCase ? 4 : 3);
@@ -281,10 +280,6 @@ private ResourceMatcher getPathMatcher(String policyValue) {
 		return ret;
 	}
 
-	interface TriFunction<T, U, V, R> {
-		R apply(T t, U u, V v);
-	}
-
 	interface QuadFunction<T, U, V, W, R> {
 		R apply(T t, U u, V v, W w);
 	}
@@ -512,14 +507,12 @@ public boolean isChildMatch(String resourceValue, Map<String, Object> evalContex
 	}
 
 	static class WildcardResourceMatcher extends AbstractPathResourceMatcher {
-		final TriFunction<String, String, IOCase, Boolean> function;
-		final IOCase                                       ioCase;
+		final IOCase ioCase;
 
-		WildcardResourceMatcher(String value, Map<String, String> options, char pathSeparatorChar, boolean optIgnoreCase, TriFunction<String, String, IOCase, Boolean> function, int priority) {
+		WildcardResourceMatcher(String value, Map<String, String> options, char pathSeparatorChar, boolean optIgnoreCase, int priority) {
 			super(value, options, pathSeparatorChar, !optIgnoreCase, priority);
 
-			this.function = function;
-			this.ioCase   = optIgnoreCase ? IOCase.INSENSITIVE : IOCase.SENSITIVE;
+			this.ioCase = optIgnoreCase ? IOCase.INSENSITIVE : IOCase.SENSITIVE;
 		}
 
 		@Override
@@ -528,11 +521,11 @@ public boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
 				LOG.debug("==> WildcardResourceMatcher.isMatch(resourceValue=" + resourceValue + ", evalContext=" + evalContext + ")");
 			}
 
-			String  expandedValue = getExpandedValue(evalContext);
-			boolean ret           = function.apply(resourceValue, expandedValue, ioCase);
+			WildcardPattern wildcardPattern = getWildcardPattern(evalContext);
+			boolean         ret             = wildcardPattern.isMatch(resourceValue, ioCase);
 
 			if (LOG.isDebugEnabled()) {
-				LOG.debug("<== WildcardResourceMatcher.isMatch(resourceValue=" + resourceValue + ", expandedValue=" + expandedValue + ") : result:[" + ret + "]");
+				LOG.debug("<== WildcardResourceMatcher.isMatch(resourceValue=" + resourceValue + ", expandedValue=" + wildcardPattern.getPattern() + ") : result:[" + ret + "]");
 			}
 			return ret;
 		}
@@ -543,7 +536,7 @@ public boolean isPrefixMatch(String resourceValue, Map<String, Object> evalConte
 				LOG.debug("==> WildcardResourceMatcher.isPrefixMatch(resourceValue=" + resourceValue + ", evalContext=" + evalContext + ")");
 			}
 
-			boolean ret = ResourceMatcher.wildcardPrefixMatch(resourceValue, getExpandedValue(evalContext), ioCase);
+			boolean ret = getWildcardPattern(evalContext).isPrefixMatch(resourceValue, ioCase);
 
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("<== WildcardResourceMatcher.isPrefixMatch(resourceValue=" + resourceValue + ", expandedValue=" + getExpandedValue(evalContext) + ") : result:[" + ret + "]");
@@ -564,7 +557,7 @@ public boolean isChildMatch(String resourceValue, Map<String, Object> evalContex
 					resourceValue = resourceValue.substring(0, resourceValue.length()-1);
 				}
 
-				ret = function.apply(resourceValue, shorterExpandedValue, ioCase);
+				ret = WildcardPattern.compile(shorterExpandedValue).isMatch(resourceValue, ioCase);
 			}
 
 			return ret;
@@ -572,11 +565,11 @@ public boolean isChildMatch(String resourceValue, Map<String, Object> evalContex
 	}
 
 	static class RecursiveWildcardResourceMatcher extends AbstractPathResourceMatcher {
-		final QuintFunction<String, String, Character, IOCase, Boolean, String[]> function;
+		final QuintFunction<String, WildcardPattern, Character, IOCase, Boolean, String[]> function;
 		final IOCase ioCase;
 		String[] wildcardPathElements;
 
-		RecursiveWildcardResourceMatcher(String value, Map<String, String> options, char pathSeparatorChar, boolean optIgnoreCase, QuintFunction<String, String, Character, IOCase, Boolean, String[]> function, int priority) {
+		RecursiveWildcardResourceMatcher(String value, Map<String, String> options, char pathSeparatorChar, boolean optIgnoreCase, QuintFunction<String, WildcardPattern, Character, IOCase, Boolean, String[]> function, int priority) {
 			super(value, options, pathSeparatorChar, !optIgnoreCase, priority);
 
 			this.function = function;
@@ -591,18 +584,15 @@ boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("==> RecursiveWildcardResourceMatcher.isMatch(resourceValue=" + resourceValue + ", evalContext=" + evalContext + ")");
 			}
-			String expandedValue;
+			WildcardPattern wildcardPattern = getWildcardPattern(evalContext);
 			if (getNeedsDynamicEval()) {
-				expandedValue = getExpandedValue(evalContext);
-				wildcardPathElements = StringUtils.split(expandedValue, pathSeparatorChar);
-			} else {
-				expandedValue = value;
+				wildcardPathElements = StringUtils.split(wildcardPattern.getPattern(), pathSeparatorChar);
 			}
 
-			boolean ret = function.apply(resourceValue, expandedValue, pathSeparatorChar, ioCase, wildcardPathElements);
+			boolean ret = function.apply(resourceValue, wildcardPattern, pathSeparatorChar, ioCase, wildcardPathElements);
 
 			if (LOG.isDebugEnabled()) {
-				LOG.debug("<== RecursiveWildcardResourceMatcher.isMatch(resourceValue=" + resourceValue + ", expandedValue=" + expandedValue + ") : result:[" + ret + "]");
+				LOG.debug("<== RecursiveWildcardResourceMatcher.isMatch(resourceValue=" + resourceValue + ", expandedValue=" + wildcardPattern.getPattern() + ") : result:[" + ret + "]");
 			}
 			return ret;
 		}
@@ -613,7 +603,7 @@ public boolean isPrefixMatch(String resourceValue, Map<String, Object> evalConte
 				LOG.debug("==> RecursiveWildcardResourceMatcher.isPrefixMatch(resourceValue=" + resourceValue + ", evalContext=" + evalContext + ")");
 			}
 
-			boolean ret = ResourceMatcher.wildcardPrefixMatch(resourceValue, getExpandedValue(evalContext), ioCase);
+			boolean ret = getWildcardPattern(evalContext).isPrefixMatch(resourceValue, ioCase);
 
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("<== RecursiveWildcardResourceMatcher.isPrefixMatch(resourceValue=" + resourceValue + ", expandedValue=" + getExpandedValue(evalContext) + ") : result:[" + ret + "]");
@@ -636,7 +626,7 @@ public boolean isChildMatch(String resourceValue, Map<String, Object> evalContex
 
 				String[] shorterWildCardPathElements = StringUtils.split(shorterExpandedValue, pathSeparatorChar);
 
-				ret = function.apply(resourceValue, shorterExpandedValue, pathSeparatorChar, ioCase, shorterWildCardPathElements);
+				ret = function.apply(resourceValue, WildcardPattern.compile(shorterExpandedValue), pathSeparatorChar, ioCase, shorterWildCardPathElements);
 			}
 
 			return ret;
@@ -705,7 +695,7 @@ public boolean isPrefixMatch(String resourceValue, Map<String, Object> evalConte
 				LOG.debug("==> RecursiveWildcardResourceMatcher.isPrefixMatch(resourceValue=" + resourceValue + ", evalContext=" + evalContext + ")");
 			}
 
-			boolean ret = ResourceMatcher.wildcardPrefixMatch(resourceValue, getExpandedValue(evalContext), ioCase);
+			boolean ret = getWildcardPattern(evalContext).isPrefixMatch(resourceValue, ioCase);
 
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("<== RecursiveWildcardResourceMatcher.isPrefixMatch(resourceValue=" + resourceValue + ", expandedValue=" + getExpandedValue(evalContext) + ") : result:[" + ret + "]");
@@ -20,7 +20,6 @@
 package org.apache.ranger.plugin.resourcematcher;
 
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOCase;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
@@ -142,7 +141,7 @@ ResourceMatcher getMatcher(String policyValue) {
         return ret;
     }
 
-    static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath, char pathSeparatorChar, IOCase caseSensitivity) {
+    static boolean isRecursiveWildCardMatch(String pathToCheck, WildcardPattern wildcardPath, char pathSeparatorChar, IOCase caseSensitivity) {
 
         boolean ret = false;
 
@@ -170,7 +169,7 @@ static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath,
                     for (String p : pathElements) {
                         sb.append(p);
 
-                        ret = FilenameUtils.wildcardMatch(sb.toString(), wildcardPath, caseSensitivity);
+                        ret = wildcardPath.isMatch(sb.toString(), caseSensitivity);
 
                         if (ret) {
                             break;
@@ -184,12 +183,12 @@ static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath,
                         if (!isEndsWithPathSeparator) {
                             sb.deleteCharAt(sb.length()-1);
                         }
-                        ret = FilenameUtils.wildcardMatch(sb.toString(), wildcardPath, caseSensitivity);
+                        ret = wildcardPath.isMatch(sb.toString(), caseSensitivity);
                     }
 
                     sb = null;
                 } else { // pathToCheck consists of only pathSeparatorChar
-                    ret = FilenameUtils.wildcardMatch(pathToCheck, wildcardPath, caseSensitivity);
+                    ret = wildcardPath.isMatch(pathToCheck, caseSensitivity);
                 }
             }
 
@@ -243,12 +242,12 @@ final class CaseSensitiveURLRecursiveWildcardMatcher extends AbstractStringResou
 
     @Override
     boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-        return RangerURLResourceMatcher.isRecursiveWildCardMatch(resourceValue, getExpandedValue(evalContext), levelSeparatorChar, IOCase.SENSITIVE);
+        return RangerURLResourceMatcher.isRecursiveWildCardMatch(resourceValue, getWildcardPattern(evalContext), levelSeparatorChar, IOCase.SENSITIVE);
     }
 
     @Override
     public boolean isPrefixMatch(String resourceValue, Map<String, Object> evalContext) {
-        return ResourceMatcher.wildcardPrefixMatch(resourceValue, getExpandedValue(evalContext), IOCase.SENSITIVE);
+        return getWildcardPattern(evalContext).isPrefixMatch(resourceValue, IOCase.SENSITIVE);
     }
 
     int getPriority() { return 7 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0);}
@@ -263,12 +262,12 @@ final class CaseInsensitiveURLRecursiveWildcardMatcher extends AbstractStringRes
 
     @Override
     boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-        return RangerURLResourceMatcher.isRecursiveWildCardMatch(resourceValue, getExpandedValue(evalContext), levelSeparatorChar, IOCase.INSENSITIVE);
+        return RangerURLResourceMatcher.isRecursiveWildCardMatch(resourceValue, getWildcardPattern(evalContext), levelSeparatorChar, IOCase.INSENSITIVE);
     }
 
     @Override
     public boolean isPrefixMatch(String resourceValue, Map<String, Object> evalContext) {
-        return ResourceMatcher.wildcardPrefixMatch(resourceValue, getExpandedValue(evalContext), IOCase.INSENSITIVE);
+        return getWildcardPattern(evalContext).isPrefixMatch(resourceValue, IOCase.INSENSITIVE);
     }
 
     int getPriority() { return 8 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0);}
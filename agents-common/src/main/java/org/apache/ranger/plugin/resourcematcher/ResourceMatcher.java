@@ -44,6 +44,8 @@ abstract class ResourceMatcher {
     protected final String                    value;
     protected final RangerRequestExprResolver exprResolver;
     protected       StringTokenReplacer       tokenReplacer;
+    private         WildcardPattern           wildcardPattern;
+    private volatile WildcardPattern          expandedWildcardPattern;
 
     static final int DYNAMIC_EVALUATION_PENALTY = 8;
 
@@ -118,6 +120,36 @@ void setDelimiters(char startDelimiterChar, char endDelimiterChar, char escapeCh
         }
     }
 
+    /*
+     * Returns the compiled wildcard pattern for this matcher's value. For values that need dynamic evaluation, the pattern for
+     * the most recently expanded value is reused when the expansion for this call yields the same value.
+     */
+    WildcardPattern getWildcardPattern(Map<String, Object> evalContext) {
+        WildcardPattern ret;
+
+        if (getNeedsDynamicEval()) {
+            String expandedValue = getExpandedValue(evalContext);
+
+            ret = expandedWildcardPattern;
+
+            if (ret == null || !StringUtils.equals(ret.getPattern(), expandedValue)) {
+                ret = WildcardPattern.compile(expandedValue);
+
+                expandedWildcardPattern = ret;
+            }
+        } else {
+            ret = wildcardPattern;
+
+            if (ret == null) { // compiled on first use, as tokenReplacer is set after construction, in setDelimiters()
+                ret = WildcardPattern.compile(value);
+
+                wildcardPattern = ret;
+            }
+        }
+
+        return ret;
+    }
+
     String getExpandedValue(Map<String, Object> evalContext) {
         String ret = value;
 
@@ -187,14 +219,18 @@ public static boolean wildcardPrefixMatch(String value, String wildcardMatcher,
             caseSensitivity = IOCase.SENSITIVE;
         }
 
-        List<String> wcsTokens = splitOnTokens(wildcardMatcher);
+        return wildcardPrefixMatch(value, splitOnTokens(wildcardMatcher).toArray(new String[0]), caseSensitivity);
+    }
+
+    // wcsTokens: wildcardMatcher tokenized by splitOnTokens(); WildcardPattern tokenizes once and calls this for each match
+    static boolean wildcardPrefixMatch(String value, String[] wcsTokens, IOCase caseSensitivity) {
         boolean      anyChars  = false;
         int          textIdx   = 0;
         int          wcsIdx    = 0;
-        Stack<int[]> backtrack = new Stack<>();
+        Stack<int[]> backtrack = null; // created only when needed, as backtracking is rare
 
         do {
-            if (backtrack.size() > 0) {
+            if (backtrack != null && backtrack.size() > 0) {
                 int[] array = backtrack.pop();
 
                 wcsIdx   = array[0];
@@ -202,8 +238,8 @@ public static boolean wildcardPrefixMatch(String value, String wildcardMatcher,
                 anyChars = true;
             }
 
-            for(; wcsIdx < wcsTokens.size(); ++wcsIdx) {
-                String wcsToken = wcsTokens.get(wcsIdx);
+            for(; wcsIdx < wcsTokens.length; ++wcsIdx) {
+                String wcsToken = wcsTokens[wcsIdx];
 
                 if (wcsToken.equals("?")) {
                     ++textIdx;
@@ -216,7 +252,7 @@ public static boolean wildcardPrefixMatch(String value, String wildcardMatcher,
                 } else if (wcsToken.equals("*")) {
                     anyChars = true;
 
-                    if (wcsIdx == wcsTokens.size() - 1) {
+                    if (wcsIdx == wcsTokens.length - 1) {
                         textIdx = value.length();
                     }
                 } else {
@@ -235,6 +271,10 @@ public static boolean wildcardPrefixMatch(String value, String wildcardMatcher,
                         int repeat = caseSensitivity.checkIndexOf(value, textIdx + 1, wcsToken);
 
                         if (repeat >= 0) {
+                            if (backtrack == null) {
+                                backtrack = new Stack<>();
+                            }
+
                             backtrack.push(new int[]{wcsIdx, repeat});
                         }
                     } else if (!caseSensitivity.checkRegionMatches(value, textIdx, wcsToken)) {
@@ -249,10 +289,10 @@ public static boolean wildcardPrefixMatch(String value, String wildcardMatcher,
 
             // changes from FilenameUtils.wildcardMatch(): replaced the condition in 'if' below to check if value is a prefix match for wildcardMatcher
             //   original if: if (wcsIdx == wcsTokens.size() && textIdx == value.length())
-            if (wcsIdx == wcsTokens.size() || textIdx == value.length()) {
+            if (wcsIdx == wcsTokens.length || textIdx == value.length()) {
                 return true;
             }
-        } while (backtrack.size() > 0);
+        } while (backtrack != null && backtrack.size() > 0);
 
         return anyChars;
     }
@@ -0,0 +1,341 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.resourcematcher;
+
+import org.apache.commons.io.IOCase;
+
+import java.util.List;
+import java.util.Stack;
+
+/*
+ * Pre-compiled form of a wildcard pattern (with '*' and '?'), to be used in place of FilenameUtils.wildcardMatch() and
+ * ResourceMatcher.wildcardPrefixMatch(), which tokenize the pattern and allocate on every call.
+ *
+ * A pattern is compiled once - typically when a policy is loaded - into one of:
+ *   - LITERAL:       no wildcards; equals()
+ *   - ANY:           only '*'s; matches any value
+ *   - PREFIX:        literal followed by '*'s; startsWith()
+ *   - SUFFIX:        '*'s followed by literal; endsWith()
+ *   - PREFIX_SUFFIX: literal, '*'s, literal; startsWith() and endsWith()
+ *   - GENERIC:       others; matched using greedy '*' with single backtracking point, without any allocation
+ *   - TOKENS:        '?' following '*'; FilenameUtils.wildcardMatch() ignores such '*' (for example, "a*?c" matches "abc" but
+ *                    not "abbc"). To retain this behavior, these are matched by the same algorithm as FilenameUtils, on
+ *                    tokens computed at compile time
+ * Case-insensitive matching compares characters after folding them as String.regionMatches(true, ...) does; the pattern
+ * is folded once at compile time.
+ *
+ * Instances are immutable and thread-safe.
+ */
+public final class WildcardPattern {
+    private static final char WILDCARD_ANY_CHARS  = '*';
+    private static final char WILDCARD_SINGLE_CHAR = '?';
+
+    private static final WildcardPattern NULL_PATTERN = new WildcardPattern(null);
+
+    private enum Type { NULL, LITERAL, ANY, PREFIX, SUFFIX, PREFIX_SUFFIX, GENERIC, TOKENS }
+
+    private final String   pattern;
+    private final Type     type;
+    private final String   prefix;       // for PREFIX and PREFIX_SUFFIX
+    private final String   suffix;       // for SUFFIX and PREFIX_SUFFIX
+    private final char[]   chars;        // for GENERIC: pattern, with consecutive '*'s collapsed
+    private final char[]   foldedChars;  // for GENERIC: chars, case-folded
+    private final String[] tokens;       // for TOKENS and isPrefixMatch(): pattern, as tokenized by ResourceMatcher.splitOnTokens()
+
+    private WildcardPattern(String pattern) {
+        this.pattern = pattern;
+
+        if (pattern == null) {
+            type        = Type.NULL;
+            prefix      = null;
+            suffix      = null;
+            chars       = null;
+            foldedChars = null;
+            tokens      = null;
+
+            return;
+        }
+
+        final int firstWildcardIdx = indexOfWildcard(pattern, 0);
+
+        if (firstWildcardIdx == -1) {
+            type   = Type.LITERAL;
+            prefix = null;
+            suffix = null;
+        } else {
+            int starsStartIdx = -1;
+            int starsEndIdx   = -1; // exclusive
+
+            for (int i = firstWildcardIdx; i < pattern.length(); i++) {
+                char ch = pattern.charAt(i);
+
+                if (ch == WILDCARD_SINGLE_CHAR) {
+                    starsStartIdx = -1;
+
+                    break;
+                } else if (ch == WILDCARD_ANY_CHARS) {
+                    if (starsStartIdx == -1) {
+                        starsStartIdx = i;
+                    } else if (starsEndIdx != i) { // not a single run of '*'s
+                        starsStartIdx = -1;
+
+                        break;
+                    }
+
+                    starsEndIdx = i + 1;
+                }
+            }
+
+            if (starsStartIdx == -1) {
+                type   = pattern.contains("*?") ? Type.TOKENS : Type.GENERIC;
+                prefix = null;
+                suffix = null;
+            } else {
+                prefix = pattern.substring(0, starsStartIdx);
+                suffix = pattern.substring(starsEndIdx);
+
+                if (prefix.isEmpty()) {
+                    type = suffix.isEmpty() ? Type.ANY : Type.SUFFIX;
+                } else {
+                    type = suffix.isEmpty() ? Type.PREFIX : Type.PREFIX_SUFFIX;
+                }
+            }
+        }
+
+        if (type == Type.GENERIC) {
+            StringBuilder sb = new StringBuilder(pattern.length());
+
+            for (int i = 0; i < pattern.length(); i++) {
+                char ch = pattern.charAt(i);
+
+                if (ch != WILDCARD_ANY_CHARS || sb.length() == 0 || sb.charAt(sb.length() - 1) != WILDCARD_ANY_CHARS) {
+                    sb.append(ch);
+                }
+            }
+
+            chars       = sb.toString().toCharArray();
+            foldedChars = new char[chars.length];
+
+            for (int i = 0; i < chars.length; i++) {
+                foldedChars[i] = fold(chars[i]);
+            }
+        } else {
+            chars       = null;
+            foldedChars = null;
+        }
+
+        List<String> tokenList = ResourceMatcher.splitOnTokens(pattern);
+
+        tokens = tokenList.toArray(new String[0]);
+    }
+
+    public static WildcardPattern compile(String pattern) {
+        return pattern == null ? NULL_PATTERN : new WildcardPattern(pattern);
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public boolean isMatch(String value, IOCase caseSensitivity) {
+        return isMatch(value, caseSensitivity == null || caseSensitivity.isCaseSensitive());
+    }
+
+    // same result as FilenameUtils.wildcardMatch(value, pattern, isCaseSensitive ? IOCase.SENSITIVE : IOCase.INSENSITIVE)
+    public boolean isMatch(String value, boolean isCaseSensitive) {
+        if (value == null) {
+            return type == Type.NULL;
+        }
+
+        final boolean ignoreCase = !isCaseSensitive;
+
+        switch (type) {
+            case NULL:
+                return false;
+
+            case LITERAL:
+                return ignoreCase ? pattern.equalsIgnoreCase(value) : pattern.equals(value);
+
+            case ANY:
+                return true;
+
+            case PREFIX:
+                return value.regionMatches(ignoreCase, 0, prefix, 0, prefix.length());
+
+            case SUFFIX:
+                return value.regionMatches(ignoreCase, value.length() - suffix.length(), suffix, 0, suffix.length());
+
+            case PREFIX_SUFFIX:
+                return value.length() >= (prefix.length() + suffix.length()) &&
+                       value.regionMatches(ignoreCase, 0, prefix, 0, prefix.length()) &&
+                       value.regionMatches(ignoreCase, value.length() - suffix.length(), suffix, 0, suffix.length());
+
+            case GENERIC:
+                return isGenericMatch(value, ignoreCase);
+
+            default:
+                return isTokensMatch(value, ignoreCase ? IOCase.INSENSITIVE : IOCase.SENSITIVE);
+        }
+    }
+
+    public boolean isPrefixMatch(String value, IOCase caseSensitivity) {
+        if (value == null) {
+            return type == Type.NULL;
+        } else if (type == Type.NULL) {
+            return false;
+        }
+
+        return ResourceMatcher.wildcardPrefixMatch(value, tokens, caseSensitivity == null ? IOCase.SENSITIVE : caseSensitivity);
+    }
+
+    @Override
+    public String toString() {
+        return "WildcardPattern={pattern=" + pattern + ", type=" + type + "}";
+    }
+
+    private boolean isGenericMatch(String value, boolean ignoreCase) {
+        final char[] pattern    = ignoreCase ? foldedChars : chars;
+        final int    patternLen = pattern.length;
+        final int    valueLen   = value.length();
+        int          valueIdx   = 0;
+        int          patternIdx = 0;
+        int          starIdx    = -1; // index of the last '*' seen in pattern
+        int          starMatch  = 0;  // index in value from where the last '*' is matched
+
+        while (valueIdx < valueLen) {
+            if (patternIdx < patternLen) {
+                char pc = pattern[patternIdx];
+
+                if (pc == WILDCARD_ANY_CHARS) {
+                    starIdx   = patternIdx++;
+                    starMatch = valueIdx;
+
+                    continue;
+                }
+
+                if (pc == WILDCARD_SINGLE_CHAR || pc == (ignoreCase ? fold(value.charAt(valueIdx)) : value.charAt(valueIdx))) {
+                    valueIdx++;
+                    patternIdx++;
+
+                    continue;
+                }
+            }
+
+            if (starIdx == -1) {
+                return false;
+            }
+
+            // backtrack: let the last '*' match one more character
+            patternIdx = starIdx + 1;
+            valueIdx   = ++starMatch;
+        }
+
+        while (patternIdx < patternLen && pattern[patternIdx] == WILDCARD_ANY_CHARS) {
+            patternIdx++;
+        }
+
+        return patternIdx == patternLen;
+    }
+
+    // same as FilenameUtils.wildcardMatch(), except that the pattern is not tokenized here and backtrack is created only when needed
+    private boolean isTokensMatch(String value, IOCase caseSensitivity) {
+        boolean      anyChars  = false;
+        int          textIdx   = 0;
+        int          wcsIdx    = 0;
+        Stack<int[]> backtrack = null;
+
+        do {
+            if (backtrack != null && backtrack.size() > 0) {
+                int[] array = backtrack.pop();
+
+                wcsIdx   = array[0];
+                textIdx  = array[1];
+                anyChars = true;
+            }
+
+            for (; wcsIdx < tokens.length; ++wcsIdx) {
+                String wcsToken = tokens[wcsIdx];
+
+                if (wcsToken.equals("?")) {
+                    ++textIdx;
+
+                    if (textIdx > value.length()) {
+                        break;
+                    }
+
+                    anyChars = false;
+                } else if (wcsToken.equals("*")) {
+                    anyChars = true;
+
+                    if (wcsIdx == tokens.length - 1) {
+                        textIdx = value.length();
+                    }
+                } else {
+                    if (anyChars) {
+                        textIdx = caseSensitivity.checkIndexOf(value, textIdx, wcsToken);
+
+                        if (textIdx == -1) {
+                            break;
+                        }
+
+                        int repeat = caseSensitivity.checkIndexOf(value, textIdx + 1, wcsToken);
+
+                        if (repeat >= 0) {
+                            if (backtrack == null) {
+                                backtrack = new Stack<>();
+                            }
+
+                            backtrack.push(new int[] { wcsIdx, repeat });
+                        }
+                    } else if (!caseSensitivity.checkRegionMatches(value, textIdx, wcsToken)) {
+                        break;
+                    }
+
+                    textIdx += wcsToken.length();
+
+                    anyChars = false;
+                }
+            }
+
+            if (wcsIdx == tokens.length && textIdx == value.length()) {
+                return true;
+            }
+        } while (backtrack != null && backtrack.size() > 0);
+
+        return false;
+    }
+
+    // characters c1 and c2 are equal per String.regionMatches(true, ...) if and only if fold(c1) == fold(c2)
+    private static char fold(char ch) {
+        return Character.toLowerCase(Character.toUpperCase(ch));
+    }
+
+    private static int indexOfWildcard(String str, int fromIdx) {
+        for (int i = fromIdx; i < str.length(); i++) {
+            char ch = str.charAt(i);
+
+            if (ch == WILDCARD_ANY_CHARS || ch == WILDCARD_SINGLE_CHAR) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -52,6 +52,7 @@
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngineImpl;
 import org.apache.ranger.plugin.policyengine.RangerResourceACLs;
 import org.apache.ranger.plugin.policyengine.RangerResourceAccessInfo;
+import org.apache.ranger.plugin.policyengine.RangerRowFilterAndDataMaskResult;
 import org.apache.ranger.plugin.policyengine.gds.GdsPolicyEngine;
 import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
 import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
@@ -63,20 +64,20 @@
 public class RangerBasePlugin {
 	private static final Logger LOG = LoggerFactory.getLogger(RangerBasePlugin.class);
 
-	private final RangerPluginConfig          pluginConfig;
-	private final RangerPluginContext         pluginContext;
-	private final Map<String, LogHistory>     logHistoryList = new Hashtable<>();
-	private final int                         logInterval    = 30000; // 30 seconds
-	private final DownloadTrigger             accessTrigger  = new DownloadTrigger();
-	private       PolicyRefresher             refresher;
-	private       RangerPolicyEngine          policyEngine;
-	private       RangerAuthContext           currentAuthContext;
-	private       RangerAccessResultProcessor resultProcessor;
-	private       RangerRoles                 roles;
-	private final List<RangerChainedPlugin>   chainedPlugins;
-	private final boolean                     dedupStrings;
-	private       boolean                     isUserStoreEnricherAddedImplcitly = false;
-	private       Map<String, String>         serviceConfigs;
+	private final    RangerPluginConfig          pluginConfig;
+	private final    RangerPluginContext         pluginContext;
+	private final    Map<String, LogHistory>     logHistoryList = new Hashtable<>();
+	private final    int                         logInterval    = 30000; // 30 seconds
+	private final    DownloadTrigger             accessTrigger  = new DownloadTrigger();
+	private          PolicyRefresher             refresher;
+	private volatile RangerPolicyEngine          policyEngine;
+	private          RangerAuthContext           currentAuthContext;
+	private          RangerAccessResultProcessor resultProcessor;
+	private          RangerRoles                 roles;
+	private final    List<RangerChainedPlugin>   chainedPlugins;
+	private final    boolean                     dedupStrings;
+	private          boolean                     isUserStoreEnricherAddedImplcitly = false;
+	private          Map<String, String>         serviceConfigs;
 
 
 	public RangerBasePlugin(String serviceType, String appId) {
@@ -684,6 +685,47 @@ public RangerAccessResult evalRowFilterPolicies(RangerAccessRequest request, Ran
 		return ret;
 	}
 
+	/*
+	 * Evaluates row-filter policies for tableRequest and data-mask policies for columnRequests - requests for columns
+	 * of the table - in one call to the policy engine, instead of one call per column.
+	 */
+	public RangerRowFilterAndDataMaskResult evalRowFilterAndDataMaskPolicies(RangerAccessRequest tableRequest, List<RangerAccessRequest> columnRequests, RangerAccessResultProcessor resultProcessor) {
+		RangerPolicyEngine               policyEngine = this.policyEngine;
+		RangerRowFilterAndDataMaskResult ret          = null;
+
+		if (policyEngine != null) {
+			ret = policyEngine.evaluateRowFilterAndDataMaskPolicies(tableRequest, columnRequests, resultProcessor);
+
+			for (RangerChainedPlugin chainedPlugin : chainedPlugins) {
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("Calling chainedPlugin.evalRowFilterPolicies/evalDataMaskPolicies for service:[" + chainedPlugin.plugin.pluginConfig.getServiceName() + "]");
+				}
+
+				if (ret.getRowFilterResult() != null) {
+					RangerAccessResult chainedResult = chainedPlugin.evalRowFilterPolicies(tableRequest);
+
+					if (chainedResult != null) {
+						updateResultFromChainedResult(ret.getRowFilterResult(), chainedResult);
+					}
+				}
+
+				for (RangerAccessResult result : ret.getDataMaskResults()) {
+					RangerAccessResult chainedResult = chainedPlugin.evalDataMaskPolicies(result.getAccessRequest());
+
+					if (chainedResult != null) {
+						updateResultFromChainedResult(result, chainedResult);
+					}
+				}
+			}
+
+			for (RangerAccessResult result : ret.getAllResults()) {
+				policyEngine.evaluateAuditPolicies(result);
+			}
+		}
+
+		return ret;
+	}
+
 	public void evalAuditPolicies(RangerAccessResult result) {
 		RangerPolicyEngine policyEngine = this.policyEngine;
 
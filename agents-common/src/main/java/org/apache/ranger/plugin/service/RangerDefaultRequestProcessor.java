@@ -25,6 +25,7 @@
 import org.apache.ranger.plugin.contextenricher.RangerContextEnricher;
 import org.apache.ranger.plugin.policyengine.PolicyEngine;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestBatchContext;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequestProcessor;
 import org.apache.ranger.plugin.policyengine.RangerAccessResource;
@@ -70,6 +71,11 @@ public RangerDefaultRequestProcessor(PolicyEngine policyEngine) {
 
     @Override
     public void preProcess(RangerAccessRequest request) {
+        preProcess(request, null);
+    }
+
+    @Override
+    public void preProcess(RangerAccessRequest request, RangerAccessRequestBatchContext batchContext) {
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("==> preProcess(" + request + ")");
@@ -119,7 +125,11 @@ public void preProcess(RangerAccessRequest request) {
 
         Set<String> roles = request.getUserRoles();
         if (pluginContext != null && CollectionUtils.isEmpty(roles)) {
-            roles = pluginContext.getAuthContext().getRolesForUserAndGroups(request.getUser(), request.getUserGroups());
+            if (batchContext != null) {
+                roles = batchContext.getRolesForUserAndGroups(request.getUser(), request.getUserGroups(), pluginContext.getAuthContext());
+            } else {
+                roles = pluginContext.getAuthContext().getRangerRolesUtil().getRolesForUserAndGroups(request.getUser(), request.getUserGroups()); // shared, unmodifiable set
+            }
 
             if (reqImpl != null && roles != null && !roles.isEmpty()) {
                 reqImpl.setUserRoles(roles);
@@ -21,6 +21,8 @@
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.plugin.geo.GeolocationMetadata;
+import org.apache.ranger.plugin.geo.RangerGeolocationArrayIndex;
+import org.apache.ranger.plugin.geo.RangerGeolocationMappedIndex;
 import org.apache.ranger.plugin.store.GeolocationStore;
 import org.apache.ranger.plugin.geo.RangerGeolocationDatabase;
 import org.apache.ranger.plugin.geo.RangerGeolocationData;
@@ -35,8 +37,10 @@
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GeolocationFileStore implements GeolocationStore {
 	private static final Logger LOG = LoggerFactory.getLogger(GeolocationFileStore.class);
@@ -48,7 +52,7 @@ public class GeolocationFileStore implements GeolocationStore {
 	public static final String PROP_GEOLOCATION_FILE_REINIT = "ForceRead";
 	public static final String PROP_GEOLOCATION_IP_IN_DOT_FORMAT = "IPInDotFormat";
 
-	private static Map<String, RangerGeolocationDatabase> geolocationDBMap = new HashMap<>();
+	private static Map<String, RangerGeolocationDatabase> geolocationDBMap = new ConcurrentHashMap<>();
 
 	private RangerGeolocationDatabase geolocationDatabase;
 
@@ -83,6 +87,9 @@ public void init(final Map<String, String> context) {
 			RangerGeolocationDatabase newDatabase = build(filePathToGeolocationFile);
 			if (newDatabase != null) {
 				geolocationDBMap.put(filePathToGeolocationFile, newDatabase);
+				if (database != null && database.getData() != newDatabase.getData() && database.getData() instanceof RangerGeolocationMappedIndex) {
+					RangerGeolocationMappedIndex.release((RangerGeolocationMappedIndex) database.getData()); // so that the old file gets unmapped
+				}
 				database = newDatabase;
 			} else {
 				LOG.error("GeolocationFileStore.init() - Could not build database. Using old database if present.");
@@ -161,8 +168,14 @@ private Reader getReader(String dataFileName) throws IOException {
 	}
 
 	RangerGeolocationDatabase build(String dataFileName) {
+		File dataFile = new File(dataFileName);
+
+		if (RangerGeolocationMappedIndex.isMappedIndexFile(dataFile)) {
+			return buildFromMappedIndex(dataFile);
+		}
 
 		RangerGeolocationDatabase database = null;
+		List<RangerGeolocationData> data = new ArrayList<>();
 
 		BufferedReader bufferedReader = null;
 		long start = 0L, end = 0L;
@@ -180,7 +193,7 @@ RangerGeolocationDatabase build(String dataFileName) {
 
 			while(( line = bufferedReader.readLine()) != null) {
 				lineNumber++;
-				if (!processLine(lineNumber, line, database)) {
+				if (!processLine(lineNumber, line, database, data)) {
 					LOG.error("RangerGeolocationDatabaseBuilder.build() - Invalid geo-specification - " + lineNumber + ":" + line);
 					database = null;
 					break;
@@ -214,13 +227,63 @@ RangerGeolocationDatabase build(String dataFileName) {
 		}
 
 		if (database != null) {
-			database.optimize();
+			start = System.currentTimeMillis();
+			database.setData(new RangerGeolocationArrayIndex(data));
+			end = System.currentTimeMillis();
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("RangerGeolocationDatabaseBuilder.build() - Time taken for indexing " + data.size() + " entries = " + (end - start) + " milliseconds");
+			}
+		}
+
+		return database;
+	}
+
+	private RangerGeolocationDatabase buildFromMappedIndex(File dataFile) {
+		RangerGeolocationDatabase database = null;
+
+		try {
+			RangerGeolocationMappedIndex index = RangerGeolocationMappedIndex.open(dataFile);
+
+			database = new RangerGeolocationDatabase();
+
+			database.setMetadata(index.getMetadata());
+			database.setData(index);
+		}
+		catch(IOException ex) {
+			LOG.error("RangerGeolocationDatabaseBuilder.buildFromMappedIndex() - Error reading file '" + dataFile + "', " + ex);
 		}
 
 		return database;
 	}
 
-	private boolean processLine(int lineNumber, String line, RangerGeolocationDatabase database) {
+	/*
+	 * Converts a geolocation file in text format to binary format, which is memory-mapped when loaded - instead of being read
+	 * and indexed. Usage: GeolocationFileStore <text-file> <binary-file> [ipInDotFormat: true|false, default true]
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: " + GeolocationFileStore.class.getName() + " <text-file> <binary-file> [ipInDotFormat (true|false)]");
+			System.exit(1);
+		}
+
+		GeolocationFileStore store = new GeolocationFileStore();
+
+		store.useDotFormat = args.length < 3 || Boolean.parseBoolean(args[2]);
+
+		RangerGeolocationDatabase database = store.build(args[0]);
+
+		if (database == null) {
+			System.err.println(args[0] + ": failed to read geolocation data");
+			System.exit(1);
+		}
+
+		RangerGeolocationMappedIndex.write(database.getMetadata(), database.getData(), new File(args[1]));
+
+		System.out.println(args[1] + ": wrote " + database.getData().size() + " entries");
+	}
+
+	private boolean processLine(int lineNumber, String line, RangerGeolocationDatabase database, List<RangerGeolocationData> data) {
 
 		boolean ret = true;
 
@@ -239,9 +302,9 @@ private boolean processLine(int lineNumber, String line, RangerGeolocationDataba
 						ret = false;
 					}
 				} else {
-					RangerGeolocationData data = RangerGeolocationData.create(fields, lineNumber, useDotFormat);
-					if (data != null) {
-						database.getData().insert(data);
+					RangerGeolocationData geolocationData = RangerGeolocationData.create(fields, lineNumber, useDotFormat);
+					if (geolocationData != null) {
+						data.add(geolocationData);
 					} else {
 						LOG.error("GeolocationFileStore.processLine() - Invalid data specification " + lineNumber + ":" + line);
 					}
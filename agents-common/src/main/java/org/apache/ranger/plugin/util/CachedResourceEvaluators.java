@@ -25,6 +25,7 @@
 import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.model.validation.RangerServiceDefHelper;
+import org.apache.ranger.plugin.policyengine.ConcurrentCacheMap;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerAccessResource;
 import org.apache.ranger.plugin.policyengine.RangerResourceTrie;
@@ -39,42 +40,98 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
+/*
+ * Cache of service-resource matchers found for a resource, for each of the element-matching-scopes it was looked up with.
+ * Number of cached resources and total number of cached matchers (weight) are bounded; least recently used resources are
+ * evicted first, approximately. Lookups don't take any lock.
+ */
 public class CachedResourceEvaluators {
-    private final Map<String, Map<Map<String, RangerAccessRequest.ResourceElementMatchingScope>, Collection<RangerServiceResourceMatcher>>> cache     = new HashMap<>();
-    private final RangerReadWriteLock                                                                                                       cacheLock = new RangerReadWriteLock(true);
+    public static final int  DEFAULT_MAX_ENTRIES = 100_000;
+    public static final long DEFAULT_MAX_WEIGHT  = 1_000_000L;
+
+    private final ConcurrentCacheMap<String, Map<Map<String, RangerAccessRequest.ResourceElementMatchingScope>, Collection<RangerServiceResourceMatcher>>> cache;
+    private final LongAdder                                                                                                                                hitCount  = new LongAdder();
+    private final LongAdder                                                                                                                                missCount = new LongAdder();
 
     private static final Logger LOG = LoggerFactory.getLogger(CachedResourceEvaluators.class);
     private static final Logger PERF_EVALUATORS_RETRIEVAL_LOG = RangerPerfTracer.getPerfLogger("CachedResourceEvaluators.retrieval");
 
-    public CachedResourceEvaluators() {}
+    public CachedResourceEvaluators() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_WEIGHT);
+    }
+
+    public CachedResourceEvaluators(int maxEntries, long maxWeight) {
+        cache = new ConcurrentCacheMap<>(maxEntries, maxWeight, CachedResourceEvaluators::getWeight);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("CachedResourceEvaluators(maxEntries=" + maxEntries + ", maxWeight=" + maxWeight + ")");
+        }
+    }
 
     public Collection<RangerServiceResourceMatcher> getEvaluators(String resourceKey, Map<String, RangerAccessRequest.ResourceElementMatchingScope> scopes) {
-        Collection<RangerServiceResourceMatcher> ret;
+        Map<Map<String, RangerAccessRequest.ResourceElementMatchingScope>, Collection<RangerServiceResourceMatcher>> scopedEvaluators = cache.get(resourceKey);
+        Collection<RangerServiceResourceMatcher>                                                                     ret              = scopedEvaluators != null ? scopedEvaluators.get(scopes) : null;
 
-        try (RangerReadWriteLock.RangerLock ignored = cacheLock.getReadLock()) {
-            ret = cache.getOrDefault(resourceKey, Collections.emptyMap()).get(scopes);
+        if (ret != null) {
+            hitCount.increment();
+        } else {
+            missCount.increment();
         }
 
         return ret;
     }
 
     public void cacheEvaluators(String resource, Map<String, RangerAccessRequest.ResourceElementMatchingScope> scopes, Collection<RangerServiceResourceMatcher> evaluators) {
-        try (RangerReadWriteLock.RangerLock ignored = cacheLock.getWriteLock()) {
-            cache.computeIfAbsent(resource, k -> new HashMap<>()).put(scopes, evaluators);
+        // cached maps are not modified after being added to the cache, as they are read without locking
+        Map<Map<String, RangerAccessRequest.ResourceElementMatchingScope>, Collection<RangerServiceResourceMatcher>> existing = cache.get(resource);
+        Map<Map<String, RangerAccessRequest.ResourceElementMatchingScope>, Collection<RangerServiceResourceMatcher>> scopedEvaluators;
+
+        if (existing == null) {
+            scopedEvaluators = Collections.singletonMap(scopes, evaluators);
+        } else {
+            scopedEvaluators = new HashMap<>(existing);
+
+            scopedEvaluators.put(scopes, evaluators);
         }
+
+        cache.put(resource, scopedEvaluators);
     }
 
     public void removeCacheEvaluators(Set<String> resources) {
-        try (RangerReadWriteLock.RangerLock ignored = cacheLock.getWriteLock()) {
-            resources.forEach(cache::remove);
-        }
+        resources.forEach(cache::remove);
     }
 
     public void clearCache() {
-        try (RangerReadWriteLock.RangerLock ignored = cacheLock.getWriteLock()) {
-            cache.clear();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("CachedResourceEvaluators.clearCache(): " + this);
         }
+
+        cache.clear();
+    }
+
+    public int size() { return cache.size(); }
+
+    public long getWeight() { return cache.getWeight(); }
+
+    public long getHitCount() { return hitCount.sum(); }
+
+    public long getMissCount() { return missCount.sum(); }
+
+    public long getEvictionCount() { return cache.getEvictionCount(); }
+
+    public double getHitRatio() {
+        long hits  = hitCount.sum();
+        long total = hits + missCount.sum();
+
+        return total > 0 ? ((double) hits / total) : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "CachedResourceEvaluators={size=" + size() + ", maxEntries=" + cache.getCapacity() + ", weight=" + getWeight() + ", maxWeight=" + cache.getMaxWeight()
+                + ", hitCount=" + getHitCount() + ", missCount=" + getMissCount() + ", evictionCount=" + getEvictionCount() + "}";
     }
 
     public static Collection<RangerServiceResourceMatcher> getEvaluators(RangerAccessRequest request, Map<String, RangerResourceTrie<RangerServiceResourceMatcher>> serviceResourceTrie, CachedResourceEvaluators cache) {
@@ -152,6 +209,17 @@ public static boolean excludeDescendantMatches(RangerAccessResource resource) {
         return ret;
     }
 
+    // weight of a cache entry is the number of matchers it refers to; every scope counts at least 1, to bound empty results as well
+    private static int getWeight(Map<Map<String, RangerAccessRequest.ResourceElementMatchingScope>, Collection<RangerServiceResourceMatcher>> scopedEvaluators) {
+        int ret = 0;
+
+        for (Collection<RangerServiceResourceMatcher> evaluators : scopedEvaluators.values()) {
+            ret += Math.max(evaluators.size(), 1);
+        }
+
+        return ret;
+    }
+
     private static class SelfOrAncestorPredicate implements Predicate {
         private final RangerServiceDef.RangerResourceDef leafResourceDef;
 
@@ -42,6 +42,8 @@ private RangerCommonConstants() {
 
 	public static final String RANGER_SUPPORTS_TAGS_DEDUP                   = ".supports.tags.dedup";
 
+	public static final String PLUGIN_CONFIG_SUFFIX_READ_WRITE_LOCK_TYPE    = ".read.write.lock.type";
+
 	public static final boolean RANGER_ADMIN_SUFFIX_POLICY_DELTA_DEFAULT             = false;
 	public static final boolean PLUGIN_CONFIG_SUFFIX_POLICY_DELTA_DEFAULT            = false;
 
@@ -56,6 +58,8 @@ private RangerCommonConstants() {
 
 	public static final boolean RANGER_SUPPORTS_TAGS_DEDUP_DEFAULT                   = true;
 
+	public static final String  PLUGIN_CONFIG_SUFFIX_READ_WRITE_LOCK_TYPE_DEFAULT    = "fair";
+
 	public static final boolean POLICY_REST_CLIENT_SESSION_COOKIE_ENABLED            = true;
 
 	public static final String SCRIPT_OPTION_ENABLE_JSON_CTX        = "enableJsonCtx";
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/*
+ * Scripts compiled by a script engine, keyed by the script text given by the caller, along with a small pool of
+ * bindings created by the engine. Compiled scripts and bindings are bound to the engine that created them; hence an
+ * instance of this class should be owned by the owner of the engine.
+ *
+ * The pool holds at most maxPooledBindings bindings, shared by all threads - so that the number of retained bindings
+ * (a global each, for Nashorn) doesn't grow with the number of request threads.
+ */
+public class RangerCompiledScriptCache {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerCompiledScriptCache.class);
+
+    public static final int DEFAULT_MAX_SCRIPTS         = 1000;
+    public static final int DEFAULT_MAX_POOLED_BINDINGS = 4;
+
+    private final ScriptEngine                          scriptEngine;
+    private final Compilable                            compiler;
+    private final int                                   maxScripts;
+    private final Map<String, Optional<CompiledScript>> scripts        = new ConcurrentHashMap<>();
+    private final BlockingQueue<Bindings>               pooledBindings;
+    private volatile Set<String>                        initialKeys    = null;
+
+    public RangerCompiledScriptCache(ScriptEngine scriptEngine) {
+        this(scriptEngine, DEFAULT_MAX_SCRIPTS);
+    }
+
+    public RangerCompiledScriptCache(ScriptEngine scriptEngine, int maxScripts) {
+        this(scriptEngine, maxScripts, DEFAULT_MAX_POOLED_BINDINGS);
+    }
+
+    public RangerCompiledScriptCache(ScriptEngine scriptEngine, int maxScripts, int maxPooledBindings) {
+        this.scriptEngine   = scriptEngine;
+        this.compiler       = scriptEngine instanceof Compilable ? (Compilable) scriptEngine : null;
+        this.maxScripts     = maxScripts;
+        this.pooledBindings = maxPooledBindings > 0 ? new ArrayBlockingQueue<>(maxPooledBindings) : null;
+    }
+
+    public ScriptEngine getScriptEngine() {
+        return scriptEngine;
+    }
+
+    public int size() {
+        return scripts.size();
+    }
+
+    /*
+     * Returns the compiled form of the script text returned by toScriptText for the given key. Returns null if the
+     * engine doesn't support compilation or if the script failed to compile; in such cases the caller should evaluate
+     * the script text, which reports errors the same way as before. Failures are cached as well, to avoid recompiling.
+     */
+    public CompiledScript getCompiledScript(String key, UnaryOperator<String> toScriptText) {
+        if (compiler == null) {
+            return null;
+        }
+
+        Optional<CompiledScript> ret = scripts.get(key);
+
+        if (ret == null) {
+            ret = Optional.ofNullable(compile(toScriptText.apply(key)));
+
+            if (scripts.size() >= maxScripts) { // scripts in policies don't change often; clearing is simpler than LRU
+                scripts.clear();
+            }
+
+            scripts.put(key, ret);
+        }
+
+        return ret.orElse(null);
+    }
+
+    public Bindings acquireBindings() {
+        Bindings ret = pooledBindings != null ? pooledBindings.poll() : null;
+
+        if (ret == null) {
+            ret = scriptEngine.createBindings();
+
+            if (initialKeys == null) {
+                initialKeys = new HashSet<>(ret.keySet());
+            }
+        }
+
+        return ret;
+    }
+
+    /*
+     * Removes the variables added to the bindings since they were created, and returns the bindings to the pool for reuse
+     * by a later request; bindings are discarded when the pool is full. Bindings that still have such variables, like
+     * those declared with 'var' in scripts, are discarded as well. Only the variables are reset: changes a script makes
+     * to objects in the global, like builtins or their prototypes, remain visible to later scripts using the bindings.
+     */
+    public void releaseBindings(Bindings bindings) {
+        Set<String> initialKeys = this.initialKeys;
+
+        if (bindings == null || initialKeys == null || pooledBindings == null) {
+            return;
+        }
+
+        try {
+            for (String key : new ArrayList<>(bindings.keySet())) {
+                if (!initialKeys.contains(key)) {
+                    bindings.remove(key);
+                }
+            }
+
+            if (initialKeys.containsAll(bindings.keySet())) {
+                pooledBindings.offer(bindings);
+            }
+        } catch (Exception excp) {
+            LOG.debug("releaseBindings(): failed to reset bindings. Discarding", excp);
+        }
+    }
+
+    private CompiledScript compile(String script) {
+        CompiledScript ret = null;
+
+        try {
+            ret = compiler.compile(script);
+        } catch (ScriptException excp) {
+            LOG.debug("compile(script={}): failed to compile", script, excp);
+        }
+
+        return ret;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/*
+ * Assigns a dense ordinal to each value, in the order of the given comparator; this enables de-duplication and
+ * ordering of a subset of values with primitive int operations - i.e. without hashing or comparing the values.
+ * Values are identified by reference.
+ */
+public class RangerEvalOrderIndex<T> {
+    private final List<T>              valuesInOrder;
+    private final Map<Object, Integer> ordinals;
+
+    public RangerEvalOrderIndex(Collection<? extends T> values, Comparator<? super T> comparator) {
+        List<T> valuesInOrder = new ArrayList<>(values.size());
+
+        ordinals = new IdentityHashMap<>(values.size());
+
+        for (T value : values) {
+            if (value != null && ordinals.put(value, -1) == null) {
+                valuesInOrder.add(value);
+            }
+        }
+
+        valuesInOrder.sort(comparator);
+
+        for (int i = 0; i < valuesInOrder.size(); i++) {
+            ordinals.put(valuesInOrder.get(i), i);
+        }
+
+        this.valuesInOrder = Collections.unmodifiableList(valuesInOrder);
+    }
+
+    public int size() {
+        return valuesInOrder.size();
+    }
+
+    public List<T> getValuesInOrder() {
+        return valuesInOrder;
+    }
+
+    // returns -1 if the value is not in this index
+    public int getOrdinal(Object value) {
+        Integer ret = value != null ? ordinals.get(value) : null;
+
+        return ret != null ? ret : -1;
+    }
+
+    /*
+     * Returns distinct values mapped from the given items, in order of their ordinals. Returns null if a mapped value is
+     * not in this index, so that the caller can fall back to hash-based de-duplication and comparator-based sorting.
+     */
+    public <E> List<T> getDistinctInOrder(Collection<E> items, Function<? super E, ?> mapper) {
+        int[] itemOrdinals = new int[items.size()];
+        int   count        = 0;
+
+        for (E item : items) {
+            int ordinal = getOrdinal(mapper.apply(item));
+
+            if (ordinal == -1) {
+                return null;
+            }
+
+            itemOrdinals[count++] = ordinal;
+        }
+
+        final List<T> ret;
+
+        if (count > (valuesInOrder.size() >>> 6)) { // a bitmap of all ordinals is cheaper to scan than sorting the item ordinals
+            long[] bitmap = new long[(valuesInOrder.size() + 63) >>> 6];
+
+            for (int i = 0; i < count; i++) {
+                bitmap[itemOrdinals[i] >>> 6] |= 1L << itemOrdinals[i];
+            }
+
+            ret = new ArrayList<>(count);
+
+            for (int i = 0; i < bitmap.length; i++) {
+                for (long word = bitmap[i]; word != 0; word &= word - 1) {
+                    ret.add(valuesInOrder.get((i << 6) + Long.numberOfTrailingZeros(word)));
+                }
+            }
+        } else {
+            Arrays.sort(itemOrdinals, 0, count);
+
+            ret = new ArrayList<>(count);
+
+            for (int i = 0; i < count; i++) {
+                if (i == 0 || itemOrdinals[i] != itemOrdinals[i - 1]) {
+                    ret.add(valuesInOrder.get(itemOrdinals[i]));
+                }
+            }
+        }
+
+        return ret;
+    }
+}
@@ -33,6 +33,7 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 public class RangerPolicyDeltaUtil {
 
@@ -57,10 +58,23 @@ public static List<RangerPolicy> applyDeltas(List<RangerPolicy> policies, List<R
                 LOG.debug("applyDeltas(deltas=" + Arrays.toString(deltas.toArray()) + ", serviceType=" + serviceType + ")");
             }
 
-            Map<Long, RangerPolicy> retMap = new HashMap<>();
+            // only policies referenced by deltas are tracked in a map; rest of the policies are copied as is
+            Map<Long, RangerPolicy> changedPolicies = new HashMap<>(); // null value for a deleted/non-existing policy
+
+            for (RangerPolicyDelta delta : deltas) {
+                if (StringUtils.equals(serviceType, delta.getServiceType()) && delta.getPolicyId() != null) {
+                    changedPolicies.put(delta.getPolicyId(), null);
+                }
+            }
+
+            ret = new ArrayList<>(policies.size() + changedPolicies.size());
 
             for (RangerPolicy policy : policies) {
-                retMap.put(policy.getId(), policy);
+                if (changedPolicies.containsKey(policy.getId())) {
+                    changedPolicies.put(policy.getId(), policy);
+                } else {
+                    ret.add(policy);
+                }
             }
 
             for (RangerPolicyDelta delta : deltas) {
@@ -77,7 +91,7 @@ public static List<RangerPolicy> applyDeltas(List<RangerPolicy> policies, List<R
                 }
 
                 Long         policyId      = delta.getPolicyId();
-                RangerPolicy deletedPolicy = retMap.remove(policyId);
+                RangerPolicy deletedPolicy = changedPolicies.put(policyId, null);
 
                 switch(changeType) {
                     case RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE: {
@@ -103,12 +117,20 @@ public static List<RangerPolicy> applyDeltas(List<RangerPolicy> policies, List<R
                 }
 
                 if (changeType != RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE) {
-                    retMap.put(policyId, delta.getPolicy());
+                    changedPolicies.put(policyId, delta.getPolicy());
+                }
+            }
+
+            for (RangerPolicy policy : changedPolicies.values()) {
+                if (policy != null) {
+                    ret.add(policy);
                 }
             }
 
-            ret = new ArrayList<>(retMap.values());
+            // policies are usually sorted by id already, making this sort a linear pass
             ret.sort(RangerPolicy.POLICY_ID_COMPARATOR);
+
+            removeDuplicateIds(ret);
         } else {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("applyDeltas called with empty deltas. Will return policies without change");
@@ -124,6 +146,25 @@ public static List<RangerPolicy> applyDeltas(List<RangerPolicy> policies, List<R
         return ret;
     }
 
+    // retains the last of the policies having the same id, as policies are sorted by id with a stable sort
+    private static void removeDuplicateIds(List<RangerPolicy> policies) {
+        int count = 0;
+
+        for (int i = 0; i < policies.size(); i++) {
+            RangerPolicy policy = policies.get(i);
+
+            if (count > 0 && Objects.equals(policies.get(count - 1).getId(), policy.getId())) {
+                policies.set(count - 1, policy);
+            } else {
+                policies.set(count++, policy);
+            }
+        }
+
+        if (count < policies.size()) {
+            policies.subList(count, policies.size()).clear();
+        }
+    }
+
     public static boolean isValidDeltas(List<RangerPolicyDelta> deltas, String componentServiceType) {
         if (LOG.isDebugEnabled()) {
             LOG.debug("==> isValidDeltas(deltas=" + Arrays.toString(deltas.toArray()) + ", componentServiceType=" + componentServiceType +")");
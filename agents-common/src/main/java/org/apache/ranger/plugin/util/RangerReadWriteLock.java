@@ -19,33 +19,80 @@
 
 package org.apache.ranger.plugin.util;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
 
 public class RangerReadWriteLock {
 
+    /*
+     * FAIR    - fair ReentrantReadWriteLock; readers queue behind a waiting writer
+     * NONFAIR - non-fair ReentrantReadWriteLock
+     * STAMPED - StampedLock, with reentrancy tracked per thread; supports optimistic reads
+     */
+    public enum LockType {
+        FAIR, NONFAIR, STAMPED;
+
+        public static LockType fromString(String value) {
+            LockType ret = FAIR;
+
+            if (value != null) {
+                for (LockType lockType : values()) {
+                    if (lockType.name().equalsIgnoreCase(value.trim())) {
+                        ret = lockType;
+
+                        break;
+                    }
+                }
+            }
+
+            return ret;
+        }
+    }
+
     private static final RangerLock NO_OP_LOCK = new RangerLock(null);
 
     private final ReentrantReadWriteLock lock;
+    private final ReentrantStampedLock   stampedLock;
+    private final RangerLock             readLock;  // guards are stateless, hence shared by all lock holders
+    private final RangerLock             writeLock;
 
     public RangerReadWriteLock(boolean isUseLock) {
-        lock = isUseLock ? new ReentrantReadWriteLock(true) : null;
+        this(isUseLock, LockType.FAIR);
+    }
+
+    public RangerReadWriteLock(boolean isUseLock, LockType lockType) {
+        if (!isUseLock) {
+            lock        = null;
+            stampedLock = null;
+            readLock    = NO_OP_LOCK;
+            writeLock   = NO_OP_LOCK;
+        } else if (lockType == LockType.STAMPED) {
+            lock        = null;
+            stampedLock = new ReentrantStampedLock();
+            readLock    = new RangerLock(stampedLock.readLock);
+            writeLock   = new RangerLock(stampedLock.writeLock);
+        } else {
+            lock        = new ReentrantReadWriteLock(lockType != LockType.NONFAIR);
+            stampedLock = null;
+            readLock    = new RangerLock(lock.readLock());
+            writeLock   = new RangerLock(lock.writeLock());
+        }
     }
 
     public RangerLock getReadLock() {
-        final RangerLock ret;
         if (lock != null) {
-            ReentrantReadWriteLock.ReadLock readLock = lock.readLock();
-            readLock.lock();
-            ret = new RangerLock(readLock);
-        } else {
-            ret = NO_OP_LOCK;
+            lock.readLock().lock();
+        } else if (stampedLock != null) {
+            stampedLock.readLock.lock();
         }
-        return ret;
+
+        return readLock;
     }
 
     public RangerLock getWriteLock() {
-        final RangerLock ret;
         if (lock != null) {
             boolean isLocked = false;
             ReentrantReadWriteLock.WriteLock writeLock = lock.writeLock();
@@ -56,10 +103,39 @@ public RangerLock getWriteLock() {
                     Thread.yield();
                 }
             }
-            ret = new RangerLock(writeLock);
+        } else if (stampedLock != null) {
+            stampedLock.writeLock.lock();
+        }
+
+        return writeLock;
+    }
+
+    /*
+     * Returns a non-zero stamp if the caller can read without acquiring the read lock, to be followed by validate(stamp)
+     * after the reads. Returns 0 if optimistic reads are not supported by the lock type or if the write lock is held.
+     */
+    public long tryOptimisticRead() {
+        final long ret;
+
+        if (stampedLock != null) {
+            ret = stampedLock.lock.tryOptimisticRead();
         } else {
-            ret = NO_OP_LOCK;
+            ret = lock == null ? 1L : 0L;
         }
+
+        return ret;
+    }
+
+    // Returns true if no write lock was acquired since the given stamp was returned by tryOptimisticRead()
+    public boolean validate(long stamp) {
+        final boolean ret;
+
+        if (stampedLock != null) {
+            ret = stamp != 0L && stampedLock.lock.validate(stamp);
+        } else {
+            ret = lock == null && stamp != 0L;
+        }
+
         return ret;
     }
 
@@ -67,6 +143,8 @@ public RangerLock getWriteLock() {
     public String toString() {
         if (lock != null) {
             return "ReadWriteLock:[" + lock.toString() + "], ReadLock:[" + lock.readLock().toString() + "], WriteLock:[" + lock.writeLock().toString() + "]";
+        } else if (stampedLock != null) {
+            return "ReadWriteLock:[" + stampedLock.lock.toString() + "]";
         } else {
             return "ReadWriteLock:[null]";
         }
@@ -95,4 +173,220 @@ public String toString() {
             return lock == null ? "null" : lock.toString();
         }
     }
+
+    /*
+     * StampedLock is not reentrant, while policy-engine read sections do nest - for example, when a result processor
+     * calls back into the policy engine. Hold counts are tracked per thread so that nested read/write lock requests,
+     * and read lock requests by the write lock holder, don't block. Like ReentrantReadWriteLock, releasing the write
+     * lock while holding the read lock downgrades to the read lock; upgrading from read to write lock is not supported.
+     */
+    private static final class ReentrantStampedLock {
+        final StampedLock lock      = new StampedLock();
+        final Lock        readLock  = new ReadLock();
+        final Lock        writeLock = new WriteLock();
+
+        private final ThreadLocal<HoldCount> holdCounts = ThreadLocal.withInitial(HoldCount::new);
+
+        private static final class HoldCount {
+            int  readCount;
+            int  writeCount;
+            long readStamp;  // non-zero when this thread holds the read lock
+            long writeStamp; // non-zero when this thread holds the write lock
+        }
+
+        private final class ReadLock implements Lock {
+            @Override
+            public void lock() {
+                HoldCount holdCount = holdCounts.get();
+
+                if (needsStamp(holdCount)) {
+                    holdCount.readStamp = lock.readLock();
+                }
+
+                holdCount.readCount++;
+            }
+
+            @Override
+            public void lockInterruptibly() throws InterruptedException {
+                HoldCount holdCount = holdCounts.get();
+
+                if (needsStamp(holdCount)) {
+                    holdCount.readStamp = lock.readLockInterruptibly();
+                }
+
+                holdCount.readCount++;
+            }
+
+            @Override
+            public boolean tryLock() {
+                HoldCount holdCount = holdCounts.get();
+
+                if (needsStamp(holdCount)) {
+                    long stamp = lock.tryReadLock();
+
+                    if (stamp == 0L) {
+                        return false;
+                    }
+
+                    holdCount.readStamp = stamp;
+                }
+
+                holdCount.readCount++;
+
+                return true;
+            }
+
+            @Override
+            public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+                HoldCount holdCount = holdCounts.get();
+
+                if (needsStamp(holdCount)) {
+                    long stamp = lock.tryReadLock(time, unit);
+
+                    if (stamp == 0L) {
+                        return false;
+                    }
+
+                    holdCount.readStamp = stamp;
+                }
+
+                holdCount.readCount++;
+
+                return true;
+            }
+
+            @Override
+            public void unlock() {
+                HoldCount holdCount = holdCounts.get();
+
+                if (holdCount.readCount == 0) {
+                    throw new IllegalMonitorStateException("read lock not held by current thread");
+                }
+
+                if (--holdCount.readCount == 0 && holdCount.readStamp != 0L) {
+                    lock.unlockRead(holdCount.readStamp);
+
+                    holdCount.readStamp = 0L;
+                }
+            }
+
+            @Override
+            public Condition newCondition() {
+                return lock.asReadLock().newCondition(); // not supported by StampedLock, like ReentrantReadWriteLock.ReadLock
+            }
+
+            @Override
+            public String toString() {
+                return "StampedReadLock:[" + lock.toString() + "]";
+            }
+
+            // the first read lock of a thread acquires a stamp; a thread holding the write lock reads under it
+            private boolean needsStamp(HoldCount holdCount) {
+                return holdCount.readCount == 0 && holdCount.writeCount == 0;
+            }
+        }
+
+        private final class WriteLock implements Lock {
+            @Override
+            public void lock() {
+                HoldCount holdCount = holdCounts.get();
+
+                if (needsStamp(holdCount)) {
+                    holdCount.writeStamp = lock.writeLock();
+                }
+
+                holdCount.writeCount++;
+            }
+
+            @Override
+            public void lockInterruptibly() throws InterruptedException {
+                HoldCount holdCount = holdCounts.get();
+
+                if (needsStamp(holdCount)) {
+                    holdCount.writeStamp = lock.writeLockInterruptibly();
+                }
+
+                holdCount.writeCount++;
+            }
+
+            @Override
+            public boolean tryLock() {
+                HoldCount holdCount = holdCounts.get();
+
+                if (needsStamp(holdCount)) {
+                    long stamp = lock.tryWriteLock();
+
+                    if (stamp == 0L) {
+                        return false;
+                    }
+
+                    holdCount.writeStamp = stamp;
+                }
+
+                holdCount.writeCount++;
+
+                return true;
+            }
+
+            @Override
+            public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+                HoldCount holdCount = holdCounts.get();
+
+                if (needsStamp(holdCount)) {
+                    long stamp = lock.tryWriteLock(time, unit);
+
+                    if (stamp == 0L) {
+                        return false;
+                    }
+
+                    holdCount.writeStamp = stamp;
+                }
+
+                holdCount.writeCount++;
+
+                return true;
+            }
+
+            @Override
+            public void unlock() {
+                HoldCount holdCount = holdCounts.get();
+
+                if (holdCount.writeCount == 0) {
+                    throw new IllegalMonitorStateException("write lock not held by current thread");
+                }
+
+                if (--holdCount.writeCount == 0) {
+                    if (holdCount.readCount > 0) { // downgrade to read lock
+                        holdCount.readStamp = lock.tryConvertToReadLock(holdCount.writeStamp);
+                    } else {
+                        lock.unlockWrite(holdCount.writeStamp);
+                    }
+
+                    holdCount.writeStamp = 0L;
+                }
+            }
+
+            @Override
+            public Condition newCondition() {
+                return lock.asWriteLock().newCondition(); // not supported by StampedLock
+            }
+
+            @Override
+            public String toString() {
+                return "StampedWriteLock:[" + lock.toString() + "]";
+            }
+
+            private boolean needsStamp(HoldCount holdCount) {
+                if (holdCount.writeCount > 0) {
+                    return false;
+                }
+
+                if (holdCount.readCount > 0) {
+                    throw new IllegalMonitorStateException("upgrade from read lock to write lock is not supported");
+                }
+
+                return true;
+            }
+        }
+    }
 }
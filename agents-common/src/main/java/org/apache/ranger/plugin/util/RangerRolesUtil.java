@@ -22,14 +22,20 @@
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.plugin.model.RangerRole;
+import org.apache.ranger.plugin.policyengine.ConcurrentCacheMap;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 public class RangerRolesUtil {
+    public static final int DEFAULT_ROLES_CACHE_SIZE = 4096;
+
     private final long                     roleVersion;
     private final Map<String, Set<String>> userRoleMapping = new HashMap<>();
     private final Map<String, Set<String>> groupRoleMapping = new HashMap<>();
@@ -38,6 +44,8 @@ public class RangerRolesUtil {
     private final Map<String, Set<String>> roleToUserMapping = new HashMap<>();
     private final Map<String, Set<String>> roleToGroupMapping = new HashMap<>();
 
+    private final ConcurrentCacheMap<UserAndGroups, Set<String>> rolesForUserAndGroupsCache;
+
     private RangerRoles                    roles            = null;
     public  enum  ROLES_FOR {USER, GROUP, ROLE}
 
@@ -47,8 +55,14 @@ public RangerRolesUtil(RangerRoles roles) {
             roleVersion = roles.getRoleVersion() != null ? roles.getRoleVersion() : -1;
 
             if (CollectionUtils.isNotEmpty(roles.getRangerRoles())) {
+                Map<String, RangerRole> rolesByName = new HashMap<>();
+
                 for (RangerRole role : roles.getRangerRoles()) {
-                    Set<RangerRole> containedRoles = getAllContainedRoles(roles.getRangerRoles(), role);
+                    rolesByName.putIfAbsent(role.getName(), role);
+                }
+
+                for (RangerRole role : roles.getRangerRoles()) {
+                    Set<RangerRole> containedRoles = getAllContainedRoles(rolesByName, role);
 
                     buildMap(userRoleMapping, role, containedRoles, ROLES_FOR.USER);
                     buildMap(groupRoleMapping, role, containedRoles, ROLES_FOR.GROUP);
@@ -69,10 +83,13 @@ public RangerRolesUtil(RangerRoles roles) {
                     roleToGroupMapping.put(role.getName(), roleGroups);
                 }
 
+                freezeRoleSets(userRoleMapping, groupRoleMapping);
             }
         } else {
             roleVersion = -1L;
         }
+
+        rolesForUserAndGroupsCache = userRoleMapping.isEmpty() && groupRoleMapping.isEmpty() ? null : new ConcurrentCacheMap<>(DEFAULT_ROLES_CACHE_SIZE);
     }
 
     public long getRoleVersion() { return roleVersion; }
@@ -101,7 +118,65 @@ public Map<String, Set<String>> getRoleToGroupMapping() {
         return this.roleToGroupMapping;
     }
 
-    private Set<RangerRole> getAllContainedRoles(Set<RangerRole> roles, RangerRole role) {
+    /*
+     * Returns the effective roles of the user: roles of the user, of each group and of GROUP_PUBLIC, including roles
+     * that contain these roles. The returned set is shared across calls and must not be modified; results are
+     * memoized per (user, groups), and are dropped with this instance when roles change.
+     */
+    public Set<String> getRolesForUserAndGroups(String user, Set<String> groups) {
+        final Set<String> ret;
+
+        if (rolesForUserAndGroupsCache == null) {
+            ret = Collections.emptySet();
+        } else {
+            Set<String>   userGroups = groups != null ? groups : Collections.emptySet();
+            UserAndGroups key        = new UserAndGroups(user, userGroups);
+            Set<String>   cached     = rolesForUserAndGroupsCache.get(key);
+
+            if (cached != null) {
+                ret = cached;
+            } else {
+                ret = computeRolesForUserAndGroups(user, userGroups);
+
+                rolesForUserAndGroupsCache.put(new UserAndGroups(user, new HashSet<>(userGroups)), ret); // copy, as groups of the caller can be modified later
+            }
+        }
+
+        return ret;
+    }
+
+    private Set<String> computeRolesForUserAndGroups(String user, Set<String> groups) {
+        RolesUnion ret = new RolesUnion();
+
+        if (StringUtils.isNotEmpty(user)) {
+            ret.add(userRoleMapping.get(user));
+        }
+
+        for (String group : groups) {
+            ret.add(groupRoleMapping.get(group));
+        }
+
+        ret.add(groupRoleMapping.get(RangerPolicyEngine.GROUP_PUBLIC));
+
+        return ret.get();
+    }
+
+    /*
+     * Replaces role sets in the given maps with unmodifiable ones; equal sets are replaced by the same instance, which
+     * lets the union of roles of many groups skip sets already added.
+     */
+    @SafeVarargs
+    private static void freezeRoleSets(Map<String, Set<String>>... maps) {
+        Map<Set<String>, Set<String>> uniqueSets = new HashMap<>();
+
+        for (Map<String, Set<String>> map : maps) {
+            for (Map.Entry<String, Set<String>> entry : map.entrySet()) {
+                entry.setValue(uniqueSets.computeIfAbsent(entry.getValue(), Collections::unmodifiableSet));
+            }
+        }
+    }
+
+    private Set<RangerRole> getAllContainedRoles(Map<String, RangerRole> roles, RangerRole role) {
         Set<RangerRole> allRoles = new HashSet<>();
 
         allRoles.add(role);
@@ -110,11 +185,11 @@ private Set<RangerRole> getAllContainedRoles(Set<RangerRole> roles, RangerRole r
         return allRoles;
     }
 
-    private void addContainedRoles(Set<RangerRole> allRoles, Set<RangerRole> roles, RangerRole role) {
+    private void addContainedRoles(Set<RangerRole> allRoles, Map<String, RangerRole> roles, RangerRole role) {
         List<RangerRole.RoleMember> roleMembers = role.getRoles();
 
         for (RangerRole.RoleMember roleMember : roleMembers) {
-            RangerRole containedRole = getContainedRole(roles, roleMember.getName());
+            RangerRole containedRole = roles.get(roleMember.getName());
 
             if (containedRole!= null && !allRoles.contains(containedRole)) {
                 allRoles.add(containedRole);
@@ -158,15 +233,68 @@ private void getRoleMap(Map<String, Set<String>> map, String roleName, List<Rang
         }
     }
 
-    private RangerRole getContainedRole(Set<RangerRole> roles, String role) {
-        return (roles.stream().filter(containedRole -> role.equals(containedRole.getName())).findAny().orElse(null));
-    }
-
     private void addMemberNames(List<RangerRole.RoleMember> members, Set<String> names) {
         for (RangerRole.RoleMember member : members) {
             names.add(member.getName());
         }
     }
-}
 
+    private static class UserAndGroups {
+        private final String      user;
+        private final Set<String> groups;
+        private final int         hashCode;
+
+        UserAndGroups(String user, Set<String> groups) {
+            this.user     = user;
+            this.groups   = groups;
+            this.hashCode = Objects.hash(user, groups);
+        }
 
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof UserAndGroups)) {
+                return false;
+            }
+
+            UserAndGroups other = (UserAndGroups) obj;
+
+            return hashCode == other.hashCode && Objects.equals(user, other.user) && groups.equals(other.groups);
+        }
+    }
+
+    /*
+     * Union of role sets, that allocates a new set only when a set having roles not yet in the union is added.
+     */
+    private static class RolesUnion {
+        private Set<String> roles  = null;
+        private boolean     isCopy = false;
+
+        void add(Set<String> toAdd) {
+            if (toAdd == null || toAdd.isEmpty() || toAdd == roles) {
+                return;
+            }
+
+            if (roles == null) {
+                roles = toAdd;
+            } else if (isCopy) {
+                roles.addAll(toAdd);
+            } else if (!roles.containsAll(toAdd)) {
+                roles  = new HashSet<>(roles);
+                isCopy = true;
+
+                roles.addAll(toAdd);
+            }
+        }
+
+        Set<String> get() {
+            return roles == null ? Collections.emptySet() : isCopy ? Collections.unmodifiableSet(roles) : roles;
+        }
+    }
+}
@@ -24,7 +24,9 @@
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemCondition;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
@@ -221,6 +223,85 @@ public void test_integration() {
 		Assert.assertFalse(ipMatcher.isMatched(createRequest("10.20.33.10")));
 	}
 	
+	@Test
+	public void test_isWildcardPrefixMatched() {
+		List<String> ips = Arrays.asList("1.2.3.", "1.3.", "2.", "a0:b0:c0:", "a0:b1:", "a2:", "A.b.");
+		RangerIpMatcher matcher = new RangerIpMatcher();
+		Set<String> ipPrefixes = new HashSet<>(ips);
+
+		for (String requestIp : new String[] { "1.2.3.4", "1.3.3.4", "2.3.3.4", "1.2.33.4", "1.33.3.4", "22.3.3.4", "2.", "2", "",
+		                                       "A0:B0:C0:D0:E0:F0", "a0:b1:c0:d0:e0:f0", "A2:B0:C1:D2:E3:F4", "A0:B0:00:D0:E0:F0",
+		                                       "A0:B2:C0:D0:E0:F0", "22:B0:C1:D2:E3:F4", "A.b.c.d", "a.b.c.d", "A.B.c.d", "a2" }) {
+			// must give the same result as linear scan by isWildcardMatched()
+			Assert.assertEquals(requestIp, matcher.isWildcardMatched(ips, requestIp), matcher.isWildcardPrefixMatched(ipPrefixes, requestIp));
+		}
+	}
+
+	@Test
+	public void test_cidr() {
+		RangerIpMatcher ipMatcher = createMatcher(new String[]{"10.20.0.0/16", "192.168.1.128/25", "2001:db8::/32", "::ffff:172.16.0.0/108"});
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("10.20.0.0")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("10.20.255.255")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("10.21.0.1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("192.168.1.200")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("192.168.1.127")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("2001:DB8:0:1::5")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("2001:db8:ffff:ffff:ffff:ffff:ffff:ffff")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("2001:db9::1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("::ffff:172.16.1.2")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("0:0:0:0:0:ffff:ac10:0102")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("::ffff:172.32.1.2")));
+		// an IPv4 range doesn't match IPv6 addresses, and vice versa
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("::10.20.1.1")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("32.1.13.184")));
+		// invalid addresses don't match
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("10.20.1")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("10.20.1.256")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("2001:db8:::1")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("2001:db8")));
+
+		// host bits beyond prefix-length are ignored
+		ipMatcher = createMatcher(new String[]{"10.20.30.40/8"});
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("10.1.2.3")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("11.20.30.40")));
+
+		// /0 matches all addresses of the family
+		ipMatcher = createMatcher(new String[]{"0.0.0.0/0"});
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("1.2.3.4")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("::1")));
+
+		// cidr can be used with other formats; shorter ranges include the longer ones
+		ipMatcher = createMatcher(new String[]{"10.20.30.0/24", "10.20.0.0/16", "10.20.30.40/32", "1.2.3.*", "9.8.7.6"});
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("10.20.1.1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("10.20.30.41")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("1.2.3.4")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("9.8.7.6")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("10.21.30.40")));
+
+		// values that are not valid cidr are treated as before, i.e. as literals
+		ipMatcher = createMatcher(new String[]{"10.20.0.0/33", "abc/8", "10.20.*/16"});
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("10.20.0.0/33")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("abc/8")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("10.20.0.1")));
+	}
+
+	@Test
+	public void test_parseAddress() {
+		Assert.assertArrayEquals(new byte[] { 10, 20, (byte) 255, 0 }, RangerIpPrefixTree.parseAddress("10.20.255.0"));
+		Assert.assertArrayEquals(new byte[] { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1 }, RangerIpPrefixTree.parseAddress("::1"));
+		Assert.assertArrayEquals(new byte[] { 0x20, 0x01, 0x0d, (byte) 0xb8, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 }, RangerIpPrefixTree.parseAddress("2001:db8::"));
+		Assert.assertArrayEquals(new byte[] { (byte) 0xfe, (byte) 0x80, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1 }, RangerIpPrefixTree.parseAddress("fe80::1%eth0"));
+		Assert.assertArrayEquals(RangerIpPrefixTree.parseAddress("1:2:3:4:5:6:7:8"), RangerIpPrefixTree.parseAddress("1:2:3:4:5:6:0.7.0.8"));
+		Assert.assertArrayEquals(RangerIpPrefixTree.parseAddress("1:0:0:0:0:0:0:0"), RangerIpPrefixTree.parseAddress("1::"));
+		Assert.assertNotNull(RangerIpPrefixTree.parseAddress("::"));
+
+		for (String invalid : new String[] { null, "", "anIp", "1.2.3", "1.2.3.4.5", "1.2.3.1000", "1..2.3", "1.2.3.4.", ".1.2.3", "1.2.3.-1",
+		                                     ":", ":::", "1:2", "1::2::3", ":1::2", "1::2:", "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7::8", "12345::",
+		                                     "g::1", "1:2:3:4:5:6:7:1.2.3.4", "::1.2.3" }) {
+			Assert.assertNull(invalid, RangerIpPrefixTree.parseAddress(invalid));
+		}
+	}
+
 	RangerIpMatcher createMatcher(String[] ipArray) {
 		RangerIpMatcher matcher = new RangerIpMatcher();
 
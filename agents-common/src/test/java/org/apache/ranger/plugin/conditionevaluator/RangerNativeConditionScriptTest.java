@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.conditionevaluator;
+
+import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
+import org.apache.ranger.plugin.policyengine.RangerNativeConditionScript;
+import org.apache.ranger.plugin.policyengine.RangerRequestScriptEvaluator;
+import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerUserStore;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class RangerNativeConditionScriptTest {
+    @Test
+    public void testSupportedScripts() {
+        RangerRequestScriptEvaluator ctx = new RangerRequestScriptEvaluator(createRequest());
+
+        assertScript(ctx, true, "USER.dept == 'finance'");
+        assertScript(ctx, true, "USER['dept'] === \"finance\";");
+        assertScript(ctx, false, "USER.dept != 'finance'");
+        assertScript(ctx, true, "USER._name == 'test-user'");
+        assertScript(ctx, true, "USER.level == 5 && USER.level > 4.5 && USER.level <= '5'");
+        assertScript(ctx, false, "USER.level === 5");
+        assertScript(ctx, true, "USER.level > 0 && USER.level > 0.5 && '05' == 5"); // a string with leading zero is still decimal
+        assertScript(ctx, true, "USER.notExists != 'x' && !(USER.notExists == 'x')");
+        assertScript(ctx, false, "USER.notExists > 0 || USER.notExists <= 0 || USER.notExists == 0");
+        assertScript(ctx, true, "USER.dept > 'engineering' && 'a' < 'b'");
+        assertScript(ctx, true, "TAG.expiry > '2020/01/01' && TAG._type == 'PII' && TAG._matchType == 'SELF'");
+        assertScript(ctx, true, "HAS_TAG('PII') && !HAS_TAG('PCI') && HAS_ANY_TAG && !HAS_NO_TAG");
+        assertScript(ctx, true, "HAS_TAG_ATTR('expiry') && HAS_USER_ATTR('dept') && HAS_UG_ATTR('site') && !HAS_UG_ATTR('dept')");
+        assertScript(ctx, true, "IS_IN_GROUP('grp1') && !IS_IN_GROUP('grp2') && IS_IN_ANY_GROUP && !IS_NOT_IN_ANY_GROUP");
+        assertScript(ctx, true, "IS_IN_ROLE('role1') || IS_IN_ROLE('role2') && false");
+        assertScript(ctx, false, "(IS_IN_ROLE('role1') || IS_IN_ROLE('role2')) && false");
+        assertScript(ctx, true, "IS_ACCESS_TIME_AFTER('2020/01/01') && IS_ACCESS_TIME_BEFORE('2100/01/01', 'GMT') && IS_ACCESS_TIME_BETWEEN('2020/01/01', '2100/01/01')");
+        assertScript(ctx, false, "IS_NOT_IN_ANY_ROLE || !IS_IN_ANY_ROLE");
+    }
+
+    @Test
+    public void testUnsupportedScripts() {
+        String[] scripts = new String[] {
+                "ctx.result = true",
+                "USER.dept == 'finance'; ctx.result = true;",
+                "!USER.dept == 'finance'",
+                "HAS_TAG('PII') == true",
+                "HAS_TAG",
+                "HAS_TAG('PII', 'PCI')",
+                "HAS_ANY_TAG()",
+                "USER.dept == 'fin\\nance'",
+                "USER.level == -1",
+                "USER.level == 1e3",
+                "USER.level == 05",
+                "USER.level == 010",
+                "USER.dept.length > 2",
+                "UG_NAMES_CSV == 'grp1'",
+                "USER.dept == 'finance' ? true : false",
+                "",
+        };
+
+        for (String script : scripts) {
+            Assert.assertNull(script, RangerNativeConditionScript.compile(script));
+        }
+    }
+
+    private static void assertScript(RangerRequestScriptEvaluator ctx, boolean expected, String script) {
+        RangerNativeConditionScript nativeScript = RangerNativeConditionScript.compile(script);
+
+        Assert.assertNotNull(script, nativeScript);
+        Assert.assertEquals(script, expected, nativeScript.evaluate(ctx));
+    }
+
+    private static RangerAccessRequest createRequest() {
+        RangerAccessRequestImpl          request         = new RangerAccessRequestImpl(new RangerAccessResourceImpl(Collections.singletonMap("database", "db1")), "select", "test-user", Collections.singleton("grp1"), Collections.singleton("role1"));
+        RangerUserStore                  userStore       = new RangerUserStore();
+        Map<String, Map<String, String>> userAttrMapping = new HashMap<>();
+        Map<String, String>              userAttrs       = new HashMap<>();
+        Map<String, String>              tagAttrs        = new HashMap<>();
+        Set<RangerTagForEval>            tags            = new HashSet<>();
+
+        userAttrs.put("dept", "finance");
+        userAttrs.put("level", "5");
+        userAttrMapping.put("test-user", userAttrs);
+        userStore.setUserAttrMapping(userAttrMapping);
+        userStore.setGroupAttrMapping(Collections.singletonMap("grp1", Collections.singletonMap("site", "10")));
+
+        tagAttrs.put("expiry", "2030/12/31");
+
+        RangerTagForEval tag = new RangerTagForEval(new RangerTag("PII", tagAttrs), RangerPolicyResourceMatcher.MatchType.SELF);
+
+        tags.add(tag);
+
+        RangerAccessRequestUtil.setRequestUserStoreInContext(request.getContext(), userStore);
+        RangerAccessRequestUtil.setRequestTagsInContext(request.getContext(), tags);
+        RangerAccessRequestUtil.setCurrentTagInContext(request.getContext(), tag);
+
+        return request;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.geo;
+
+import org.apache.ranger.plugin.store.file.GeolocationFileStore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestRangerGeolocationIndex {
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testTextAndMappedFormats() throws Exception {
+		GeolocationFileStore textStore = createStore("/etc/ranger/geo/geo.txt");
+
+		assertEquals("Canada", getValue(textStore, "20.0.100.85", "COUNTRY_NAME"));
+		assertEquals("MT", getValue(textStore, "20.0.100.100", "STATE"));
+		assertEquals("CA", getValue(textStore, "10.0.1.0", "STATE"));
+		assertNull(textStore.getGeoLocation("1.1.1.1"));
+
+		File mappedFile = tempFolder.newFile("geo.bin");
+
+		RangerGeolocationMappedIndex.write(textStore.getGeoDatabase().getMetadata(), textStore.getGeoDatabase().getData(), mappedFile);
+
+		GeolocationFileStore mappedStore = createStore(mappedFile.getPath());
+
+		assertArrayEquals(textStore.getGeoDatabase().getMetadata().getLocationDataItemNames(), mappedStore.getGeoDatabase().getMetadata().getLocationDataItemNames());
+		assertEquals(textStore.getGeoDatabase().getData().size(), mappedStore.getGeoDatabase().getData().size());
+
+		for (int i = 0; i < 256; i++) {
+			for (String ipAddress : new String[] { "20.0.100." + i, "10.0." + (i % 4) + "." + i }) {
+				RangerGeolocationData expected = textStore.getGeoLocation(ipAddress);
+				RangerGeolocationData actual   = mappedStore.getGeoLocation(ipAddress);
+
+				assertEquals(ipAddress, expected, actual);
+			}
+		}
+
+		// the mapped index is shared by stores, until the file changes
+		assertSame(mappedStore.getGeoDatabase().getData(), createStore(mappedFile.getPath()).getGeoDatabase().getData());
+
+		// a modified file is mapped again on reinit, and the old mapping is no longer shared
+		RangerGeolocationIndex oldIndex = mappedStore.getGeoDatabase().getData();
+
+		assertTrue(mappedFile.setLastModified(mappedFile.lastModified() - 10_000));
+
+		RangerGeolocationIndex newIndex = createStore(mappedFile.getPath()).getGeoDatabase().getData();
+
+		assertNotSame(oldIndex, newIndex);
+		assertSame(newIndex, RangerGeolocationMappedIndex.open(mappedFile));
+	}
+
+	@Test
+	public void testOverlappingAndDuplicateRanges() throws Exception {
+		Random                      random = new Random(7);
+		List<RangerGeolocationData> values = new ArrayList<>();
+
+		for (int i = 0; i < 2000; i++) {
+			long from = random.nextInt(100_000) - 50_000;
+			long to   = from + (random.nextInt(10) == 0 ? random.nextInt(5_000) : random.nextInt(50));
+
+			values.add(new RangerGeolocationData(from, to, new String[] { "v" + i }));
+		}
+
+		values.addAll(values.subList(0, 100)); // duplicates
+
+		RangerGeolocationArrayIndex arrayIndex = new RangerGeolocationArrayIndex(values);
+		File                        file       = tempFolder.newFile("ranges.bin");
+
+		RangerGeolocationMappedIndex.write(new GeolocationMetadata(new String[] { "NAME" }), arrayIndex, file);
+
+		RangerGeolocationMappedIndex mappedIndex = RangerGeolocationMappedIndex.open(file);
+
+		assertEquals(2000, arrayIndex.size());
+		assertEquals(2000, mappedIndex.size());
+
+		for (long ip = -52_000; ip < 52_000; ip += 7) {
+			RangerGeolocationData found = arrayIndex.find(ip);
+
+			assertEquals(ip + ": from mapped index", found, mappedIndex.find(ip));
+
+			if (found == null) {
+				for (RangerGeolocationData value : values) {
+					assertNotEquals(ip + ": not found in " + value, 0, value.compareToRange(ip));
+				}
+			} else {
+				assertEquals(ip + ": not in range " + found, 0, found.compareToRange(ip));
+			}
+		}
+	}
+
+	private static GeolocationFileStore createStore(String filePath) {
+		GeolocationFileStore ret     = new GeolocationFileStore();
+		Map<String, String>  context = new HashMap<>();
+
+		context.put(GeolocationFileStore.PROP_GEOLOCATION_FILE_LOCATION, filePath);
+
+		ret.init(context);
+
+		return ret;
+	}
+
+	private static String getValue(GeolocationFileStore store, String ipAddress, String attributeName) {
+		return store.getGeoDatabase().getValue(store.getGeoLocation(ipAddress), attributeName);
+	}
+}
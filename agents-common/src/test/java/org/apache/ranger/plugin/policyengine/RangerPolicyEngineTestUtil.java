@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.RangerRoles;
+import org.apache.ranger.plugin.util.ServicePolicies;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fixtures shared by the policy-engine tests that build hive policies by hand: policies are for service dev_hive, on
+ * resources database/table/column.
+ */
+final class RangerPolicyEngineTestUtil {
+	static final String SERVICE_TYPE = "hive";
+	static final String SERVICE_NAME = "dev_hive";
+
+	private RangerPolicyEngineTestUtil() {
+	}
+
+	static RangerPluginConfig createPluginConfig(String appId, RangerPolicyEngineOptions options) {
+		return new RangerPluginConfig(SERVICE_TYPE, SERVICE_NAME, appId, "cl1", "on-prem", options);
+	}
+
+	static RangerPolicyEngineImpl createPolicyEngine(String appId, RangerPolicyEngineOptions options, List<RangerPolicy> policies) throws Exception {
+		return createPolicyEngine(createPluginConfig(appId, options), policies, null);
+	}
+
+	static RangerPolicyEngineImpl createPolicyEngine(RangerPluginConfig pluginConfig, List<RangerPolicy> policies, RangerRoles roles) throws Exception {
+		ServicePolicies svcPolicies = new ServicePolicies();
+
+		svcPolicies.setServiceName(SERVICE_NAME);
+		svcPolicies.setServiceDef(EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef(SERVICE_TYPE));
+		svcPolicies.setPolicyVersion(1L);
+		svcPolicies.setPolicies(policies);
+
+		return new RangerPolicyEngineImpl(svcPolicies, new RangerPluginContext(pluginConfig), roles);
+	}
+
+	static RangerPolicy createPolicy(Long id, int policyType, Map<String, RangerPolicyResource> resources) {
+		RangerPolicy ret = new RangerPolicy(SERVICE_NAME, "policy-" + id, policyType, RangerPolicy.POLICY_PRIORITY_NORMAL, null, resources, null, null, null, null, null);
+
+		ret.setId(id);
+		ret.setVersion(1L);
+
+		return ret;
+	}
+
+	static RangerPolicy createAccessPolicy(Long id, Map<String, RangerPolicyResource> resources, RangerPolicyItem allowItem, RangerPolicyItem denyItem) {
+		RangerPolicy ret = createPolicy(id, RangerPolicy.POLICY_TYPE_ACCESS, resources);
+
+		if (allowItem != null) {
+			ret.setPolicyItems(Collections.singletonList(allowItem));
+		}
+
+		if (denyItem != null) {
+			ret.setDenyPolicyItems(Collections.singletonList(denyItem));
+		}
+
+		return ret;
+	}
+
+	static Map<String, RangerPolicyResource> createResources(String database, String table, String column) {
+		Map<String, RangerPolicyResource> ret = new HashMap<>();
+
+		ret.put("database", new RangerPolicyResource(database));
+		ret.put("table", new RangerPolicyResource(table));
+
+		if (column != null) {
+			ret.put("column", new RangerPolicyResource(column));
+		}
+
+		return ret;
+	}
+
+	static RangerPolicyItem createPolicyItem(String accessType, List<String> users, List<String> groups, List<String> roles) {
+		return new RangerPolicyItem(Collections.singletonList(new RangerPolicyItemAccess(accessType)), users, groups, roles, null, false);
+	}
+
+	static RangerAccessResourceImpl createResource(String database, String table, String column) {
+		RangerAccessResourceImpl ret = new RangerAccessResourceImpl();
+
+		ret.setValue("database", database);
+
+		if (table != null) {
+			ret.setValue("table", table);
+		}
+
+		if (column != null) {
+			ret.setValue("column", column);
+		}
+
+		return ret;
+	}
+
+	static RangerAccessRequestImpl createRequest(RangerAccessResource resource, String accessType, String user, Set<String> groups) {
+		return new RangerAccessRequestImpl(resource, accessType, user, groups, null);
+	}
+}
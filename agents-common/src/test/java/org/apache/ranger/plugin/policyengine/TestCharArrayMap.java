@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestCharArrayMap {
+	@Test
+	public void testSameAsHashMap() {
+		Map<Character, Integer> expected = new HashMap<>();
+		CharArrayMap<Integer>   actual   = new CharArrayMap<>();
+		Random                  random   = new Random(17);
+
+		for (int i = 0; i < 10_000; i++) {
+			char key = (char) ('a' + random.nextInt(40));
+
+			switch (random.nextInt(3)) {
+				case 0:
+					assertEquals(expected.put(key, i), actual.put(key, Integer.valueOf(i)));
+					break;
+
+				case 1:
+					assertEquals(expected.remove(key), actual.remove(key));
+					break;
+
+				default:
+					assertEquals(expected.get(key), actual.get(key));
+					assertEquals(expected.get(key), actual.get((Object) key));
+					break;
+			}
+
+			assertEquals(expected.size(), actual.size());
+		}
+
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testIterationIsInKeyOrder() {
+		CharArrayMap<String> map = new CharArrayMap<>();
+
+		for (char ch : "trie".toCharArray()) {
+			map.put(ch, String.valueOf(ch));
+		}
+
+		List<Character> keys = new ArrayList<>();
+
+		for (Map.Entry<Character, String> entry : map.entrySet()) {
+			keys.add(entry.getKey());
+
+			assertEquals(String.valueOf(entry.getKey()), entry.getValue());
+		}
+
+		assertEquals("[e, i, r, t]", keys.toString());
+		assertEquals("[e, i, r, t]", new ArrayList<>(map.values()).toString());
+
+		map.clear();
+
+		assertTrue(map.isEmpty());
+		assertNull(map.get('t'));
+		assertNull(map.get("t"));
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestConcurrentCacheMap {
+	@Test
+	public void testRecentlyUsedEntriesAreRetained() {
+		final int                          capacity = 16;
+		ConcurrentCacheMap<String, String> cacheMap = new ConcurrentCacheMap<>(capacity);
+
+		for (int i = 0; i < capacity; i++) {
+			cacheMap.put(String.valueOf(i), String.valueOf(i));
+		}
+
+		assertEquals(capacity, cacheMap.size());
+
+		for (int i = capacity / 2 - 1; i >= 0; i--) {
+			assertEquals(String.valueOf(i), cacheMap.get(String.valueOf(i)));
+		}
+
+		for (int i = capacity; i < capacity + capacity / 2; i++) {
+			cacheMap.put(String.valueOf(i), String.valueOf(i));
+		}
+
+		assertEquals(capacity, cacheMap.size());
+		assertEquals(capacity / 2, cacheMap.getEvictionCount());
+
+		for (int i = 0; i < capacity / 2; i++) { // accessed entries must be retained
+			assertEquals(String.valueOf(i), cacheMap.get(String.valueOf(i)));
+		}
+
+		for (int i = capacity / 2; i < capacity; i++) { // entries not accessed must be evicted
+			assertNull(cacheMap.get(String.valueOf(i)));
+		}
+
+		for (int i = capacity; i < capacity + capacity / 2; i++) {
+			assertEquals(String.valueOf(i), cacheMap.get(String.valueOf(i)));
+		}
+	}
+
+	@Test
+	public void testPutRemoveClear() {
+		ConcurrentCacheMap<String, Integer> cacheMap = new ConcurrentCacheMap<>(4);
+
+		assertNull(cacheMap.put("a", 1));
+		assertEquals(Integer.valueOf(1), cacheMap.put("a", 2));
+		assertEquals(Integer.valueOf(2), cacheMap.get("a"));
+		assertEquals(1, cacheMap.size());
+
+		assertEquals(Integer.valueOf(2), cacheMap.remove("a"));
+		assertNull(cacheMap.get("a"));
+		assertTrue(cacheMap.isEmpty());
+
+		for (int i = 0; i < 100; i++) { // repeated remove/put must not leave the map over capacity
+			cacheMap.put("k" + i, i);
+			cacheMap.remove("k" + (i - 1));
+		}
+
+		assertEquals(1, cacheMap.size());
+		assertEquals(Integer.valueOf(99), cacheMap.get("k99"));
+
+		cacheMap.clear();
+
+		assertTrue(cacheMap.isEmpty());
+	}
+
+	@Test
+	public void testWeightBound() {
+		ConcurrentCacheMap<String, String> cacheMap = new ConcurrentCacheMap<>(16, 10, String::length); // single segment
+
+		assertNull(cacheMap.put("a", "xxx"));
+		assertNull(cacheMap.put("b", "xxx"));
+		assertNull(cacheMap.put("c", "xxx"));
+		assertEquals(9, cacheMap.getWeight());
+
+		assertEquals("a", "xxx", cacheMap.get("a")); // b is least recently used
+
+		assertEquals("xxx", cacheMap.put("c", "xxxxx")); // update of existing entry changes the weight
+		assertEquals(8, cacheMap.getWeight());
+		assertEquals(2, cacheMap.size());
+		assertNull(cacheMap.get("b"));
+		assertEquals(1, cacheMap.getEvictionCount());
+
+		assertEquals("xxx", cacheMap.remove("a"));
+		assertEquals(5, cacheMap.getWeight());
+
+		assertNull(cacheMap.put("d", "xxxxxxxxxxxxxxx")); // an entry heavier than maxWeight is retained, evicting all others
+		assertEquals(1, cacheMap.size());
+		assertEquals(15, cacheMap.getWeight());
+
+		cacheMap.clear();
+
+		assertEquals(0, cacheMap.getWeight());
+	}
+
+	@Test
+	public void testBoundedUnderConcurrentUpdates() throws Exception {
+		final int                                 capacity = 1024;
+		final ConcurrentCacheMap<Integer, String> cacheMap = new ConcurrentCacheMap<>(capacity);
+		List<Thread>                              threads  = new ArrayList<>();
+
+		for (int t = 0; t < 8; t++) {
+			threads.add(new Thread(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+
+				for (int i = 0; i < 20_000; i++) {
+					int key = random.nextInt(16 * capacity);
+
+					if (random.nextInt(10) == 0) {
+						cacheMap.put(key, String.valueOf(key));
+					} else {
+						String value = cacheMap.get(key);
+
+						if (value != null) {
+							assertEquals(String.valueOf(key), value);
+						}
+					}
+				}
+			}));
+		}
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertTrue("size exceeded capacity: " + cacheMap.size(), cacheMap.size() <= capacity);
+		assertNotNull(cacheMap.toString());
+	}
+}
@@ -28,13 +28,17 @@
 import org.apache.ranger.plugin.resourcematcher.RangerResourceMatcher;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.TreeSet;
 
 import static org.junit.Assert.assertEquals;
 
@@ -68,7 +72,8 @@ public class TestPathResourceTrie {
 																						EVAL_TMPA_B
 																						);
 
-	private final RangerResourceTrie<RangerResourceEvaluator> trie = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS);
+	private final RangerResourceTrie<RangerResourceEvaluator> trie        = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS);
+	private final RangerResourceTrie<RangerResourceEvaluator> compactTrie = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS, true, false, true, null);
 
 	@Test
 	public void testChildrenScope() {
@@ -115,11 +120,113 @@ public void testSelfScope() {
 		verifyEvaluators("invalid: does-not-begin-with-sep", scope);
 	}
 
+	@Test
+	public void testCopyOnUpdate() {
+		for (boolean isOptimizedForRetrieval : new boolean[] { true, false }) {
+			Random                        random     = new Random(11);
+			List<RangerResourceEvaluator> evaluators = new ArrayList<>();
+
+			for (int i = 0; i < 50; i++) {
+				evaluators.add(getRandomEvaluator(random));
+			}
+
+			RangerResourceTrie<RangerResourceEvaluator> trie    = new RangerResourceTrie<>(PATH_RESOURCE_DEF, evaluators, isOptimizedForRetrieval, null);
+			List<String>                                queries = getQueries(evaluators);
+
+			for (int i = 0; i < 200; i++) {
+				RangerResourceTrie<RangerResourceEvaluator> copy = new RangerResourceTrie<>(trie);
+
+				if (i % 2 == 0) { // setup of nodes during lookups
+					getResults(trie, queries.subList(0, random.nextInt(queries.size())));
+				}
+
+				Map<String, Set<RangerResourceEvaluator>> resultsBeforeUpdate = getResults(trie, queries);
+
+				for (int j = random.nextInt(3); j >= 0; j--) {
+					if (random.nextBoolean() && !evaluators.isEmpty()) {
+						RangerResourceEvaluator evaluator = evaluators.remove(random.nextInt(evaluators.size()));
+
+						copy.delete(evaluator.getPolicyResource().get(PATH_RESOURCE_DEF.getName()), evaluator);
+					} else {
+						RangerResourceEvaluator evaluator = getRandomEvaluator(random);
+
+						evaluators.add(evaluator);
+						copy.add(evaluator.getPolicyResource().get(PATH_RESOURCE_DEF.getName()), evaluator);
+					}
+				}
+
+				copy.wrapUpUpdate();
+
+				assertEquals("trie updated by update of its copy", resultsBeforeUpdate, getResults(trie, queries));
+
+				queries = getQueries(evaluators);
+
+				assertEquals("incorrect evaluators from updated copy", getResults(new RangerResourceTrie<>(PATH_RESOURCE_DEF, evaluators, isOptimizedForRetrieval, null), queries), getResults(copy, queries));
+
+				trie = copy;
+			}
+		}
+	}
+
 	private void verifyEvaluators(String resource, ResourceElementMatchingScope scope, RangerResourceEvaluator... evaluators) {
 		Set<RangerResourceEvaluator> expected = evaluators.length == 0 ? null : new HashSet<>(Arrays.asList(evaluators));
 		Set<RangerResourceEvaluator> result   = trie.getEvaluatorsForResource(resource, scope);
 
 		assertEquals("incorrect evaluators for resource "  + resource, expected, result);
+
+		result = compactTrie.getEvaluatorsForResource(resource, scope);
+
+		assertEquals("incorrect evaluators from compact trie for resource "  + resource, expected, result);
+	}
+
+	private static Map<String, Set<RangerResourceEvaluator>> getResults(RangerResourceTrie<RangerResourceEvaluator> trie, Collection<String> queries) {
+		Map<String, Set<RangerResourceEvaluator>> ret = new HashMap<>();
+
+		for (String query : queries) {
+			for (ResourceElementMatchingScope scope : ResourceElementMatchingScope.values()) {
+				ret.put(scope + ":" + query, trie.getEvaluatorsForResource(query, scope));
+			}
+		}
+
+		return ret;
+	}
+
+	// the paths of evaluators, their prefixes and children
+	private static List<String> getQueries(List<RangerResourceEvaluator> evaluators) {
+		Set<String> ret = new TreeSet<>();
+
+		for (RangerResourceEvaluator evaluator : evaluators) {
+			String path = evaluator.getPolicyResource().get(PATH_RESOURCE_DEF.getName()).getValues().get(0).replace("*", "");
+
+			for (int i = 1; i <= path.length(); i++) {
+				ret.add(path.substring(0, i));
+			}
+
+			ret.add(path + "/x");
+		}
+
+		return new ArrayList<>(ret);
+	}
+
+	private static RangerResourceEvaluator getRandomEvaluator(Random random) {
+		final String[] names = { "a", "ab", "abc", "b", "tmp" };
+		StringBuilder  path  = new StringBuilder();
+
+		for (int i = random.nextInt(3); i >= 0; i--) {
+			path.append('/').append(names[random.nextInt(names.length)]);
+		}
+
+		switch (random.nextInt(4)) {
+			case 0:
+				path.append('*');
+			break;
+
+			case 1:
+				path.append('/');
+			break;
+		}
+
+		return getEvaluator(path.toString(), false, random.nextBoolean());
 	}
 
 	private static RangerResourceDef getPathResourceDef() {
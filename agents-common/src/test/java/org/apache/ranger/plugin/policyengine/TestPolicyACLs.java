@@ -103,14 +103,16 @@ public void testResourceACLs_resource_hierarchy_tags() throws Exception {
 
 	private void runTestsFromResourceFiles(String[] resourceNames) throws Exception {
 		for(String resourceName : resourceNames) {
-			InputStream       inStream = this.getClass().getResourceAsStream(resourceName);
-			InputStreamReader reader   = new InputStreamReader(inStream);
+			for (boolean enableResourceACLsCache : new boolean[] { false, true }) {
+				InputStream       inStream = this.getClass().getResourceAsStream(resourceName);
+				InputStreamReader reader   = new InputStreamReader(inStream);
 
-			runTests(reader, resourceName);
+				runTests(reader, resourceName, enableResourceACLsCache);
+			}
 		}
 	}
 
-	private void runTests(InputStreamReader reader, String testName) throws Exception {
+	private void runTests(InputStreamReader reader, String testName, boolean enableResourceACLsCache) throws Exception {
 		PolicyACLsTests testCases = gsonBuilder.fromJson(reader, PolicyACLsTests.class);
 
 		assertTrue("invalid input: " + testName, testCases != null && testCases.testCases != null);
@@ -118,8 +120,11 @@ private void runTests(InputStreamReader reader, String testName) throws Exceptio
 		for(PolicyACLsTests.TestCase testCase : testCases.testCases) {
 			String                    serviceType         = testCase.servicePolicies.getServiceDef().getName();
 			RangerPolicyEngineOptions policyEngineOptions = new RangerPolicyEngineOptions();
-			RangerPluginContext       pluginContext       = new RangerPluginContext(new RangerPluginConfig(serviceType, null, "test-policy-acls", "cl1", "on-prem", policyEngineOptions));
-			RangerPolicyEngine        policyEngine        = new RangerPolicyEngineImpl(testCase.servicePolicies, pluginContext, null);
+
+			policyEngineOptions.enableResourceACLsCache = enableResourceACLsCache;
+
+			RangerPluginContext    pluginContext = new RangerPluginContext(new RangerPluginConfig(serviceType, null, "test-policy-acls", "cl1", "on-prem", policyEngineOptions));
+			RangerPolicyEngineImpl policyEngine  = new RangerPolicyEngineImpl(testCase.servicePolicies, pluginContext, null);
 
 			for(PolicyACLsTests.TestCase.OneTest oneTest : testCase.tests) {
 				if(oneTest == null) {
@@ -129,6 +134,10 @@ private void runTests(InputStreamReader reader, String testName) throws Exceptio
 
 				request.setResourceMatchingScope(oneTest.resourceMatchingScope);
 
+				if (enableResourceACLsCache) {
+					policyEngine.getResourceACLs(request); // populate the cache, so that the ACLs verified below are the cached ones
+				}
+
 				RangerResourceACLs acls = policyEngine.getResourceACLs(request);
 
 				boolean userACLsMatched = true, groupACLsMatched = true, roleACLsMatched = true, rowFiltersMatched = true, dataMaskingMatched = true;
@@ -289,6 +298,13 @@ private void runTests(InputStreamReader reader, String testName) throws Exceptio
 				assertTrue("getResourceACLs() failed! " + testCase.name + ":" + oneTest.name + " - rowFiltersMatched", rowFiltersMatched);
 				assertTrue("getResourceACLs() failed! " + testCase.name + ":" + oneTest.name + " - dataMaskingMatched", dataMaskingMatched);
 			}
+
+			if (enableResourceACLsCache) { // each request is looked up twice, only the first lookup can be a miss; requests carrying tags are not cached
+				RangerResourceACLsCache aclsCache = policyEngine.getResourceACLsCache();
+
+				assertTrue("getResourceACLs() not served from cache! " + testCase.name + ": " + aclsCache, aclsCache.getHitCount() >= aclsCache.getMissCount());
+				assertTrue("getResourceACLs() not served from cache! " + testCase.name + ": " + aclsCache, aclsCache.getHitCount() > 0 || testCase.servicePolicies.getTagPolicies() != null);
+			}
 		}
 	}
 
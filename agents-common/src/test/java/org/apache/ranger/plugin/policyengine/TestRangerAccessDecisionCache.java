@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerValiditySchedule;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createAccessPolicy;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createPluginConfig;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createPolicyItem;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createResource;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createResources;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestRangerAccessDecisionCache {
+	@Test
+	public void testCacheHitAndMiss() throws Exception {
+		RangerPolicyEngineImpl    policyEngine  = createPolicyEngine(Collections.singletonList(createPolicy(1L, "db1", "user1")), 100);
+		RangerAccessDecisionCache decisionCache = policyEngine.getDecisionCache();
+
+		assertNotNull(decisionCache);
+
+		RangerAccessResult result = policyEngine.evaluatePolicies(createRequest("db1", "user1", "select"), RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+		assertTrue(result.getIsAllowed());
+		assertEquals(1L, result.getPolicyId());
+		assertEquals(0, decisionCache.getHitCount());
+		assertEquals(1, decisionCache.getMissCount());
+		assertEquals(1, decisionCache.getSize());
+
+		RangerAccessRequest request = createRequest("db1", "user1", "select");
+
+		result = policyEngine.evaluatePolicies(request, RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+		assertTrue(result.getIsAllowed());
+		assertEquals(1L, result.getPolicyId());
+		assertTrue("cached result must refer to the current request", result.getAccessRequest() == request);
+		assertEquals(1, decisionCache.getHitCount());
+
+		result = policyEngine.evaluatePolicies(createRequest("db1", "user2", "select"), RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+		assertFalse(result.getIsAllowed());
+		assertEquals(1, decisionCache.getHitCount());
+		assertEquals(2, decisionCache.getMissCount());
+
+		result = policyEngine.evaluatePolicies(createRequest("db1", "user1", "update"), RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+		assertFalse(result.getIsAllowed());
+		assertEquals(3, decisionCache.getMissCount());
+	}
+
+	@Test
+	public void testCacheUpdatesDoNotLeakToCachedEntries() throws Exception {
+		RangerPolicyEngineImpl    policyEngine  = createPolicyEngine(Collections.singletonList(createPolicy(1L, "db1", "user1")), 100);
+		RangerAccessDecisionCache decisionCache = policyEngine.getDecisionCache();
+
+		RangerAccessResult result = policyEngine.evaluatePolicies(createRequest("db1", "user1", "select"), RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+		result.setIsAllowed(false);
+		result.setPolicyId(-1);
+
+		result = policyEngine.evaluatePolicies(createRequest("db1", "user1", "select"), RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+		assertEquals(1, decisionCache.getHitCount());
+		assertTrue(result.getIsAllowed());
+		assertEquals(1L, result.getPolicyId());
+	}
+
+	@Test
+	public void testNotCachedWithValiditySchedule() throws Exception {
+		RangerPolicy policy = createPolicy(1L, "db1", "user1");
+
+		policy.setValiditySchedules(Collections.singletonList(new RangerValiditySchedule("2020/01/01 00:00:00", "2099/12/31 23:59:59", null, null)));
+
+		RangerPolicyEngineImpl policyEngine = createPolicyEngine(Collections.singletonList(policy), 100);
+
+		policyEngine.evaluatePolicies(createRequest("db1", "user1", "select"), RangerPolicy.POLICY_TYPE_ACCESS, null);
+		policyEngine.evaluatePolicies(createRequest("db1", "user1", "select"), RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+		RangerAccessDecisionCache decisionCache = policyEngine.getDecisionCache();
+
+		assertEquals(0, decisionCache.getHitCount());
+		assertEquals(0, decisionCache.getMissCount());
+		assertEquals(0, decisionCache.getSize());
+	}
+
+	@Test
+	public void testNotCachedForAnyAccess() throws Exception {
+		RangerPolicyEngineImpl policyEngine = createPolicyEngine(Collections.singletonList(createPolicy(1L, "db1", "user1")), 100);
+
+		policyEngine.evaluatePolicies(createRequest("db1", "user1", RangerPolicyEngine.ANY_ACCESS), RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+		assertEquals(0, policyEngine.getDecisionCache().getSize());
+	}
+
+	@Test
+	public void testBoundedSize() throws Exception {
+		RangerPolicyEngineImpl    policyEngine  = createPolicyEngine(Collections.singletonList(createPolicy(1L, "db1", "user1")), 16);
+		RangerAccessDecisionCache decisionCache = policyEngine.getDecisionCache();
+
+		for (int i = 0; i < 100; i++) {
+			policyEngine.evaluatePolicies(createRequest("db" + i, "user1", "select"), RangerPolicy.POLICY_TYPE_ACCESS, null);
+		}
+
+		assertTrue("cache size exceeded the limit: " + decisionCache.getSize(), decisionCache.getSize() <= 16);
+		assertEquals(100 - decisionCache.getSize(), decisionCache.getEvictionCount());
+	}
+
+	@Test
+	public void testDisabledByDefault() throws Exception {
+		RangerPolicyEngineImpl policyEngine = createPolicyEngine(Collections.singletonList(createPolicy(1L, "db1", "user1")), -1);
+
+		assertNull(policyEngine.getDecisionCache());
+	}
+
+	private RangerPolicyEngineImpl createPolicyEngine(List<RangerPolicy> policies, int cacheSize) throws Exception {
+		RangerPolicyEngineOptions options = new RangerPolicyEngineOptions();
+
+		options.enableAccessDecisionCache = cacheSize > 0;
+
+		RangerPluginConfig pluginConfig = createPluginConfig("test-decision-cache", options);
+
+		pluginConfig.setInt(pluginConfig.getPropertyPrefix() + ".policyengine.access.decision.cache.size", cacheSize);
+
+		return RangerPolicyEngineTestUtil.createPolicyEngine(pluginConfig, policies, null);
+	}
+
+	private RangerPolicy createPolicy(Long id, String database, String user) {
+		return createAccessPolicy(id, createResources(database, "*", "*"), createPolicyItem("select", Collections.singletonList(user), null, null), null);
+	}
+
+	private RangerAccessRequest createRequest(String database, String user, String accessType) {
+		return RangerPolicyEngineTestUtil.createRequest(createResource(database, "tbl1", "col1"), accessType, user, new HashSet<>());
+	}
+}
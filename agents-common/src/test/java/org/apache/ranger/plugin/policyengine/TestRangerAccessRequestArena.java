@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createAccessPolicy;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createPolicyItem;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createResources;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestRangerAccessRequestArena {
+	private static final Set<String> USER_GROUPS = Collections.singleton("analysts");
+
+	@Test
+	public void testLifecycle() {
+		RangerAccessRequestArena<RangerAccessRequestImpl> arena = new RangerAccessRequestArena<>(RangerAccessRequestImpl::new, 2);
+
+		assertTrue(arena.begin());
+		assertFalse(arena.begin()); // already in use
+
+		RangerAccessRequestImpl request1 = arena.acquire();
+		RangerAccessRequestImpl request2 = arena.acquire();
+		RangerAccessRequestImpl request3 = arena.acquire();
+
+		fill(request1, new RangerAccessResourceImpl(), "user1", "db1");
+
+		Map<String, Object> context = request1.getContext();
+
+		arena.end();
+
+		assertFalse(arena.isActive());
+		assertEquals(2, arena.getRetainedCount());
+		assertNull(request1.getUser());
+		assertNull(request1.getResource());
+		assertEquals(RangerPolicyEngine.ANY_ACCESS, request1.getAccessType());
+		assertTrue(request1.getUserGroups().isEmpty());
+		assertSame(context, request1.getContext());
+		assertEquals(1, context.size());
+		assertSame(request1, RangerAccessRequestUtil.getRequestFromContext(context));
+
+		assertTrue(arena.begin());
+		assertSame(request1, arena.acquire());
+		assertSame(request2, arena.acquire());
+		assertNotSame(request3, arena.acquire());
+
+		arena.end();
+	}
+
+	@Test
+	public void testAllocationPerEvaluation() throws Exception {
+		ThreadMXBean mxBean = ManagementFactory.getThreadMXBean();
+
+		Assume.assumeTrue(mxBean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) mxBean).isThreadAllocatedMemorySupported());
+
+		com.sun.management.ThreadMXBean                   allocMxBean = (com.sun.management.ThreadMXBean) mxBean;
+		RangerPolicyEngine                                engine      = createPolicyEngine();
+		RangerAccessRequestArena<RangerAccessRequestImpl> arena       = new RangerAccessRequestArena<>(RangerAccessRequestImpl::new);
+		int                                               count       = 20000;
+
+		allocMxBean.setThreadAllocatedMemoryEnabled(true);
+
+		for (int i = 0; i < 3; i++) { // warm-up
+			measure(allocMxBean, arena, null, count);
+			measure(allocMxBean, null, null, count);
+			measure(allocMxBean, arena, engine, count);
+			measure(allocMxBean, null, engine, count);
+		}
+
+		long bytesToBuildWithArena    = measure(allocMxBean, arena, null, count);
+		long bytesToBuildWithoutArena = measure(allocMxBean, null, null, count);
+		long bytesToEvalWithArena     = measure(allocMxBean, arena, engine, count);
+		long bytesToEvalWithoutArena  = measure(allocMxBean, null, engine, count);
+
+		// absolute sizes depend on the JVM, hence only arena and new are compared
+		assertTrue("bytes allocated per request: arena=" + bytesToBuildWithArena + ", new=" + bytesToBuildWithoutArena, bytesToBuildWithArena * 3 < bytesToBuildWithoutArena);
+		assertTrue("bytes allocated per evaluation: arena=" + bytesToEvalWithArena + ", new=" + bytesToEvalWithoutArena, bytesToEvalWithArena < bytesToEvalWithoutArena);
+	}
+
+	// returns average bytes allocated per iteration by the current thread
+	private static long measure(com.sun.management.ThreadMXBean mxBean, RangerAccessRequestArena<RangerAccessRequestImpl> arena, RangerPolicyEngine engine, int count) {
+		long                     threadId = Thread.currentThread().getId();
+		RangerAccessResourceImpl resource = new RangerAccessResourceImpl(); // with arena, a resource is reused like the one owned by RangerHdfsAccessRequest
+		long                     start    = mxBean.getThreadAllocatedBytes(threadId);
+
+		for (int i = 0; i < count; i++) {
+			final RangerAccessRequestImpl request;
+
+			if (arena != null) {
+				arena.begin();
+
+				request = arena.acquire();
+			} else {
+				request  = new RangerAccessRequestImpl();
+				resource = new RangerAccessResourceImpl();
+			}
+
+			fill(request, resource, "user1", "db1");
+
+			if (engine != null) {
+				engine.evaluatePolicies(request, RangerPolicy.POLICY_TYPE_ACCESS, null);
+			}
+
+			if (arena != null) {
+				arena.end();
+			}
+		}
+
+		return (mxBean.getThreadAllocatedBytes(threadId) - start) / count;
+	}
+
+	private static void fill(RangerAccessRequestImpl request, RangerAccessResourceImpl resource, String user, String database) {
+		resource.setValue("database", database);
+		resource.setValue("table", "tbl1");
+
+		request.setResource(resource);
+		request.setAccessType("select");
+		request.setUser(user);
+		request.setUserGroups(USER_GROUPS);
+		request.setAction("query");
+	}
+
+	private static RangerPolicyEngine createPolicyEngine() throws Exception {
+		List<RangerPolicy> policies = new ArrayList<>();
+
+		for (long i = 0; i < 10; i++) {
+			policies.add(createAccessPolicy(i, createResources("db" + i, "*", "*"), createPolicyItem("select", null, new ArrayList<>(USER_GROUPS), null), null));
+		}
+
+		return RangerPolicyEngineTestUtil.createPolicyEngine("test-request-arena", new RangerPolicyEngineOptions(), policies);
+	}
+}
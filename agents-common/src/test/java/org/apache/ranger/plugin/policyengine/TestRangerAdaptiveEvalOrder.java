@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createAccessPolicy;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createPluginConfig;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createResource;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createResources;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestRangerAdaptiveEvalOrder {
+	private static final int USER_COUNT = 100;
+
+	@Test
+	public void testResultsWithTrie() throws Exception {
+		verifyResultsAndOrder(false);
+	}
+
+	@Test
+	public void testResultsWithoutTrie() throws Exception {
+		verifyResultsAndOrder(true);
+	}
+
+	@Test
+	public void testOrderPreservesPrecedence() throws Exception {
+		RangerPolicyRepository  repository    = createPolicyEngine(true, true).getPolicyEngine().getPolicyRepository();
+		RangerAdaptiveEvalOrder evalOrder     = new RangerAdaptiveEvalOrder(repository.getPolicyEvaluators(), Long.MAX_VALUE, 1, null); // reorder() only when called
+		RangerPolicyEvaluator   popular       = repository.getPolicyEvaluator(99L);
+		List<Long>              expectedOrder = new ArrayList<>();
+
+		for (RangerPolicyEvaluator evaluator : evalOrder.getEvaluatorsInOrder()) {
+			expectedOrder.add(evaluator.getPolicyId());
+		}
+
+		assertEquals(2000L, (long) expectedOrder.get(0)); // override priority
+		assertEquals(1000L, (long) expectedOrder.get(1)); // has deny
+
+		for (int i = 0; i < 10; i++) {
+			evalOrder.recordDetermined(popular);
+			evalOrder.recordDetermined(repository.getPolicyEvaluator(2000L));
+			evalOrder.recordDetermined(repository.getPolicyEvaluator(1000L));
+		}
+
+		evalOrder.recordDetermined(repository.getPolicyEvaluator(98L));
+
+		assertTrue(evalOrder.reorder());
+
+		expectedOrder.remove(99L);
+		expectedOrder.remove(98L);
+		expectedOrder.add(2, 99L);
+		expectedOrder.add(3, 98L);
+
+		List<Long> actualOrder = new ArrayList<>();
+
+		for (RangerPolicyEvaluator evaluator : evalOrder.getEvaluatorsInOrder()) {
+			actualOrder.add(evaluator.getPolicyId());
+		}
+
+		assertEquals(expectedOrder, actualOrder);
+		assertEquals(2, evalOrder.getEvalOrderIndex().getOrdinal(popular));
+
+		// scores are carried over to an instance built after policy deltas
+		RangerAdaptiveEvalOrder updated = new RangerAdaptiveEvalOrder(repository.getPolicyEvaluators(), Long.MAX_VALUE, 1, evalOrder);
+
+		assertEquals(evalOrder.getEvaluatorsInOrder(), updated.getEvaluatorsInOrder());
+	}
+
+	@Test
+	public void testReorderInBackground() throws Exception {
+		RangerPolicyRepository  repository = createPolicyEngine(true, true).getPolicyEngine().getPolicyRepository();
+		RangerAdaptiveEvalOrder evalOrder  = new RangerAdaptiveEvalOrder(repository.getPolicyEvaluators(), 50, 1, null);
+		RangerPolicyEvaluator   popular    = repository.getPolicyEvaluator(99L);
+
+		try {
+			for (int i = 0; i < 10; i++) {
+				evalOrder.recordDetermined(popular);
+			}
+
+			long timeout = System.currentTimeMillis() + 10000;
+
+			while (evalOrder.getEvalOrderIndex().getOrdinal(popular) != 2) { // reordered by the background thread, not by recordDetermined()
+				assertTrue("timed out waiting for reorder", System.currentTimeMillis() < timeout);
+
+				Thread.sleep(10);
+			}
+		} finally {
+			evalOrder.close();
+		}
+	}
+
+	private void verifyResultsAndOrder(boolean disableTrie) throws Exception {
+		RangerPolicyEngineImpl engine          = createPolicyEngine(true, disableTrie);
+		RangerPolicyEngineImpl engineNoReorder = createPolicyEngine(false, disableTrie);
+
+		for (int i = 0; i < 2000; i++) {
+			int                 userId   = i % 20 == 0 ? (i / 20) % (USER_COUNT + 10) : USER_COUNT - 1 - (i % 5); // 95% of requests by 5 users
+			RangerAccessRequest request  = createRequest("user" + userId, Collections.singleton("grp" + (userId % 7)), "select");
+			RangerAccessResult  expected = engineNoReorder.evaluatePolicies(request, RangerPolicy.POLICY_TYPE_ACCESS, null);
+			RangerAccessResult  actual   = engine.evaluatePolicies(request, RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+			assertEquals(request.toString(), expected.getIsAllowed(), actual.getIsAllowed());
+			assertEquals(request.toString(), expected.getPolicyId(), actual.getPolicyId());
+			assertEquals(request.toString(), expected.getIsAudited(), actual.getIsAudited());
+
+			if (i % 500 == 499) {
+				assertTrue(engine.getPolicyEngine().getPolicyRepository().getAdaptiveEvalOrder().reorder());
+			}
+		}
+
+		RangerAccessRequest         request    = createRequest("user1", Collections.emptySet(), "select");
+		List<RangerPolicyEvaluator> evaluators = engine.getPolicyEngine().getPolicyRepository().getLikelyMatchPolicyEvaluators(request, RangerPolicy.POLICY_TYPE_ACCESS);
+		Set<Long>                   firstIds   = new HashSet<>();
+
+		for (RangerPolicyEvaluator evaluator : evaluators.subList(2, 6)) {
+			firstIds.add(evaluator.getPolicyId());
+		}
+
+		assertEquals(USER_COUNT + 2, evaluators.size());
+		assertEquals(2000L, evaluators.get(0).getPolicyId());
+		assertEquals(1000L, evaluators.get(1).getPolicyId());
+		assertEquals(new HashSet<>(Arrays.asList(95L, 96L, 97L, 99L)), firstIds); // user98 is in grp0, denied by policy 1000
+		assertEquals(99L, engineNoReorder.getPolicyEngine().getPolicyRepository().getLikelyMatchPolicyEvaluators(request, RangerPolicy.POLICY_TYPE_ACCESS).get(USER_COUNT + 1).getPolicyId());
+		assertNull(engineNoReorder.getPolicyEngine().getPolicyRepository().getAdaptiveEvalOrder());
+	}
+
+	private RangerPolicyEngineImpl createPolicyEngine(boolean enableAdaptiveEvalOrder, boolean disableTrie) throws Exception {
+		RangerPolicyEngineOptions options  = new RangerPolicyEngineOptions();
+		List<RangerPolicy>        policies = new ArrayList<>();
+
+		for (long i = 0; i < USER_COUNT; i++) { // many policies on the same resource, each for a different user
+			policies.add(createPolicy(i, RangerPolicy.POLICY_PRIORITY_NORMAL, createPolicyItem("user" + i, null), null));
+		}
+
+		policies.add(createPolicy(1000L, RangerPolicy.POLICY_PRIORITY_NORMAL, null, createPolicyItem(null, "grp0")));
+		policies.add(createPolicy(2000L, RangerPolicy.POLICY_PRIORITY_OVERRIDE, createPolicyItem("user7", null), null));
+
+		options.enableAdaptiveEvalOrder    = enableAdaptiveEvalOrder;
+		options.disableTrieLookupPrefilter = disableTrie;
+		options.disablePrincipalPrefilter  = true;
+
+		RangerPluginConfig pluginConfig = createPluginConfig("test-adaptive-eval-order", options);
+
+		pluginConfig.setLong(pluginConfig.getPropertyPrefix() + ".policyengine.adaptive.eval.order.interval.ms", Long.MAX_VALUE); // reorder() is called by the test
+		pluginConfig.setInt(pluginConfig.getPropertyPrefix() + ".policyengine.adaptive.eval.order.sample.rate", 1);
+
+		return RangerPolicyEngineTestUtil.createPolicyEngine(pluginConfig, policies, null);
+	}
+
+	private RangerPolicy createPolicy(Long id, int priority, RangerPolicyItem allowItem, RangerPolicyItem denyItem) {
+		RangerPolicy ret = createAccessPolicy(id, createResources("shared", "*", "*"), allowItem, denyItem);
+
+		ret.setPolicyPriority(priority);
+
+		return ret;
+	}
+
+	private RangerPolicyItem createPolicyItem(String user, String group) {
+		return RangerPolicyEngineTestUtil.createPolicyItem("select", user != null ? Collections.singletonList(user) : null, group != null ? Collections.singletonList(group) : null, null);
+	}
+
+	private RangerAccessRequest createRequest(String user, Set<String> groups, String accessType) {
+		return RangerPolicyEngineTestUtil.createRequest(createResource("shared", "tbl1", "col1"), accessType, user, groups);
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerRole;
+import org.apache.ranger.plugin.util.RangerRoles;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.SERVICE_NAME;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createAccessPolicy;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createPluginConfig;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createPolicyItem;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createResource;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createResources;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestRangerBatchEvaluation {
+	private static final int BATCH_SIZE = 500;
+
+	@Test
+	public void testParallelResultsMatchSequential() throws Exception {
+		RangerPolicyEngineImpl sequentialEngine = createPolicyEngine(false);
+		RangerPolicyEngineImpl parallelEngine   = createPolicyEngine(true);
+
+		Collection<RangerAccessResult> expected = sequentialEngine.evaluatePolicies(createRequests(), RangerPolicy.POLICY_TYPE_ACCESS, null);
+		List<RangerAccessRequest>      requests = createRequests();
+		Collection<RangerAccessResult> actual   = parallelEngine.evaluatePolicies(requests, RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+		assertResultsEqual(expected, actual, requests);
+	}
+
+	@Test
+	public void testDuplicateRequestsInBatch() throws Exception {
+		RangerPolicyEngineImpl    parallelEngine = createPolicyEngine(true);
+		List<RangerAccessRequest> requests       = new ArrayList<>();
+		RangerAccessRequest       request        = createRequest(1, "user1", Collections.emptySet());
+
+		for (int i = 0; i < BATCH_SIZE; i++) { // the same request object repeated must be evaluated in the calling thread
+			requests.add(request);
+		}
+
+		Collection<RangerAccessResult> results = parallelEngine.evaluatePolicies(requests, RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+		assertEquals(BATCH_SIZE, results.size());
+
+		for (RangerAccessResult result : results) {
+			assertTrue(result.getIsAllowed());
+			assertEquals(1L, result.getPolicyId());
+		}
+	}
+
+	private void assertResultsEqual(Collection<RangerAccessResult> expected, Collection<RangerAccessResult> actual, List<RangerAccessRequest> requests) {
+		assertEquals(expected.size(), actual.size());
+
+		Iterator<RangerAccessResult> iterExpected = expected.iterator();
+		Iterator<RangerAccessResult> iterActual   = actual.iterator();
+
+		for (RangerAccessRequest request : requests) {
+			RangerAccessResult expectedResult = iterExpected.next();
+			RangerAccessResult actualResult   = iterActual.next();
+
+			assertTrue("results must be in the order of requests", actualResult.getAccessRequest() == request);
+			assertEquals(request.toString(), expectedResult.getIsAllowed(), actualResult.getIsAllowed());
+			assertEquals(request.toString(), expectedResult.getPolicyId(), actualResult.getPolicyId());
+			assertEquals(request.toString(), expectedResult.getIsAudited(), actualResult.getIsAudited());
+		}
+	}
+
+	private RangerPolicyEngineImpl createPolicyEngine(boolean enableParallelBatchEvaluation) throws Exception {
+		RangerPolicyEngineOptions options  = new RangerPolicyEngineOptions();
+		List<RangerPolicy>        policies = new ArrayList<>();
+
+		for (long i = 0; i < 10; i++) {
+			policies.add(createAccessPolicy(i, createResources("db" + i, "*", "*"), createPolicyItem("select", Collections.singletonList("user" + i), null, Collections.singletonList("role" + i)), null));
+		}
+
+		options.enableParallelBatchEvaluation = enableParallelBatchEvaluation;
+
+		RangerPluginConfig pluginConfig = createPluginConfig("test-batch-evaluation", options);
+
+		pluginConfig.setInt(pluginConfig.getPropertyPrefix() + ".policyengine.batch.evaluation.parallelism", 4);
+
+		RangerRoles     roles       = new RangerRoles();
+		Set<RangerRole> rangerRoles = new HashSet<>();
+
+		for (int i = 0; i < 10; i++) {
+			rangerRoles.add(new RangerRole("role" + i, null, null, null, Collections.singletonList(new RangerRole.RoleMember("grp" + i, false))));
+		}
+
+		roles.setServiceName(SERVICE_NAME);
+		roles.setRoleVersion(1L);
+		roles.setRangerRoles(rangerRoles);
+
+		return RangerPolicyEngineTestUtil.createPolicyEngine(pluginConfig, policies, roles);
+	}
+
+	private List<RangerAccessRequest> createRequests() {
+		List<RangerAccessRequest> ret = new ArrayList<>();
+
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			ret.add(createRequest(i, "user" + (i % 7), Collections.singleton("grp" + (i % 11))));
+		}
+
+		return ret;
+	}
+
+	private RangerAccessRequest createRequest(int index, String user, Set<String> groups) {
+		return RangerPolicyEngineTestUtil.createRequest(createResource("db" + (index % 10), "tbl" + index, "col1"), (index % 3) == 0 ? "update" : "select", user, new HashSet<>(groups));
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createAccessPolicy;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createResource;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createResources;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestRangerPolicyPrincipalIndex {
+	private static final int USER_COUNT = 100;
+
+	@Test
+	public void testResultsWithAndWithoutPrefilter() throws Exception {
+		RangerPolicyEngineImpl engine          = createPolicyEngine(false);
+		RangerPolicyEngineImpl engineNoFilter  = createPolicyEngine(true);
+		long                   evaluatedCount  = 0;
+		long                   evaluatedCount2 = 0;
+
+		for (int i = 0; i < USER_COUNT + 10; i++) {
+			for (String accessType : new String[] { "select", "update" }) {
+				RangerAccessRequest request  = createRequest("user" + i, Collections.singleton("grp" + (i % 7)), i % 5 == 0 ? "user" + i : "hive", accessType);
+				RangerAccessResult  expected = engineNoFilter.evaluatePolicies(request, RangerPolicy.POLICY_TYPE_ACCESS, null);
+				RangerAccessResult  actual   = engine.evaluatePolicies(request, RangerPolicy.POLICY_TYPE_ACCESS, null);
+
+				assertEquals(request.toString(), expected.getIsAllowed(), actual.getIsAllowed());
+				assertEquals(request.toString(), expected.getPolicyId(), actual.getPolicyId());
+				assertEquals(request.toString(), expected.getIsAudited(), actual.getIsAudited());
+				assertEquals(request.toString(), expected.getAuditPolicyId(), actual.getAuditPolicyId());
+
+				evaluatedCount  += actual.getEvaluatedPoliciesCount();
+				evaluatedCount2 += expected.getEvaluatedPoliciesCount();
+			}
+		}
+
+		assertTrue("evaluated " + evaluatedCount + " policies with prefilter, " + evaluatedCount2 + " without", evaluatedCount * 10 < evaluatedCount2);
+	}
+
+	@Test
+	public void testFilter() throws Exception {
+		RangerPolicyRepository           repository = createPolicyEngine(false).getPolicyEngine().getPolicyRepository();
+		Predicate<RangerPolicyEvaluator> filter     = repository.getPrincipalFilter(createRequest("user1", Collections.singleton("grp2"), "user1", "select"));
+		Set<Long>                        policyIds  = new HashSet<>();
+
+		for (RangerPolicyEvaluator evaluator : repository.getPolicyEvaluators()) {
+			if (filter.test(evaluator)) {
+				policyIds.add(evaluator.getPolicyId());
+			}
+		}
+
+		// policies for user1, grp2, {OWNER} and public
+		assertEquals(new HashSet<>(Arrays.asList(1L, 1002L, 1007L, 1008L)), policyIds);
+
+		filter = repository.getPrincipalFilter(createRequest("unknown", Collections.emptySet(), null, "select"));
+
+		assertFalse(filter.test(repository.getPolicyEvaluator(1L)));
+		assertTrue(filter.test(repository.getPolicyEvaluator(1008L)));
+
+		assertNull(createPolicyEngine(true).getPolicyEngine().getPolicyRepository().getPrincipalFilter(createRequest("user1", null, null, "select")));
+	}
+
+	private RangerPolicyEngineImpl createPolicyEngine(boolean disablePrincipalPrefilter) throws Exception {
+		RangerPolicyEngineOptions options  = new RangerPolicyEngineOptions();
+		List<RangerPolicy>        policies = new ArrayList<>();
+
+		for (long i = 0; i < USER_COUNT; i++) { // many policies on the same resource, each for a different user
+			policies.add(createPolicy(i, createPolicyItem("select", Collections.singletonList("user" + i), null), null));
+		}
+
+		for (long i = 0; i < 3; i++) { // deny for grp0, grp1 and grp2
+			policies.add(createPolicy(1000 + i, null, createPolicyItem("select", null, Collections.singletonList("grp" + i))));
+		}
+
+		policies.add(createPolicy(1007L, createPolicyItem("select", Collections.singletonList(RangerPolicyEngine.RESOURCE_OWNER), null), null));
+		policies.add(createPolicy(1008L, createPolicyItem("update", null, Collections.singletonList(RangerPolicyEngine.GROUP_PUBLIC)), null));
+
+		options.disablePrincipalPrefilter = disablePrincipalPrefilter;
+
+		return RangerPolicyEngineTestUtil.createPolicyEngine("test-principal-index", options, policies);
+	}
+
+	private RangerPolicy createPolicy(Long id, RangerPolicyItem allowItem, RangerPolicyItem denyItem) {
+		return createAccessPolicy(id, createResources("shared", "*", "*"), allowItem, denyItem);
+	}
+
+	private RangerPolicyItem createPolicyItem(String accessType, List<String> users, List<String> groups) {
+		return RangerPolicyEngineTestUtil.createPolicyItem(accessType, users, groups, null);
+	}
+
+	private RangerAccessRequest createRequest(String user, Set<String> groups, String owner, String accessType) {
+		RangerAccessResourceImpl resource = createResource("shared", "tbl1", "col1");
+
+		resource.setOwnerUser(owner);
+
+		return RangerPolicyEngineTestUtil.createRequest(resource, accessType, user, groups);
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerDataMaskPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemDataMaskInfo;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemRowFilterInfo;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerRowFilterPolicyItem;
+import org.apache.ranger.plugin.model.RangerRole;
+import org.apache.ranger.plugin.util.RangerRoles;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createPluginConfig;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createPolicy;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createPolicyItem;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createResource;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createResources;
+import static org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator.ACCESS_DENIED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TestRangerResourceACLsCache {
+	private static final Integer[] POLICY_TYPES = new Integer[] { null, RangerPolicy.POLICY_TYPE_ACCESS, RangerPolicy.POLICY_TYPE_DATAMASK, RangerPolicy.POLICY_TYPE_ROWFILTER };
+
+	@Test
+	public void testSameACLsAsUncached() throws Exception {
+		RangerPolicyEngineImpl  policyEngine = createPolicyEngine(createPolicies(), 100);
+		RangerPolicyEngineImpl  uncached     = createPolicyEngine(createPolicies(), -1);
+		RangerResourceACLsCache aclsCache    = policyEngine.getResourceACLsCache();
+		int                     count        = 0;
+
+		for (int i = 0; i < 2; i++) {
+			for (String database : Arrays.asList("db1", "db2")) {
+				for (String table : Arrays.asList(null, "tbl1", "tbl2")) {
+					for (String column : Arrays.asList(null, "col1", "ssn")) {
+						if (table == null && column != null) {
+							continue;
+						}
+
+						for (Integer policyType : POLICY_TYPES) {
+							RangerResourceACLs expected = uncached.getResourceACLs(createRequest(database, table, column), policyType);
+							RangerResourceACLs actual   = policyEngine.getResourceACLs(createRequest(database, table, column), policyType);
+
+							assertEquals(database + "." + table + "." + column + ", policyType=" + policyType, expected, actual);
+
+							count++;
+						}
+					}
+				}
+			}
+		}
+
+		assertEquals(count / 2, aclsCache.getSize());
+		assertEquals(count / 2, aclsCache.getMissCount());
+		assertEquals(count / 2, aclsCache.getHitCount());
+	}
+
+	@Test
+	public void testCallerUpdatesDoNotLeakToCachedEntries() throws Exception {
+		RangerPolicyEngineImpl policyEngine = createPolicyEngine(createPolicies(), 100);
+		RangerResourceACLs     expected     = policyEngine.getResourceACLs(createRequest("db1", "tbl1", "ssn"));
+		RangerResourceACLs     acls         = policyEngine.getResourceACLs(createRequest("db1", "tbl1", "ssn"));
+
+		assertEquals(expected, acls);
+
+		acls.getUserACLs().get("user1").get("select").setIsFinal(false);
+		acls.getUserACLs().get("user1").get("select").setResult(ACCESS_DENIED);
+		acls.getGroupACLs().clear();
+		acls.getDataMasks().clear();
+		acls.getDatasets().add("ds1");
+
+		assertEquals(expected, policyEngine.getResourceACLs(createRequest("db1", "tbl1", "ssn")));
+		assertEquals(2, policyEngine.getResourceACLsCache().getHitCount());
+	}
+
+	@Test
+	public void testInvalidatedOnRoleChange() throws Exception {
+		RangerPolicyEngineImpl  policyEngine = createPolicyEngine(createPolicies(), 100);
+		RangerResourceACLsCache aclsCache    = policyEngine.getResourceACLsCache();
+
+		policyEngine.getResourceACLs(createRequest("db1", "tbl1", "col1"));
+
+		assertEquals(1, aclsCache.getSize());
+
+		RangerRoles roles = new RangerRoles();
+
+		roles.setRoleVersion(2L);
+		roles.setRangerRoles(Collections.singleton(new RangerRole("role1", null, null, null, null, null)));
+
+		policyEngine.setRoles(roles);
+		policyEngine.getResourceACLs(createRequest("db1", "tbl1", "col1"));
+
+		assertEquals(0, aclsCache.getHitCount());
+		assertEquals(1, aclsCache.getInvalidationCount());
+		assertEquals(1, aclsCache.getSize());
+	}
+
+	@Test
+	public void testNotCachedWithDynamicResource() throws Exception {
+		List<RangerPolicy> policies = createPolicies();
+
+		policies.add(createAccessPolicy(100L, "{USER}", null, "select", false));
+
+		RangerPolicyEngineImpl policyEngine = createPolicyEngine(policies, 100);
+
+		policyEngine.getResourceACLs(createRequest("user1", "tbl1", "col1"));
+		policyEngine.getResourceACLs(createRequest("user1", "tbl1", "col1"));
+
+		assertEquals(0, policyEngine.getResourceACLsCache().getSize());
+		assertEquals(0, policyEngine.getResourceACLsCache().getHitCount());
+	}
+
+	@Test
+	public void testDisabledByDefault() throws Exception {
+		RangerPolicyEngineImpl policyEngine = createPolicyEngine(createPolicies(), -1);
+
+		assertNull(policyEngine.getResourceACLsCache());
+	}
+
+	private RangerPolicyEngineImpl createPolicyEngine(List<RangerPolicy> policies, int cacheSize) throws Exception {
+		RangerPolicyEngineOptions options = new RangerPolicyEngineOptions();
+
+		options.enableResourceACLsCache = cacheSize > 0;
+
+		RangerPluginConfig pluginConfig = createPluginConfig("test-resource-acls-cache", options);
+
+		pluginConfig.setInt(pluginConfig.getPropertyPrefix() + ".policyengine.resource.acls.cache.size", cacheSize);
+
+		return RangerPolicyEngineTestUtil.createPolicyEngine(pluginConfig, policies, null);
+	}
+
+	private List<RangerPolicy> createPolicies() {
+		List<RangerPolicy> ret = new ArrayList<>();
+
+		ret.add(createAccessPolicy(1L, "db1", "user1", "select", false));
+		ret.add(createAccessPolicy(2L, "db*", "user2", "update", false));
+		ret.add(createAccessPolicy(3L, "db1", "user2", "select", true));
+
+		RangerPolicy overridePolicy = createAccessPolicy(4L, "db2", "user3", "select", true);
+
+		overridePolicy.setPolicyPriority(RangerPolicy.POLICY_PRIORITY_OVERRIDE);
+
+		ret.add(overridePolicy);
+
+		RangerPolicy dataMaskPolicy = createPolicy(10L, RangerPolicy.POLICY_TYPE_DATAMASK, createResources("db1", "tbl1", "ssn"));
+
+		dataMaskPolicy.setDataMaskPolicyItems(Collections.singletonList(new RangerDataMaskPolicyItem(Collections.singletonList(new RangerPolicyItemAccess("select")), new RangerPolicyItemDataMaskInfo("MASK", null, null), Collections.singletonList("user2"), Collections.singletonList("analysts"), null, null, false)));
+
+		ret.add(dataMaskPolicy);
+
+		RangerPolicy rowFilterPolicy = createPolicy(20L, RangerPolicy.POLICY_TYPE_ROWFILTER, createResources("db*", "tbl1", null));
+
+		rowFilterPolicy.setRowFilterPolicyItems(Collections.singletonList(new RangerRowFilterPolicyItem(new RangerPolicyItemRowFilterInfo("region = 'us'"), Collections.singletonList(new RangerPolicyItemAccess("select")), Collections.singletonList("user1"), null, null, null, false)));
+
+		ret.add(rowFilterPolicy);
+
+		return ret;
+	}
+
+	private RangerPolicy createAccessPolicy(Long id, String database, String user, String accessType, boolean isDeny) {
+		RangerPolicyItem policyItem = createPolicyItem(accessType, user != null ? Collections.singletonList(user) : null, Collections.singletonList("analysts"), null);
+
+		return RangerPolicyEngineTestUtil.createAccessPolicy(id, createResources(database, "*", "*"), isDeny ? null : policyItem, isDeny ? policyItem : null);
+	}
+
+	private RangerAccessRequest createRequest(String database, String table, String column) {
+		return RangerPolicyEngineTestUtil.createRequest(createResource(database, table, column), RangerPolicyEngine.ANY_ACCESS, null, new HashSet<>());
+	}
+}
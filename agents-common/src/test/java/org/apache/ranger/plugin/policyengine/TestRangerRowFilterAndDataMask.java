@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerDataMaskPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemDataMaskInfo;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemRowFilterInfo;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerRowFilterPolicyItem;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createPolicy;
+import static org.apache.ranger.plugin.policyengine.RangerPolicyEngineTestUtil.createResources;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class TestRangerRowFilterAndDataMask {
+	private static final Set<String> USER_GROUPS  = Collections.singleton("analysts");
+	private static final int         COLUMN_COUNT = 60;
+
+	@Test
+	public void testSameResultsAsPerColumnEvaluation() throws Exception {
+		verifySameResults(createPolicyEngine(false), "user1");
+		verifySameResults(createPolicyEngine(false), "user2");
+		verifySameResults(createPolicyEngine(true), "user1"); // without trie, policies aren't shared across columns
+	}
+
+	@Test
+	public void testSharedEvaluatorsSameAsTrieLookup() throws Exception {
+		RangerPolicyRepository                          repository      = createPolicyEngine(false).getPolicyEngine().getPolicyRepository();
+		RangerPolicyRepository.ParentResourceEvaluators tableEvaluators = new RangerPolicyRepository.ParentResourceEvaluators(createResource("db1", "tbl1", null));
+
+		for (String column : getColumns()) {
+			RangerAccessRequest         request    = createRequest(createResource("db1", "tbl1", column, repository.getServiceDef()), "user1");
+			List<RangerPolicyEvaluator> evaluators = repository.getLikelyMatchPolicyEvaluators(request, RangerPolicy.POLICY_TYPE_DATAMASK, tableEvaluators);
+
+			assertEquals(column, repository.getLikelyMatchPolicyEvaluators(request, RangerPolicy.POLICY_TYPE_DATAMASK), evaluators);
+			assertEquals(column, hasColumnPolicy(column) ? 2 : 1, evaluators.size()); // policy for the column, if any, and 1001 for all columns
+		}
+
+		// requests that aren't for a column of the table are evaluated without shared evaluators
+		RangerAccessRequest         otherTable = createRequest(createResource("db1", "tbl2", "col1", repository.getServiceDef()), "user1");
+		List<RangerPolicyEvaluator> evaluators = repository.getLikelyMatchPolicyEvaluators(otherTable, RangerPolicy.POLICY_TYPE_DATAMASK, tableEvaluators);
+
+		assertEquals(repository.getLikelyMatchPolicyEvaluators(otherTable, RangerPolicy.POLICY_TYPE_DATAMASK), evaluators);
+		assertEquals(2, evaluators.size());
+	}
+
+	private void verifySameResults(RangerPolicyEngineImpl engine, String user) {
+		List<RangerAccessRequest> columnRequests = new ArrayList<>();
+
+		for (String column : getColumns()) {
+			columnRequests.add(createRequest(createResource("db1", "tbl1", column), user));
+		}
+
+		RangerRowFilterAndDataMaskResult result          = engine.evaluateRowFilterAndDataMaskPolicies(createRequest(createResource("db1", "tbl1", null), user), columnRequests, null);
+		RangerAccessResult               rowFilterResult = engine.evaluatePolicies(createRequest(createResource("db1", "tbl1", null), user), RangerPolicy.POLICY_TYPE_ROWFILTER, null);
+
+		assertEquals(rowFilterResult.getFilterExpr(), result.getRowFilterResult().getFilterExpr());
+		assertEquals(rowFilterResult.getPolicyId(), result.getRowFilterResult().getPolicyId());
+		assertEquals(columnRequests.size(), result.getDataMaskResults().size());
+
+		for (int i = 0; i < columnRequests.size(); i++) {
+			RangerAccessRequest columnRequest = columnRequests.get(i);
+			RangerAccessResult  expected      = engine.evaluatePolicies(createRequest(columnRequest.getResource(), user), RangerPolicy.POLICY_TYPE_DATAMASK, null);
+			RangerAccessResult  actual        = result.getDataMaskResults().get(i);
+
+			assertSame(columnRequest, actual.getAccessRequest());
+			assertEquals(columnRequest.toString(), expected.isMaskEnabled(), actual.isMaskEnabled());
+			assertEquals(columnRequest.toString(), expected.getMaskType(), actual.getMaskType());
+			assertEquals(columnRequest.toString(), expected.getPolicyId(), actual.getPolicyId());
+			assertEquals(columnRequest.toString(), expected.getIsAudited(), actual.getIsAudited());
+		}
+
+		// only data-mask policies are evaluated without a table request
+		RangerRowFilterAndDataMaskResult maskOnly = engine.evaluateRowFilterAndDataMaskPolicies(null, columnRequests.subList(0, 2), null);
+
+		assertNull(maskOnly.getRowFilterResult());
+		assertEquals(2, maskOnly.getDataMaskResults().size());
+		assertEquals(result.getDataMaskResults().get(1).getPolicyId(), maskOnly.getDataMaskResults().get(1).getPolicyId());
+	}
+
+	private static boolean hasColumnPolicy(String column) {
+		return column.equals("ssn") || (column.startsWith("col") && Integer.parseInt(column.substring(3)) < COLUMN_COUNT / 2);
+	}
+
+	private static List<String> getColumns() {
+		List<String> ret = new ArrayList<>();
+
+		for (int i = 0; i < COLUMN_COUNT; i++) {
+			ret.add("col" + i);
+		}
+
+		ret.add("ssn");
+		ret.add("name");
+
+		return ret;
+	}
+
+	private static RangerPolicyEngineImpl createPolicyEngine(boolean disableTrie) throws Exception {
+		RangerPolicyEngineOptions options  = new RangerPolicyEngineOptions();
+		List<RangerPolicy>        policies = new ArrayList<>();
+
+		for (long i = 0; i < COLUMN_COUNT / 2; i++) { // a policy for each of half the columns
+			policies.add(createDataMaskPolicy(i, "tbl1", "col" + i, i % 2 == 0 ? "user1" : "user2", "MASK_HASH"));
+		}
+
+		policies.add(createDataMaskPolicy(1000L, "tbl1", "ssn", null, RangerPolicy.MASK_TYPE_NULL));
+		policies.add(createDataMaskPolicy(1001L, "tbl*", "*", "user2", "MASK"));
+		policies.add(createDataMaskPolicy(2000L, "tbl2", "col1", "user1", "MASK"));
+
+		RangerPolicy rowFilterPolicy = createPolicy(3000L, RangerPolicy.POLICY_TYPE_ROWFILTER, createResources("db1", "tbl1", null));
+
+		rowFilterPolicy.setRowFilterPolicyItems(Collections.singletonList(new RangerRowFilterPolicyItem(new RangerPolicyItemRowFilterInfo("region = 'us'"), Collections.singletonList(new RangerPolicyItemAccess("select")), Collections.singletonList("user1"), null, null, null, false)));
+
+		policies.add(rowFilterPolicy);
+
+		options.disableTrieLookupPrefilter = disableTrie;
+
+		return RangerPolicyEngineTestUtil.createPolicyEngine("test-row-filter-data-mask", options, policies);
+	}
+
+	private static RangerPolicy createDataMaskPolicy(long id, String table, String column, String user, String maskType) {
+		RangerPolicy ret = createPolicy(id, RangerPolicy.POLICY_TYPE_DATAMASK, createResources("db1", table, column));
+
+		ret.setDataMaskPolicyItems(Collections.singletonList(new RangerDataMaskPolicyItem(Collections.singletonList(new RangerPolicyItemAccess("select")), new RangerPolicyItemDataMaskInfo(maskType, null, null), user != null ? Collections.singletonList(user) : null, user == null ? new ArrayList<>(USER_GROUPS) : null, null, null, false)));
+
+		return ret;
+	}
+
+	private static RangerAccessResourceImpl createResource(String database, String table, String column) {
+		return createResource(database, table, column, null);
+	}
+
+	private static RangerAccessResourceImpl createResource(String database, String table, String column, RangerServiceDef serviceDef) {
+		RangerAccessResourceImpl ret = RangerPolicyEngineTestUtil.createResource(database, table, column);
+
+		ret.setServiceDef(serviceDef);
+
+		return ret;
+	}
+
+	private static RangerAccessRequest createRequest(RangerAccessResource resource, String user) {
+		return RangerPolicyEngineTestUtil.createRequest(resource, "select", user, USER_GROUPS);
+	}
+}
@@ -75,6 +75,52 @@ public void testZoneMatcher() {
         assertEquals(createSet("", "z3", "z4"), zones);
     }
 
+    @Test
+    public void testCachedZones() {
+        RangerSecurityZoneMatcher zoneMatcher = new RangerSecurityZoneMatcher(securityZones, serviceDef, pluginContext);
+        RangerSecurityZoneMatcher uncached    = new RangerSecurityZoneMatcher(securityZones, serviceDef, pluginContext);
+
+        for (int i = 0; i < 2; i++) {
+            for (String database : Arrays.asList("db1", "db2", "db3", "db4")) {
+                for (String table : Arrays.asList(null, "tbl1", "test_1", "user_2", "orders")) {
+                    RangerAccessResource res      = table != null ? createResource("database", database, "table", table) : createResource("database", database);
+                    Set<String>          expected = uncached.getZonesForResourceAndChildren(res); // no serviceDef in resource, hence not cached
+
+                    ((RangerAccessResourceImpl) res).setServiceDef(serviceDef);
+
+                    assertEquals(res.getAsString(), expected, zoneMatcher.getZonesForResourceAndChildren(res));
+                    assertEquals(res.getAsString(), expected, zoneMatcher.getZonesForResourceAndChildren(res.getAsMap()));
+                }
+            }
+        }
+
+        RangerAccessResource res = createResource("database", "db3");
+
+        ((RangerAccessResourceImpl) res).setServiceDef(serviceDef);
+
+        Set<String> zones = zoneMatcher.getZonesForResourceAndChildren(res);
+
+        assertEquals(createSet("", "z3", "z4"), zones);
+        assertSame(zones, zoneMatcher.getZonesForResourceAndChildren(res));
+
+        try {
+            zones.add("z1");
+
+            fail("zones returned by getZonesForResourceAndChildren() must be unmodifiable");
+        } catch (UnsupportedOperationException excp) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNoZones() {
+        RangerSecurityZoneMatcher zoneMatcher = new RangerSecurityZoneMatcher(Collections.emptyMap(), serviceDef, pluginContext);
+
+        assertFalse(zoneMatcher.hasZones());
+        assertNull(zoneMatcher.getZonesForResourceAndChildren(createResource("database", "db1", "table", "tbl1")));
+        assertTrue(new RangerSecurityZoneMatcher(securityZones, serviceDef, pluginContext).hasZones());
+    }
+
     private Map<String, SecurityZoneInfo> createSecurityZones() {
         HashMap<String, List<String>> db1     = new HashMap<String, List<String>>() {{ put("database", Arrays.asList("db1")); }};
         HashMap<String, List<String>> db2     = new HashMap<String, List<String>>() {{ put("database", Arrays.asList("db2")); }};
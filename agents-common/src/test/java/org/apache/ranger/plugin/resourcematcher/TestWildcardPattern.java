@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.resourcematcher;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOCase;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestWildcardPattern {
+	private static final String[] PATTERNS = {
+		"", "*", "**", "?", "abc", "ABC", "abc*", "abc**", "*abc", "**abc", "a*c", "a**c", "a?c", "*a*", "a*b*c", "*a?c*",
+		"/tmp/*", "/tmp/*/data", "/tmp/?/data*", "db*.tbl?", "*.txt", "Ünïcødé*", "ﬀ*"
+	};
+
+	private static final String[] VALUES = {
+		"", "a", "abc", "ABC", "aBc", "abcabc", "xabc", "abcx", "ac", "abbc", "a/c", "/tmp/", "/tmp/a/data", "/TMP/b/data1",
+		"db1.tbl2", "DB12.TBL3", "file.TXT", "ünïcødé", "FF", "ﬀ"
+	};
+
+	@Test
+	public void testMatchesFilenameUtils() {
+		for (String pattern : PATTERNS) {
+			WildcardPattern wildcardPattern = WildcardPattern.compile(pattern);
+
+			for (String value : VALUES) {
+				verify(wildcardPattern, value);
+			}
+		}
+	}
+
+	@Test
+	public void testMatchesFilenameUtilsRandom() {
+		Random random = new Random(20240601L);
+		char[] chars  = { 'a', 'b', 'A', 'B', '/', '*', '?' };
+
+		for (int i = 0; i < 20_000; i++) {
+			String          pattern         = randomString(random, chars, 8);
+			WildcardPattern wildcardPattern = WildcardPattern.compile(pattern);
+
+			for (int j = 0; j < 10; j++) {
+				verify(wildcardPattern, randomString(random, chars, 10).replace('*', 'a').replace('?', 'b'));
+			}
+		}
+	}
+
+	@Test
+	public void testNull() {
+		WildcardPattern nullPattern = WildcardPattern.compile(null);
+
+		assertTrue(nullPattern.isMatch(null, IOCase.SENSITIVE));
+		assertFalse(nullPattern.isMatch("abc", IOCase.SENSITIVE));
+		assertFalse(WildcardPattern.compile("*").isMatch(null, IOCase.INSENSITIVE));
+	}
+
+	private static void verify(WildcardPattern wildcardPattern, String value) {
+		String pattern = wildcardPattern.getPattern();
+
+		for (IOCase ioCase : new IOCase[] { IOCase.SENSITIVE, IOCase.INSENSITIVE }) {
+			assertEquals("isMatch(" + value + ", " + pattern + ", " + ioCase + ")", FilenameUtils.wildcardMatch(value, pattern, ioCase), wildcardPattern.isMatch(value, ioCase));
+			assertEquals("isPrefixMatch(" + value + ", " + pattern + ", " + ioCase + ")", ResourceMatcher.wildcardPrefixMatch(value, pattern, ioCase), wildcardPattern.isPrefixMatch(value, ioCase));
+		}
+	}
+
+	private static String randomString(Random random, char[] chars, int maxLength) {
+		int           length = random.nextInt(maxLength + 1);
+		StringBuilder sb     = new StringBuilder(length);
+
+		for (int i = 0; i < length; i++) {
+			sb.append(chars[random.nextInt(chars.length)]);
+		}
+
+		return sb.toString();
+	}
+}
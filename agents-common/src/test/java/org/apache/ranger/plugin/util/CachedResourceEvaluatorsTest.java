@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.ranger.plugin.contextenricher.RangerServiceResourceMatcher;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest.ResourceElementMatchingScope;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class CachedResourceEvaluatorsTest {
+    private static final Map<String, ResourceElementMatchingScope> NO_SCOPES     = Collections.emptyMap();
+    private static final Map<String, ResourceElementMatchingScope> PREFIX_SCOPES = Collections.singletonMap("table", ResourceElementMatchingScope.SELF_OR_PREFIX);
+
+    @Test
+    public void testScopesAndMetrics() {
+        CachedResourceEvaluators                 cache      = new CachedResourceEvaluators();
+        Collection<RangerServiceResourceMatcher> evaluators = evaluators(2);
+        Collection<RangerServiceResourceMatcher> noMatches  = evaluators(0);
+
+        assertNull(cache.getEvaluators("db1/tbl1", NO_SCOPES));
+
+        cache.cacheEvaluators("db1/tbl1", NO_SCOPES, evaluators);
+        cache.cacheEvaluators("db1/tbl1", PREFIX_SCOPES, noMatches);
+
+        assertSame(evaluators, cache.getEvaluators("db1/tbl1", NO_SCOPES));
+        assertSame(noMatches, cache.getEvaluators("db1/tbl1", PREFIX_SCOPES));
+        assertEquals(1, cache.size());
+        assertEquals(3, cache.getWeight());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cache.removeCacheEvaluators(new HashSet<>(Collections.singletonList("db1/tbl1")));
+
+        assertNull(cache.getEvaluators("db1/tbl1", PREFIX_SCOPES));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void testBounds() {
+        CachedResourceEvaluators cache = new CachedResourceEvaluators(10, 1000);
+
+        for (int i = 0; i < 100; i++) {
+            cache.cacheEvaluators("db1/tbl" + i, NO_SCOPES, evaluators(1));
+        }
+
+        assertEquals(10, cache.size());
+        assertEquals(90, cache.getEvictionCount());
+
+        cache.clearCache();
+
+        cache = new CachedResourceEvaluators(1000, 50);
+
+        for (int i = 0; i < 100; i++) {
+            cache.cacheEvaluators("db1/tbl" + i, NO_SCOPES, evaluators(5));
+        }
+
+        assertEquals(10, cache.size());
+        assertEquals(50, cache.getWeight());
+    }
+
+    private static Collection<RangerServiceResourceMatcher> evaluators(int count) {
+        return Collections.nCopies(count, null);
+    }
+}
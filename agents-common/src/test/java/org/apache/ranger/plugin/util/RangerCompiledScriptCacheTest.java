@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.junit.Test;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+import java.io.Reader;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RangerCompiledScriptCacheTest {
+    @Test
+    public void testCompiledScripts() throws Exception {
+        TestScriptEngine          engine = new TestScriptEngine();
+        RangerCompiledScriptCache cache  = new RangerCompiledScriptCache(engine, 2);
+        CompiledScript            script = cache.getCompiledScript("a", s -> "pre;" + s);
+
+        assertSame(script, cache.getCompiledScript("a", s -> "pre;" + s));
+        assertEquals("pre;a", script.eval());
+        assertEquals(1, engine.compileCount.get());
+
+        assertNull(cache.getCompiledScript("invalid", s -> s));
+        assertNull(cache.getCompiledScript("invalid", s -> s));
+        assertEquals(2, engine.compileCount.get());
+        assertEquals(2, cache.size());
+
+        assertEquals("b", cache.getCompiledScript("b", s -> s).eval());
+        assertEquals(1, cache.size()); // cleared on reaching max size
+    }
+
+    @Test
+    public void testBindingsPool() {
+        RangerCompiledScriptCache cache    = new RangerCompiledScriptCache(new TestScriptEngine());
+        Bindings                  bindings = cache.acquireBindings();
+
+        bindings.put("ctx", "request-1");
+
+        cache.releaseBindings(bindings);
+
+        Bindings reused = cache.acquireBindings();
+
+        assertSame(bindings, reused);
+        assertFalse(reused.containsKey("ctx"));
+        assertTrue(reused.containsKey("JSON"));
+        assertNotSame(reused, cache.acquireBindings()); // pooled bindings are handed out only once
+
+        reused.put("undeletable", "value");
+
+        cache.releaseBindings(reused);
+
+        assertNotSame(reused, cache.acquireBindings());
+    }
+
+    @Test
+    public void testBindingsPoolIsBounded() {
+        RangerCompiledScriptCache cache     = new RangerCompiledScriptCache(new TestScriptEngine(), 10, 1);
+        Bindings                  bindings1 = cache.acquireBindings();
+        Bindings                  bindings2 = cache.acquireBindings();
+
+        cache.releaseBindings(bindings1);
+        cache.releaseBindings(bindings2); // discarded, as the pool is full
+
+        assertSame(bindings1, cache.acquireBindings());
+        assertNotSame(bindings2, cache.acquireBindings());
+    }
+
+    private static class TestScriptEngine extends AbstractScriptEngine implements Compilable {
+        final AtomicInteger compileCount = new AtomicInteger();
+
+        @Override
+        public CompiledScript compile(String script) throws ScriptException {
+            compileCount.incrementAndGet();
+
+            if (script.startsWith("invalid")) {
+                throw new ScriptException("invalid script: " + script);
+            }
+
+            return new CompiledScript() {
+                @Override
+                public Object eval(ScriptContext context) {
+                    return script;
+                }
+
+                @Override
+                public ScriptEngine getEngine() {
+                    return TestScriptEngine.this;
+                }
+            };
+        }
+
+        @Override
+        public CompiledScript compile(Reader script) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object eval(String script, ScriptContext context) {
+            return script;
+        }
+
+        @Override
+        public Object eval(Reader reader, ScriptContext context) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Bindings createBindings() {
+            Bindings ret = new SimpleBindings() {
+                @Override
+                public Object remove(Object key) {
+                    return "undeletable".equals(key) ? get(key) : super.remove(key);
+                }
+            };
+
+            ret.put("JSON", new Object());
+
+            return ret;
+        }
+
+        @Override
+        public ScriptEngineFactory getFactory() {
+            return null;
+        }
+    }
+}
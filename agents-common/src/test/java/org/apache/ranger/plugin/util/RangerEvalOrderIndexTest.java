@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RangerEvalOrderIndexTest {
+    private static final Comparator<String> REVERSE_ORDER = Comparator.reverseOrder();
+
+    @Test
+    public void testDistinctInOrder() {
+        Random       random = new Random(3);
+        List<String> values = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++) {
+            values.add(String.format("value-%04d", i));
+        }
+
+        Collections.shuffle(values, random);
+
+        RangerEvalOrderIndex<String> index = new RangerEvalOrderIndex<>(values, REVERSE_ORDER);
+
+        assertEquals(values.size(), index.size());
+
+        for (int itemCount : new int[] { 2, 10, 15, 16, 17, 100, 1000, 5000 }) { // sort and bitmap based de-duplication
+            List<Integer>   items    = new ArrayList<>();
+            TreeSet<String> expected = new TreeSet<>(REVERSE_ORDER);
+
+            for (int i = 0; i < itemCount; i++) {
+                int item = random.nextInt(values.size());
+
+                items.add(item);
+                expected.add(values.get(item));
+            }
+
+            assertEquals("itemCount=" + itemCount, new ArrayList<>(expected), index.getDistinctInOrder(items, values::get));
+        }
+    }
+
+    @Test
+    public void testValueNotInIndex() {
+        RangerEvalOrderIndex<String> index = new RangerEvalOrderIndex<>(Arrays.asList("a", "b", null, "a"), REVERSE_ORDER);
+
+        assertEquals(Arrays.asList("b", "a"), index.getValuesInOrder());
+        assertEquals(1, index.getOrdinal("a"));
+        assertEquals(-1, index.getOrdinal(new String("a")));
+        assertEquals(Arrays.asList("b", "a"), index.getDistinctInOrder(Arrays.asList("a", "b", "a"), value -> value));
+        assertNull(index.getDistinctInOrder(Arrays.asList("a", new String("b")), value -> value));
+    }
+}
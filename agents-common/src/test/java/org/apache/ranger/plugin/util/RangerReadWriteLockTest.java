@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.ranger.plugin.util.RangerReadWriteLock.LockType;
+import org.apache.ranger.plugin.util.RangerReadWriteLock.RangerLock;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RangerReadWriteLockTest {
+    @Test
+    public void testLockType() {
+        assertEquals(LockType.FAIR, LockType.fromString(null));
+        assertEquals(LockType.FAIR, LockType.fromString("unknown"));
+        assertEquals(LockType.NONFAIR, LockType.fromString("nonfair"));
+        assertEquals(LockType.STAMPED, LockType.fromString(" Stamped "));
+    }
+
+    @Test
+    public void testNoLock() {
+        RangerReadWriteLock lock = new RangerReadWriteLock(false, LockType.STAMPED);
+
+        try (RangerLock readLock = lock.getReadLock()) {
+            assertFalse(readLock.isLockingEnabled());
+        }
+
+        long stamp = lock.tryOptimisticRead();
+
+        assertNotEquals(0L, stamp);
+        assertTrue(lock.validate(stamp));
+    }
+
+    @Test
+    public void testGuardIsShared() {
+        for (LockType lockType : LockType.values()) {
+            RangerReadWriteLock lock = new RangerReadWriteLock(true, lockType);
+
+            try (RangerLock readLock1 = lock.getReadLock(); RangerLock readLock2 = lock.getReadLock()) {
+                assertTrue(readLock1.isLockingEnabled());
+                assertSame(lockType.name(), readLock1, readLock2);
+            }
+        }
+    }
+
+    @Test
+    public void testStampedReentrancy() throws Exception {
+        RangerReadWriteLock lock = new RangerReadWriteLock(true, LockType.STAMPED);
+
+        RangerLock readLock1 = lock.getReadLock();
+        Thread     writer    = startWriter(lock);
+
+        waitForState(writer, Thread.State.WAITING);
+
+        // a nested read lock must not queue behind the waiting writer
+        try (RangerLock readLock2 = lock.getReadLock()) {
+            assertTrue(writer.isAlive());
+        }
+
+        assertTrue(writer.isAlive());
+
+        readLock1.close(); // writer proceeds only after the outermost read lock is released
+
+        writer.join(10_000);
+
+        assertFalse(writer.isAlive());
+
+        try (RangerLock writeLock1 = lock.getWriteLock(); RangerLock writeLock2 = lock.getWriteLock(); RangerLock readLock = lock.getReadLock()) {
+            assertEquals(0L, lock.tryOptimisticRead());
+        }
+
+        assertNotEquals(0L, lock.tryOptimisticRead());
+    }
+
+    @Test
+    public void testStampedDowngrade() throws Exception {
+        RangerReadWriteLock lock      = new RangerReadWriteLock(true, LockType.STAMPED);
+        RangerLock          writeLock = lock.getWriteLock();
+        RangerLock          readLock  = lock.getReadLock();
+        long                stamp     = lock.tryOptimisticRead();
+
+        assertEquals(0L, stamp);
+
+        writeLock.close(); // downgrade to read lock
+
+        stamp = lock.tryOptimisticRead();
+
+        assertNotEquals(0L, stamp);
+
+        Thread writer = startWriter(lock);
+
+        waitForState(writer, Thread.State.WAITING);
+
+        assertTrue(lock.validate(stamp));
+
+        readLock.close();
+
+        writer.join(10_000);
+
+        assertFalse(writer.isAlive());
+        assertFalse(lock.validate(stamp));
+    }
+
+    @Test
+    public void testStampedUpgradeIsRejected() {
+        RangerReadWriteLock lock = new RangerReadWriteLock(true, LockType.STAMPED);
+
+        try (RangerLock readLock = lock.getReadLock()) {
+            lock.getWriteLock();
+
+            fail("upgrade from read lock to write lock should fail");
+        } catch (IllegalMonitorStateException excp) {
+            // expected
+        }
+
+        try (RangerLock writeLock = lock.getWriteLock()) {
+            assertTrue(writeLock.isLockingEnabled());
+        }
+    }
+
+    @Test
+    public void testOptimisticReadNotSupported() {
+        for (LockType lockType : new LockType[] { LockType.FAIR, LockType.NONFAIR }) {
+            RangerReadWriteLock lock = new RangerReadWriteLock(true, lockType);
+
+            assertEquals(0L, lock.tryOptimisticRead());
+            assertFalse(lock.validate(0L));
+        }
+    }
+
+    @Test
+    public void testMutualExclusion() throws Exception {
+        for (LockType lockType : LockType.values()) {
+            RangerReadWriteLock lock      = new RangerReadWriteLock(true, lockType);
+            int[]               counter   = new int[2]; // updated together by writers; readers expect both values to be same
+            AtomicBoolean       isFailed  = new AtomicBoolean();
+            Thread[]            threads   = new Thread[8];
+            CountDownLatch      startGate = new CountDownLatch(1);
+
+            for (int i = 0; i < threads.length; i++) {
+                final boolean isWriter = i % 4 == 0;
+
+                threads[i] = new Thread(() -> {
+                    try {
+                        startGate.await();
+
+                        for (int j = 0; j < 20_000; j++) {
+                            if (isWriter) {
+                                try (RangerLock writeLock = lock.getWriteLock()) {
+                                    counter[0]++;
+                                    counter[1]++;
+                                }
+                            } else {
+                                try (RangerLock readLock = lock.getReadLock()) {
+                                    if (counter[0] != counter[1]) {
+                                        isFailed.set(true);
+                                    }
+                                }
+                            }
+                        }
+                    } catch (InterruptedException excp) {
+                        isFailed.set(true);
+                    }
+                });
+
+                threads[i].start();
+            }
+
+            startGate.countDown();
+
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertFalse(lockType.name(), isFailed.get());
+            assertEquals(lockType.name(), 2 * 20_000, counter[0]);
+        }
+    }
+
+    private static Thread startWriter(RangerReadWriteLock lock) {
+        Thread ret = new Thread(() -> {
+            try (RangerLock writeLock = lock.getWriteLock()) {
+                assertTrue(writeLock.isLockingEnabled());
+            }
+        });
+
+        ret.start();
+
+        return ret;
+    }
+
+    private static void waitForState(Thread thread, Thread.State state) throws InterruptedException {
+        long timeoutNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+
+        while (thread.getState() != state && System.nanoTime() < timeoutNanos) {
+            Thread.sleep(1);
+        }
+
+        assertEquals(state, thread.getState());
+    }
+}
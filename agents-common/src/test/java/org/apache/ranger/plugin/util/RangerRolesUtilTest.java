@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.ranger.plugin.model.RangerRole;
+import org.apache.ranger.plugin.model.RangerRole.RoleMember;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class RangerRolesUtilTest {
+    @Test
+    public void testNestedRoles() {
+        Set<RangerRole> roles = new HashSet<>();
+
+        roles.add(createRole("r-admin", members("alice"), members(), members("r-dev")));
+        roles.add(createRole("r-dev", members("bob"), members("dev"), members("r-intern")));
+        roles.add(createRole("r-intern", members(), members("interns"), members()));
+        roles.add(createRole("r-all", members(), members(RangerPolicyEngine.GROUP_PUBLIC), members()));
+        roles.add(createRole("r-a", members(), members(), members("r-b")));
+        roles.add(createRole("r-b", members("carol"), members(), members("r-a"))); // cycle
+
+        RangerRolesUtil rolesUtil = new RangerRolesUtil(createRoles(roles));
+
+        assertEquals(names("r-admin", "r-all"), rolesUtil.getRolesForUserAndGroups("alice", null));
+        assertEquals(names("r-admin", "r-dev", "r-all"), rolesUtil.getRolesForUserAndGroups("bob", Collections.emptySet()));
+        assertEquals(names("r-admin", "r-dev", "r-intern", "r-all"), rolesUtil.getRolesForUserAndGroups("alice", names("interns", "unknown")));
+        assertEquals(names("r-a", "r-b", "r-all"), rolesUtil.getRolesForUserAndGroups("carol", names("other")));
+        assertEquals(names("r-all"), rolesUtil.getRolesForUserAndGroups(null, null));
+        assertEquals(names("r-all"), rolesUtil.getRolesForUserAndGroups("dave", names(RangerPolicyEngine.GROUP_PUBLIC)));
+        assertEquals(Collections.emptySet(), new RangerRolesUtil(null).getRolesForUserAndGroups("alice", names("interns")));
+    }
+
+    @Test
+    public void testMemoizedRoles() {
+        Set<RangerRole> roles = new HashSet<>();
+
+        roles.add(createRole("r1", members("user1"), members("grp1"), members()));
+        roles.add(createRole("r2", members(), members("grp2"), members()));
+
+        RangerRolesUtil rolesUtil = new RangerRolesUtil(createRoles(roles));
+        Set<String>     groups    = names("grp1", "grp2");
+        Set<String>     ret       = rolesUtil.getRolesForUserAndGroups("user1", groups);
+
+        assertEquals(names("r1", "r2"), ret);
+        assertSame(ret, rolesUtil.getRolesForUserAndGroups("user1", names("grp2", "grp1")));
+
+        groups.remove("grp2"); // must not affect the memoized entry
+
+        assertEquals(names("r1"), rolesUtil.getRolesForUserAndGroups("user1", groups));
+        assertEquals(names("r1", "r2"), rolesUtil.getRolesForUserAndGroups("user1", names("grp1", "grp2")));
+        assertSame(rolesUtil.getUserRoleMapping().get("user1"), rolesUtil.getRolesForUserAndGroups("user1", names("grp1"))); // no copy when a single set contributes
+
+        try {
+            ret.add("r3");
+
+            fail("roles returned by getRolesForUserAndGroups() must be unmodifiable");
+        } catch (UnsupportedOperationException excp) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSameAsUnionOfMappings() {
+        Random          random = new Random(7);
+        Set<RangerRole> roles  = new HashSet<>();
+
+        for (int i = 0; i < 50; i++) {
+            List<String> users      = new ArrayList<>();
+            List<String> groups     = new ArrayList<>();
+            List<String> childRoles = new ArrayList<>();
+
+            for (int j = 0; j < 3; j++) {
+                users.add("user" + random.nextInt(20));
+                groups.add("grp" + random.nextInt(30));
+                childRoles.add("role" + random.nextInt(50));
+            }
+
+            roles.add(createRole("role" + i, members(users.toArray(new String[0])), members(groups.toArray(new String[0])), members(childRoles.toArray(new String[0]))));
+        }
+
+        RangerRolesUtil rolesUtil = new RangerRolesUtil(createRoles(roles));
+
+        for (int i = 0; i < 500; i++) {
+            String      user     = "user" + random.nextInt(25);
+            Set<String> groups   = new HashSet<>();
+            Set<String> expected = new HashSet<>();
+
+            for (int j = random.nextInt(10); j > 0; j--) {
+                groups.add("grp" + random.nextInt(35));
+            }
+
+            addAll(expected, rolesUtil.getUserRoleMapping().get(user));
+
+            for (String group : groups) {
+                addAll(expected, rolesUtil.getGroupRoleMapping().get(group));
+            }
+
+            assertEquals(expected, rolesUtil.getRolesForUserAndGroups(user, groups));
+        }
+    }
+
+    private static void addAll(Set<String> to, Set<String> from) {
+        if (from != null) {
+            to.addAll(from);
+        }
+    }
+
+    private static RangerRoles createRoles(Set<RangerRole> roles) {
+        RangerRoles ret = new RangerRoles();
+
+        ret.setRoleVersion(1L);
+        ret.setRangerRoles(roles);
+
+        return ret;
+    }
+
+    private static RangerRole createRole(String name, List<RoleMember> users, List<RoleMember> groups, List<RoleMember> roles) {
+        return new RangerRole(name, null, null, users, groups, roles);
+    }
+
+    private static List<RoleMember> members(String... names) {
+        List<RoleMember> ret = new ArrayList<>();
+
+        for (String name : names) {
+            ret.add(new RoleMember(name, false));
+        }
+
+        return ret;
+    }
+
+    private static Set<String> names(String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+}
@@ -70,6 +70,7 @@
 import org.apache.ranger.authorization.hadoop.exceptions.RangerAccessControlException;
 import org.apache.ranger.plugin.audit.RangerDefaultAuditHandler;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestArena;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
 import org.apache.ranger.plugin.policyengine.RangerAccessResource;
 import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
@@ -668,6 +669,8 @@ private void checkRangerPermission(String fsOwner, String superGroup, UserGroupI
 
 				RangerPerfTracer.log(perf);
 
+				context.releaseRequests();
+
 				if(LOG.isDebugEnabled()) {
 					LOG.debug("<== RangerAccessControlEnforcer.checkRangerPermission(" + resourcePath + ", " + access + ", user=" + context.user + ") : " + authzStatus);
 				}
@@ -739,7 +742,7 @@ private AuthzStatus isAccessAllowedForTraversal(INode inode, INodeAttributes ino
 				LOG.debug("==> RangerAccessControlEnforcer.isAccessAllowedForTraversal(" + path + ", " + access + ", " + context.user + ", " + skipAuditOnAllow + ", " + context.operationName + ")");
 			}
 
-			RangerHdfsAccessRequest request = new RangerHdfsAccessRequest(inode, path, pathOwner, access, EXECUTE_ACCCESS_TYPE, operation, context.user, context.userGroups);
+			RangerHdfsAccessRequest request = context.newRequest(inode, path, pathOwner, access, EXECUTE_ACCCESS_TYPE, operation);
 
 			RangerAccessResult result = context.plugin.isAccessAllowed(request, null);
 
@@ -883,7 +886,7 @@ private AuthzStatus isAccessAllowed(INode inode, INodeAttributes inodeAttribs, S
 			}
 
 			if (accessTypes.size() > 0) {
-				RangerHdfsAccessRequest request = new RangerHdfsAccessRequest(inode, path, pathOwner, access, accessTypes.iterator().next(), context.operationName, context.user, context.userGroups);
+				RangerHdfsAccessRequest request = context.newRequest(inode, path, pathOwner, access, accessTypes.iterator().next(), context.operationName);
 
 				if (accessTypes.size() > 1) {
 					Set<Set<String>> allAccessTypeGroups = accessTypes.stream().map(Collections::singleton).collect(toSet());
@@ -957,7 +960,7 @@ private AuthzStatus isAccessAllowedForHierarchy(INode inode, INodeAttributes ino
 				subDirPath = subDirPath + rangerPlugin.getRandomizedWildcardPathName();
 
 				if (accessTypes.size() > 0) {
-					RangerHdfsAccessRequest request = new RangerHdfsAccessRequest(null, subDirPath, pathOwner, access, accessTypes.iterator().next(), context.operationName, context.user, context.userGroups);
+					RangerHdfsAccessRequest request = context.newRequest(null, subDirPath, pathOwner, access, accessTypes.iterator().next(), context.operationName);
 
 					if (accessTypes.size() > 1) {
 						Set<Set<String>> allAccessTypeGroups = accessTypes.stream().map(Collections::singleton).collect(toSet());
@@ -1382,13 +1385,25 @@ public String getAsString() {
 }
 
 class RangerHdfsAccessRequest extends RangerAccessRequestImpl {
+	private final RangerHdfsResource resource = new RangerHdfsResource(null, null);
+
+	// for reuse via RangerAccessRequestArena; init() must be called before use
+	public RangerHdfsAccessRequest() {
+	}
 
 	public RangerHdfsAccessRequest(INode inode, String path, String pathOwner, FsAction access, String accessType, String action, String user, Set<String> groups) {
+		init(inode, path, pathOwner, access, accessType, action, user, groups);
+	}
+
+	public RangerHdfsAccessRequest init(INode inode, String path, String pathOwner, FsAction access, String accessType, String action, String user, Set<String> groups) {
 		if (action == null && access != null) {
 			action = access.toString();
 		}
 
-		super.setResource(new RangerHdfsResource(path, pathOwner));
+		resource.setValue(RangerHdfsAuthorizer.KEY_RESOURCE_PATH, path);
+		resource.setOwnerUser(pathOwner);
+
+		super.setResource(resource);
 		super.setAccessType(accessType);
 		super.setUser(user);
 		super.setUserGroups(groups);
@@ -1401,6 +1416,8 @@ public RangerHdfsAccessRequest(INode inode, String path, String pathOwner, FsAct
 		if (inode != null) {
 			buildRequestContext(inode);
 		}
+
+		return this;
 	}
 
 	private static String getRemoteIp() {
@@ -1425,6 +1442,8 @@ private void buildRequestContext(final INode inode) {
 }
 
 class AuthzContext {
+	private static final ThreadLocal<RangerAccessRequestArena<RangerHdfsAccessRequest>> REQUEST_ARENA = RangerAccessRequestArena.forThread(RangerHdfsAccessRequest::new);
+
 	public final RangerHdfsPlugin       plugin;
 	public final String                 user;
 	public final Set<String>            userGroups;
@@ -1433,12 +1452,34 @@ class AuthzContext {
 	public       RangerHdfsAuditHandler auditHandler = null;
 	private      RangerAccessResult     lastResult   = null;
 
+	private final RangerAccessRequestArena<RangerHdfsAccessRequest> requestArena;
+
 	public AuthzContext(RangerHdfsPlugin plugin, UserGroupInformation ugi, String operationName, boolean isTraverseOnlyCheck) {
+		RangerAccessRequestArena<RangerHdfsAccessRequest> requestArena = REQUEST_ARENA.get();
+
+		if (!requestArena.begin()) { // in use by an enclosing checkPermission() in this thread
+			requestArena = new RangerAccessRequestArena<>(RangerHdfsAccessRequest::new);
+
+			requestArena.begin();
+		}
+
 		this.plugin              = plugin;
 		this.user                = ugi != null ? ugi.getShortUserName() : null;
 		this.userGroups          = ugi != null ? Sets.newHashSet(ugi.getGroupNames()) : null;
 		this.operationName       = operationName;
 		this.isTraverseOnlyCheck = isTraverseOnlyCheck;
+		this.requestArena        = requestArena;
+	}
+
+	public RangerHdfsAccessRequest newRequest(INode inode, String path, String pathOwner, FsAction access, String accessType, String action) {
+		return requestArena.acquire().init(inode, path, pathOwner, access, accessType, action, user, userGroups);
+	}
+
+	// requests returned by newRequest() and results referring to them must not be used after this call
+	public void releaseRequests() {
+		lastResult = null;
+
+		requestArena.end();
 	}
 
 	public void saveResult(RangerAccessResult result) {
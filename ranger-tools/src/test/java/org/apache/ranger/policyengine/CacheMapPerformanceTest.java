@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.policyengine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.hadoop.thirdparty.com.google.common.base.Charsets;
+import org.apache.hadoop.thirdparty.com.google.common.io.Files;
+import org.apache.ranger.plugin.policyengine.CacheMap;
+import org.apache.ranger.plugin.policyengine.ConcurrentCacheMap;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * A parameterized JUnit microbenchmark that compares throughput of the audit-result cache implementations used by
+ * RangerPolicyRepository: synchronized CacheMap (LRU LinkedHashMap) and ConcurrentCacheMap.
+ * Each run has a warm-up phase, followed by a timed phase in which every thread performs a mix of lookups and inserts
+ * over a key-space larger than the cache capacity, with lookups skewed towards a set of hot keys.
+ * Results are written to target/cache-map-performance.csv.
+ */
+@RunWith(Parameterized.class)
+public class CacheMapPerformanceTest {
+	private static final int CACHE_CAPACITY       = 64 * 1024;
+	private static final int KEY_COUNT            = 4 * CACHE_CAPACITY;
+	private static final int HOT_KEY_COUNT        = CACHE_CAPACITY / 4;
+	private static final int HOT_KEY_PERCENT      = 80;
+	private static final int WRITE_PERCENT        = 10;
+	private static final int WARM_UP__ITERATIONS  = 200_000;
+	private static final int MEASURED__ITERATIONS = 1_000_000;
+
+	private static final String[] KEYS = new String[KEY_COUNT];
+
+	@Parameter(0)
+	public String cacheType;
+
+	@Parameter(1)
+	public Integer concurrency;
+
+	@Parameters(name = "{index}: {0}(concurrent calls: {1})")
+	public static Iterable<Object[]> data() {
+		List<Object[]> ret = new ArrayList<>();
+
+		for (String cacheType : new String[] { "CacheMap", "ConcurrentCacheMap" }) {
+			for (int concurrency : new int[] { 1, 4, 16, 64, 200 }) {
+				ret.add(new Object[] { cacheType, concurrency });
+			}
+		}
+
+		return ret;
+	}
+
+	@BeforeClass
+	public static void init() throws IOException {
+		for (int i = 0; i < KEY_COUNT; i++) {
+			KEYS[i] = "/hive/db" + (i % 100) + "/table" + i;
+		}
+
+		new File("target").mkdirs();
+
+		Files.write("cache;concurrency;ops-per-sec;hit-ratio;\n", outputFile(), Charsets.UTF_8);
+	}
+
+	@Test
+	public void cacheMapTest() throws Exception {
+		final Cache     cache = createCache();
+		final LongAdder hits  = new LongAdder();
+
+		runThreads(cache, WARM_UP__ITERATIONS / concurrency, new LongAdder());
+
+		long startTimeNanos = System.nanoTime();
+
+		runThreads(cache, MEASURED__ITERATIONS / concurrency, hits);
+
+		long   elapsedNanos = System.nanoTime() - startTimeNanos;
+		long   totalOps     = (long) (MEASURED__ITERATIONS / concurrency) * concurrency;
+		long   opsPerSec    = elapsedNanos > 0 ? (totalOps * 1_000_000_000L / elapsedNanos) : 0;
+		double hitRatio     = (double) hits.sum() / (totalOps * (100 - WRITE_PERCENT) / 100);
+
+		System.out.println(String.format("%s(concurrency=%s): %s ops/sec, hit-ratio=%.3f", cacheType, concurrency, opsPerSec, hitRatio));
+
+		Files.append(String.format("%s;%s;%s;%.3f;\n", cacheType, concurrency, opsPerSec, hitRatio), outputFile(), Charsets.UTF_8);
+	}
+
+	private void runThreads(final Cache cache, final int iterationsPerThread, final LongAdder hits) throws InterruptedException {
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		final CountDownLatch doneLatch  = new CountDownLatch(concurrency);
+
+		for (int i = 0; i < concurrency; i++) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+
+					try {
+						startLatch.await();
+
+						for (int j = 0; j < iterationsPerThread; j++) {
+							String key = random.nextInt(100) < HOT_KEY_PERCENT ? KEYS[random.nextInt(HOT_KEY_COUNT)] : KEYS[random.nextInt(KEY_COUNT)];
+
+							if (random.nextInt(100) < WRITE_PERCENT) {
+								cache.put(key, Boolean.TRUE);
+							} else if (cache.get(key) != null) {
+								hits.increment();
+							}
+						}
+					} catch (InterruptedException excp) {
+						Thread.currentThread().interrupt();
+					} finally {
+						doneLatch.countDown();
+					}
+				}
+			}, String.format("Client #%s", i)).start();
+		}
+
+		startLatch.countDown();
+		doneLatch.await();
+	}
+
+	private Cache createCache() {
+		if ("CacheMap".equals(cacheType)) {
+			final Map<String, Boolean> map = Collections.synchronizedMap(new CacheMap<String, Boolean>(CACHE_CAPACITY));
+
+			return new Cache() {
+				@Override
+				public Boolean get(String key) { return map.get(key); }
+
+				@Override
+				public void put(String key, Boolean value) { map.put(key, value); }
+			};
+		} else {
+			final ConcurrentCacheMap<String, Boolean> map = new ConcurrentCacheMap<>(CACHE_CAPACITY);
+
+			return new Cache() {
+				@Override
+				public Boolean get(String key) { return map.get(key); }
+
+				@Override
+				public void put(String key, Boolean value) { map.put(key, value); }
+			};
+		}
+	}
+
+	private static File outputFile() {
+		return new File("target", "cache-map-performance.csv");
+	}
+
+	private interface Cache {
+		Boolean get(String key);
+
+		void put(String key, Boolean value);
+	}
+}
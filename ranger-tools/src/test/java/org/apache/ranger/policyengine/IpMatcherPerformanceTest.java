@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.policyengine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.thirdparty.com.google.common.base.Charsets;
+import org.apache.hadoop.thirdparty.com.google.common.io.Files;
+import org.apache.ranger.plugin.conditionevaluator.RangerIpMatcher;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemCondition;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * A parameterized JUnit microbenchmark for RangerIpMatcher.isMatched(), with condition values given as exact IPv4 addresses,
+ * as wildcards (like 10.20.30.*) and in CIDR notation (like 10.20.30.0/24), for policies with an increasing number of values.
+ * Requests are a mix of addresses that match one of the values and addresses that don't match any.
+ * Results are written to target/ip-matcher-performance.csv.
+ */
+@RunWith(Parameterized.class)
+public class IpMatcherPerformanceTest {
+	private static final int REQUEST_COUNT        = 4096;
+	private static final int WARM_UP__ITERATIONS  = 500_000;
+	private static final int MEASURED__ITERATIONS = 2_000_000;
+
+	@Parameter(0)
+	public String valueType;
+
+	@Parameter(1)
+	public Integer valueCount;
+
+	@Parameters(name = "{index}: {0}(values: {1})")
+	public static Iterable<Object[]> data() {
+		List<Object[]> ret = new ArrayList<>();
+
+		for (String valueType : new String[] { "exact", "wildcard", "cidr" }) {
+			for (int valueCount : new int[] { 1, 10, 100, 1000 }) {
+				ret.add(new Object[] { valueType, valueCount });
+			}
+		}
+
+		return ret;
+	}
+
+	@BeforeClass
+	public static void init() throws IOException {
+		new File("target").mkdirs();
+
+		Files.write("value-type;value-count;ops-per-sec;match-ratio;\n", outputFile(), Charsets.UTF_8);
+	}
+
+	@Test
+	public void ipMatcherTest() throws Exception {
+		Random                    random   = new Random(valueCount);
+		List<String>              values   = new ArrayList<>();
+		RangerAccessRequestImpl[] requests = new RangerAccessRequestImpl[REQUEST_COUNT];
+
+		for (int i = 0; i < valueCount; i++) {
+			int subnet = 10 << 16 | random.nextInt(1 << 16); // 10.x.y
+
+			switch (valueType) {
+				case "exact":
+					values.add(toIp(subnet, random.nextInt(256)));
+				break;
+
+				case "wildcard":
+					values.add(toIp(subnet, -1) + "*");
+				break;
+
+				default:
+					values.add(toIp(subnet, 0) + "/24");
+				break;
+			}
+		}
+
+		for (int i = 0; i < REQUEST_COUNT; i++) {
+			String value     = values.get(random.nextInt(values.size()));
+			String requestIp = random.nextBoolean() ? toIp(10 << 16 | random.nextInt(1 << 16), random.nextInt(256)) : toMatchingIp(value, random);
+
+			requests[i] = new RangerAccessRequestImpl();
+
+			requests[i].setClientIPAddress(requestIp);
+		}
+
+		RangerIpMatcher matcher = new RangerIpMatcher();
+
+		matcher.setPolicyItemCondition(new RangerPolicyItemCondition("ip-range", values));
+		matcher.init();
+
+		runMatcher(matcher, requests, WARM_UP__ITERATIONS);
+
+		long startTimeNanos = System.nanoTime();
+		int  matchCount     = runMatcher(matcher, requests, MEASURED__ITERATIONS);
+		long elapsedNanos   = System.nanoTime() - startTimeNanos;
+		long opsPerSec      = elapsedNanos > 0 ? (MEASURED__ITERATIONS * 1_000_000_000L / elapsedNanos) : 0;
+
+		System.out.println(String.format("%s(values=%s): %s ops/sec, match-ratio=%.3f", valueType, valueCount, opsPerSec, (double) matchCount / MEASURED__ITERATIONS));
+
+		Files.append(String.format("%s;%s;%s;%.3f;\n", valueType, valueCount, opsPerSec, (double) matchCount / MEASURED__ITERATIONS), outputFile(), Charsets.UTF_8);
+	}
+
+	private static int runMatcher(RangerIpMatcher matcher, RangerAccessRequestImpl[] requests, int iterations) {
+		int ret = 0;
+
+		for (int i = 0; i < iterations; i++) {
+			if (matcher.isMatched(requests[i % requests.length])) {
+				ret++;
+			}
+		}
+
+		return ret;
+	}
+
+	// returns a.b.c.d for the given 24-bit subnet; a.b.c. when host is -1
+	private static String toIp(int subnet, int host) {
+		String ret = (subnet >>> 16) + "." + ((subnet >>> 8) & 0xff) + "." + (subnet & 0xff) + ".";
+
+		return host == -1 ? ret : (ret + host);
+	}
+
+	private static String toMatchingIp(String value, Random random) {
+		if (value.endsWith("*")) {
+			return value.substring(0, value.length() - 1) + random.nextInt(256);
+		} else if (value.endsWith("/24")) {
+			return value.substring(0, value.lastIndexOf('.') + 1) + random.nextInt(256);
+		} else {
+			return value;
+		}
+	}
+
+	private static File outputFile() {
+		return new File("target", "ip-matcher-performance.csv");
+	}
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.policyengine;
+
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hadoop.thirdparty.com.google.common.base.Charsets;
+import org.apache.hadoop.thirdparty.com.google.common.io.Files;
+import org.apache.ranger.plugin.util.RangerReadWriteLock;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * A parameterized JUnit microbenchmark for RangerReadWriteLock under contention, for each lock type. Reader threads
+ * continuously acquire the read lock, as access evaluations do, while a writer thread periodically holds the write lock
+ * for a short time, as an in-place policy/tag update does. Reports read throughput and read lock acquisition latency
+ * percentiles; with a fair lock, readers arriving while a writer waits are queued behind it.
+ * Results are written to target/read-write-lock-performance.csv.
+ */
+@RunWith(Parameterized.class)
+public class ReadWriteLockPerformanceTest {
+	private static final long WARM_UP__MILLIS       = 1_000;
+	private static final long MEASURED__MILLIS      = 3_000;
+	private static final long WRITE_INTERVAL_MILLIS = 5;
+	private static final long WRITE_HOLD_MICROS     = 200;
+	private static final int  NESTED_READ_PERCENT   = 10; // result-processor calling back into the policy engine
+
+	@Parameter(0)
+	public RangerReadWriteLock.LockType lockType;
+
+	@Parameter(1)
+	public Integer readerCount;
+
+	@Parameters(name = "{index}: {0}(readers: {1})")
+	public static Iterable<Object[]> data() {
+		List<Object[]> ret = new ArrayList<>();
+
+		for (RangerReadWriteLock.LockType lockType : RangerReadWriteLock.LockType.values()) {
+			for (int readerCount : new int[] { 1, 4, 16, 64 }) {
+				ret.add(new Object[] { lockType, readerCount });
+			}
+		}
+
+		return ret;
+	}
+
+	@BeforeClass
+	public static void init() throws IOException {
+		new File("target").mkdirs();
+
+		Files.write("lock-type;readers;read-ops-per-sec;p50-nanos;p99-nanos;p99.9-nanos;max-nanos;writes;\n", outputFile(), Charsets.UTF_8);
+	}
+
+	@Test
+	public void readWriteLockTest() throws Exception {
+		RangerReadWriteLock lock = new RangerReadWriteLock(true, lockType);
+
+		run(lock, WARM_UP__MILLIS, new long[64]);
+
+		long[] latencyHistogram = new long[64]; // count of read lock acquisitions, by log2(nanos)
+		long   writeCount       = run(lock, MEASURED__MILLIS, latencyHistogram);
+		long   readCount        = 0;
+
+		for (long count : latencyHistogram) {
+			readCount += count;
+		}
+
+		long opsPerSec = readCount * 1000 / MEASURED__MILLIS;
+
+		String result = String.format("%s;%s;%s;%s;%s;%s;%s;%s;", lockType, readerCount, opsPerSec, percentileNanos(latencyHistogram, readCount, 0.5), percentileNanos(latencyHistogram, readCount, 0.99),
+		                              percentileNanos(latencyHistogram, readCount, 0.999), percentileNanos(latencyHistogram, readCount, 1.0), writeCount);
+
+		System.out.println(result);
+
+		Files.append(result + "\n", outputFile(), Charsets.UTF_8);
+	}
+
+	// returns number of write lock acquisitions
+	private long run(final RangerReadWriteLock lock, long durationMillis, final long[] latencyHistogram) throws InterruptedException {
+		final long           endTimeNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+		final CountDownLatch startLatch   = new CountDownLatch(1);
+		final CountDownLatch doneLatch    = new CountDownLatch(readerCount);
+		final long[]         state        = new long[2]; // updated by writer, read by readers
+		final long[]         writeCount   = new long[1];
+		final AtomicBoolean  sawPartial   = new AtomicBoolean(false); // set by a reader that sees a write in progress
+
+		for (int i = 0; i < readerCount; i++) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					long[] histogram = new long[latencyHistogram.length];
+
+					try {
+						startLatch.await();
+
+						for (int j = 0; System.nanoTime() < endTimeNanos; j++) {
+							long startNanos = System.nanoTime();
+
+							try (RangerReadWriteLock.RangerLock readLock = lock.getReadLock()) {
+								histogram[63 - Long.numberOfLeadingZeros(Math.max(1, System.nanoTime() - startNanos))]++;
+
+								if (state[0] != state[1]) {
+									sawPartial.set(true);
+								}
+
+								if (j % 100 < NESTED_READ_PERCENT) {
+									try (RangerReadWriteLock.RangerLock nestedReadLock = lock.getReadLock()) {
+										if (state[0] != state[1]) {
+											sawPartial.set(true);
+										}
+									}
+								}
+							}
+						}
+					} catch (InterruptedException excp) {
+						Thread.currentThread().interrupt();
+					} finally {
+						synchronized (latencyHistogram) {
+							for (int j = 0; j < histogram.length; j++) {
+								latencyHistogram[j] += histogram[j];
+							}
+						}
+
+						doneLatch.countDown();
+					}
+				}
+			}, String.format("Reader #%s", i)).start();
+		}
+
+		Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					startLatch.await();
+
+					while (System.nanoTime() < endTimeNanos) {
+						Thread.sleep(WRITE_INTERVAL_MILLIS);
+
+						try (RangerReadWriteLock.RangerLock writeLock = lock.getWriteLock()) {
+							long holdEndNanos = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(WRITE_HOLD_MICROS);
+
+							state[0]++;
+
+							while (System.nanoTime() < holdEndNanos) {
+								// simulate update of policies/tags
+							}
+
+							state[1]++;
+						}
+
+						writeCount[0]++;
+					}
+				} catch (InterruptedException excp) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}, "Writer");
+
+		writer.start();
+		startLatch.countDown();
+		doneLatch.await();
+		writer.join();
+
+		assertFalse(lock + ": reader observed a partial update", sawPartial.get());
+
+		return writeCount[0];
+	}
+
+	// upper bound of the histogram bucket that contains the given percentile
+	private static long percentileNanos(long[] histogram, long totalCount, double percentile) {
+		long threshold = (long) Math.ceil(totalCount * percentile);
+		long count     = 0;
+
+		for (int i = 0; i < histogram.length; i++) {
+			count += histogram[i];
+
+			if (count >= threshold) {
+				return 2L << i;
+			}
+		}
+
+		return -1;
+	}
+
+	private static File outputFile() {
+		return new File("target", "read-write-lock-performance.csv");
+	}
+}